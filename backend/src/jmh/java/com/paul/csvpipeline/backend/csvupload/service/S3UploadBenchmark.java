@@ -0,0 +1,176 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.lambda.s3.S3Objects;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upload and download throughput against LocalStack for each {@code csvpipeline.s3.client}.
+ * {@code upload} stores through {@link S3StorageService}: the blocking client streaming through
+ * {@code S3MultipartOutputStream}, and the transfer manager over the CRT and the Netty async
+ * clients. {@code download} reads an object of the same size as the Lambdas do, through
+ * {@link S3Objects} on the async clients, against a plain GET on the blocking client. Four
+ * threads each move a file of {@code fileMegabytes} per op, so all together move
+ * {@code 4 * fileMegabytes} MB per {@code score} milliseconds.
+ *
+ * <p>Needs Docker. Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=S3UploadBenchmark}.
+ * LocalStack runs on the same machine, so the numbers show the clients' overhead and
+ * parallelism rather than what a network to S3 allows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class S3UploadBenchmark {
+
+    private static final String BUCKET = "csvpipeline-benchmark";
+    private static final String DOWNLOAD_KEY = "benchmark/download.csv";
+    private static final int PART_SIZE_MB = 8;
+    private static final int MAX_CONCURRENCY = 64;
+    private static final long MEGABYTE = 1024 * 1024;
+
+    @Param({"sync", "crt", "netty"})
+    public String client;
+
+    @Param({"64"})
+    public int fileMegabytes;
+
+    private LocalStackContainer localStack;
+    private S3Client s3;
+    private S3Presigner presigner;
+    private S3AsyncClient s3Async;
+    private S3TransferManager transferManager;
+    private S3StorageService storage;
+    private FileSystemResource file;
+    private final AtomicLong uploads = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        localStack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:3.3"))
+                .withServices(LocalStackContainer.Service.S3);
+        localStack.start();
+        URI endpoint = localStack.getEndpointOverride(LocalStackContainer.Service.S3);
+        Region region = Region.of(localStack.getRegion());
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test"));
+
+        s3 = S3Client.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .endpointOverride(endpoint)
+                .build();
+        s3.createBucket(b -> b.bucket(BUCKET));
+        presigner = S3Presigner.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .endpointOverride(endpoint)
+                .build();
+
+        // Built as S3ClientConfig builds them.
+        s3Async = switch (client) {
+            case "crt" -> S3AsyncClient.crtBuilder()
+                    .region(region)
+                    .credentialsProvider(credentials)
+                    .forcePathStyle(true)
+                    .endpointOverride(endpoint)
+                    .minimumPartSizeInBytes(PART_SIZE_MB * MEGABYTE)
+                    .maxConcurrency(MAX_CONCURRENCY)
+                    .build();
+            case "netty" -> S3AsyncClient.builder()
+                    .region(region)
+                    .credentialsProvider(credentials)
+                    .forcePathStyle(true)
+                    .endpointOverride(endpoint)
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(MAX_CONCURRENCY))
+                    .multipartEnabled(true)
+                    .multipartConfiguration(MultipartConfiguration.builder()
+                            .thresholdInBytes(PART_SIZE_MB * MEGABYTE)
+                            .minimumPartSizeInBytes(PART_SIZE_MB * MEGABYTE)
+                            .build())
+                    .build();
+            default -> null;
+        };
+        transferManager = s3Async == null ? null : S3TransferManager.builder().s3Client(s3Async).build();
+        storage = new S3StorageService(s3, presigner, Optional.ofNullable(transferManager), BUCKET,
+                PART_SIZE_MB, 3, 8, 60);
+
+        Path spooled = Files.createTempFile("s3-upload-benchmark", ".csv");
+        byte[] row = "1234567,Customer Name,customer@example.com,1234.56\n".getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = Files.newOutputStream(spooled)) {
+            for (long written = 0; written < fileMegabytes * MEGABYTE; written += row.length) {
+                out.write(row);
+            }
+        }
+        file = new FileSystemResource(spooled);
+        s3.putObject(b -> b.bucket(BUCKET).key(DOWNLOAD_KEY), RequestBody.fromFile(spooled));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.shutdown();
+        if (transferManager != null) {
+            transferManager.close();
+            s3Async.close();
+        }
+        presigner.close();
+        s3.close();
+        localStack.stop();
+        Files.deleteIfExists(file.getFile().toPath());
+    }
+
+    @Benchmark
+    public void upload() {
+        storage.upload("benchmark/" + uploads.incrementAndGet() + ".csv", file, "text/csv");
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        try (InputStream in = s3Async == null
+                ? s3.getObject(b -> b.bucket(BUCKET).key(DOWNLOAD_KEY))
+                : S3Objects.get(s3Async, BUCKET, DOWNLOAD_KEY)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizer and structural indexer throughput over 8 MiB of rows in the sample schema's
+ * shape. Each op is one pass over the file, so MB/s is {@code 8.4 / score}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark,vector test-compile exec:exec -Dbenchmark=CsvTokenizerBenchmark}.
+ * Without the {@code vector} profile {@code preferred} is the scalar indexer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CsvTokenizerBenchmark {
+
+    private static final int FILE_BYTES = 8 << 20;
+
+    @Param({"none", "scalar", "preferred"})
+    public String indexer;
+
+    private byte[] file;
+    private StructuralIndexer structuralIndexer;
+    private long[] separators;
+    private long[] quotes;
+    private long[] newlines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("name,age,amount,email,signup_date\n");
+        for (int i = 0; csv.length() < FILE_BYTES; i++) {
+            csv.append("\"Customer ").append(random.nextInt(100_000)).append(", Jr\",")
+                    .append(18 + random.nextInt(70)).append(',')
+                    .append(random.nextInt(100_000) / 100.0).append(",user").append(i).append("@example.com,")
+                    .append("2024-").append(10 + random.nextInt(3)).append('-').append(10 + random.nextInt(19))
+                    .append('\n');
+        }
+        file = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        structuralIndexer = switch (indexer) {
+            case "none" -> null;
+            case "scalar" -> StructuralIndexer.scalar();
+            default -> StructuralIndexer.preferred();
+        };
+        int blocks = file.length / StructuralIndexer.BLOCK_BYTES;
+        separators = new long[blocks];
+        quotes = new long[blocks];
+        newlines = new long[blocks];
+    }
+
+    @Benchmark
+    public long tokenize() throws IOException {
+        long fields = 0;
+        try (CsvTokenizer tokenizer = new CsvTokenizer(
+                new ByteArrayInputStream(file), CsvTokenizer.DEFAULT_BUFFER_SIZE, structuralIndexer)) {
+            while (tokenizer.nextRecord()) {
+                fields += tokenizer.fieldCount();
+            }
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public long[] index() {
+        StructuralIndexer target = structuralIndexer == null ? StructuralIndexer.scalar() : structuralIndexer;
+        target.index(file, 0, separators.length, separators, quotes, newlines);
+        return newlines;
+    }
+}
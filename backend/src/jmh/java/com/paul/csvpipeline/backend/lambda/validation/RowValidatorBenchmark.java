@@ -0,0 +1,76 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interpreted versus compiled row validation on one tokenized record.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=RowValidatorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RowValidatorBenchmark {
+
+    private static final String[] VALUES = {"Jane Doe", "12345", "120.50", "jane@example.com", "2024-01-31"};
+
+    @Param({"4", "200"})
+    public int columns;
+
+    @Param({"interpreted", "compiled"})
+    public String mode;
+
+    private RowValidator rowValidator;
+    private CsvTokenizer record;
+    private ValidationErrorCollector errors;
+    private StatisticsCollector statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Cycle through every type so the interpreted switch sees the same mix as real files.
+        List<ColumnDefinition> schema = new ArrayList<>();
+        StringBuilder row = new StringBuilder();
+        ColumnType[] types = ColumnType.values();
+        for (int i = 0; i < columns; i++) {
+            schema.add(new ColumnDefinition("column" + i, types[i % types.length]));
+            row.append(i == 0 ? "" : ",").append(VALUES[i % VALUES.length]);
+        }
+
+        rowValidator = mode.equals("compiled")
+                ? RowValidatorCompiler.compile(schema)
+                : RowValidator.interpreted(schema);
+        record = new CsvTokenizer(new ByteArrayInputStream((row + "\n").getBytes(StandardCharsets.UTF_8)));
+        record.nextRecord();
+        errors = new ValidationErrorCollector(schema, ErrorBudget.firstErrors(1));
+        statistics = new StatisticsCollector(schema);
+    }
+
+    @Benchmark
+    public ValidationErrorCollector validateRow() {
+        rowValidator.validate(record, 1, errors, statistics);
+        return errors;
+    }
+}
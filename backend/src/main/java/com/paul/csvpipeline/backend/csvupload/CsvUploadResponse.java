@@ -12,7 +12,11 @@ public record CsvUploadResponse(
         CsvUploadStatus status,
         String s3Key,
         Instant createdAt,
-        Instant updatedAt
+        Instant updatedAt,
+        Long parentId,
+        Long duplicateOf,
+        long sizeBytes,
+        Long uncompressedSizeBytes
 ) {
     public static CsvUploadResponse from(CsvUpload upload) {
         return new CsvUploadResponse(
@@ -21,7 +25,11 @@ public record CsvUploadResponse(
                 upload.getStatus(),
                 upload.getS3Key(),
                 upload.getCreatedAt(),
-                upload.getUpdatedAt()
+                upload.getUpdatedAt(),
+                upload.getParentId(),
+                upload.getDuplicateOf(),
+                upload.getSizeBytes(),
+                upload.getUncompressedSizeBytes()
         );
     }
 }
\ No newline at end of file
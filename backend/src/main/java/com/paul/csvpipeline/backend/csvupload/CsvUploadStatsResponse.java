@@ -0,0 +1,26 @@
+package com.paul.csvpipeline.backend.csvupload;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadStats;
+
+import java.time.Instant;
+
+/**
+ * Statistics of an upload. {@code columns} is the stored JSON array of column summaries,
+ * written into the response verbatim rather than parsed and serialized again.
+ */
+public record CsvUploadStatsResponse(
+        Long uploadId,
+        long rowCount,
+        @JsonRawValue String columns,
+        Instant computedAt
+) {
+    public static CsvUploadStatsResponse from(CsvUploadStats stats) {
+        return new CsvUploadStatsResponse(
+                stats.getUploadId(),
+                stats.getRowCount(),
+                stats.getStatisticsJson(),
+                stats.getComputedAt()
+        );
+    }
+}
@@ -4,5 +4,6 @@ public enum CsvUploadStatus {
     PENDING,
     VALIDATING,
     VALIDATED,
-    VALIDATION_FAILED
+    VALIDATION_FAILED,
+    PERSISTED
 }
\ No newline at end of file
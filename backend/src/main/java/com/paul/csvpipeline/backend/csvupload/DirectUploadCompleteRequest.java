@@ -0,0 +1,10 @@
+package com.paul.csvpipeline.backend.csvupload;
+
+import java.util.List;
+
+/** The ETag S3 returned for every part, in any order. */
+public record DirectUploadCompleteRequest(String multipartUploadId, List<Part> parts) {
+
+    public record Part(int partNumber, String eTag) {
+    }
+}
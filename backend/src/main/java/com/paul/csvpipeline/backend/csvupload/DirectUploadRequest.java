@@ -0,0 +1,15 @@
+package com.paul.csvpipeline.backend.csvupload;
+
+/**
+ * Starts an upload whose bytes the browser sends straight to S3. {@code sizeBytes} sizes the
+ * parts; the other fields mean what they mean on a multipart {@code POST /api/uploads}.
+ */
+public record DirectUploadRequest(
+        String filename,
+        Long sizeBytes,
+        String contentType,
+        String schemaName,
+        Integer schemaVersion,
+        Long appendTo
+) {
+}
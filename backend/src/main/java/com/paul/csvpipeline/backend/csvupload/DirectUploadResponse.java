@@ -0,0 +1,20 @@
+package com.paul.csvpipeline.backend.csvupload;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The registered upload and where to send its bytes: part {@code n} is bytes
+ * {@code (n - 1) * partSize} up to {@code n * partSize} of the file, PUT to its URL before
+ * {@code expiresAt}. Each PUT answers with an ETag, which completing the upload needs.
+ */
+public record DirectUploadResponse(
+        CsvUploadResponse upload,
+        String multipartUploadId,
+        long partSize,
+        List<Part> parts,
+        Instant expiresAt
+) {
+    public record Part(int partNumber, String url) {
+    }
+}
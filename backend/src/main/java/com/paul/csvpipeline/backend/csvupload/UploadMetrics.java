@@ -4,6 +4,10 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Component;
 
+/**
+ * Upload counters. Each file of a bulk upload is counted as requested and then as exactly one
+ * of accepted, rejected, deduplicated or failed to store.
+ */
 @Component
 public class UploadMetrics {
 
@@ -11,13 +15,17 @@ public class UploadMetrics {
     private final Counter uploadAccepted;
     private final Counter uploadRejected;
     private final Counter statusPolled;
+    private final Counter statsCacheHit;
+    private final Counter statsCacheMiss;
+    private final Counter uploadDeduplicated;
+    private final Counter uploadStoreFailed;
 
     public UploadMetrics(MeterRegistry registry) {
         this.uploadRequested = Counter.builder("csv.upload.requests")
                 .description("Number of CSV upload attempts")
                 .register(registry);
         this.uploadAccepted = Counter.builder("csv.upload.accepted")
-                .description("Number of CSV uploads accepted for processing")
+                .description("Number of CSV uploads stored and accepted for processing")
                 .register(registry);
         this.uploadRejected = Counter.builder("csv.upload.rejected")
                 .description("Number of CSV uploads rejected due to validation")
@@ -25,21 +33,63 @@ public class UploadMetrics {
         this.statusPolled = Counter.builder("csv.upload.status.polled")
                 .description("Number of times upload status was polled")
                 .register(registry);
+        this.statsCacheHit = Counter.builder("csv.upload.stats.cache")
+                .tag("result", "hit")
+                .description("Upload statistics reads answered from memory")
+                .register(registry);
+        this.statsCacheMiss = Counter.builder("csv.upload.stats.cache")
+                .tag("result", "miss")
+                .description("Upload statistics reads that went to the database")
+                .register(registry);
+        this.uploadDeduplicated = Counter.builder("csv.upload.deduplicated")
+                .description("Number of CSV uploads that reused the validation of identical content instead of being stored")
+                .register(registry);
+        this.uploadStoreFailed = Counter.builder("csv.upload.store.failed")
+                .description("Number of registered CSV uploads whose transfer to S3 failed")
+                .register(registry);
     }
 
     public void markRequested() {
         uploadRequested.increment();
     }
 
+    public void markRequested(int count) {
+        uploadRequested.increment(count);
+    }
+
     public void markAccepted() {
         uploadAccepted.increment();
     }
 
+    public void markAccepted(int count) {
+        uploadAccepted.increment(count);
+    }
+
     public void markRejected() {
         uploadRejected.increment();
     }
 
+    public void markRejected(int count) {
+        uploadRejected.increment(count);
+    }
+
     public void markStatusPolled() {
         statusPolled.increment();
     }
+
+    public void markStatsCacheHit() {
+        statsCacheHit.increment();
+    }
+
+    public void markStatsCacheMiss() {
+        statsCacheMiss.increment();
+    }
+
+    public void markDeduplicated() {
+        uploadDeduplicated.increment();
+    }
+
+    public void markStoreFailed() {
+        uploadStoreFailed.increment();
+    }
 }
\ No newline at end of file
@@ -1,21 +1,39 @@
 package com.paul.csvpipeline.backend.csvupload.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.net.URI;
 
+/**
+ * S3 clients of the API. {@code csvpipeline.s3.client} picks how uploads reach S3: {@code sync}
+ * (the default) streams them through the blocking client, {@code crt} and {@code netty} hand
+ * them to an {@link S3TransferManager} over an async client, which sends parts of
+ * {@code csvpipeline.s3.upload.part-size-mb} over up to {@code csvpipeline.s3.async.max-concurrency}
+ * pooled connections.
+ */
 @Configuration
 class S3ClientConfig {
 
+    private static final long MEGABYTE = 1024 * 1024;
+
     @Value("${csvpipeline.aws.region:us-east-1}")
     private String region;
 
@@ -23,14 +41,17 @@ class S3ClientConfig {
     @Value("${csvpipeline.aws.endpoint:}")
     private String endpointOverride;
 
+    @Value("${csvpipeline.s3.upload.part-size-mb:8}")
+    private long partSizeMegabytes;
+
+    @Value("${csvpipeline.s3.async.max-concurrency:64}")
+    private int maxConcurrency;
+
     @Bean
     S3Client s3Client() {
-        // Use LocalStack default creds (“test”/“test”) for dev/test
-        var creds = AwsBasicCredentials.create("test", "test");
-
         software.amazon.awssdk.services.s3.S3ClientBuilder builder = S3Client.builder()
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(creds))
+                .credentialsProvider(credentials())
                 .serviceConfiguration(S3Configuration.builder()
                         .pathStyleAccessEnabled(true)
                         .build())
@@ -43,4 +64,75 @@ class S3ClientConfig {
 
         return builder.build();
     }
-}
\ No newline at end of file
+
+    /** The native CRT client splits transfers into parts itself and sizes its connection pool to them. */
+    @Bean
+    @ConditionalOnProperty(name = "csvpipeline.s3.client", havingValue = "crt")
+    S3AsyncClient crtS3AsyncClient() {
+        S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials())
+                .forcePathStyle(true)
+                .minimumPartSizeInBytes(partSizeMegabytes * MEGABYTE)
+                .maxConcurrency(maxConcurrency);
+
+        if (endpointOverride != null && !endpointOverride.isBlank()) {
+            builder = builder.endpointOverride(URI.create(endpointOverride));
+        }
+
+        return builder.build();
+    }
+
+    /** The SDK's own multipart support over a pooled Netty client; no native code. */
+    @Bean
+    @ConditionalOnProperty(name = "csvpipeline.s3.client", havingValue = "netty")
+    S3AsyncClient nettyS3AsyncClient() {
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials())
+                .forcePathStyle(true)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConcurrency))
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(partSizeMegabytes * MEGABYTE)
+                        .minimumPartSizeInBytes(partSizeMegabytes * MEGABYTE)
+                        .build());
+
+        if (endpointOverride != null && !endpointOverride.isBlank()) {
+            builder = builder.endpointOverride(URI.create(endpointOverride));
+        }
+
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${csvpipeline.s3.client:sync}' != 'sync'")
+    S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
+                .build();
+    }
+
+    /** Signs URLs browsers upload parts to; same account and endpoint as {@link #s3Client()}. */
+    @Bean
+    S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials())
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .build());
+
+        if (endpointOverride != null && !endpointOverride.isBlank()) {
+            builder = builder.endpointOverride(URI.create(endpointOverride));
+        }
+
+        return builder.build();
+    }
+
+    private static StaticCredentialsProvider credentials() {
+        // Use LocalStack default creds (“test”/“test”) for dev/test
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test"));
+    }
+}
@@ -1,11 +1,18 @@
 package com.paul.csvpipeline.backend.csvupload.controller;
 
 import com.paul.csvpipeline.backend.csvupload.CsvUploadResponse;
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatsResponse;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadCompleteRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadResponse;
 import com.paul.csvpipeline.backend.csvupload.service.CsvUploadService;
+import com.paul.csvpipeline.backend.csvupload.service.UploadStatsService;
+import com.paul.csvpipeline.backend.csvupload.service.UploadTransfers;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -14,21 +21,71 @@ import java.util.List;
 public class CsvUploadController {
 
     private final CsvUploadService service;
+    private final UploadStatsService statsService;
+    private final UploadTransfers transfers;
 
-    public CsvUploadController(CsvUploadService service) {
+    public CsvUploadController(CsvUploadService service, UploadStatsService statsService, UploadTransfers transfers) {
         this.service = service;
+        this.statsService = statsService;
+        this.transfers = transfers;
     }
 
+    /**
+     * 200 once the file is in S3, or, with {@code csvpipeline.upload.async.enabled}, 202 as soon
+     * as it is spooled, pointing at the upload to poll.
+     */
     @PostMapping(consumes = "multipart/form-data")
     public ResponseEntity<CsvUploadResponse> upload(
             @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "schemaName", required = false) String schemaName,
+            @RequestParam(value = "schemaVersion", required = false) Integer schemaVersion,
+            @RequestParam(value = "appendTo", required = false) Long appendTo,
             Authentication authentication
     ) {
         String userEmail = authentication.getName();
-        CsvUploadResponse response = service.registerUpload(file, userEmail);
+        CsvUploadResponse response = service.registerUpload(file, userEmail, schemaName, schemaVersion, appendTo);
+        if (transfers.isAsync()) {
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(response.id()).toUri())
+                    .body(response);
+        }
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Many {@code files}, or a single zip of them, against one schema; one upload per file,
+     * answered in order. 200 once all are in S3, or 202 in async mode once they are spooled.
+     */
+    @PostMapping(value = "/bulk", consumes = "multipart/form-data")
+    public ResponseEntity<List<CsvUploadResponse>> bulkUpload(
+            @RequestPart("files") List<MultipartFile> files,
+            @RequestParam(value = "schemaName", required = false) String schemaName,
+            @RequestParam(value = "schemaVersion", required = false) Integer schemaVersion,
+            Authentication authentication
+    ) {
+        List<CsvUploadResponse> responses = service.registerBulkUpload(files, authentication.getName(), schemaName, schemaVersion);
+        return transfers.isAsync() ? ResponseEntity.accepted().body(responses) : ResponseEntity.ok(responses);
+    }
+
+    /** Registers an upload and returns presigned URLs to PUT its parts to S3 directly. */
+    @PostMapping("/direct")
+    public DirectUploadResponse initiateDirect(
+            @RequestBody DirectUploadRequest request,
+            Authentication authentication
+    ) {
+        return service.initiateDirectUpload(request, authentication.getName());
+    }
+
+    /** Assembles a direct upload once every part is in S3; processing starts from there. */
+    @PostMapping("/{id}/complete")
+    public CsvUploadResponse completeDirect(
+            @PathVariable Long id,
+            @RequestBody DirectUploadCompleteRequest request,
+            Authentication authentication
+    ) {
+        return service.completeDirectUpload(id, request, authentication.getName());
+    }
+
     @GetMapping
     public List<CsvUploadResponse> list(Authentication authentication) {
         return service.listUploads(authentication.getName());
@@ -41,4 +98,13 @@ public class CsvUploadController {
     ) {
         return service.getUpload(id, authentication.getName());
     }
+
+    /** 404 until validation has finished and the statistics were stored. */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<CsvUploadStatsResponse> stats(
+            @PathVariable Long id,
+            Authentication authentication
+    ) {
+        return ResponseEntity.of(statsService.getStatistics(id, authentication.getName()));
+    }
 }
\ No newline at end of file
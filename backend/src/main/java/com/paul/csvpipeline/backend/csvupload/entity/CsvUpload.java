@@ -4,7 +4,6 @@ import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
 import jakarta.persistence.*;
 
 import java.time.Instant;
-import java.util.UUID;
 
 @Entity
 @Table(
@@ -15,8 +14,10 @@ import java.util.UUID;
 )
 public class CsvUpload {
 
+    /** Pooled: Hibernate takes 50 ids per sequence call, so ids are known before the row is inserted. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "csv_uploads_seq")
+    @SequenceGenerator(name = "csv_uploads_seq", sequenceName = "csv_uploads_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_email", nullable = false)
@@ -29,18 +30,44 @@ public class CsvUpload {
     @Column(nullable = false, length = 50)
     private CsvUploadStatus status = CsvUploadStatus.PENDING;
 
+    @GeneratedS3Key
     @Column(name = "s3_key", nullable = false, length = 512)
     private String s3Key;
 
+    /** Size of the file as uploaded and stored, compressed if it was uploaded compressed. */
     @Column(name = "size_bytes", nullable = false)
     private long sizeBytes;
 
+    /** Size of the CSV once decompressed; recorded by validation for compressed uploads. */
+    @Column(name = "uncompressed_size_bytes")
+    private Long uncompressedSizeBytes;
+
     @Column(name = "content_type", nullable = false)
     private String contentType;
 
     @Column(name = "error_message")
     private String errorMessage;
 
+    /** Registered schema version to validate against; {@code null} keeps the built-in schema. */
+    @Column(name = "schema_id")
+    private Long schemaId;
+
+    /** Upload this one is a delta of; its statistics are merged into the parent's. */
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    /** When the status Lambda merged this delta's statistics into the parent; set once. */
+    @Column(name = "merged_at", insertable = false, updatable = false)
+    private Instant mergedAt;
+
+    /** SHA-256 of the file as uploaded, in hex. */
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256;
+
+    /** Earlier upload of the same content and schema whose outcome this one shares; see {@link CsvUploadContent}. */
+    @Column(name = "duplicate_of")
+    private Long duplicateOf;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -55,9 +82,13 @@ public class CsvUpload {
         this.filename = filename;
         this.sizeBytes = sizeBytes;
         this.contentType = contentType;
-        this.s3Key = (s3Key == null || s3Key.isBlank())
-                ? "uploads/" + userEmail + "/" + UUID.randomUUID() + "/" + filename
-                : s3Key;
+        // Without a key, the insert derives it from the id; see s3Key(String, Long, String).
+        this.s3Key = (s3Key == null || s3Key.isBlank()) ? null : s3Key;
+    }
+
+    /** Key an upload's file is stored under; the pipeline reads the upload id back from it. */
+    public static String s3Key(String userEmail, Long id, String filename) {
+        return "uploads/%s/%s/%s".formatted(userEmail, id, filename);
     }
 
     @PrePersist
@@ -104,6 +135,18 @@ public class CsvUpload {
         return sizeBytes;
     }
 
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Long getUncompressedSizeBytes() {
+        return uncompressedSizeBytes;
+    }
+
+    public void setUncompressedSizeBytes(Long uncompressedSizeBytes) {
+        this.uncompressedSizeBytes = uncompressedSizeBytes;
+    }
+
     public String getContentType() {
         return contentType;
     }
@@ -116,6 +159,42 @@ public class CsvUpload {
         this.errorMessage = errorMessage;
     }
 
+    public Long getSchemaId() {
+        return schemaId;
+    }
+
+    public void setSchemaId(Long schemaId) {
+        this.schemaId = schemaId;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Instant getMergedAt() {
+        return mergedAt;
+    }
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
+
+    public Long getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(Long duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
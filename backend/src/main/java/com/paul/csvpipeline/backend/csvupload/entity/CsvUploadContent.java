@@ -0,0 +1,91 @@
+package com.paul.csvpipeline.backend.csvupload.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Which upload processes a user's file content against a schema. Later uploads of the same
+ * bytes against the same schema version follow that upload instead of being validated again.
+ * {@code schemaKey} is the schema row's id, or {@code 0} for the built-in schema, so the
+ * unique constraint also covers uploads without a registered schema.
+ */
+@Entity
+@Table(
+        name = "csv_upload_contents",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_csv_upload_contents_user_email_sha256_schema", columnNames = {"user_email", "sha256", "schema_key"})
+        }
+)
+public class CsvUploadContent {
+
+    /** {@link #getSchemaKey()} of uploads validated against the built-in schema. */
+    public static final long BUILT_IN_SCHEMA = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "csv_upload_contents_seq")
+    @SequenceGenerator(name = "csv_upload_contents_seq", sequenceName = "csv_upload_contents_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "schema_key", nullable = false)
+    private long schemaKey;
+
+    @Column(name = "upload_id", nullable = false)
+    private Long uploadId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    protected CsvUploadContent() {
+    }
+
+    public CsvUploadContent(String userEmail, String sha256, long schemaKey, Long uploadId) {
+        this.userEmail = userEmail;
+        this.sha256 = sha256;
+        this.schemaKey = schemaKey;
+        this.uploadId = uploadId;
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public static long schemaKey(Long schemaId) {
+        return schemaId == null ? BUILT_IN_SCHEMA : schemaId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSchemaKey() {
+        return schemaKey;
+    }
+
+    public Long getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(Long uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
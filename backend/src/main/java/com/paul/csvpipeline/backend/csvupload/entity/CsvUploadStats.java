@@ -0,0 +1,58 @@
+package com.paul.csvpipeline.backend.csvupload.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Column statistics of one upload, written by the status Lambda in the same transaction that
+ * records the validation outcome. {@code statisticsJson} is the validation Lambda's list of
+ * column summaries as JSON, stored and served as is.
+ */
+@Entity
+@Table(name = "csv_upload_stats")
+public class CsvUploadStats {
+
+    @Id
+    @Column(name = "upload_id")
+    private Long uploadId;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    @Column(name = "statistics_json", nullable = false, columnDefinition = "text")
+    private String statisticsJson;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    protected CsvUploadStats() {
+    }
+
+    public CsvUploadStats(Long uploadId, long rowCount, String statisticsJson) {
+        this.uploadId = uploadId;
+        this.rowCount = rowCount;
+        this.statisticsJson = statisticsJson;
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.computedAt = Instant.now();
+    }
+
+    public Long getUploadId() {
+        return uploadId;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public String getStatisticsJson() {
+        return statisticsJson;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+}
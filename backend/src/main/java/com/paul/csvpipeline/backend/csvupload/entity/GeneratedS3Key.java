@@ -0,0 +1,15 @@
+package com.paul.csvpipeline.backend.csvupload.entity;
+
+import org.hibernate.annotations.ValueGenerationType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Fills in an upload's S3 key when it is inserted, from the id its sequence assigned; see {@link S3KeyGenerator}. */
+@ValueGenerationType(generatedBy = S3KeyGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface GeneratedS3Key {
+}
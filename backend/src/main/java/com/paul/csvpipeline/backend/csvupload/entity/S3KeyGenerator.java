@@ -0,0 +1,32 @@
+package com.paul.csvpipeline.backend.csvupload.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+/**
+ * Builds the {@code uploads/{userEmail}/{id}/{filename}} key of a new upload just before its
+ * row is inserted. The id comes from a pooled sequence and is assigned on persist, so the key
+ * goes into the one INSERT instead of an UPDATE after it. A key set beforehand, such as the
+ * shared one of a duplicate, is kept.
+ */
+public class S3KeyGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        if (currentValue != null) {
+            return currentValue;
+        }
+        CsvUpload upload = (CsvUpload) owner;
+        return CsvUpload.s3Key(upload.getUserEmail(), upload.getId(), upload.getFilename());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
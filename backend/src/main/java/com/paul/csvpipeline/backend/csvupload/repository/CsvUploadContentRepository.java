@@ -0,0 +1,23 @@
+package com.paul.csvpipeline.backend.csvupload.repository;
+
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadContent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CsvUploadContentRepository extends JpaRepository<CsvUploadContent, Long> {
+
+    /** Locks the entry, so concurrent uploads of the content decide one after the other. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<CsvUploadContent> findByUserEmailAndSha256AndSchemaKey(String userEmail, String sha256, long schemaKey);
+
+    /** The entries of many contents at once, locked as {@link #findByUserEmailAndSha256AndSchemaKey} locks one. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<CsvUploadContent> findByUserEmailAndSchemaKeyAndSha256In(String userEmail, long schemaKey, Collection<String> sha256s);
+
+    void deleteByUploadId(Long uploadId);
+}
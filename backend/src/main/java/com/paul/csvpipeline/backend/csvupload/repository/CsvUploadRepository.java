@@ -1,8 +1,14 @@
 package com.paul.csvpipeline.backend.csvupload.repository;
 
 import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +19,29 @@ public interface CsvUploadRepository extends JpaRepository<CsvUpload, Long> {
     List<CsvUpload> findByUserEmailOrderByCreatedAtDesc(String userEmail);
 
     Optional<CsvUpload> findByIdAndUserEmail(Long id, String userEmail);
+
+    /** Waits for a status update of the upload in flight, and holds off the next one until commit. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from CsvUpload u where u.id = :id")
+    Optional<CsvUpload> findByIdForUpdate(Long id);
+
+    /**
+     * Records the stored size of an upload without writing its other columns, which the
+     * pipeline may already be updating; leaves the uncompressed size to validation.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update CsvUpload u set u.sizeBytes = :sizeBytes, u.updatedAt = :updatedAt where u.id = :id")
+    int updateSizeBytes(Long id, long sizeBytes, Instant updatedAt);
+
+    /** As {@link #updateSizeBytes}, for an uncompressed upload whose stored size is its CSV's size. */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update CsvUpload u set u.sizeBytes = :sizeBytes, u.uncompressedSizeBytes = :sizeBytes, u.updatedAt = :updatedAt "
+            + "where u.id = :id")
+    int updateUncompressedSizeBytes(Long id, long sizeBytes, Instant updatedAt);
+
+    boolean existsByParentId(Long parentId);
+
+    List<CsvUpload> findByDuplicateOf(Long duplicateOf);
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.paul.csvpipeline.backend.csvupload.repository;
+
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CsvUploadStatsRepository extends JpaRepository<CsvUploadStats, Long> {
+}
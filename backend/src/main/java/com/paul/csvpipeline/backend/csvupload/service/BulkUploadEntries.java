@@ -0,0 +1,183 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The files of a bulk upload: the parts of the request as they are, or, for a single zip
+ * part, its entries. Those are streamed out of the archive one after the other, each into a
+ * temporary file, so an archive is never held in memory. Directories and the metadata entries
+ * macOS adds are skipped, and an entry is named after the last segment of its path.
+ *
+ * <p>Closing deletes the temporary files still left; those of async transfers have been moved
+ * to the spool by then.
+ */
+final class BulkUploadEntries implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkUploadEntries.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final List<MultipartFile> files;
+    private final Path directory;
+
+    private BulkUploadEntries(List<MultipartFile> files, Path directory) {
+        this.files = files;
+        this.directory = directory;
+    }
+
+    /**
+     * Rejects archives of more than {@code maxEntries} files or that unpack to more than
+     * {@code maxUnzippedBytes}, checked while they are read, before anything of them is used.
+     */
+    static BulkUploadEntries of(List<MultipartFile> parts, int maxEntries, long maxUnzippedBytes) {
+        if (parts.size() == 1 && isZip(parts.get(0))) {
+            return unzip(parts.get(0), maxEntries, maxUnzippedBytes);
+        }
+        if (parts.size() > maxEntries) {
+            throw new IllegalArgumentException("A bulk upload holds at most " + maxEntries + " files");
+        }
+        return new BulkUploadEntries(List.copyOf(parts), null);
+    }
+
+    List<MultipartFile> files() {
+        return files;
+    }
+
+    @Override
+    public void close() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            log.warn("Failed to delete unzipped bulk upload {}", directory, e);
+        }
+    }
+
+    private static boolean isZip(MultipartFile part) {
+        String filename = part.getOriginalFilename();
+        String contentType = part.getContentType();
+        return (filename != null && filename.toLowerCase().endsWith(".zip"))
+                || "application/zip".equalsIgnoreCase(contentType)
+                || "application/x-zip-compressed".equalsIgnoreCase(contentType);
+    }
+
+    private static BulkUploadEntries unzip(MultipartFile archive, int maxEntries, long maxUnzippedBytes) {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("csvpipeline-bulk");
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create a directory for the archive", e);
+        }
+        List<MultipartFile> entries = new ArrayList<>();
+        BulkUploadEntries unzipped = new BulkUploadEntries(entries, directory);
+        try (ZipInputStream in = new ZipInputStream(archive.getInputStream())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long unzippedBytes = 0;
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                String filename = StringUtils.getFilename(entry.getName());
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")
+                        || filename == null || filename.isEmpty() || filename.startsWith("._")) {
+                    continue;
+                }
+                if (entries.size() == maxEntries) {
+                    throw new IllegalArgumentException("A bulk upload holds at most " + maxEntries + " files");
+                }
+                Path spooled = directory.resolve(entries.size() + ".entry");
+                try (OutputStream out = Files.newOutputStream(spooled)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        unzippedBytes += read;
+                        if (unzippedBytes > maxUnzippedBytes) {
+                            throw new IllegalArgumentException("The archive unpacks to more than "
+                                    + maxUnzippedBytes / MEGABYTE + " MB");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+                entries.add(new UnzippedEntry(filename, spooled));
+            }
+        } catch (ZipException e) {
+            unzipped.close();
+            throw new IllegalArgumentException("File is not a valid zip archive");
+        } catch (IOException e) {
+            unzipped.close();
+            throw new IllegalStateException("Failed to read file bytes", e);
+        } catch (RuntimeException e) {
+            unzipped.close();
+            throw e;
+        }
+        if (entries.isEmpty()) {
+            unzipped.close();
+            throw new IllegalArgumentException("The archive holds no files");
+        }
+        return unzipped;
+    }
+
+    /** An archive entry in its temporary file; the content type is left to the filename. */
+    private record UnzippedEntry(String filename, Path path) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "files";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return filename;
+        }
+
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read file bytes", e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.move(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
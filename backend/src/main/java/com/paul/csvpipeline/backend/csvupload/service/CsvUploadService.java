@@ -2,67 +2,263 @@ package com.paul.csvpipeline.backend.csvupload.service;
 
 import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
 import com.paul.csvpipeline.backend.csvupload.CsvUploadResponse;
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadCompleteRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadResponse;
 import com.paul.csvpipeline.backend.csvupload.UploadMetrics;
 import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.lambda.parser.CsvCompression;
+import com.paul.csvpipeline.backend.schema.entity.CsvSchema;
+import com.paul.csvpipeline.backend.schema.service.CsvSchemaService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class CsvUploadService {
 
+    private static final long MEGABYTE = 1024 * 1024;
+
     private final CsvUploadRepository repository;
     private final UploadMetrics metrics;
     private final S3StorageService storage;
+    private final CsvSchemaService schemaService;
+    private final UploadDeduplicator deduplicator;
+    private final UploadPrevalidator prevalidator;
+    private final UploadTransfers transfers;
+    private final int bulkMaxEntries;
+    private final long bulkMaxUnzippedMegabytes;
+    private final DataSize maxFileSize;
 
     public CsvUploadService(CsvUploadRepository repository,
                             UploadMetrics metrics,
-                            S3StorageService storage) {
+                            S3StorageService storage,
+                            CsvSchemaService schemaService,
+                            UploadDeduplicator deduplicator,
+                            UploadPrevalidator prevalidator,
+                            UploadTransfers transfers,
+                            @Value("${csvpipeline.upload.bulk.max-entries:1000}") int bulkMaxEntries,
+                            @Value("${csvpipeline.upload.bulk.max-unzipped-mb:4096}") long bulkMaxUnzippedMegabytes,
+                            @Value("${spring.servlet.multipart.max-file-size:1GB}") DataSize maxFileSize) {
         this.repository = repository;
         this.metrics = metrics;
         this.storage = storage;
+        this.schemaService = schemaService;
+        this.deduplicator = deduplicator;
+        this.prevalidator = prevalidator;
+        this.transfers = transfers;
+        this.bulkMaxEntries = bulkMaxEntries;
+        this.bulkMaxUnzippedMegabytes = bulkMaxUnzippedMegabytes;
+        this.maxFileSize = maxFileSize;
     }
 
     public CsvUploadResponse registerUpload(MultipartFile file, String userEmail) {
+        return registerUpload(file, userEmail, null, null);
+    }
+
+    public CsvUploadResponse registerUpload(MultipartFile file, String userEmail, String schemaName, Integer schemaVersion) {
+        return registerUpload(file, userEmail, schemaName, schemaVersion, null);
+    }
+
+    /**
+     * {@code appendTo} makes the upload a delta of an earlier one: only the new file is
+     * validated, and its statistics are then merged into those of the dataset's first upload.
+     */
+    public CsvUploadResponse registerUpload(MultipartFile file, String userEmail, String schemaName, Integer schemaVersion,
+                                            Long appendTo) {
         metrics.markRequested();
+        checkFile(file);
 
-        if (file == null || file.isEmpty()) {
+        Target target = resolveTarget(userEmail, schemaName, schemaVersion, appendTo);
+        CsvUpload parent = target.parent();
+        Supplier<CsvUpload> newUpload = prepare(file, userEmail, target);
+
+        CsvUpload persisted;
+        if (parent == null) {
+            // Content already uploaded against this schema reuses that upload's validation.
+            persisted = deduplicator.register(newUpload);
+            if (persisted.getDuplicateOf() != null) {
+                metrics.markDeduplicated();
+                return CsvUploadResponse.from(persisted);
+            }
+        } else {
+            // Deltas are merged into their parent once each, so every one is processed.
+            persisted = repository.save(newUpload.get());
+        }
+
+        // Upload to S3 (LocalStack in local/dev/test via endpoint override), after the response in async mode
+        try {
+            transfers.store(persisted, file);
+        } catch (RuntimeException ex) {
+            deduplicator.release(persisted);
+            throw ex;
+        }
+
+        metrics.markAccepted();
+        return CsvUploadResponse.from(persisted);
+    }
+
+    /**
+     * Registers many files against one schema, or the entries of a single zip file, and
+     * returns one response per file in their order. Every file is checked before any is
+     * saved, so one that would be rejected on its own rejects the batch. The uploads are then
+     * saved in one transaction of batched inserts and stored in parallel, see
+     * {@link UploadTransfers#storeAll}; a file that fails to store is answered with its
+     * failed upload. Bulk uploads cannot be appended.
+     */
+    public List<CsvUploadResponse> registerBulkUpload(List<MultipartFile> files, String userEmail, String schemaName,
+                                                      Integer schemaVersion) {
+        if (files == null || files.isEmpty()) {
+            metrics.markRequested();
             metrics.markRejected();
             throw new IllegalArgumentException("File is required");
         }
+        BulkUploadEntries entries;
+        try {
+            entries = BulkUploadEntries.of(files, bulkMaxEntries, bulkMaxUnzippedMegabytes * MEGABYTE);
+        } catch (IllegalArgumentException ex) {
+            metrics.markRequested();
+            metrics.markRejected();
+            throw ex;
+        }
+        try (entries) {
+            List<MultipartFile> batch = entries.files();
+            metrics.markRequested(batch.size());
 
-        if (!isCsv(file.getContentType(), file.getOriginalFilename())) {
+            List<Supplier<CsvUpload>> newUploads = new ArrayList<>(batch.size());
+            try {
+                Target target = resolveTarget(userEmail, schemaName, schemaVersion, null);
+                for (MultipartFile file : batch) {
+                    try {
+                        checkFile(file);
+                        newUploads.add(prepare(file, userEmail, target));
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException(file.getOriginalFilename() + ": " + ex.getMessage());
+                    }
+                }
+            } catch (IllegalArgumentException ex) {
+                // The entry at fault was counted where it failed; the rest of the batch goes with it.
+                metrics.markRejected(batch.size() - 1);
+                throw ex;
+            }
+            List<CsvUpload> registered = deduplicator.registerAll(newUploads);
+
+            List<CsvUpload> toStore = new ArrayList<>();
+            List<MultipartFile> filesToStore = new ArrayList<>();
+            for (int i = 0; i < registered.size(); i++) {
+                if (registered.get(i).getDuplicateOf() == null) {
+                    toStore.add(registered.get(i));
+                    filesToStore.add(batch.get(i));
+                } else {
+                    metrics.markDeduplicated();
+                }
+            }
+            Set<Long> failed = transfers.storeAll(toStore, filesToStore);
+            Map<Long, CsvUpload> failedUploads = repository.findAllById(failed).stream()
+                    .collect(Collectors.toMap(CsvUpload::getId, upload -> upload));
+
+            // Failed stores were counted by storeAll, duplicates above; only stored uploads are accepted.
+            metrics.markAccepted(toStore.size() - failed.size());
+            List<CsvUploadResponse> responses = new ArrayList<>(registered.size());
+            for (CsvUpload upload : registered) {
+                responses.add(CsvUploadResponse.from(failedUploads.getOrDefault(upload.getId(), upload)));
+            }
+            return responses;
+        }
+    }
+
+    /**
+     * Registers an upload whose bytes the client sends straight to S3, through the returned
+     * presigned part URLs; {@link #completeDirectUpload} then assembles the object. Processing
+     * starts from the S3 event as for any other upload. The backend never sees the content,
+     * so direct uploads are not deduplicated; their declared size is held to the multipart
+     * upload limit, {@code spring.servlet.multipart.max-file-size}.
+     */
+    public DirectUploadResponse initiateDirectUpload(DirectUploadRequest request, String userEmail) {
+        metrics.markRequested();
+
+        if (request == null || request.filename() == null || request.filename().isBlank()) {
+            metrics.markRejected();
+            throw new IllegalArgumentException("Filename is required");
+        }
+        if (request.sizeBytes() == null || request.sizeBytes() <= 0) {
+            metrics.markRejected();
+            throw new IllegalArgumentException("File is required");
+        }
+        // The servlet's multipart limit never sees these bytes, so it is enforced here.
+        if (request.sizeBytes() > maxFileSize.toBytes()) {
+            metrics.markRejected();
+            throw new IllegalArgumentException("File exceeds the maximum upload size of " + maxFileSize.toMegabytes() + " MB");
+        }
+        if (!isCsv(request.contentType(), request.filename())) {
             metrics.markRejected();
             throw new IllegalArgumentException("Only CSV uploads are supported");
         }
 
-        String cleanedFilename = StringUtils.cleanPath(
-                file.getOriginalFilename() == null ? "upload.csv" : file.getOriginalFilename());
+        Target target = resolveTarget(userEmail, request.schemaName(), request.schemaVersion(), request.appendTo());
+        String cleanedFilename = StringUtils.cleanPath(request.filename());
+        String contentType = request.contentType() == null || request.contentType().isBlank()
+                ? "text/csv"
+                : request.contentType();
 
-        // Persist first to obtain uploadId
-        CsvUpload upload = new CsvUpload(
-                userEmail,
-                cleanedFilename,
-                file.getSize(),
-                file.getContentType() == null ? "text/csv" : file.getContentType(),
-                ""
-        );
-        CsvUpload saved = repository.save(upload);
+        CsvUpload upload = new CsvUpload(userEmail, cleanedFilename, request.sizeBytes(), contentType, "");
+        upload.setSchemaId(target.schemaId());
+        upload.setParentId(target.parent() == null ? null : target.parent().getId());
+        if (CsvCompression.of(cleanedFilename) == CsvCompression.NONE) {
+            upload.setUncompressedSizeBytes(request.sizeBytes());
+        }
+        // One INSERT: the id comes from the pooled sequence and the key is derived from it on insert.
+        CsvUpload persisted = repository.save(upload);
 
-        // Build required key pattern with persisted id
-        String s3Key = "uploads/%s/%s/%s".formatted(userEmail, saved.getId(), cleanedFilename);
+        S3StorageService.PresignedParts presigned = storage.startDirectUpload(persisted.getS3Key(), contentType, request.sizeBytes());
+        List<DirectUploadResponse.Part> parts = new ArrayList<>(presigned.urls().size());
+        for (int i = 0; i < presigned.urls().size(); i++) {
+            parts.add(new DirectUploadResponse.Part(i + 1, presigned.urls().get(i)));
+        }
+        return new DirectUploadResponse(CsvUploadResponse.from(persisted), presigned.multipartUploadId(),
+                presigned.partSize(), parts, presigned.expiresAt());
+    }
 
-        // Upload to S3 (LocalStack in local/dev/test via endpoint override)
-        storage.upload(s3Key, file);
+    /** Assembles a direct upload from its parts; the object's creation starts processing. */
+    public CsvUploadResponse completeDirectUpload(Long id, DirectUploadCompleteRequest request, String userEmail) {
+        CsvUpload upload = repository.findByIdAndUserEmail(id, userEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+        if (request == null || request.multipartUploadId() == null || request.multipartUploadId().isBlank()
+                || request.parts() == null || request.parts().isEmpty()) {
+            throw new IllegalArgumentException("Uploaded parts are required");
+        }
+        if (upload.getStatus() != CsvUploadStatus.PENDING) {
+            throw new IllegalArgumentException("Upload " + id + " is already complete");
+        }
 
-        // Update entity with final key
-        saved.setS3Key(s3Key);
-        CsvUpload persisted = repository.save(saved);
+        List<CompletedPart> parts = request.parts().stream()
+                .map(part -> CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build())
+                .toList();
+        long sizeBytes = storage.completeDirectUpload(upload.getS3Key(), request.multipartUploadId(), parts);
+        // The S3 event may already have the pipeline moving the upload on, so only the size is
+        // written; saving the entity loaded above would put its status back to PENDING.
+        if (CsvCompression.of(upload.getFilename()) == CsvCompression.NONE) {
+            repository.updateUncompressedSizeBytes(id, sizeBytes, Instant.now());
+        } else {
+            repository.updateSizeBytes(id, sizeBytes, Instant.now());
+        }
 
         metrics.markAccepted();
-        return CsvUploadResponse.from(persisted);
+        return CsvUploadResponse.from(repository.findByIdAndUserEmail(id, userEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found")));
     }
 
     public List<CsvUploadResponse> listUploads(String userEmail) {
@@ -80,11 +276,100 @@ public class CsvUploadService {
         return CsvUploadResponse.from(upload);
     }
 
+    private void checkFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            metrics.markRejected();
+            throw new IllegalArgumentException("File is required");
+        }
+
+        if (!isCsv(file.getContentType(), file.getOriginalFilename())) {
+            metrics.markRejected();
+            throw new IllegalArgumentException("Only CSV uploads are supported");
+        }
+    }
+
+    /** Checks the start of the file against its schema and builds its upload, for the deduplicator to save. */
+    private Supplier<CsvUpload> prepare(MultipartFile file, String userEmail, Target target) {
+        CsvUpload parent = target.parent();
+        Long schemaId = target.schemaId();
+
+        // A file that fails at its start is turned away before it is saved or stored.
+        try {
+            prevalidator.check(file, schemaId);
+        } catch (IllegalArgumentException ex) {
+            metrics.markRejected();
+            throw ex;
+        }
+
+        String cleanedFilename = StringUtils.cleanPath(
+                file.getOriginalFilename() == null ? "upload.csv" : file.getOriginalFilename());
+        String contentSha256 = UploadDeduplicator.sha256(file);
+        CsvCompression compression = CsvCompression.of(cleanedFilename);
+        long sizeBytes = file.getSize();
+        String contentType = file.getContentType() == null ? "text/csv" : file.getContentType();
+
+        return () -> {
+            CsvUpload upload = new CsvUpload(
+                    userEmail,
+                    cleanedFilename,
+                    sizeBytes,
+                    contentType,
+                    ""
+            );
+            upload.setSchemaId(schemaId);
+            upload.setParentId(parent == null ? null : parent.getId());
+            upload.setContentSha256(contentSha256);
+            upload.setUncompressedSizeBytes(compression == CsvCompression.NONE ? sizeBytes : null);
+            return upload;
+        };
+    }
+
+    /** Parent and schema an upload is bound to; rejects the request if either does not resolve. */
+    private Target resolveTarget(String userEmail, String schemaName, Integer schemaVersion, Long appendTo) {
+        try {
+            CsvUpload parent = appendTo == null ? null : resolveParent(appendTo, userEmail);
+            Long schemaId = parent != null && (schemaName == null || schemaName.isBlank()) && schemaVersion == null
+                    ? parent.getSchemaId()
+                    : schemaService.resolveForUpload(userEmail, schemaName, schemaVersion).map(CsvSchema::getId).orElse(null);
+            if (parent != null && !Objects.equals(schemaId, parent.getSchemaId())) {
+                throw new IllegalArgumentException("Appends must use the schema of upload " + parent.getId());
+            }
+            return new Target(parent, schemaId);
+        } catch (IllegalArgumentException ex) {
+            metrics.markRejected();
+            throw ex;
+        }
+    }
+
+    /**
+     * The first upload of the dataset {@code appendTo} belongs to, which holds its statistics.
+     * It must have passed validation, or there would be nothing to merge into.
+     */
+    private CsvUpload resolveParent(Long appendTo, String userEmail) {
+        CsvUpload parent = repository.findByIdAndUserEmail(appendTo, userEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Upload to append to not found"));
+        if (parent.getParentId() != null) {
+            parent = repository.findByIdAndUserEmail(parent.getParentId(), userEmail)
+                    .orElseThrow(() -> new IllegalArgumentException("Upload to append to not found"));
+        }
+        if (parent.getStatus() != CsvUploadStatus.VALIDATED && parent.getStatus() != CsvUploadStatus.PERSISTED) {
+            throw new IllegalArgumentException("Upload " + parent.getId() + " has not passed validation yet");
+        }
+        return parent;
+    }
+
+    /** Compressed uploads are told by their suffix, which the pipeline reads from the S3 key as well. */
     private boolean isCsv(String contentType, String filename) {
+        if (CsvCompression.of(filename) != CsvCompression.NONE) {
+            return true;
+        }
         boolean contentTypeCsv = contentType != null &&
                 (contentType.equalsIgnoreCase("text/csv") ||
                         contentType.equalsIgnoreCase("application/vnd.ms-excel"));
         boolean filenameCsv = filename != null && filename.toLowerCase().endsWith(".csv");
         return contentTypeCsv || filenameCsv;
     }
+
+    private record Target(CsvUpload parent, Long schemaId) {
+    }
 }
\ No newline at end of file
@@ -1,37 +1,199 @@
 package com.paul.csvpipeline.backend.csvupload.service;
 
+import com.paul.csvpipeline.backend.lambda.s3.S3MultipartOutputStream;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Streams uploaded files into S3 multipart uploads. The multipart request is spooled to disk
+ * by the servlet container, so an upload takes {@code part-buffers} parts of heap however
+ * large the file is; the parts of all uploads share one pool of threads. When an
+ * {@link S3TransferManager} is configured ({@code csvpipeline.s3.client} {@code crt} or
+ * {@code netty}), it transfers the file instead, reading spooled files in parallel parts.
+ *
+ * <p>Browsers can also upload straight to S3: {@link #startDirectUpload} opens the multipart
+ * upload and presigns a URL per part, and {@link #completeDirectUpload} assembles the object
+ * from the ETags the browser collected, so the file's bytes never pass through the backend.
+ */
 @Service
 public class S3StorageService {
 
+    /** S3 allows at most this many parts per multipart upload. */
+    private static final int MAX_PARTS = 10_000;
+    private static final long MEGABYTE = 1024 * 1024;
+
     private final S3Client s3;
+    private final S3Presigner presigner;
     private final String bucket;
+    private final int partSize;
+    private final int partBuffers;
+    private final ExecutorService partUploads;
+    private final Duration presignExpiry;
+    private final S3TransferManager transferManager;
 
-    S3StorageService(S3Client s3, @Value("${csvpipeline.s3.bucket}") String bucket) {
+    S3StorageService(S3Client s3,
+                     S3Presigner presigner,
+                     Optional<S3TransferManager> transferManager,
+                     @Value("${csvpipeline.s3.bucket}") String bucket,
+                     @Value("${csvpipeline.s3.upload.part-size-mb:8}") int partSizeMegabytes,
+                     @Value("${csvpipeline.s3.upload.part-buffers:3}") int partBuffers,
+                     @Value("${csvpipeline.s3.upload.threads:8}") int threads,
+                     @Value("${csvpipeline.s3.presign.expiry-minutes:60}") long presignExpiryMinutes) {
         this.s3 = s3;
+        this.presigner = presigner;
         this.bucket = bucket;
+        this.partSize = partSizeMegabytes * 1024 * 1024;
+        this.partBuffers = partBuffers;
+        this.presignExpiry = Duration.ofMinutes(presignExpiryMinutes);
+        this.transferManager = transferManager.orElse(null);
+        AtomicInteger count = new AtomicInteger();
+        this.partUploads = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "s3-part-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        partUploads.shutdown();
     }
 
-    void upload(String key, MultipartFile file) {
+    /** Streams {@code file}, a multipart upload or a file spooled from one, to {@code key}. */
+    void upload(String key, InputStreamSource file, String contentType) {
+        if (transferManager != null) {
+            transfer(key, file, contentType);
+            return;
+        }
+        S3MultipartOutputStream out = new S3MultipartOutputStream(
+                s3, bucket, key, contentType, partSize, partUploads, partBuffers);
+        try (InputStream in = file.getInputStream()) {
+            in.transferTo(out);
+            out.close();
+        } catch (IOException e) {
+            out.abort();
+            throw new IllegalStateException("Failed to store " + key, e);
+        } catch (RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+    }
+
+    private void transfer(String key, InputStreamSource file, String contentType) {
+        PutObjectRequest put = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build();
         try {
-            s3.putObject(
-                    PutObjectRequest.builder()
+            if (file instanceof FileSystemResource spooled) {
+                transferManager.uploadFile(request -> request
+                        .putObjectRequest(put)
+                        .source(spooled.getFile().toPath())).completionFuture().join();
+            } else {
+                Long length = file instanceof MultipartFile multipart ? multipart.getSize() : null;
+                try (InputStream in = file.getInputStream()) {
+                    transferManager.upload(request -> request
+                            .putObjectRequest(put)
+                            .requestBody(AsyncRequestBody.fromInputStream(in, length, partUploads))).completionFuture().join();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to store " + key, e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to store " + key, e.getCause());
+        }
+    }
+
+    /**
+     * Opens a multipart upload of {@code sizeBytes} and presigns a PUT per part. Parts are the
+     * configured part size, larger only when a file would otherwise need more than S3's
+     * {@value #MAX_PARTS} parts.
+     */
+    PresignedParts startDirectUpload(String key, String contentType, long sizeBytes) {
+        long size = Math.max(partSize, ceilDiv(ceilDiv(sizeBytes, MAX_PARTS), MEGABYTE) * MEGABYTE);
+        int partCount = (int) Math.max(1, ceilDiv(sizeBytes, size));
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        Instant expiresAt = Instant.now().plus(presignExpiry);
+        List<String> urls = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            urls.add(presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                    .signatureDuration(presignExpiry)
+                    .uploadPartRequest(UploadPartRequest.builder()
                             .bucket(bucket)
                             .key(key)
-                            .contentType(file.getContentType())
-                            .build(),
-                    RequestBody.fromBytes(file.getBytes())
-            );
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to read file bytes", e);
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .build())
+                    .build()).url().toString());
+        }
+        return new PresignedParts(uploadId, size, urls, expiresAt);
+    }
+
+    /**
+     * Assembles the object from the uploaded parts, which makes it visible and fires the S3
+     * event that starts processing. Returns the object's size.
+     */
+    long completeDirectUpload(String key, String uploadId, List<CompletedPart> parts) {
+        try {
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder()
+                            .parts(parts.stream().sorted(Comparator.comparing(CompletedPart::partNumber)).toList())
+                            .build())
+                    .build());
+            return s3.headObject(b -> b.bucket(bucket).key(key)).contentLength();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 400 || e.statusCode() == 404) {
+                String reason = e.awsErrorDetails() == null ? "rejected by S3" : e.awsErrorDetails().errorCode();
+                throw new IllegalArgumentException("Upload could not be completed: " + reason);
+            }
+            throw e;
         }
     }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    record PresignedParts(String multipartUploadId, long partSize, List<String> urls, Instant expiresAt) {
+    }
 }
@@ -0,0 +1,212 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadContent;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadStats;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadContentRepository;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadStatsRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Saves new uploads so that content a user already uploaded against the same schema version
+ * is validated once: a repeat becomes a duplicate ({@code duplicate_of}) of the upload that
+ * processes the content, takes over its outcome and statistics, and is never written to S3,
+ * so no state machine starts for it. A duplicate of an upload still in flight is saved with
+ * its current status; the status Lambda passes every later transition on to its duplicates.
+ *
+ * <p>Registration locks the {@link CsvUploadContent} entry and then the upload it points to.
+ * The first lock makes concurrent uploads of the same content coalesce onto one upload; the
+ * second orders registration against the status Lambda, which updates that upload's row
+ * before its duplicates, so a transition can never miss a duplicate that is being added.
+ *
+ * <p>Uploads that failed validation are not reused: the next upload of the content is
+ * processed again and takes over the entry. Neither are uploads with appended deltas, whose
+ * statistics describe more than the content.
+ */
+@Service
+public class UploadDeduplicator {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CsvUploadRepository uploads;
+    private final CsvUploadContentRepository contents;
+    private final CsvUploadStatsRepository stats;
+    private final TransactionTemplate transactions;
+
+    public UploadDeduplicator(CsvUploadRepository uploads,
+                              CsvUploadContentRepository contents,
+                              CsvUploadStatsRepository stats,
+                              PlatformTransactionManager transactionManager) {
+        this.uploads = uploads;
+        this.contents = contents;
+        this.stats = stats;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    /** Hex SHA-256 of the file, read as a stream from wherever the multipart request spooled it. */
+    public static String sha256(MultipartFile file) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = file.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read file bytes", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Saves the upload built by {@code newUpload}, which carries its content hash. The result
+     * is either a duplicate, already complete, or the upload that now processes the content;
+     * that one is saved with its S3 key and still has to be stored there.
+     */
+    public CsvUpload register(Supplier<CsvUpload> newUpload) {
+        try {
+            return transactions.execute(status -> registerOnce(newUpload.get()));
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent upload of the same content created the entry first: follow that upload.
+            return transactions.execute(status -> registerOnce(newUpload.get()));
+        }
+    }
+
+    /**
+     * Registers the uploads of one user against one schema as {@link #register} does each,
+     * in order and in one transaction. Entries and the uploads behind them are looked up and
+     * locked first, so no query flushes the session midway, and the rows then go out at one
+     * flush in JDBC batches. A content repeated within the batch becomes a duplicate of its
+     * first upload. If a concurrent upload creates one of the entries first, the uploads are
+     * registered one at a time instead.
+     */
+    public List<CsvUpload> registerAll(List<Supplier<CsvUpload>> newUploads) {
+        try {
+            return transactions.execute(status -> registerBatch(newUploads.stream().map(Supplier::get).toList()));
+        } catch (DataIntegrityViolationException ex) {
+            return newUploads.stream().map(this::register).toList();
+        }
+    }
+
+    /** Drops the entry of an upload whose file never reached storage, so the next upload of the content is processed. */
+    public void release(CsvUpload upload) {
+        transactions.executeWithoutResult(status -> contents.deleteByUploadId(upload.getId()));
+    }
+
+    /**
+     * Fails an upload whose file could not be stored after it was accepted, together with the
+     * duplicates registered on it meanwhile, and drops its entry. Locking the upload orders
+     * this against a concurrent registration, which then no longer finds it reusable.
+     */
+    public void failStore(Long uploadId, String errorMessage) {
+        transactions.executeWithoutResult(status -> {
+            contents.deleteByUploadId(uploadId);
+            uploads.findByIdForUpdate(uploadId).ifPresent(upload -> fail(upload, errorMessage));
+            uploads.findByDuplicateOf(uploadId).forEach(duplicate -> fail(duplicate, errorMessage));
+        });
+    }
+
+    private static void fail(CsvUpload upload, String errorMessage) {
+        upload.setStatus(CsvUploadStatus.VALIDATION_FAILED);
+        upload.setErrorMessage(errorMessage);
+    }
+
+    private CsvUpload registerOnce(CsvUpload upload) {
+        long schemaKey = CsvUploadContent.schemaKey(upload.getSchemaId());
+        Optional<CsvUploadContent> known = contents.findByUserEmailAndSha256AndSchemaKey(
+                upload.getUserEmail(), upload.getContentSha256(), schemaKey);
+        if (known.isEmpty()) {
+            CsvUpload saved = uploads.save(upload);
+            contents.saveAndFlush(new CsvUploadContent(upload.getUserEmail(), upload.getContentSha256(), schemaKey, saved.getId()));
+            return saved;
+        }
+
+        CsvUploadContent content = known.get();
+        Optional<CsvUpload> original = uploads.findByIdForUpdate(content.getUploadId()).filter(this::reusable);
+        if (original.isPresent()) {
+            return saveDuplicate(upload, original.get());
+        }
+        CsvUpload saved = uploads.save(upload);
+        content.setUploadId(saved.getId());
+        return saved;
+    }
+
+    private List<CsvUpload> registerBatch(List<CsvUpload> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        String userEmail = batch.get(0).getUserEmail();
+        long schemaKey = CsvUploadContent.schemaKey(batch.get(0).getSchemaId());
+        Map<String, CsvUploadContent> known = contents.findByUserEmailAndSchemaKeyAndSha256In(userEmail, schemaKey,
+                        batch.stream().map(CsvUpload::getContentSha256).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(CsvUploadContent::getSha256, content -> content));
+        Map<String, CsvUpload> originals = new HashMap<>();
+        for (CsvUploadContent content : known.values()) {
+            uploads.findByIdForUpdate(content.getUploadId()).filter(this::reusable)
+                    .ifPresent(original -> originals.put(content.getSha256(), original));
+        }
+
+        List<CsvUpload> registered = new ArrayList<>(batch.size());
+        for (CsvUpload upload : batch) {
+            String sha256 = upload.getContentSha256();
+            CsvUpload original = originals.get(sha256);
+            if (original != null) {
+                registered.add(saveDuplicate(upload, original));
+                continue;
+            }
+            // The pooled sequence assigns the id, and with it the key, without a round trip.
+            CsvUpload saved = uploads.save(upload);
+            CsvUploadContent content = known.get(sha256);
+            if (content == null) {
+                contents.save(new CsvUploadContent(userEmail, sha256, schemaKey, saved.getId()));
+            } else {
+                content.setUploadId(saved.getId());
+            }
+            originals.put(sha256, saved);
+            registered.add(saved);
+        }
+        contents.flush();
+        return registered;
+    }
+
+    private boolean reusable(CsvUpload original) {
+        return original.getStatus() != CsvUploadStatus.VALIDATION_FAILED && !uploads.existsByParentId(original.getId());
+    }
+
+    private CsvUpload saveDuplicate(CsvUpload upload, CsvUpload original) {
+        upload.setDuplicateOf(original.getId());
+        upload.setS3Key(original.getS3Key());
+        upload.setStatus(original.getStatus());
+        upload.setErrorMessage(original.getErrorMessage());
+        upload.setUncompressedSizeBytes(original.getUncompressedSizeBytes());
+        CsvUpload saved = uploads.save(upload);
+        stats.findById(original.getId())
+                .ifPresent(found -> stats.save(new CsvUploadStats(saved.getId(), found.getRowCount(), found.getStatisticsJson())));
+        return saved;
+    }
+}
@@ -0,0 +1,96 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadContent;
+import com.paul.csvpipeline.backend.lambda.parser.CsvCompression;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidationResult;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+import com.paul.csvpipeline.backend.lambda.validation.ErrorBudget;
+import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
+import com.paul.csvpipeline.backend.lambda.validation.ValidationError;
+import com.paul.csvpipeline.backend.schema.service.CsvSchemaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the header and first rows of an upload against its schema before anything is saved
+ * or stored, with the validator the validation Lambda runs. A file whose start already fails
+ * would fail the pipeline too, so it is rejected with the request instead of costing an S3
+ * object and a state machine execution.
+ *
+ * <p>Validators are kept per schema version, which never changes once saved, for at most
+ * 1,000 schemas; the least recently used one goes first. Each is
+ * prepared once, however many first uploads for its schema arrive together.
+ */
+@Service
+public class UploadPrevalidator {
+
+    /** Errors named in the rejection; the prefix scan stops once it has found them. */
+    private static final int REPORTED_ERRORS = 3;
+    private static final int MAX_CACHED_VALIDATORS = 1_000;
+
+    private final CsvSchemaService schemaService;
+    private final int rows;
+    private final Map<Long, CsvValidator> validators = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CsvValidator> eldest) {
+                    return size() > MAX_CACHED_VALIDATORS;
+                }
+            });
+
+    public UploadPrevalidator(CsvSchemaService schemaService,
+                              @Value("${csvpipeline.upload.prevalidate-rows:100}") int rows) {
+        this.schemaService = schemaService;
+        this.rows = rows;
+    }
+
+    /**
+     * Rejects the file if its header, or one of its first rows, does not pass validation
+     * against the schema with {@code schemaId} ({@code null} for the built-in schema).
+     * Compressed files are checked on the fly, only decompressing what the check reads.
+     * Does nothing when {@code csvpipeline.upload.prevalidate-rows} is negative.
+     */
+    public void check(MultipartFile file, Long schemaId) {
+        if (rows < 0) {
+            return;
+        }
+        CsvCompression compression = CsvCompression.of(file.getOriginalFilename());
+        CsvValidationResult result;
+        try (InputStream in = file.getInputStream()) {
+            InputStream csv;
+            try {
+                csv = compression.decompress(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("File is not valid " + compression + " data");
+            }
+            result = validatorFor(schemaId).validatePrefix(csv, rows);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read file bytes", e);
+        }
+        if (!result.valid()) {
+            throw new IllegalArgumentException("File does not match its schema: " + result.errors().stream()
+                    .map(UploadPrevalidator::describe)
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private CsvValidator validatorFor(Long schemaId) {
+        return validators.computeIfAbsent(CsvUploadContent.schemaKey(schemaId), key -> new CsvValidator(
+                schemaId == null ? ExpectedSchema.defaultSchema() : schemaService.columnsOf(schemaId),
+                ErrorBudget.firstErrors(REPORTED_ERRORS).failingFast()));
+    }
+
+    private static String describe(ValidationError error) {
+        return error.rowNumber() == 0
+                ? error.message()
+                : "row " + error.rowNumber() + ", " + error.column() + ": " + error.message();
+    }
+}
@@ -0,0 +1,95 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Statistics served by {@code GET /api/uploads/{id}/stats}, kept in memory and bounded by
+ * the size of their JSON; the least recently read upload goes first.
+ *
+ * <p>The status Lambda writes statistics in the same transaction as a status change, so an
+ * entry is evicted whenever its upload's status changes, see {@link UploadStatusListener}.
+ * A read that started before an eviction does not repopulate the cache: {@link #generation()}
+ * is taken before loading and {@link #put} drops the value if anything was evicted since.
+ */
+@Component
+public class UploadStatsCache {
+
+    /** Bytes per entry beyond its JSON: the map node, the record and the e-mail. */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long generation;
+
+    public UploadStatsCache(@Value("${csvpipeline.stats.cache-mb:64}") long maxMegabytes) {
+        if (maxMegabytes < 0) {
+            throw new IllegalArgumentException("csvpipeline.stats.cache-mb must not be negative");
+        }
+        this.maxBytes = maxMegabytes * 1024 * 1024;
+    }
+
+    /** The cached statistics of an upload, with the e-mail of the user who owns it. */
+    public synchronized Optional<Entry> get(long uploadId) {
+        return Optional.ofNullable(entries.get(uploadId));
+    }
+
+    /** Changes on every eviction; pass the value read before loading to {@link #put}. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /** Caches statistics loaded while the cache was at {@code loadedAt}, unless that is stale. */
+    public synchronized void put(String userEmail, CsvUploadStatsResponse stats, long loadedAt) {
+        long weight = weigh(stats);
+        if (loadedAt != generation || weight > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(stats.uploadId(), new Entry(userEmail, stats, weight));
+        bytes += weight - (previous == null ? 0 : previous.weight());
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().weight();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void evict(long uploadId) {
+        generation++;
+        Entry removed = entries.remove(uploadId);
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    /** Drops everything, for when status changes may have gone unnoticed. */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Approximate heap taken by the cached entries. */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private static long weigh(CsvUploadStatsResponse stats) {
+        // JSON is mostly Latin-1, stored at one byte per character by compact strings.
+        return ENTRY_OVERHEAD + (stats.columns() == null ? 0 : stats.columns().length());
+    }
+
+    public record Entry(String userEmail, CsvUploadStatsResponse stats, long weight) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatsResponse;
+import com.paul.csvpipeline.backend.csvupload.UploadMetrics;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadStatsRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Reads the statistics the pipeline stored for an upload, through {@link UploadStatsCache}.
+ * A cache hit answers without a query; a miss checks the upload belongs to the user and loads
+ * its single statistics row. Uploads still being validated have none and are not cached.
+ */
+@Service
+public class UploadStatsService {
+
+    private final CsvUploadRepository uploadRepository;
+    private final CsvUploadStatsRepository statsRepository;
+    private final UploadStatsCache cache;
+    private final UploadMetrics metrics;
+
+    public UploadStatsService(CsvUploadRepository uploadRepository,
+                              CsvUploadStatsRepository statsRepository,
+                              UploadStatsCache cache,
+                              UploadMetrics metrics) {
+        this.uploadRepository = uploadRepository;
+        this.statsRepository = statsRepository;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    public Optional<CsvUploadStatsResponse> getStatistics(Long id, String userEmail) {
+        Optional<UploadStatsCache.Entry> cached = cache.get(id);
+        if (cached.isPresent()) {
+            if (!cached.get().userEmail().equals(userEmail)) {
+                throw new IllegalArgumentException("Upload not found");
+            }
+            metrics.markStatsCacheHit();
+            return Optional.of(cached.get().stats());
+        }
+
+        metrics.markStatsCacheMiss();
+        long generation = cache.generation();
+        uploadRepository.findByIdAndUserEmail(id, userEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+        Optional<CsvUploadStatsResponse> stats = statsRepository.findById(id).map(CsvUploadStatsResponse::from);
+        stats.ifPresent(loaded -> cache.put(userEmail, loaded, generation));
+        return stats;
+    }
+}
@@ -0,0 +1,108 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Evicts cached statistics when an upload's status changes. Statuses are written by the
+ * status Lambda, outside this process, which notifies {@link UploadStatusRepository#STATUS_CHANNEL}
+ * with the upload id in the same transaction; this listens on one dedicated PostgreSQL connection.
+ *
+ * <p>Notifications sent while the connection is down are lost, so the whole cache is
+ * cleared every time listening (re)starts. Other databases have no notifications and do not
+ * run the Lambdas either, so the listener stays idle there.
+ */
+@Component
+public class UploadStatusListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadStatusListener.class);
+    private static final int POLL_MILLIS = 5_000;
+    private static final long RETRY_MILLIS = 5_000;
+
+    private final DataSource dataSource;
+    private final UploadStatsCache cache;
+    private volatile boolean running;
+
+    public UploadStatusListener(DataSource dataSource, UploadStatsCache cache) {
+        this.dataSource = dataSource;
+        this.cache = cache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::listen, "upload-status-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    log.info("Database has no notifications; cached statistics are evicted on restart only");
+                    return;
+                }
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + UploadStatusRepository.STATUS_CHANNEL);
+                }
+                cache.clear();
+                try {
+                    while (running) {
+                        PGNotification[] received = notifications.getNotifications(POLL_MILLIS);
+                        if (received != null) {
+                            for (PGNotification notification : received) {
+                                evict(notification.getParameter());
+                            }
+                        }
+                    }
+                } finally {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("UNLISTEN " + UploadStatusRepository.STATUS_CHANNEL);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the upload status notifications; retrying in {} ms", RETRY_MILLIS, e);
+                sleep();
+            }
+        }
+    }
+
+    private void evict(String uploadId) {
+        try {
+            cache.evict(Long.parseLong(uploadId));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring status notification for upload id '{}'", uploadId);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
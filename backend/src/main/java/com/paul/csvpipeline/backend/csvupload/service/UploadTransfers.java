@@ -0,0 +1,224 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
+import com.paul.csvpipeline.backend.csvupload.UploadMetrics;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the files of accepted multipart uploads in S3. By default that happens within the
+ * request. With {@code csvpipeline.upload.async.enabled} the request only moves the spooled
+ * file into {@code spool-dir}, where it outlives the request, and returns; a pool of
+ * {@code threads} then streams it to S3.
+ *
+ * <p>At most {@code queue-capacity} transfers wait for a thread. Past that the request thread
+ * runs its transfer itself, so a burst slows down the uploads instead of piling up files.
+ * The pool's queue depth and activity are published as the {@code executor.*} meters tagged
+ * {@code name=csv.upload.transfers}.
+ *
+ * <p>Spooled files are named after their upload, so transfers that a restart cut off are
+ * queued again once the application is up.
+ */
+@Service
+public class UploadTransfers {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadTransfers.class);
+
+    static final String SPOOL_SUFFIX = ".upload";
+    static final String STORE_FAILED = "[{\"row\":0,\"column\":\"file\",\"message\":\"The file could not be stored\"}]";
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    private final S3StorageService storage;
+    private final UploadDeduplicator deduplicator;
+    private final CsvUploadRepository repository;
+    private final UploadMetrics metrics;
+    private final boolean async;
+    private final Path spoolDirectory;
+    private final ThreadPoolExecutor transfers;
+
+    public UploadTransfers(S3StorageService storage,
+                           UploadDeduplicator deduplicator,
+                           CsvUploadRepository repository,
+                           UploadMetrics metrics,
+                           MeterRegistry registry,
+                           @Value("${csvpipeline.upload.async.enabled:false}") boolean async,
+                           @Value("${csvpipeline.upload.async.spool-dir:${java.io.tmpdir}/csvpipeline-spool}") String spoolDirectory,
+                           @Value("${csvpipeline.upload.async.threads:4}") int threads,
+                           @Value("${csvpipeline.upload.async.queue-capacity:64}") int queueCapacity) {
+        this.storage = storage;
+        this.deduplicator = deduplicator;
+        this.repository = repository;
+        this.metrics = metrics;
+        this.async = async;
+        this.spoolDirectory = Path.of(spoolDirectory).toAbsolutePath();
+        AtomicInteger count = new AtomicInteger();
+        this.transfers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "upload-transfer-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        new ExecutorServiceMetrics(transfers, "csv.upload.transfers", Tags.empty()).bindTo(registry);
+        if (async) {
+            try {
+                Files.createDirectories(this.spoolDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create upload spool directory " + spoolDirectory, e);
+            }
+        }
+    }
+
+    /** Whether {@link #store} returns before the file is in S3. */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Stores {@code file} under the S3 key of {@code upload}: right away, or in async mode
+     * once it is spooled and a transfer thread gets to it. A transfer that fails after the
+     * request has returned fails the upload; see {@link UploadDeduplicator#failStore}.
+     */
+    public void store(CsvUpload upload, MultipartFile file) {
+        if (!async) {
+            storage.upload(upload.getS3Key(), file, upload.getContentType());
+            return;
+        }
+        Path spooled = spoolDirectory.resolve(upload.getId() + SPOOL_SUFFIX);
+        try {
+            // As a File, the servlet container moves its temporary file rather than copying it.
+            file.transferTo(spooled.toFile());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to spool upload id=" + upload.getId(), e);
+        }
+        submit(upload, spooled);
+    }
+
+    /**
+     * Stores {@code files.get(i)} under the key of {@code uploads.get(i)} for each upload. In
+     * async mode each is spooled and queued as by {@link #store}. Otherwise they are
+     * transferred on the pool, at most {@code threads} at a time, and this returns once all
+     * are done with the ids of the uploads whose transfer failed; those are failed as a
+     * background transfer fails.
+     */
+    public Set<Long> storeAll(List<CsvUpload> uploads, List<MultipartFile> files) {
+        if (async) {
+            for (int i = 0; i < uploads.size(); i++) {
+                store(uploads.get(i), files.get(i));
+            }
+            return Set.of();
+        }
+        Set<Long> failed = ConcurrentHashMap.newKeySet();
+        CompletableFuture<?>[] stores = new CompletableFuture<?>[uploads.size()];
+        for (int i = 0; i < uploads.size(); i++) {
+            CsvUpload upload = uploads.get(i);
+            MultipartFile file = files.get(i);
+            stores[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    storage.upload(upload.getS3Key(), file, upload.getContentType());
+                } catch (RuntimeException e) {
+                    log.warn("Failed to store upload id={} at {}", upload.getId(), upload.getS3Key(), e);
+                    metrics.markStoreFailed();
+                    deduplicator.failStore(upload.getId(), STORE_FAILED);
+                    failed.add(upload.getId());
+                }
+            }, transfers);
+        }
+        CompletableFuture.allOf(stores).join();
+        return failed;
+    }
+
+    /** Queues the transfers of uploads still pending whose spooled file a restart left behind. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeSpooled() {
+        if (!async) {
+            return;
+        }
+        try (DirectoryStream<Path> spooled = Files.newDirectoryStream(spoolDirectory, "*" + SPOOL_SUFFIX)) {
+            for (Path file : spooled) {
+                Optional<CsvUpload> pending = uploadId(file).flatMap(repository::findById)
+                        .filter(upload -> upload.getStatus() == CsvUploadStatus.PENDING);
+                if (pending.isPresent()) {
+                    log.info("Resuming transfer of spooled upload id={}", pending.get().getId());
+                    submit(pending.get(), file);
+                } else {
+                    delete(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan upload spool directory {}", spoolDirectory, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        transfers.shutdown();
+        if (!transfers.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("{} upload transfers left in {} for the next start", transfers.getQueue().size(), spoolDirectory);
+        }
+    }
+
+    private void submit(CsvUpload upload, Path spooled) {
+        long uploadId = upload.getId();
+        String key = upload.getS3Key();
+        String contentType = upload.getContentType();
+        transfers.execute(() -> transfer(uploadId, key, contentType, spooled));
+    }
+
+    private void transfer(long uploadId, String key, String contentType, Path spooled) {
+        try {
+            storage.upload(key, new FileSystemResource(spooled), contentType);
+        } catch (RuntimeException e) {
+            log.warn("Failed to store upload id={} at {}", uploadId, key, e);
+            metrics.markStoreFailed();
+            deduplicator.failStore(uploadId, STORE_FAILED);
+        }
+        // Only once the outcome is recorded; otherwise the next start retries the transfer.
+        delete(spooled);
+    }
+
+    private static Optional<Long> uploadId(Path spooled) {
+        String name = spooled.getFileName().toString();
+        try {
+            return Optional.of(Long.parseLong(name.substring(0, name.length() - SPOOL_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void delete(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled upload {}", spooled, e);
+        }
+    }
+}
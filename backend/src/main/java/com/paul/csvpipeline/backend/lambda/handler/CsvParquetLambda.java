@@ -0,0 +1,138 @@
+package com.paul.csvpipeline.backend.lambda.handler;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.paul.csvpipeline.backend.lambda.parquet.ParquetWriter;
+import com.paul.csvpipeline.backend.lambda.parser.CsvCompression;
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.s3.S3MultipartOutputStream;
+import com.paul.csvpipeline.backend.lambda.s3.S3Objects;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lambda invoked by Step Functions once an upload passed validation: writes a Parquet copy of
+ * the CSV next to it, so later analyses read only the columns they need instead of parsing
+ * the whole file again.
+ *
+ * <p>The CSV streams from S3 over the async client, decompressed if it was uploaded
+ * compressed, through the tokenizer into {@link ParquetWriter} and on into an
+ * {@link S3MultipartOutputStream} on the blocking client; memory holds one row group and one
+ * upload part at most.
+ */
+public class CsvParquetLambda implements RequestHandler<CsvParquetLambda.ParquetRequest, CsvParquetLambda.ParquetResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvParquetLambda.class);
+    private static final String CONTENT_TYPE = "application/vnd.apache.parquet";
+
+    private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final SchemaRepository schemaRepository;
+    private final long rowGroupBytes;
+
+    public CsvParquetLambda() {
+        this(CsvValidationLambda.buildDefaultS3Client(), CsvValidationLambda.buildDefaultS3AsyncClient(),
+                SchemaRepository.fromEnv(), rowGroupBytesFromEnv());
+    }
+
+    /**
+     * @param s3Client      writes the Parquet copy
+     * @param s3AsyncClient reads the CSV
+     */
+    public CsvParquetLambda(S3Client s3Client, S3AsyncClient s3AsyncClient, SchemaRepository schemaRepository,
+                            long rowGroupBytes) {
+        this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.schemaRepository = schemaRepository;
+        this.rowGroupBytes = rowGroupBytes;
+    }
+
+    @Override
+    public ParquetResponse handleRequest(ParquetRequest input, Context context) {
+        if (input == null) {
+            throw new IllegalArgumentException("Parquet input is required");
+        }
+        if (input.bucket() == null || input.bucket().isBlank()) {
+            throw new IllegalArgumentException("S3 bucket is required");
+        }
+        if (input.key() == null || input.key().isBlank()) {
+            throw new IllegalArgumentException("S3 object key is required");
+        }
+
+        List<ColumnDefinition> columns = columnsFor(input);
+        String parquetKey = parquetKey(input.key());
+        log.info("Writing Parquet for uploadId={} (bucket={}, key={}) to {}", input.uploadId(), input.bucket(), input.key(), parquetKey);
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3Client, input.bucket(), parquetKey, CONTENT_TYPE);
+        ParquetWriter writer = new ParquetWriter(columns, out, rowGroupBytes);
+        try (ResponseInputStream<GetObjectResponse> stream = S3Objects.get(s3AsyncClient, input.bucket(), input.key());
+             CsvTokenizer tokenizer = new CsvTokenizer(CsvCompression.of(input.key()).decompress(stream))) {
+            // Skip the header, validation already matched it to the schema.
+            tokenizer.nextRecord();
+            while (tokenizer.nextRecord()) {
+                writer.write(tokenizer);
+            }
+            writer.finish();
+            out.close();
+        } catch (IOException ex) {
+            out.abort();
+            log.error("Unable to convert S3 object {} from bucket {}", input.key(), input.bucket(), ex);
+            throw new IllegalStateException("Failed to write Parquet for upload id=" + input.uploadId(), ex);
+        } catch (RuntimeException ex) {
+            out.abort();
+            throw ex;
+        }
+
+        log.info("Upload {} written as {} rows in {} row groups to {}",
+                input.uploadId(), writer.rowCount(), writer.rowGroupCount(), parquetKey);
+        return new ParquetResponse(input.uploadId(), parquetKey, writer.rowCount(), writer.rowGroupCount());
+    }
+
+    /**
+     * Key of the Parquet copy: the CSV's key with {@code .parquet} in place of {@code .csv},
+     * or of {@code .csv.gz} and {@code .csv.zst} for a compressed CSV.
+     */
+    public static String parquetKey(String csvKey) {
+        csvKey = CsvCompression.of(csvKey).stripSuffix(csvKey);
+        String base = csvKey.toLowerCase(Locale.ROOT).endsWith(".csv")
+                ? csvKey.substring(0, csvKey.length() - 4)
+                : csvKey;
+        return base + ".parquet";
+    }
+
+    private List<ColumnDefinition> columnsFor(ParquetRequest input) {
+        if (input.schemaId() == null) {
+            return ExpectedSchema.defaultSchema();
+        }
+        if (input.schemaVersion() == null) {
+            throw new IllegalArgumentException("Schema version is required with a schema id");
+        }
+        return schemaRepository.columnsOf(input.schemaId(), input.schemaVersion());
+    }
+
+    /** {@code PARQUET_ROW_GROUP_MB} sizes the row groups, which bound the memory a conversion needs. */
+    static long rowGroupBytesFromEnv() {
+        String megabytes = System.getenv("PARQUET_ROW_GROUP_MB");
+        return megabytes == null || megabytes.isBlank()
+                ? ParquetWriter.DEFAULT_ROW_GROUP_BYTES
+                : Long.parseLong(megabytes.trim()) * 1024 * 1024;
+    }
+
+    /** Same input as validation; {@code schemaId} and {@code schemaVersion} are {@code null} for the built-in schema. */
+    public record ParquetRequest(long uploadId, String bucket, String key, Long schemaId, Integer schemaVersion) {
+    }
+
+    public record ParquetResponse(long uploadId, String key, long rowCount, int rowGroups) {
+    }
+}
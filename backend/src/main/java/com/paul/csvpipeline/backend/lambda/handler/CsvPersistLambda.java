@@ -0,0 +1,101 @@
+package com.paul.csvpipeline.backend.lambda.handler;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.paul.csvpipeline.backend.lambda.parser.CsvCompression;
+import com.paul.csvpipeline.backend.lambda.persistence.CsvTableLoader;
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import com.paul.csvpipeline.backend.lambda.s3.S3Objects;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Lambda invoked by Step Functions once an upload passed validation: streams the CSV from S3,
+ * decompressed if it was uploaded compressed, into the upload's own table and marks the
+ * upload {@code PERSISTED}.
+ */
+public class CsvPersistLambda implements RequestHandler<CsvPersistLambda.PersistRequest, CsvPersistLambda.PersistResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvPersistLambda.class);
+
+    private final S3AsyncClient s3Client;
+    private final CsvTableLoader loader;
+    private final SchemaRepository schemaRepository;
+    private final UploadStatusRepository statusRepository;
+
+    public CsvPersistLambda() {
+        this(
+                CsvValidationLambda.buildDefaultS3AsyncClient(),
+                CsvTableLoader.fromEnv(),
+                SchemaRepository.fromEnv(),
+                UploadStatusRepository.fromEnv()
+        );
+    }
+
+    public CsvPersistLambda(S3AsyncClient s3Client,
+                            CsvTableLoader loader,
+                            SchemaRepository schemaRepository,
+                            UploadStatusRepository statusRepository) {
+        this.s3Client = s3Client;
+        this.loader = loader;
+        this.schemaRepository = schemaRepository;
+        this.statusRepository = statusRepository;
+    }
+
+    @Override
+    public PersistResponse handleRequest(PersistRequest input, Context context) {
+        if (input == null) {
+            throw new IllegalArgumentException("Persist input is required");
+        }
+        if (input.bucket() == null || input.bucket().isBlank()) {
+            throw new IllegalArgumentException("S3 bucket is required");
+        }
+        if (input.key() == null || input.key().isBlank()) {
+            throw new IllegalArgumentException("S3 object key is required");
+        }
+
+        List<ColumnDefinition> columns = columnsFor(input);
+        String table = CsvTableLoader.tableName(input.uploadId());
+        log.info("Persisting uploadId={} (bucket={}, key={}) into {}", input.uploadId(), input.bucket(), input.key(), table);
+
+        long rows;
+        try (ResponseInputStream<GetObjectResponse> stream = S3Objects.get(s3Client, input.bucket(), input.key());
+             InputStream csv = CsvCompression.of(input.key()).decompress(stream)) {
+            rows = loader.load(input.uploadId(), columns, csv);
+        } catch (IOException ex) {
+            log.error("Unable to read S3 object {} from bucket {}", input.key(), input.bucket(), ex);
+            throw new IllegalStateException("Failed to read CSV from S3", ex);
+        }
+        statusRepository.markPersisted(input.uploadId());
+
+        log.info("Upload {} persisted {} rows into {}", input.uploadId(), rows, table);
+        return new PersistResponse(input.uploadId(), table, rows);
+    }
+
+    private List<ColumnDefinition> columnsFor(PersistRequest input) {
+        if (input.schemaId() == null) {
+            return ExpectedSchema.defaultSchema();
+        }
+        if (input.schemaVersion() == null) {
+            throw new IllegalArgumentException("Schema version is required with a schema id");
+        }
+        return schemaRepository.columnsOf(input.schemaId(), input.schemaVersion());
+    }
+
+    /** Same input as validation; {@code schemaId} and {@code schemaVersion} are {@code null} for the built-in schema. */
+    public record PersistRequest(long uploadId, String bucket, String key, Long schemaId, Integer schemaVersion) {
+    }
+
+    public record PersistResponse(long uploadId, String table, long rowCount) {
+    }
+}
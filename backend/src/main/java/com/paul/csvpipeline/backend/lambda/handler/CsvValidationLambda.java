@@ -2,9 +2,23 @@ package com.paul.csvpipeline.backend.lambda.handler;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.paul.csvpipeline.backend.lambda.parser.CsvCompression;
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.s3.S3ByteRangeSource;
+import com.paul.csvpipeline.backend.lambda.s3.S3Objects;
+import com.paul.csvpipeline.backend.lambda.schema.SchemaRef;
+import com.paul.csvpipeline.backend.lambda.schema.ValidatorCache;
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
+import com.paul.csvpipeline.backend.lambda.stats.HeavyHitters;
+import com.paul.csvpipeline.backend.lambda.stats.HyperLogLog;
+import com.paul.csvpipeline.backend.lambda.stats.KllSketch;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsConfig;
+import com.paul.csvpipeline.backend.lambda.validation.ChunkedCsvValidator;
 import com.paul.csvpipeline.backend.lambda.validation.CsvValidationResult;
 import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+import com.paul.csvpipeline.backend.lambda.validation.ErrorBudget;
 import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
+import com.paul.csvpipeline.backend.lambda.validation.UniqueKeyLimits;
 import com.paul.csvpipeline.backend.lambda.validation.ValidationError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,15 +26,28 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.services.s3.S3Configuration;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Lambda handler invoked by Step Functions to validate a CSV object stored in S3.
@@ -28,18 +55,49 @@ import java.util.List;
 public class CsvValidationLambda implements RequestHandler<CsvValidationLambda.ValidationRequest, CsvValidationLambda.ValidationResponse> {
 
     private static final Logger log = LoggerFactory.getLogger(CsvValidationLambda.class);
+    private static final int DEFAULT_ERROR_LIMIT = 25;
+    private static final long DEFAULT_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_PARALLEL_MIN_CHUNKS = 4;
+    private static final long DEFAULT_SCHEMA_CACHE_TTL_SECONDS = 900;
+    private static final int DEFAULT_S3_MAX_CONNECTIONS = 50;
+    /** {@link ValidationResponse#uncompressedBytes()} of a scan that did not read the whole CSV. */
+    public static final long UNKNOWN_SIZE = -1;
 
-    private final S3Client s3Client;
+    private final S3AsyncClient s3Client;
     private final CsvValidator validator;
+    private final ChunkedCsvValidator chunkedValidator;
+    private final ValidatorCache validatorCache;
 
     public CsvValidationLambda() {
-        this(buildDefaultS3Client(), new CsvValidator(ExpectedSchema.defaultSchema()));
+        ErrorBudget errorBudget = errorBudgetFromEnv();
+        StatisticsConfig statisticsConfig = statisticsConfigFromEnv();
+        UniqueKeyLimits uniqueKeyLimits = uniqueKeyLimitsFromEnv();
+        this.s3Client = buildDefaultS3AsyncClient();
+        this.validator = new CsvValidator(ExpectedSchema.defaultSchema(), errorBudget, statisticsConfig, uniqueKeyLimits);
+        this.chunkedValidator = chunkedValidatorFromEnv(validator);
+        this.validatorCache = validatorCacheFromEnv(errorBudget, statisticsConfig, uniqueKeyLimits);
     }
 
-    public CsvValidationLambda(S3Client s3Client,
+    public CsvValidationLambda(S3AsyncClient s3Client,
                                CsvValidator validator) {
+        this(s3Client, validator, null, null);
+    }
+
+    /**
+     * @param validator        validates uploads that carry no registered schema
+     * @param chunkedValidator validates large uncompressed objects as parallel byte ranges;
+     *                         {@code null} reads every object as one sequential stream
+     * @param validatorCache   prepares validators for registered schemas; {@code null} when
+     *                         no registry is configured
+     */
+    public CsvValidationLambda(S3AsyncClient s3Client,
+                               CsvValidator validator,
+                               ChunkedCsvValidator chunkedValidator,
+                               ValidatorCache validatorCache) {
         this.s3Client = s3Client;
         this.validator = validator;
+        this.chunkedValidator = chunkedValidator;
+        this.validatorCache = validatorCache;
     }
 
     @Override
@@ -54,42 +112,276 @@ public class CsvValidationLambda implements RequestHandler<CsvValidationLambda.V
             throw new IllegalArgumentException("S3 object key is required");
         }
 
-        log.info("Running validation for uploadId={} (bucket={}, key={})",
-                input.uploadId(), input.bucket(), input.key());
+        log.info("Running validation for uploadId={} (bucket={}, key={}, schemaId={}, schemaVersion={})",
+                input.uploadId(), input.bucket(), input.key(), input.schemaId(), input.schemaVersion());
 
-        try (ResponseInputStream<GetObjectResponse> stream = s3Client.getObject(GetObjectRequest.builder()
-                .bucket(input.bucket())
-                .key(input.key())
-                .build())) {
+        CsvValidator uploadValidator = validatorFor(input);
+        CsvCompression compression = CsvCompression.of(input.key());
+        CsvValidationResult result;
+        long uncompressedBytes;
+        if (chunkedValidator == null || compression != CsvCompression.NONE) {
+            // Compressed objects cannot be split into byte ranges, they are read as one stream.
+            CountingInputStream csv = null;
+            try (ResponseInputStream<GetObjectResponse> stream = S3Objects.get(s3Client, input.bucket(), input.key())) {
+                try {
+                    csv = new CountingInputStream(compression.decompress(stream));
+                } catch (IOException ex) {
+                    log.warn("Upload {} is not readable as {}: {}", input.uploadId(), compression, ex.getMessage());
+                }
+                result = csv == null
+                        ? uploadValidator.unreadable("not a valid " + compression + " stream")
+                        : uploadValidator.validate(csv);
+            } catch (IOException ex) {
+                log.error("Unable to read S3 object {} from bucket {}", input.key(), input.bucket(), ex);
+                throw new IllegalStateException("Failed to read CSV from S3", ex);
+            }
+            // A scan that stopped early, or could not read on, has not seen every byte.
+            uncompressedBytes = csv != null && result.complete() && !result.errorCounts().containsKey("file")
+                    ? csv.count()
+                    : UNKNOWN_SIZE;
+        } else {
+            S3ByteRangeSource source = S3ByteRangeSource.of(s3Client, input.bucket(), input.key());
+            result = chunkedValidator.withValidator(uploadValidator).validate(source);
+            uncompressedBytes = source.size();
+        }
 
-            CsvValidationResult result = validator.validate(stream);
-            List<ValidationError> trimmedErrors = result.errors() == null ? List.of() : result.errors().stream()
-                    .limit(25)
-                    .toList();
+        if (result.valid()) {
+            log.info("Upload {} passed validation", input.uploadId());
+        } else {
+            log.warn("Upload {} failed validation with {} issues{} (per column: {})",
+                    input.uploadId(), result.totalErrors(),
+                    result.complete() ? "" : " before stopping early", result.errorCounts());
+        }
 
-            if (result.valid()) {
-                log.info("Upload {} passed validation", input.uploadId());
-            } else {
-                log.warn("Upload {} failed validation with {} issues",
-                        input.uploadId(), trimmedErrors.size());
+        return new ValidationResponse(input.uploadId(), result.valid(), result.totalErrors(),
+                result.errors(), result.errorCounts(), result.statistics(), uncompressedBytes);
+    }
+
+    private CsvValidator validatorFor(ValidationRequest input) {
+        if (input.schemaId() == null) {
+            return validator;
+        }
+        if (input.schemaVersion() == null) {
+            throw new IllegalArgumentException("Schema version is required with a schema id");
+        }
+        if (validatorCache == null) {
+            throw new IllegalStateException("Upload " + input.uploadId() + " uses a registered schema but no registry is configured");
+        }
+        return validatorCache.validatorFor(new SchemaRef(input.schemaId(), input.schemaVersion()));
+    }
+
+    /**
+     * Input structure provided by the Step Functions state machine. {@code schemaId} and
+     * {@code schemaVersion} are {@code null} for uploads validated against the built-in schema.
+     */
+    public record ValidationRequest(long uploadId, String bucket, String key, Long schemaId, Integer schemaVersion) {
+
+        public ValidationRequest(long uploadId, String bucket, String key) {
+            this(uploadId, bucket, key, null, null);
+        }
+    }
+
+    /**
+     * Response returned to the state machine for branching and logging. {@code errors} is the
+     * sample kept by the error budget while {@code errorCount} is the true total.
+     * {@code statistics} summarises every column from the same pass over the object, and
+     * {@code uncompressedBytes} is the size of the CSV it read, or {@value #UNKNOWN_SIZE} when
+     * the scan stopped before the end (a state machine path cannot select a missing field).
+     */
+    public record ValidationResponse(long uploadId,
+                                     boolean valid,
+                                     long errorCount,
+                                     List<ValidationError> errors,
+                                     Map<String, Long> errorCounts,
+                                     List<ColumnStatistics> statistics,
+                                     long uncompressedBytes) {
+    }
+
+    /** Counts the bytes read through it. */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
             }
+            return read;
+        }
+
+        private long count() {
+            return count;
+        }
+    }
 
-            return new ValidationResponse(input.uploadId(), result.valid(), trimmedErrors.size(), trimmedErrors);
-        } catch (IOException ex) {
-            log.error("Unable to read S3 object {} from bucket {}", input.key(), input.bucket(), ex);
-            throw new IllegalStateException("Failed to read CSV from S3", ex);
+    /**
+     * Reads the error budget from {@code VALIDATION_ERROR_MODE} ({@code FIRST_N},
+     * {@code FIRST_N_PER_COLUMN} or {@code ALL}), {@code VALIDATION_ERROR_LIMIT} and
+     * {@code VALIDATION_FAIL_FAST}. Defaults to keeping the first 25 errors.
+     */
+    static ErrorBudget errorBudgetFromEnv() {
+        String mode = System.getenv("VALIDATION_ERROR_MODE");
+        String limit = System.getenv("VALIDATION_ERROR_LIMIT");
+        ErrorBudget.Mode budgetMode = isBlank(mode)
+                ? ErrorBudget.Mode.FIRST_N
+                : ErrorBudget.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        if (budgetMode == ErrorBudget.Mode.ALL) {
+            return ErrorBudget.unlimited();
         }
+        int budgetLimit = isBlank(limit) ? DEFAULT_ERROR_LIMIT : Integer.parseInt(limit.trim());
+        boolean failFast = Boolean.parseBoolean(System.getenv("VALIDATION_FAIL_FAST"));
+        return new ErrorBudget(budgetMode, budgetLimit, failFast);
     }
 
-    /** Input structure provided by the Step Functions state machine. */
-    public record ValidationRequest(long uploadId, String bucket, String key) {
+    /**
+     * Reads the quantile sketch size from {@code STATS_QUANTILE_K}, the distinct-count
+     * precision from {@code STATS_DISTINCT_PRECISION} and the number of most frequent values
+     * from {@code STATS_TOP_VALUES}; defaults to {@link KllSketch#DEFAULT_K},
+     * {@link HyperLogLog#DEFAULT_PRECISION} and {@link HeavyHitters#DEFAULT_K}.
+     */
+    static StatisticsConfig statisticsConfigFromEnv() {
+        String quantileK = System.getenv("STATS_QUANTILE_K");
+        String distinctPrecision = System.getenv("STATS_DISTINCT_PRECISION");
+        String topValues = System.getenv("STATS_TOP_VALUES");
+        return new StatisticsConfig(
+                isBlank(quantileK) ? KllSketch.DEFAULT_K : Integer.parseInt(quantileK.trim()),
+                isBlank(distinctPrecision) ? HyperLogLog.DEFAULT_PRECISION : Integer.parseInt(distinctPrecision.trim()),
+                isBlank(topValues) ? HeavyHitters.DEFAULT_K : Integer.parseInt(topValues.trim()));
     }
 
-    /** Response returned to the state machine for branching and logging. */
-    public record ValidationResponse(long uploadId, boolean valid, int errorCount, List<ValidationError> errors) {
+    /**
+     * Reads the memory for checking each unique column from {@code UNIQUE_KEY_MEMORY_MB}
+     * (defaults to 64) and where keys beyond it spill from {@code UNIQUE_KEY_SPILL_DIR}
+     * (defaults to the temporary directory, {@code /tmp} on Lambda).
+     */
+    static UniqueKeyLimits uniqueKeyLimitsFromEnv() {
+        String memoryMb = System.getenv("UNIQUE_KEY_MEMORY_MB");
+        String spillDir = System.getenv("UNIQUE_KEY_SPILL_DIR");
+        UniqueKeyLimits defaults = UniqueKeyLimits.defaults();
+        return new UniqueKeyLimits(
+                isBlank(memoryMb) ? defaults.memoryBytes() : Long.parseLong(memoryMb.trim()) * 1024 * 1024,
+                isBlank(spillDir) ? defaults.spillDirectory() : Path.of(spillDir.trim()));
+    }
+
+    /**
+     * Builds the parallel validator from {@code VALIDATION_PARALLELISM} (defaults to the
+     * available processors), {@code VALIDATION_CHUNK_BYTES} (defaults to 64 MiB) and
+     * {@code VALIDATION_PARALLEL_MIN_BYTES} (defaults to four chunks): smaller objects, and every
+     * object at a parallelism of 1, keep the sequential path. Twice the parallelism in chunks
+     * is held at most, whatever the object size.
+     */
+    static ChunkedCsvValidator chunkedValidatorFromEnv(CsvValidator validator) {
+        String parallelismValue = System.getenv("VALIDATION_PARALLELISM");
+        String chunkBytesValue = System.getenv("VALIDATION_CHUNK_BYTES");
+        String minParallelBytesValue = System.getenv("VALIDATION_PARALLEL_MIN_BYTES");
+        int parallelism = isBlank(parallelismValue)
+                ? Runtime.getRuntime().availableProcessors()
+                : Integer.parseInt(parallelismValue.trim());
+        if (parallelism <= 1) {
+            return null;
+        }
+        long chunkBytes = isBlank(chunkBytesValue) ? DEFAULT_CHUNK_BYTES : Long.parseLong(chunkBytesValue.trim());
+        long minParallelBytes = isBlank(minParallelBytesValue)
+                ? DEFAULT_PARALLEL_MIN_CHUNKS * chunkBytes
+                : Long.parseLong(minParallelBytesValue.trim());
+
+        // Lives as long as the warm container; daemon threads never block a shutdown.
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "csv-validation-chunk");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new ChunkedCsvValidator(validator, executor, chunkBytes, minParallelBytes, 2 * parallelism);
     }
 
-    private static S3Client buildDefaultS3Client() {
+    /**
+     * Schema registry cache backed by {@code DB_URL}, {@code DB_USERNAME} and
+     * {@code DB_PASSWORD}; entries unused for {@code SCHEMA_CACHE_TTL_SECONDS} (default 900)
+     * are dropped. Returns {@code null} when no database is configured.
+     */
+    static ValidatorCache validatorCacheFromEnv(ErrorBudget errorBudget, StatisticsConfig statisticsConfig,
+                                                UniqueKeyLimits uniqueKeyLimits) {
+        if (isBlank(System.getenv("DB_URL"))) {
+            return null;
+        }
+        String ttlValue = System.getenv("SCHEMA_CACHE_TTL_SECONDS");
+        long ttlSeconds = isBlank(ttlValue) ? DEFAULT_SCHEMA_CACHE_TTL_SECONDS : Long.parseLong(ttlValue.trim());
+        return new ValidatorCache(
+                SchemaRepository.fromEnv(),
+                columns -> new CsvValidator(columns, errorBudget, statisticsConfig, uniqueKeyLimits),
+                Duration.ofSeconds(ttlSeconds)
+        );
+    }
+
+    /**
+     * Async S3 client every Lambda reads objects through (see {@link S3Objects}).
+     * {@code S3_ASYNC_CLIENT} picks {@code netty} (the default), the SDK's Netty client, or
+     * {@code crt}, the native CRT S3 client, which also fetches whole objects as parallel ranged
+     * parts. Either pools up to {@code S3_MAX_CONNECTIONS} (default 50) connections, shared by
+     * the chunked validator's range reads.
+     */
+    static S3AsyncClient buildDefaultS3AsyncClient() {
+        String client = System.getenv("S3_ASYNC_CLIENT");
+        String region = System.getenv("AWS_REGION");
+        String endpoint = System.getenv("S3_ENDPOINT");
+        StaticCredentialsProvider credentials = credentialsFromEnv();
+        int maxConnections = maxConnectionsFromEnv();
+
+        if (isBlank(client) || client.trim().equalsIgnoreCase("netty")) {
+            S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                    .forcePathStyle(true)
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                            .maxConcurrency(maxConnections));
+            if (!isBlank(region)) {
+                builder = builder.region(Region.of(region));
+            }
+            if (!isBlank(endpoint)) {
+                builder = builder.endpointOverride(java.net.URI.create(endpoint));
+            }
+            if (credentials != null) {
+                builder = builder.credentialsProvider(credentials);
+            }
+            return builder.build();
+        }
+        if (!client.trim().equalsIgnoreCase("crt")) {
+            throw new IllegalArgumentException("Unknown S3_ASYNC_CLIENT: " + client);
+        }
+        S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
+                .forcePathStyle(true)
+                .maxConcurrency(maxConnections);
+        if (!isBlank(region)) {
+            builder = builder.region(Region.of(region));
+        }
+        if (!isBlank(endpoint)) {
+            builder = builder.endpointOverride(java.net.URI.create(endpoint));
+        }
+        if (credentials != null) {
+            builder = builder.credentialsProvider(credentials);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Blocking S3 client for the Parquet Lambda's multipart writes. {@code S3_HTTP_CLIENT=crt}
+     * swaps the default URLConnection transport for the native CRT HTTP client, which keeps a
+     * pool of up to {@code S3_MAX_CONNECTIONS} (default 50) connections.
+     */
+    static S3Client buildDefaultS3Client() {
         S3ClientBuilder builder = S3Client.builder();
 
         String region = System.getenv("AWS_REGION");
@@ -106,17 +398,41 @@ public class CsvValidationLambda implements RequestHandler<CsvValidationLambda.V
                 .serviceConfiguration(S3Configuration.builder()
                         .pathStyleAccessEnabled(true)
                         .build())
-                .httpClientBuilder(UrlConnectionHttpClient.builder());
+                .httpClientBuilder(httpClientFromEnv());
+
+        StaticCredentialsProvider credentials = credentialsFromEnv();
+        if (credentials != null) {
+            builder = builder.credentialsProvider(credentials);
+        }
+
+        return builder.build();
+    }
 
+    /** Static keys when both are set, otherwise {@code null} for the SDK's default chain. */
+    private static StaticCredentialsProvider credentialsFromEnv() {
         String accessKey = System.getenv("AWS_ACCESS_KEY_ID");
         String secretKey = System.getenv("AWS_SECRET_ACCESS_KEY");
-        if (!isBlank(accessKey) && !isBlank(secretKey)) {
-            builder = builder.credentialsProvider(
-                    StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
-            );
+        if (isBlank(accessKey) || isBlank(secretKey)) {
+            return null;
         }
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+    }
 
-        return builder.build();
+    private static int maxConnectionsFromEnv() {
+        String maxConnections = System.getenv("S3_MAX_CONNECTIONS");
+        return isBlank(maxConnections) ? DEFAULT_S3_MAX_CONNECTIONS : Integer.parseInt(maxConnections.trim());
+    }
+
+    private static SdkHttpClient.Builder<?> httpClientFromEnv() {
+        String client = System.getenv("S3_HTTP_CLIENT");
+        if (isBlank(client) || client.trim().equalsIgnoreCase("urlconnection")) {
+            return UrlConnectionHttpClient.builder();
+        }
+        if (!client.trim().equalsIgnoreCase("crt")) {
+            throw new IllegalArgumentException("Unknown S3_HTTP_CLIENT: " + client);
+        }
+        return AwsCrtHttpClient.builder()
+                .maxConcurrency(maxConnectionsFromEnv());
     }
 
     private static boolean isBlank(String value) {
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paul.csvpipeline.backend.lambda.parser.S3KeyParser;
 import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import com.paul.csvpipeline.backend.lambda.schema.SchemaRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
@@ -76,7 +77,14 @@ public class StepFunctionOrchestratorLambda implements RequestHandler<S3Event, V
 
         statusRepository.markValidating(parsedKey.uploadId());
 
-        StateMachineInput input = new StateMachineInput(parsedKey.uploadId(), bucket, key);
+        SchemaRef schema = statusRepository.findSchemaRef(parsedKey.uploadId()).orElse(null);
+        StateMachineInput input = new StateMachineInput(
+                parsedKey.uploadId(),
+                bucket,
+                key,
+                schema == null ? null : schema.schemaId(),
+                schema == null ? null : schema.version()
+        );
         String payload;
         try {
             payload = objectMapper.writeValueAsString(input);
@@ -140,5 +148,6 @@ public class StepFunctionOrchestratorLambda implements RequestHandler<S3Event, V
         return value == null || value.isBlank();
     }
 
-    public record StateMachineInput(long uploadId, String bucket, String key) {}
+    /** {@code schemaId} and {@code schemaVersion} are {@code null} for the built-in schema. */
+    public record StateMachineInput(long uploadId, String bucket, String key, Long schemaId, Integer schemaVersion) {}
 }
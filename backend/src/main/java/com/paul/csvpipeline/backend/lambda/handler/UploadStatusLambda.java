@@ -3,6 +3,7 @@ package com.paul.csvpipeline.backend.lambda.handler;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
 import com.paul.csvpipeline.backend.lambda.validation.ValidationError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,13 +42,20 @@ public class UploadStatusLambda implements RequestHandler<UploadStatusLambda.Sta
         log.info("Updating upload {} status to {}", uploadId, status);
         switch (status) {
             case "VALIDATING" -> repository.markValidating(uploadId);
-            case "VALIDATED" -> repository.markValidated(uploadId);
-            case "VALIDATION_FAILED" -> repository.markFailed(uploadId, safeErrors(input.errors()));
+            case "VALIDATED" -> repository.markValidated(uploadId, input.statistics(), uncompressedBytes(input));
+            case "PERSISTED" -> repository.markPersisted(uploadId);
+            case "VALIDATION_FAILED" -> repository.markFailed(uploadId, safeErrors(input.errors()), input.statistics(),
+                    uncompressedBytes(input));
             default -> throw new IllegalArgumentException("Unsupported status transition: " + status);
         }
         return new StatusResponse(status);
     }
 
+    private static Long uncompressedBytes(StatusRequest input) {
+        Long bytes = input.uncompressedBytes();
+        return bytes == null || bytes == CsvValidationLambda.UNKNOWN_SIZE ? null : bytes;
+    }
+
     private List<ValidationError> safeErrors(List<ValidationError> errors) {
         if (errors == null) {
             return Collections.emptyList();
@@ -55,7 +63,23 @@ public class UploadStatusLambda implements RequestHandler<UploadStatusLambda.Sta
         return errors;
     }
 
-    public record StatusRequest(long uploadId, String status, List<ValidationError> errors) {
+    /**
+     * {@code statistics} and {@code uncompressedBytes} come with the outcome of validation and
+     * are stored alongside it; they are {@code null} for other transitions and for uploads
+     * that could not be read, and the size is {@link CsvValidationLambda#UNKNOWN_SIZE} when
+     * validation stopped early.
+     */
+    public record StatusRequest(long uploadId, String status, List<ValidationError> errors,
+                                List<ColumnStatistics> statistics, Long uncompressedBytes) {
+
+        public StatusRequest(long uploadId, String status, List<ValidationError> errors) {
+            this(uploadId, status, errors, null);
+        }
+
+        public StatusRequest(long uploadId, String status, List<ValidationError> errors,
+                             List<ColumnStatistics> statistics) {
+            this(uploadId, status, errors, statistics, null);
+        }
     }
 
     public record StatusResponse(String status) {
@@ -0,0 +1,90 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte array with the little-endian and varint writes Parquet pages and Thrift
+ * headers need. Unlike {@link java.io.ByteArrayOutputStream} it is unsynchronized and can be
+ * reset and refilled without reallocating.
+ */
+final class ByteBuilder {
+
+    private byte[] bytes;
+    private int size;
+
+    ByteBuilder(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    void write(int b) {
+        ensure(1);
+        bytes[size++] = (byte) b;
+    }
+
+    void write(byte[] src, int offset, int length) {
+        ensure(length);
+        System.arraycopy(src, offset, bytes, size, length);
+        size += length;
+    }
+
+    void write(ByteBuilder other) {
+        write(other.bytes, 0, other.size);
+    }
+
+    void writeIntLE(int value) {
+        ensure(4);
+        bytes[size] = (byte) value;
+        bytes[size + 1] = (byte) (value >>> 8);
+        bytes[size + 2] = (byte) (value >>> 16);
+        bytes[size + 3] = (byte) (value >>> 24);
+        size += 4;
+    }
+
+    void writeLongLE(long value) {
+        writeIntLE((int) value);
+        writeIntLE((int) (value >>> 32));
+    }
+
+    /** Unsigned LEB128, as used by Thrift's compact protocol and Parquet's own encodings. */
+    void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    void writeZigZag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /** Backing array, valid up to {@link #size()}. */
+    byte[] array() {
+        return bytes;
+    }
+
+    private void ensure(int length) {
+        if (bytes.length - size < length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+/**
+ * Buffers one column of the current row group as encoded data pages.
+ *
+ * <p>Values arrive as the tokenizer's field slices. Subclasses collect up to a page of them,
+ * encode the page into {@link #pages} when it is full and start over; the row group writer
+ * copies the finished pages to the file and calls {@link #reset()}.
+ */
+abstract class ColumnChunkWriter {
+
+    /** Parquet physical types. */
+    static final int INT32 = 1;
+    static final int INT64 = 2;
+    static final int BYTE_ARRAY = 6;
+
+    static final int PAGE_VALUES = 20_000;
+    static final int PAGE_BYTES = 1024 * 1024;
+
+    private static final int DATA_PAGE = 0;
+
+    private final ByteBuilder pages = new ByteBuilder(64 * 1024);
+    private final ThriftCompactWriter pageHeader = new ThriftCompactWriter(pages);
+    private int encodings;
+
+    /** Adds a non-blank value the validator accepted for this column. */
+    abstract void add(byte[] buf, int offset, int length);
+
+    /** Encodes the values not yet in a page, if there are any, as one more page. */
+    abstract void finishPage();
+
+    /** Encoded size of the values not yet in a page, roughly. */
+    abstract long pendingBytes();
+
+    /** Parquet physical type of the column. */
+    abstract int physicalType();
+
+    /** Plain-encoded dictionary the pages refer to, or {@code null} if there is none. */
+    ByteBuilder dictionary() {
+        return null;
+    }
+
+    int dictionarySize() {
+        return 0;
+    }
+
+    /** Plain-encoded smallest value of the chunk, or {@code null} when not tracked. */
+    byte[] minValue() {
+        return null;
+    }
+
+    byte[] maxValue() {
+        return null;
+    }
+
+    /** Clears the chunk for the next row group. */
+    void reset() {
+        pages.reset();
+        encodings = 0;
+    }
+
+    final ByteBuilder pages() {
+        return pages;
+    }
+
+    final long bufferedBytes() {
+        ByteBuilder dictionary = dictionary();
+        return pages.size() + pendingBytes() + (dictionary == null ? 0 : dictionary.size());
+    }
+
+    /** Encodings used by the chunk's pages, dictionary page included. */
+    final int[] encodings() {
+        int used = encodings | (dictionary() == null ? 0 : 1 << Encodings.PLAIN);
+        int[] result = new int[Integer.bitCount(used)];
+        for (int i = 0; used != 0; used &= used - 1) {
+            result[i++] = Integer.numberOfTrailingZeros(used);
+        }
+        return result;
+    }
+
+    /** Appends a data page holding {@code valueCount} values encoded in {@code body}. */
+    final void writePage(int encoding, int valueCount, ByteBuilder body) {
+        pageHeader.structBegin(0);
+        pageHeader.i32(1, DATA_PAGE);
+        pageHeader.i32(2, body.size());
+        pageHeader.i32(3, body.size());
+        pageHeader.structBegin(5);
+        pageHeader.i32(1, valueCount);
+        pageHeader.i32(2, encoding);
+        // Required columns carry no levels, whatever their declared encoding.
+        pageHeader.i32(3, Encodings.RLE);
+        pageHeader.i32(4, Encodings.RLE);
+        pageHeader.structEnd();
+        pageHeader.structEnd();
+        pages.write(body);
+        encodings |= 1 << encoding;
+    }
+}
@@ -0,0 +1,119 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import com.paul.csvpipeline.backend.lambda.validation.ValueCheckers;
+
+/**
+ * INTEGER columns as INT64 and DATE columns as INT32 days since the epoch, both
+ * {@code DELTA_BINARY_PACKED}. Keeps the chunk's minimum and maximum for the footer
+ * statistics, so readers can skip row groups by range.
+ */
+final class DeltaColumnWriter extends ColumnChunkWriter {
+
+    private final boolean date;
+    private final String name;
+    private final long[] values = new long[PAGE_VALUES];
+    private final ByteBuilder body = new ByteBuilder(64 * 1024);
+    private int count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    private DeltaColumnWriter(String name, boolean date) {
+        this.name = name;
+        this.date = date;
+    }
+
+    static DeltaColumnWriter integers(String name) {
+        return new DeltaColumnWriter(name, false);
+    }
+
+    static DeltaColumnWriter dates(String name) {
+        return new DeltaColumnWriter(name, true);
+    }
+
+    @Override
+    void add(byte[] buf, int offset, int length) {
+        long value = date ? epochDay(buf, offset, length) : ValueCheckers.integerValue(buf, offset, length);
+        values[count++] = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (count == PAGE_VALUES) {
+            finishPage();
+        }
+    }
+
+    @Override
+    void finishPage() {
+        if (count == 0) {
+            return;
+        }
+        body.reset();
+        Encodings.deltaBinaryPacked(values, count, date, body);
+        writePage(Encodings.DELTA_BINARY_PACKED, count, body);
+        count = 0;
+    }
+
+    @Override
+    long pendingBytes() {
+        return (long) count * (date ? 4 : 8);
+    }
+
+    @Override
+    int physicalType() {
+        return date ? INT32 : INT64;
+    }
+
+    @Override
+    byte[] minValue() {
+        return plain(min);
+    }
+
+    @Override
+    byte[] maxValue() {
+        return plain(max);
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        count = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    private byte[] plain(long value) {
+        ByteBuilder bytes = new ByteBuilder(8);
+        if (date) {
+            bytes.writeIntLE((int) value);
+        } else {
+            bytes.writeLongLE(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Days since 1970-01-01 of a valid ISO date. Parquet dates are 32-bit, which like
+     * PostgreSQL's {@code date} ends a few million years out; later dates are rejected.
+     */
+    private long epochDay(byte[] buf, int offset, int length) {
+        long key = ValueCheckers.dateKey(buf, offset, length);
+        if (key == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Column " + name + " has a value that is not a date");
+        }
+        long year = Math.floorDiv(key, 10_000);
+        int month = Math.floorMod(key, 10_000) / 100;
+        int day = Math.floorMod(key, 100);
+        // Days from the civil calendar, counting years from March so leap days come last.
+        if (month <= 2) {
+            year--;
+        }
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long epochDay = era * 146_097 + dayOfEra - 719_468;
+        if (epochDay != (int) epochDay) {
+            throw new IllegalArgumentException("Column " + name + " has a date outside the Parquet DATE range");
+        }
+        return epochDay;
+    }
+}
@@ -0,0 +1,196 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * STRING and EMAIL columns as UTF-8 byte arrays, dictionary encoded: each distinct value is
+ * stored once per row group and pages hold bit-packed indices into the dictionary.
+ *
+ * <p>DECIMAL columns are written the same way, as their exact decimal text. Schemas declare
+ * no precision or scale, and the footer's schema has to fix one scale for the whole file
+ * before all of it has been seen, so a Parquet DECIMAL is not an option; doubles would round.
+ * ASCII values are kept as written, anything else in the canonical form of
+ * {@link BigDecimal#toString()}, as they are copied into PostgreSQL.
+ *
+ * <p>A dictionary that would outgrow {@link #DICTIONARY_BYTES} stops growing. The pages
+ * already written keep referring to it and the rest of the row group is written
+ * {@code PLAIN}, as the format allows; the next row group starts a fresh dictionary.
+ */
+final class DictionaryColumnWriter extends ColumnChunkWriter {
+
+    static final int DICTIONARY_BYTES = 1024 * 1024;
+
+    private final ByteBuilder dictionary = new ByteBuilder(64 * 1024);
+    private final int[] indices = new int[PAGE_VALUES];
+    private final ByteBuilder body = new ByteBuilder(64 * 1024);
+    // Open addressing over entry numbers plus one, so 0 marks a free slot.
+    private int[] slots = new int[1024];
+    private int[] entryOffsets = new int[512];
+    private int[] entryHashes = new int[512];
+    private int entries;
+    private final boolean decimal;
+    private int count;
+    private boolean plain;
+
+    private DictionaryColumnWriter(boolean decimal) {
+        this.decimal = decimal;
+    }
+
+    static DictionaryColumnWriter strings() {
+        return new DictionaryColumnWriter(false);
+    }
+
+    static DictionaryColumnWriter decimals() {
+        return new DictionaryColumnWriter(true);
+    }
+
+    @Override
+    void add(byte[] buf, int offset, int length) {
+        if (decimal && !isAscii(buf, offset, length)) {
+            // Digits of other scripts, which validation accepts, in the form every reader parses.
+            buf = new BigDecimal(new String(buf, offset, length, StandardCharsets.UTF_8)).toString()
+                    .getBytes(StandardCharsets.US_ASCII);
+            offset = 0;
+            length = buf.length;
+        }
+        if (!plain) {
+            int index = indexOf(buf, offset, length);
+            if (index >= 0) {
+                indices[count] = index;
+                if (++count == PAGE_VALUES) {
+                    finishPage();
+                }
+                return;
+            }
+            // Seal the dictionary-encoded values; everything after is plain.
+            finishPage();
+            plain = true;
+        }
+        body.writeIntLE(length);
+        body.write(buf, offset, length);
+        if (++count == PAGE_VALUES || body.size() >= PAGE_BYTES) {
+            finishPage();
+        }
+    }
+
+    @Override
+    void finishPage() {
+        if (count == 0) {
+            return;
+        }
+        if (plain) {
+            writePage(Encodings.PLAIN, count, body);
+        } else {
+            body.reset();
+            int bitWidth = Encodings.bitWidth(entries - 1);
+            body.write(bitWidth);
+            Encodings.rleBitPackedHybrid(indices, count, bitWidth, body);
+            writePage(Encodings.RLE_DICTIONARY, count, body);
+        }
+        body.reset();
+        count = 0;
+    }
+
+    @Override
+    long pendingBytes() {
+        return plain ? body.size() : 4L * count;
+    }
+
+    @Override
+    int physicalType() {
+        return BYTE_ARRAY;
+    }
+
+    @Override
+    ByteBuilder dictionary() {
+        return entries == 0 ? null : dictionary;
+    }
+
+    @Override
+    int dictionarySize() {
+        return entries;
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        dictionary.reset();
+        Arrays.fill(slots, 0);
+        body.reset();
+        entries = 0;
+        count = 0;
+        plain = false;
+    }
+
+    /** Index of the value in the dictionary, adding it if it fits; -1 if it does not. */
+    private int indexOf(byte[] buf, int offset, int length) {
+        int hash = hash(buf, offset, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            int index = entry - 1;
+            if (entryHashes[index] == hash && matches(index, buf, offset, length)) {
+                return index;
+            }
+        }
+        if (dictionary.size() + 4L + length > DICTIONARY_BYTES) {
+            return -1;
+        }
+        if (entries == entryOffsets.length) {
+            entryOffsets = Arrays.copyOf(entryOffsets, entries * 2);
+            entryHashes = Arrays.copyOf(entryHashes, entries * 2);
+        }
+        entryOffsets[entries] = dictionary.size();
+        entryHashes[entries] = hash;
+        dictionary.writeIntLE(length);
+        dictionary.write(buf, offset, length);
+        slots[slot] = ++entries;
+        if (entries * 2 > slots.length) {
+            rehash();
+        }
+        return entries - 1;
+    }
+
+    private boolean matches(int index, byte[] buf, int offset, int length) {
+        byte[] stored = dictionary.array();
+        int start = entryOffsets[index];
+        int storedLength = (stored[start] & 0xFF) | (stored[start + 1] & 0xFF) << 8
+                | (stored[start + 2] & 0xFF) << 16 | (stored[start + 3] & 0xFF) << 24;
+        return storedLength == length
+                && Arrays.equals(stored, start + 4, start + 4 + length, buf, offset, offset + length);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int index = 0; index < entries; index++) {
+            int slot = entryHashes[index] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    private static boolean isAscii(byte[] buf, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (buf[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] buf, int offset, int length) {
+        int hash = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        // Spread the polynomial hash so the low bits used for slots depend on every byte.
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+}
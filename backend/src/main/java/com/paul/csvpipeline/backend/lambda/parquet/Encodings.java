@@ -0,0 +1,148 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+/**
+ * The Parquet value encodings this writer uses, each encoding one page of values into a
+ * {@link ByteBuilder}. Constants are the {@code Encoding} enum values of the format.
+ */
+final class Encodings {
+
+    static final int PLAIN = 0;
+    static final int RLE = 3;
+    static final int DELTA_BINARY_PACKED = 5;
+    static final int RLE_DICTIONARY = 8;
+
+    /** Values per delta block and miniblocks per block; the defaults of the reference writer. */
+    private static final int DELTA_BLOCK_SIZE = 128;
+    private static final int DELTA_MINIBLOCKS = 4;
+    private static final int DELTA_MINIBLOCK_SIZE = DELTA_BLOCK_SIZE / DELTA_MINIBLOCKS;
+
+    /** Shortest repeat worth an RLE run instead of staying in a bit-packed run. */
+    private static final int MIN_REPEAT = 8;
+
+    private Encodings() {
+    }
+
+    /** Bits needed for values up to {@code max}, treated as unsigned. */
+    static int bitWidth(long max) {
+        return 64 - Long.numberOfLeadingZeros(max);
+    }
+
+    /**
+     * {@code DELTA_BINARY_PACKED}: the first value, then blocks of 128 deltas stored as their
+     * offset from the block's smallest delta, bit-packed in four miniblocks of the width the
+     * miniblock needs. Sorted or slowly changing columns shrink to a few bits per value.
+     *
+     * <p>Deltas wrap around like the reader's arithmetic; for INT32 columns ({@code int32})
+     * they wrap at 32 bits, so no miniblock is ever wider than the column.
+     */
+    static void deltaBinaryPacked(long[] values, int count, boolean int32, ByteBuilder out) {
+        out.writeVarint(DELTA_BLOCK_SIZE);
+        out.writeVarint(DELTA_MINIBLOCKS);
+        out.writeVarint(count);
+        out.writeZigZag(count == 0 ? 0 : values[0]);
+
+        long[] deltas = new long[DELTA_BLOCK_SIZE];
+        int[] widths = new int[DELTA_MINIBLOCKS];
+        for (int blockStart = 1; blockStart < count; blockStart += DELTA_BLOCK_SIZE) {
+            int blockCount = Math.min(DELTA_BLOCK_SIZE, count - blockStart);
+            long minDelta = Long.MAX_VALUE;
+            for (int i = 0; i < blockCount; i++) {
+                long delta = values[blockStart + i] - values[blockStart + i - 1];
+                if (int32) {
+                    delta = (int) delta;
+                }
+                deltas[i] = delta;
+                minDelta = Math.min(minDelta, delta);
+            }
+            long mask = int32 ? 0xFFFF_FFFFL : -1L;
+            for (int i = 0; i < blockCount; i++) {
+                deltas[i] = (deltas[i] - minDelta) & mask;
+            }
+
+            out.writeZigZag(minDelta);
+            int miniblocks = (blockCount + DELTA_MINIBLOCK_SIZE - 1) / DELTA_MINIBLOCK_SIZE;
+            for (int m = 0; m < DELTA_MINIBLOCKS; m++) {
+                long bits = 0;
+                for (int i = m * DELTA_MINIBLOCK_SIZE, end = Math.min(blockCount, i + DELTA_MINIBLOCK_SIZE); i < end; i++) {
+                    bits |= deltas[i];
+                }
+                // Unused trailing miniblocks still get a width byte, but no body.
+                widths[m] = m < miniblocks ? bitWidth(bits) : 0;
+                out.write(widths[m]);
+            }
+            for (int i = blockCount; i < miniblocks * DELTA_MINIBLOCK_SIZE; i++) {
+                deltas[i] = 0;
+            }
+            for (int m = 0; m < miniblocks; m++) {
+                bitPack(deltas, m * DELTA_MINIBLOCK_SIZE, DELTA_MINIBLOCK_SIZE, widths[m], out);
+            }
+        }
+    }
+
+    /**
+     * The RLE / bit-packing hybrid without a length prefix, as used for dictionary indices:
+     * repeats of at least eight become RLE runs, everything between them bit-packed groups of
+     * eight. Only the last group may be padded, which the page's value count makes harmless.
+     */
+    static void rleBitPackedHybrid(int[] values, int count, int bitWidth, ByteBuilder out) {
+        long[] group = new long[8];
+        int valueBytes = (bitWidth + 7) / 8;
+        int i = 0;
+        while (i < count) {
+            int repeat = repeatLength(values, i, count);
+            if (repeat >= MIN_REPEAT) {
+                out.writeVarint((long) repeat << 1);
+                for (int b = 0; b < valueBytes; b++) {
+                    out.write(values[i] >>> (8 * b));
+                }
+                i += repeat;
+                continue;
+            }
+            // Bit-packed groups until the next long repeat starts on a group boundary.
+            int groups = 0;
+            int end = i;
+            do {
+                end += 8;
+                groups++;
+            } while (end < count && repeatLength(values, end, count) < MIN_REPEAT);
+            out.writeVarint((long) groups << 1 | 1);
+            for (int g = i; g < end; g += 8) {
+                for (int j = 0; j < 8; j++) {
+                    group[j] = g + j < count ? values[g + j] : 0;
+                }
+                bitPack(group, 0, 8, bitWidth, out);
+            }
+            i = end;
+        }
+    }
+
+    /** Packs values of {@code width} bits least significant bit first; {@code count * width} must be a multiple of 8. */
+    static void bitPack(long[] values, int offset, int count, int width, ByteBuilder out) {
+        long buffer = 0;
+        int buffered = 0;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            long value = values[i];
+            // At most 56 bits at a time, so the buffer's pending bits never overflow.
+            for (int remaining = width; remaining > 0; ) {
+                int take = Math.min(remaining, 56);
+                buffer |= (value & ((1L << take) - 1)) << buffered;
+                buffered += take;
+                value >>>= take;
+                remaining -= take;
+                while (buffered >= 8) {
+                    out.write((int) buffer);
+                    buffer >>>= 8;
+                    buffered -= 8;
+                }
+            }
+        }
+    }
+
+    private static int repeatLength(int[] values, int from, int count) {
+        int end = from + 1;
+        while (end < count && values[end] == values[from]) {
+            end++;
+        }
+        return end - from;
+    }
+}
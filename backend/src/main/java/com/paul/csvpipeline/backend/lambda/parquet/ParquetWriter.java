@@ -0,0 +1,262 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams validated CSV records into a Parquet file, typed from the schema's
+ * {@link com.paul.csvpipeline.backend.lambda.validation.ColumnType}s.
+ *
+ * <p>STRING and EMAIL columns become dictionary-encoded UTF-8 byte arrays, INTEGER columns
+ * delta-encoded INT64 and DATE columns delta-encoded INT32 dates. DECIMAL columns are
+ * dictionary-encoded UTF-8 decimal text, exact where doubles would round; see
+ * {@link DictionaryColumnWriter}.
+ * Every column is {@code REQUIRED}, since validation rejects blank values, and pages are
+ * uncompressed: the encodings already do most of the shrinking and leave the CPU to parsing.
+ *
+ * <p>Rows are buffered as encoded pages until the row group reaches {@code rowGroupBytes},
+ * then written out column by column, so memory stays bounded by one row group whatever the
+ * size of the upload. Only the footer, a few hundred bytes per row group, is kept to the end.
+ */
+public final class ParquetWriter {
+
+    /** Row group size; large enough for long sequential column reads, small enough for a Lambda. */
+    public static final long DEFAULT_ROW_GROUP_BYTES = 64L * 1024 * 1024;
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String CREATED_BY = "csv-stats-pipeline";
+    private static final int DICTIONARY_PAGE = 2;
+    private static final int UNCOMPRESSED = 0;
+    private static final int REQUIRED = 0;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DATE = 6;
+    private static final int LOGICAL_STRING = 1;
+    private static final int LOGICAL_DATE = 6;
+
+    private final List<ColumnDefinition> schema;
+    private final ColumnChunkWriter[] columns;
+    private final OutputStream out;
+    private final long rowGroupBytes;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private final ByteBuilder header = new ByteBuilder(256);
+    private long position;
+    private long rowCount;
+    private long rowGroupRows;
+
+    public ParquetWriter(List<ColumnDefinition> schema, OutputStream out) {
+        this(schema, out, DEFAULT_ROW_GROUP_BYTES);
+    }
+
+    public ParquetWriter(List<ColumnDefinition> schema, OutputStream out, long rowGroupBytes) {
+        if (rowGroupBytes <= 0) {
+            throw new IllegalArgumentException("rowGroupBytes must be positive");
+        }
+        this.schema = List.copyOf(schema);
+        this.out = out;
+        this.rowGroupBytes = rowGroupBytes;
+        this.columns = new ColumnChunkWriter[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            ColumnDefinition column = schema.get(i);
+            columns[i] = switch (column.type()) {
+                case STRING, EMAIL -> DictionaryColumnWriter.strings();
+                case DECIMAL -> DictionaryColumnWriter.decimals();
+                case INTEGER -> DeltaColumnWriter.integers(column.name());
+                case DATE -> DeltaColumnWriter.dates(column.name());
+            };
+        }
+    }
+
+    /** Appends the tokenizer's current record, which must have passed validation. */
+    public void write(CsvTokenizer record) throws IOException {
+        byte[] buf = record.buffer();
+        for (int i = 0; i < columns.length; i++) {
+            if (i >= record.fieldCount() || record.isBlank(i)) {
+                throw new IllegalArgumentException("Row " + (rowCount + 1) + " has no value for column "
+                        + schema.get(i).name() + "; only validated uploads can be written");
+            }
+            columns[i].add(buf, record.fieldStart(i), record.fieldLength(i));
+        }
+        rowCount++;
+        rowGroupRows++;
+        if (bufferedBytes() >= rowGroupBytes) {
+            writeRowGroup();
+        }
+    }
+
+    /** Writes the last row group and the footer. The stream is flushed, not closed. */
+    public void finish() throws IOException {
+        writeRowGroup();
+        header.reset();
+        writeFileMetadata(new ThriftCompactWriter(header));
+        header.writeIntLE(header.size());
+        header.write(MAGIC, 0, MAGIC.length);
+        write(header.array(), 0, header.size());
+        out.flush();
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public int rowGroupCount() {
+        return rowGroups.size();
+    }
+
+    private long bufferedBytes() {
+        long bytes = 0;
+        for (ColumnChunkWriter column : columns) {
+            bytes += column.bufferedBytes();
+        }
+        return bytes;
+    }
+
+    private void writeRowGroup() throws IOException {
+        if (position == 0) {
+            write(MAGIC, 0, MAGIC.length);
+        }
+        if (rowGroupRows == 0) {
+            return;
+        }
+        long start = position;
+        List<ColumnChunk> chunks = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            ColumnChunkWriter column = columns[i];
+            column.finishPage();
+            long chunkStart = position;
+            long dictionaryOffset = -1;
+            ByteBuilder dictionary = column.dictionary();
+            if (dictionary != null) {
+                dictionaryOffset = position;
+                writeDictionaryPage(dictionary, column.dictionarySize());
+            }
+            long dataOffset = position;
+            write(column.pages().array(), 0, column.pages().size());
+            chunks.add(new ColumnChunk(column.physicalType(), column.encodings(), schema.get(i).name(),
+                    chunkStart, position - chunkStart, dataOffset, dictionaryOffset,
+                    column.minValue(), column.maxValue()));
+            column.reset();
+        }
+        rowGroups.add(new RowGroup(chunks, rowGroupRows, start, position - start));
+        rowGroupRows = 0;
+    }
+
+    private void writeDictionaryPage(ByteBuilder dictionary, int entries) throws IOException {
+        header.reset();
+        ThriftCompactWriter thrift = new ThriftCompactWriter(header);
+        thrift.structBegin(0);
+        thrift.i32(1, DICTIONARY_PAGE);
+        thrift.i32(2, dictionary.size());
+        thrift.i32(3, dictionary.size());
+        thrift.structBegin(7);
+        thrift.i32(1, entries);
+        thrift.i32(2, Encodings.PLAIN);
+        thrift.structEnd();
+        thrift.structEnd();
+        write(header.array(), 0, header.size());
+        write(dictionary.array(), 0, dictionary.size());
+    }
+
+    private void writeFileMetadata(ThriftCompactWriter thrift) {
+        thrift.structBegin(0);
+        thrift.i32(1, 1);
+
+        thrift.structListBegin(2, schema.size() + 1);
+        thrift.structBegin(0);
+        thrift.string(4, "schema");
+        thrift.i32(5, schema.size());
+        thrift.structEnd();
+        for (int i = 0; i < schema.size(); i++) {
+            writeSchemaElement(thrift, schema.get(i), columns[i].physicalType());
+        }
+
+        thrift.i64(3, rowCount);
+        thrift.structListBegin(4, rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            thrift.structBegin(0);
+            thrift.structListBegin(1, rowGroup.columns().size());
+            for (ColumnChunk chunk : rowGroup.columns()) {
+                writeColumnChunk(thrift, chunk, rowGroup.rows());
+            }
+            thrift.i64(2, rowGroup.size());
+            thrift.i64(3, rowGroup.rows());
+            thrift.i64(5, rowGroup.offset());
+            thrift.i64(6, rowGroup.size());
+            thrift.structEnd();
+        }
+
+        thrift.string(6, CREATED_BY);
+        // Type-defined ordering, so readers trust the min and max statistics.
+        thrift.structListBegin(7, schema.size());
+        for (int i = 0; i < schema.size(); i++) {
+            thrift.structBegin(0);
+            thrift.structBegin(1);
+            thrift.structEnd();
+            thrift.structEnd();
+        }
+        thrift.structEnd();
+    }
+
+    private static void writeSchemaElement(ThriftCompactWriter thrift, ColumnDefinition column, int physicalType) {
+        thrift.structBegin(0);
+        thrift.i32(1, physicalType);
+        thrift.i32(3, REQUIRED);
+        thrift.string(4, column.name());
+        int logicalType = switch (column.type()) {
+            case STRING, EMAIL, DECIMAL -> LOGICAL_STRING;
+            case DATE -> LOGICAL_DATE;
+            default -> 0;
+        };
+        if (logicalType != 0) {
+            thrift.i32(6, logicalType == LOGICAL_STRING ? CONVERTED_UTF8 : CONVERTED_DATE);
+            thrift.structBegin(10);
+            thrift.structBegin(logicalType);
+            thrift.structEnd();
+            thrift.structEnd();
+        }
+        thrift.structEnd();
+    }
+
+    private static void writeColumnChunk(ThriftCompactWriter thrift, ColumnChunk chunk, long rows) {
+        thrift.structBegin(0);
+        thrift.i64(2, chunk.offset());
+        thrift.structBegin(3);
+        thrift.i32(1, chunk.type());
+        thrift.i32List(2, chunk.encodings());
+        thrift.stringList(3, chunk.name());
+        thrift.i32(4, UNCOMPRESSED);
+        thrift.i64(5, rows);
+        thrift.i64(6, chunk.size());
+        thrift.i64(7, chunk.size());
+        thrift.i64(9, chunk.dataPageOffset());
+        if (chunk.dictionaryPageOffset() >= 0) {
+            thrift.i64(11, chunk.dictionaryPageOffset());
+        }
+        if (chunk.min() != null) {
+            thrift.structBegin(12);
+            thrift.i64(3, 0);
+            thrift.binary(5, chunk.max());
+            thrift.binary(6, chunk.min());
+            thrift.structEnd();
+        }
+        thrift.structEnd();
+        thrift.structEnd();
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        position += length;
+    }
+
+    private record ColumnChunk(int type, int[] encodings, String name, long offset, long size,
+                               long dataPageOffset, long dictionaryPageOffset, byte[] min, byte[] max) {
+    }
+
+    private record RowGroup(List<ColumnChunk> columns, long rows, long offset, long size) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the subset of Thrift's compact protocol that Parquet page headers and file metadata
+ * use: structs of booleans, 32 and 64-bit integers, binaries and lists.
+ *
+ * <p>Field headers carry the id as a delta from the previous field of the same struct, so
+ * fields must be written in increasing id order and nested structs opened with
+ * {@link #structBegin} so each level keeps its own last id.
+ */
+final class ThriftCompactWriter {
+
+    private static final int TYPE_BOOLEAN_TRUE = 1;
+    private static final int TYPE_BOOLEAN_FALSE = 2;
+    private static final int TYPE_I32 = 5;
+    private static final int TYPE_I64 = 6;
+    private static final int TYPE_BINARY = 8;
+    private static final int TYPE_LIST = 9;
+    private static final int TYPE_STRUCT = 12;
+
+    private final ByteBuilder out;
+    private short[] lastFieldIds = new short[8];
+    private int depth;
+
+    ThriftCompactWriter(ByteBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts a struct field, or with {@code fieldId} 0 a top-level struct or a struct element
+     * of a list.
+     */
+    void structBegin(int fieldId) {
+        if (fieldId > 0) {
+            fieldHeader(fieldId, TYPE_STRUCT);
+        }
+        if (++depth == lastFieldIds.length) {
+            lastFieldIds = Arrays.copyOf(lastFieldIds, depth * 2);
+        }
+        lastFieldIds[depth] = 0;
+    }
+
+    void structEnd() {
+        out.write(0);
+        depth--;
+    }
+
+    void i32(int fieldId, int value) {
+        fieldHeader(fieldId, TYPE_I32);
+        out.writeZigZag(value);
+    }
+
+    void i64(int fieldId, long value) {
+        fieldHeader(fieldId, TYPE_I64);
+        out.writeZigZag(value);
+    }
+
+    void bool(int fieldId, boolean value) {
+        fieldHeader(fieldId, value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+    }
+
+    void binary(int fieldId, byte[] value) {
+        fieldHeader(fieldId, TYPE_BINARY);
+        out.writeVarint(value.length);
+        out.write(value, 0, value.length);
+    }
+
+    void string(int fieldId, String value) {
+        binary(fieldId, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Starts a list of {@code size} structs, each written with {@code structBegin(0)}. */
+    void structListBegin(int fieldId, int size) {
+        listHeader(fieldId, TYPE_STRUCT, size);
+    }
+
+    void i32List(int fieldId, int[] values) {
+        listHeader(fieldId, TYPE_I32, values.length);
+        for (int value : values) {
+            out.writeZigZag(value);
+        }
+    }
+
+    void stringList(int fieldId, String... values) {
+        listHeader(fieldId, TYPE_BINARY, values.length);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void listHeader(int fieldId, int elementType, int size) {
+        fieldHeader(fieldId, TYPE_LIST);
+        if (size < 15) {
+            out.write(size << 4 | elementType);
+        } else {
+            out.write(0xF0 | elementType);
+            out.writeVarint(size);
+        }
+    }
+
+    private void fieldHeader(int fieldId, int type) {
+        int delta = fieldId - lastFieldIds[depth];
+        if (delta > 0 && delta <= 15) {
+            out.write(delta << 4 | type);
+        } else {
+            out.write(type);
+            out.writeZigZag(fieldId);
+        }
+        lastFieldIds[depth] = (short) fieldId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * How a CSV upload is compressed, told by the suffix of its file name or S3 key:
+ * {@code .csv.gz} or {@code .csv.zst}. Compressed uploads are stored as they were uploaded
+ * and decompressed as a stream wherever they are read, so every hop moves the compressed
+ * bytes.
+ *
+ * <p>Decompression buffers are pooled, so a warm container reading one upload after another
+ * does not allocate them again: gzip input is read into buffers of
+ * {@value #GZIP_BUFFER_SIZE} bytes kept here, and zstd streams use the library's recycling
+ * pool.
+ */
+public enum CsvCompression {
+
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final BlockingQueue<byte[]> GZIP_BUFFERS = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    private final String suffix;
+
+    CsvCompression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /** Compression of the file or object called {@code name}; anything but a compressed CSV suffix is {@link #NONE}. */
+    public static CsvCompression of(String name) {
+        if (name != null) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            for (CsvCompression compression : values()) {
+                if (compression != NONE && lower.endsWith(".csv" + compression.suffix)) {
+                    return compression;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** {@code name} without this compression's suffix, e.g. {@code data.csv} for {@code data.csv.gz}. */
+    public String stripSuffix(String name) {
+        return name.substring(0, name.length() - suffix.length());
+    }
+
+    /**
+     * The CSV bytes of {@code in}. Closing the returned stream closes {@code in} and hands its
+     * buffers back to the pool.
+     *
+     * @throws IOException if {@code in} does not start like a stream of this compression
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new PooledGzipInputStream(in);
+            case ZSTD -> new ZstdInputStream(in, RecyclingBufferPool.INSTANCE);
+        };
+    }
+
+    /** Reads compressed input into a pooled buffer rather than one of its own. */
+    private static final class PooledGzipInputStream extends GZIPInputStream {
+
+        private boolean released;
+
+        private PooledGzipInputStream(InputStream in) throws IOException {
+            // The header is read straight from in; buf is only used once inflating starts.
+            super(in, 1);
+            byte[] pooled = GZIP_BUFFERS.poll();
+            buf = pooled != null ? pooled : new byte[GZIP_BUFFER_SIZE];
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    GZIP_BUFFERS.offer(buf);
+                }
+            }
+        }
+    }
+}
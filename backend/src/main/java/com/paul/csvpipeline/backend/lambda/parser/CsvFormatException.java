@@ -0,0 +1,29 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import java.io.IOException;
+
+/**
+ * Malformed CSV input, tied to the 1-based record (header included) it was found in.
+ */
+public class CsvFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final long recordNumber;
+
+    public CsvFormatException(String reason, long recordNumber) {
+        super(reason + " in record " + recordNumber);
+        this.reason = reason;
+        this.recordNumber = recordNumber;
+    }
+
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /** Same failure, renumbered for a tokenizer that started {@code recordsBefore} records into the file. */
+    public CsvFormatException withRecordOffset(long recordsBefore) {
+        return new CsvFormatException(reason, recordNumber + recordsBefore);
+    }
+}
@@ -0,0 +1,393 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV tokenizer that works directly on UTF-8 bytes.
+ *
+ * <p>Records are parsed into one reusable buffer and fields are exposed as offset/length
+ * slices of {@link #buffer()}, so reading a row allocates nothing. Callers that really
+ * need text can ask for {@link #fieldAsString(int)}.
+ *
+ * <p>Parsing mirrors the {@code CSVFormat.DEFAULT.withTrim()} behaviour the validator
+ * previously relied on: comma separated, {@code "} quoted with {@code ""} escapes,
+ * CR, LF or CRLF line endings, empty lines skipped, and every value trimmed of
+ * characters {@code <= ' '} after unquoting.
+ *
+ * <p>When given a {@link StructuralIndexer}, the buffer is indexed 64 bytes at a time as
+ * it fills and field scans jump straight to the next delimiter or quote bit instead of
+ * testing each byte. Results are identical either way.
+ */
+public final class CsvTokenizer implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private final StructuralIndexer indexer;
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    // Stream offset of buf[0].
+    private long base;
+
+    // Cursors into buf that must survive compaction while a record is being read.
+    private int recordStart;
+    private int fieldStart;
+    private int write;
+
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private long recordCount;
+
+    // Bitmasks of buf's first indexedBlocks 64-byte blocks; unused without an indexer.
+    private long[] separators;
+    private long[] quotes;
+    private long[] newlines;
+    private int indexedBlocks;
+
+    public CsvTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvTokenizer(InputStream in, int bufferSize) {
+        this(in, bufferSize, StructuralIndexer.isVectorized() ? StructuralIndexer.preferred() : null);
+    }
+
+    /**
+     * @param indexer structural indexer to scan with, or {@code null} to test bytes one by one.
+     *                The default constructors only index when the Vector API is available,
+     *                since the scalar indexer is slower than the plain byte loop.
+     */
+    public CsvTokenizer(InputStream in, int bufferSize, StructuralIndexer indexer) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+        }
+        this.in = in;
+        this.buf = new byte[bufferSize];
+        this.indexer = indexer;
+        if (indexer != null) {
+            int blocks = bufferSize / StructuralIndexer.BLOCK_BYTES;
+            separators = new long[blocks];
+            quotes = new long[blocks];
+            newlines = new long[blocks];
+        }
+    }
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return {@code false} once the input is exhausted
+     * @throws IOException if the stream fails, or a {@link CsvFormatException} if a quoted field is malformed
+     */
+    public boolean nextRecord() throws IOException {
+        fieldCount = 0;
+        if (!skipEmptyLines()) {
+            return false;
+        }
+
+        recordStart = pos;
+        while (true) {
+            int next = buf[pos] == QUOTE ? readQuotedField() : readUnquotedField();
+            if (next == COMMA) {
+                pos++;
+                if (!ensure()) {
+                    // A trailing delimiter at EOF still yields an empty last field.
+                    addField(pos, pos);
+                    break;
+                }
+                continue;
+            }
+            if (next == CR) {
+                pos++;
+                if (ensure() && buf[pos] == LF) {
+                    pos++;
+                }
+            } else if (next == LF) {
+                pos++;
+            }
+            break;
+        }
+
+        recordCount++;
+        return true;
+    }
+
+    /**
+     * Skips empty lines and returns the stream offset of the next record's first byte without
+     * reading the record, or -1 at end of input. Lets callers decide whether a record is
+     * theirs before a malformed one can fail on them.
+     */
+    public long nextRecordOffset() throws IOException {
+        fieldCount = 0;
+        return skipEmptyLines() ? base + pos : -1;
+    }
+
+    /** Stream offset of the current record's first byte. */
+    public long recordOffset() {
+        return base + recordStart;
+    }
+
+    /** Number of fields in the current record. */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** Number of records returned so far, including the header. */
+    public long recordCount() {
+        return recordCount;
+    }
+
+    /** Backing array of the current record; only valid until the next {@link #nextRecord()}. */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int fieldStart(int index) {
+        checkIndex(index);
+        return fieldStarts[index];
+    }
+
+    public int fieldLength(int index) {
+        checkIndex(index);
+        return fieldEnds[index] - fieldStarts[index];
+    }
+
+    /** Decodes a field; only use when a check genuinely needs text. */
+    public String fieldAsString(int index) {
+        checkIndex(index);
+        return new String(buf, fieldStarts[index], fieldEnds[index] - fieldStarts[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Same answer as {@link String#isBlank()} on the decoded field. Only decodes when the
+     * field holds non-ASCII bytes and no visible ASCII character.
+     */
+    public boolean isBlank(int index) {
+        checkIndex(index);
+        boolean nonAscii = false;
+        for (int i = fieldStarts[index], end = fieldEnds[index]; i < end; i++) {
+            int b = buf[i] & 0xFF;
+            if (b >= 0x80) {
+                nonAscii = true;
+            } else if (!isAsciiWhitespace(b)) {
+                return false;
+            }
+        }
+        return !nonAscii || fieldAsString(index).isBlank();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of range for record with " + fieldCount + " fields");
+        }
+    }
+
+    private boolean skipEmptyLines() throws IOException {
+        while (true) {
+            recordStart = pos;
+            if (!ensure()) {
+                return false;
+            }
+            byte b = buf[pos];
+            if (b != CR && b != LF) {
+                return true;
+            }
+            pos++;
+        }
+    }
+
+    /** Leaves {@code pos} on the byte that ended the field and returns it, or -1 at EOF. */
+    private int readUnquotedField() throws IOException {
+        fieldStart = pos;
+        while (ensure()) {
+            pos = indexer == null ? scanDelimiter(pos) : nextIndexed(pos, false);
+            if (pos < limit) {
+                byte b = buf[pos];
+                addField(fieldStart, pos);
+                return b;
+            }
+        }
+        addField(fieldStart, pos);
+        return -1;
+    }
+
+    /**
+     * Reads a quoted field, unescaping {@code ""} in place. The unescaped content is never
+     * longer than the raw bytes, so the write cursor can safely trail the read cursor.
+     */
+    private int readQuotedField() throws IOException {
+        pos++;
+        fieldStart = pos;
+        write = pos;
+        while (true) {
+            if (!ensure()) {
+                throw new CsvFormatException("EOF reached before quoted field finished", recordCount + 1);
+            }
+            int quote = indexer == null ? scanQuote(pos) : nextIndexed(pos, true);
+            int run = quote - pos;
+            if (run > 0) {
+                if (write != pos) {
+                    System.arraycopy(buf, pos, buf, write, run);
+                }
+                write += run;
+                pos = quote;
+                continue;
+            }
+            pos++;
+            if (ensure() && buf[pos] == QUOTE) {
+                buf[write++] = QUOTE;
+                pos++;
+                continue;
+            }
+            break;
+        }
+
+        // Only whitespace may sit between the closing quote and the next delimiter.
+        while (ensure()) {
+            int b = buf[pos] & 0xFF;
+            if (b == COMMA || b == CR || b == LF) {
+                addField(fieldStart, write);
+                return b;
+            }
+            if (!isAsciiWhitespace(b)) {
+                throw new CsvFormatException("Invalid character between quoted field and delimiter", recordCount + 1);
+            }
+            pos++;
+        }
+        addField(fieldStart, write);
+        return -1;
+    }
+
+    /** First comma, CR or LF in {@code [from, limit)}, or {@code limit}. */
+    private int scanDelimiter(int from) {
+        for (int i = from; i < limit; i++) {
+            byte b = buf[i];
+            if (b == COMMA || b == CR || b == LF) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /** First quote in {@code [from, limit)}, or {@code limit}. */
+    private int scanQuote(int from) {
+        for (int i = from; i < limit; i++) {
+            if (buf[i] == QUOTE) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Same answer as {@link #scanDelimiter} or {@link #scanQuote}, read from the masks. Full
+     * blocks read since the last call are indexed first; the partial block at the end of
+     * the buffer is scanned byte by byte.
+     */
+    private int nextIndexed(int from, boolean quote) {
+        int blocks = limit / StructuralIndexer.BLOCK_BYTES;
+        if (indexedBlocks < blocks) {
+            indexer.index(buf, indexedBlocks, blocks, separators, quotes, newlines);
+            indexedBlocks = blocks;
+        }
+        int block = from / StructuralIndexer.BLOCK_BYTES;
+        if (block < blocks) {
+            // Shift counts are taken mod 64, so this clears the bits before from.
+            long mask = -1L << from;
+            do {
+                long bits = quote ? quotes[block] : separators[block] | newlines[block];
+                bits &= mask;
+                if (bits != 0) {
+                    return block * StructuralIndexer.BLOCK_BYTES + Long.numberOfTrailingZeros(bits);
+                }
+                mask = -1L;
+            } while (++block < blocks);
+            from = blocks * StructuralIndexer.BLOCK_BYTES;
+        }
+        return quote ? scanQuote(from) : scanDelimiter(from);
+    }
+
+    private boolean ensure() throws IOException {
+        while (pos >= limit) {
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the record in progress to the front of the buffer, growing it when the record
+     * alone fills it, then reads more input behind it.
+     */
+    private void fill() throws IOException {
+        int shift = recordStart;
+        if (shift > 0) {
+            System.arraycopy(buf, shift, buf, 0, limit - shift);
+            limit -= shift;
+            base += shift;
+            pos -= shift;
+            recordStart = 0;
+            fieldStart -= shift;
+            write -= shift;
+            for (int i = 0; i < fieldCount; i++) {
+                fieldStarts[i] -= shift;
+                fieldEnds[i] -= shift;
+            }
+            indexedBlocks = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+            if (indexer != null) {
+                separators = Arrays.copyOf(separators, buf.length / StructuralIndexer.BLOCK_BYTES);
+                quotes = Arrays.copyOf(quotes, separators.length);
+                newlines = Arrays.copyOf(newlines, separators.length);
+            }
+        }
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void addField(int start, int end) {
+        while (start < end && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /** ASCII subset of {@link Character#isWhitespace(int)}. */
+    static boolean isAsciiWhitespace(int b) {
+        return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+    }
+}
@@ -0,0 +1,30 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+/** Branch-free byte loop; used wherever the Vector API is unavailable. */
+final class ScalarStructuralIndexer implements StructuralIndexer {
+
+    static final ScalarStructuralIndexer INSTANCE = new ScalarStructuralIndexer();
+
+    private ScalarStructuralIndexer() {
+    }
+
+    @Override
+    public void index(byte[] buf, int fromBlock, int toBlock, long[] separators, long[] quotes, long[] newlines) {
+        for (int block = fromBlock; block < toBlock; block++) {
+            int offset = block * BLOCK_BYTES;
+            long separator = 0;
+            long quote = 0;
+            long newline = 0;
+            for (int i = 0; i < BLOCK_BYTES; i++) {
+                byte b = buf[offset + i];
+                long bit = 1L << i;
+                separator |= b == ',' ? bit : 0;
+                quote |= b == '"' ? bit : 0;
+                newline |= b == '\n' || b == '\r' ? bit : 0;
+            }
+            separators[block] = separator;
+            quotes[block] = quote;
+            newlines[block] = newline;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+/**
+ * Builds bitmasks of the bytes that give CSV its structure, one {@code long} per
+ * 64-byte block: bit {@code i} of {@code separators[b]} is set when
+ * {@code buf[b * 64 + i]} is a comma, and likewise for quotes and for CR or LF in
+ * {@code newlines}. The tokenizer then jumps between set bits instead of testing
+ * every byte.
+ *
+ * <p>Every implementation must produce exactly the masks of {@link #scalar()}.
+ */
+public interface StructuralIndexer {
+
+    int BLOCK_BYTES = 64;
+
+    /**
+     * Indexes blocks {@code [fromBlock, toBlock)} of {@code buf}, writing each block's masks
+     * at the same block index of the three arrays. The blocks must lie entirely inside
+     * {@code buf}.
+     */
+    void index(byte[] buf, int fromBlock, int toBlock, long[] separators, long[] quotes, long[] newlines);
+
+    /** Portable byte-at-a-time implementation; the reference for all others. */
+    static StructuralIndexer scalar() {
+        return ScalarStructuralIndexer.INSTANCE;
+    }
+
+    /**
+     * The Vector API implementation when it was compiled in (the {@code vector} Maven
+     * profile) and {@code jdk.incubator.vector} is resolved at runtime, otherwise
+     * {@link #scalar()}.
+     */
+    static StructuralIndexer preferred() {
+        return StructuralIndexers.PREFERRED;
+    }
+
+    /** Whether {@link #preferred()} is the Vector API implementation. */
+    static boolean isVectorized() {
+        return StructuralIndexers.PREFERRED != ScalarStructuralIndexer.INSTANCE;
+    }
+}
@@ -0,0 +1,28 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+/**
+ * Resolves {@link StructuralIndexer#preferred()} once per class loader. The vector
+ * implementation is only compiled by the {@code vector} profile and only links when the
+ * JVM runs with {@code --add-modules jdk.incubator.vector}, so it is looked up by name
+ * and any failure to load it falls back to the scalar indexer.
+ */
+final class StructuralIndexers {
+
+    private static final String VECTOR_IMPLEMENTATION =
+            "com.paul.csvpipeline.backend.lambda.parser.VectorStructuralIndexer";
+
+    static final StructuralIndexer PREFERRED = load();
+
+    private StructuralIndexers() {
+    }
+
+    private static StructuralIndexer load() {
+        try {
+            return (StructuralIndexer) Class.forName(VECTOR_IMPLEMENTATION)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return ScalarStructuralIndexer.INSTANCE;
+        }
+    }
+}
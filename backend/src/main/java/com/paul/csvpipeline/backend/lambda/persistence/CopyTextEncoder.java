@@ -0,0 +1,188 @@
+package com.paul.csvpipeline.backend.lambda.persistence;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import com.paul.csvpipeline.backend.lambda.validation.ValueCheckers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes tokenized CSV records as rows of PostgreSQL's COPY text format, so the database
+ * receives exactly the values the validator accepted: unquoted, trimmed and without blank
+ * lines.
+ *
+ * <p>Fields are copied from the tokenizer's buffer into one reusable output buffer; nothing is
+ * allocated per row. Text is escaped byte by byte, which is safe on UTF-8 because the escaped
+ * ASCII bytes never occur inside a multi-byte character. Numbers and dates are passed through
+ * unless PostgreSQL would read them differently from the validator (non-ASCII digits, signed
+ * ISO years), and only those are rewritten. Blank or missing values become {@code \N}.
+ */
+public final class CopyTextEncoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] NULL = {'\\', 'N'};
+    private static final byte[] BC = " BC".getBytes(StandardCharsets.US_ASCII);
+
+    private final ColumnType[] types;
+    private final OutputStream out;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int size;
+
+    public CopyTextEncoder(List<ColumnDefinition> schema, OutputStream out) {
+        this.types = schema.stream().map(ColumnDefinition::type).toArray(ColumnType[]::new);
+        this.out = out;
+    }
+
+    /** Appends the tokenizer's current record as one row. */
+    public void encode(CsvTokenizer record) throws IOException {
+        byte[] src = record.buffer();
+        for (int column = 0; column < types.length; column++) {
+            if (column > 0) {
+                reserve(1);
+                buf[size++] = '\t';
+            }
+            if (column >= record.fieldCount() || record.isBlank(column)) {
+                append(NULL, 0, NULL.length);
+                continue;
+            }
+            int start = record.fieldStart(column);
+            int length = record.fieldLength(column);
+            switch (types[column]) {
+                case INTEGER -> encodeInteger(src, start, length);
+                case DECIMAL -> encodeDecimal(src, start, length);
+                case DATE -> encodeDate(src, start, length);
+                default -> encodeText(src, start, length);
+            }
+        }
+        reserve(1);
+        buf[size++] = '\n';
+    }
+
+    /** Writes out the buffered rows. */
+    public void flush() throws IOException {
+        out.write(buf, 0, size);
+        size = 0;
+        out.flush();
+    }
+
+    private void encodeInteger(byte[] src, int start, int length) throws IOException {
+        if (isAscii(src, start, length)) {
+            append(src, start, length);
+        } else {
+            appendAscii(Long.toString(Long.parseLong(decode(src, start, length))));
+        }
+    }
+
+    private void encodeDecimal(byte[] src, int start, int length) throws IOException {
+        if (isAscii(src, start, length)) {
+            append(src, start, length);
+        } else {
+            appendAscii(new BigDecimal(decode(src, start, length)).toString());
+        }
+    }
+
+    private void encodeDate(byte[] src, int start, int length) throws IOException {
+        // Plain yyyy-MM-dd reads the same everywhere, except the year 0000.
+        if (length == 10 && src[start] >= '0' && src[start] <= '9' && !isYearZero(src, start)) {
+            append(src, start, length);
+            return;
+        }
+        long key = ValueCheckers.dateKey(src, start, length);
+        if (key == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Value is not a date: " + decode(src, start, length));
+        }
+        long year = Math.floorDiv(key, 10_000);
+        int monthDay = Math.floorMod(key, 10_000);
+        // ISO year 0 is 1 BC, -1 is 2 BC and so on.
+        String digits = Long.toString(year > 0 ? year : 1 - year);
+        reserve(16 + digits.length());
+        for (int pad = digits.length(); pad < 4; pad++) {
+            buf[size++] = '0';
+        }
+        appendAscii(digits);
+        buf[size++] = '-';
+        buf[size++] = (byte) ('0' + monthDay / 1000);
+        buf[size++] = (byte) ('0' + monthDay / 100 % 10);
+        buf[size++] = '-';
+        buf[size++] = (byte) ('0' + monthDay / 10 % 10);
+        buf[size++] = (byte) ('0' + monthDay % 10);
+        if (year <= 0) {
+            append(BC, 0, BC.length);
+        }
+    }
+
+    private void encodeText(byte[] src, int start, int length) throws IOException {
+        // Every byte escapes to at most two.
+        reserve(2 * length);
+        for (int i = start, end = start + length; i < end; i++) {
+            byte b = src[i];
+            switch (b) {
+                case '\\' -> {
+                    buf[size++] = '\\';
+                    buf[size++] = '\\';
+                }
+                case '\t' -> {
+                    buf[size++] = '\\';
+                    buf[size++] = 't';
+                }
+                case '\n' -> {
+                    buf[size++] = '\\';
+                    buf[size++] = 'n';
+                }
+                case '\r' -> {
+                    buf[size++] = '\\';
+                    buf[size++] = 'r';
+                }
+                default -> buf[size++] = b;
+            }
+        }
+    }
+
+    private void append(byte[] src, int start, int length) throws IOException {
+        reserve(length);
+        System.arraycopy(src, start, buf, size, length);
+        size += length;
+    }
+
+    private void appendAscii(String value) throws IOException {
+        reserve(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buf[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    /** Makes room for {@code length} more bytes, flushing first and growing only for huge fields. */
+    private void reserve(int length) throws IOException {
+        if (buf.length - size >= length) {
+            return;
+        }
+        out.write(buf, 0, size);
+        size = 0;
+        if (buf.length < length) {
+            buf = Arrays.copyOf(buf, length);
+        }
+    }
+
+    private static boolean isYearZero(byte[] src, int start) {
+        return src[start] == '0' && src[start + 1] == '0' && src[start + 2] == '0' && src[start + 3] == '0';
+    }
+
+    private static boolean isAscii(byte[] src, int start, int length) {
+        for (int i = start, end = start + length; i < end; i++) {
+            if (src[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] src, int start, int length) {
+        return new String(src, start, length, StandardCharsets.UTF_8);
+    }
+}
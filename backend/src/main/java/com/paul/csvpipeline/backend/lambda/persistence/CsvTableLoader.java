@@ -0,0 +1,140 @@
+package com.paul.csvpipeline.backend.lambda.persistence;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Loads validated uploads into PostgreSQL with the COPY protocol, one table per upload.
+ *
+ * <p>Records stream from the CSV through a {@link CopyTextEncoder} into the COPY stream, so no
+ * more than a buffer of rows is ever held in memory. The table is dropped, created and filled
+ * in one transaction: a retried load replaces a failed one, and a table created in the same
+ * transaction as its COPY needs no WAL when the server runs with {@code wal_level=minimal}.
+ * Unique columns get their constraint once the rows are in, building the index in one pass.
+ */
+public class CsvTableLoader {
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    public CsvTableLoader(String jdbcUrl, String username, String password) {
+        this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl is required");
+        this.username = Objects.requireNonNull(username, "username is required");
+        this.password = Objects.requireNonNull(password, "password is required");
+    }
+
+    public static CsvTableLoader fromEnv() {
+        return new CsvTableLoader(
+                requireEnv("DB_URL"),
+                requireEnv("DB_USERNAME"),
+                requireEnv("DB_PASSWORD")
+        );
+    }
+
+    private static String requireEnv(String key) {
+        String value = System.getenv(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Missing required environment variable: " + key);
+        }
+        return value;
+    }
+
+    /** Table holding the rows of one upload. */
+    public static String tableName(long uploadId) {
+        return "csv_upload_" + uploadId;
+    }
+
+    /**
+     * Replaces the upload's table with the records of {@code csv}, whose header has already
+     * been checked against {@code schema}. Returns the number of rows loaded.
+     */
+    public long load(long uploadId, List<ColumnDefinition> schema, InputStream csv) {
+        String table = tableName(uploadId);
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS " + table);
+                    statement.execute(createTableSql(table, schema));
+                }
+                long rows = copy(connection, table, schema, csv);
+                try (Statement statement = connection.createStatement()) {
+                    for (ColumnDefinition column : schema) {
+                        if (column.unique()) {
+                            statement.execute("ALTER TABLE " + table + " ADD UNIQUE (" + quote(column.name()) + ")");
+                        }
+                    }
+                }
+                connection.commit();
+                return rows;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load upload id=" + uploadId + " into " + table, e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read CSV of upload id=" + uploadId, e);
+        }
+    }
+
+    static String createTableSql(String table, List<ColumnDefinition> schema) {
+        // Validation rejects blank values, so every column is NOT NULL.
+        return schema.stream()
+                .map(column -> quote(column.name()) + " " + sqlType(column) + " NOT NULL")
+                .collect(Collectors.joining(", ", "CREATE TABLE " + table + " (", ")"));
+    }
+
+    static String copySql(String table, List<ColumnDefinition> schema) {
+        return schema.stream()
+                .map(column -> quote(column.name()))
+                .collect(Collectors.joining(", ", "COPY " + table + " (", ") FROM STDIN"));
+    }
+
+    private static long copy(Connection connection, String table, List<ColumnDefinition> schema, InputStream csv)
+            throws SQLException, IOException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql(table, schema));
+        try (CsvTokenizer tokenizer = new CsvTokenizer(csv)) {
+            PGCopyOutputStream out = new PGCopyOutputStream(copyIn);
+            CopyTextEncoder encoder = new CopyTextEncoder(schema, out);
+            // Skip the header, validation already matched it to the schema.
+            tokenizer.nextRecord();
+            while (tokenizer.nextRecord()) {
+                encoder.encode(tokenizer);
+            }
+            encoder.flush();
+            return out.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static String sqlType(ColumnDefinition column) {
+        return switch (column.type()) {
+            case STRING, EMAIL -> "text";
+            case INTEGER -> "bigint";
+            case DECIMAL -> "numeric";
+            case DATE -> "date";
+        };
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
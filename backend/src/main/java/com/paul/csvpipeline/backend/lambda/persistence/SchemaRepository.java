@@ -0,0 +1,89 @@
+package com.paul.csvpipeline.backend.lambda.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paul.csvpipeline.backend.lambda.schema.RegisteredSchema;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Reads registered schema versions from the {@code csv_schemas} table.
+ */
+public class SchemaRepository {
+
+    private static final TypeReference<List<ColumnDefinition>> COLUMNS_TYPE = new TypeReference<>() {
+    };
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final ObjectMapper objectMapper;
+
+    public SchemaRepository(String jdbcUrl, String username, String password, ObjectMapper objectMapper) {
+        this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl is required");
+        this.username = Objects.requireNonNull(username, "username is required");
+        this.password = Objects.requireNonNull(password, "password is required");
+        this.objectMapper = objectMapper;
+    }
+
+    public static SchemaRepository fromEnv() {
+        return new SchemaRepository(
+                requireEnv("DB_URL"),
+                requireEnv("DB_USERNAME"),
+                requireEnv("DB_PASSWORD"),
+                new ObjectMapper()
+        );
+    }
+
+    private static String requireEnv(String key) {
+        String value = System.getenv(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Missing required environment variable: " + key);
+        }
+        return value;
+    }
+
+    public Optional<RegisteredSchema> findById(long schemaId) {
+        String sql = "SELECT user_email, name, version, columns_json FROM csv_schemas WHERE id = ?";
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, schemaId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new RegisteredSchema(
+                        schemaId,
+                        rs.getString("user_email"),
+                        rs.getString("name"),
+                        rs.getInt("version"),
+                        objectMapper.readValue(rs.getString("columns_json"), COLUMNS_TYPE)
+                ));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load schema id=" + schemaId, e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored columns of schema id=" + schemaId + " are unreadable", e);
+        }
+    }
+
+    /** Columns of a registered schema, which must still be at {@code version}. */
+    public List<ColumnDefinition> columnsOf(long schemaId, int version) {
+        RegisteredSchema schema = findById(schemaId)
+                .orElseThrow(() -> new IllegalStateException("Schema id=" + schemaId + " does not exist"));
+        if (schema.version() != version) {
+            throw new IllegalStateException("Schema id=" + schemaId + " is version " + schema.version()
+                    + " but version " + version + " was requested");
+        }
+        return schema.columns();
+    }
+}
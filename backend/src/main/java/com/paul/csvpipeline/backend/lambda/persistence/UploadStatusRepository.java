@@ -1,32 +1,73 @@
 package com.paul.csvpipeline.backend.lambda.persistence;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paul.csvpipeline.backend.lambda.schema.SchemaRef;
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsMerger;
 import com.paul.csvpipeline.backend.lambda.validation.ValidationError;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Records status transitions of uploads. Every transition also notifies the
+ * {@value #STATUS_CHANNEL} channel with the upload id, so the API evicts what it cached about
+ * the upload; the notification is only delivered if the transaction commits.
+ *
+ * <p>The outcome of validation comes with the column statistics, stored in
+ * {@code csv_upload_stats} in the same transaction; starting validation again drops them.
+ * It also carries the size of the CSV as read, recorded as {@code uncompressed_size_bytes}.
+ * A validated delta of another upload ({@code parent_id}) is also merged into the parent's
+ * statistics there, once: {@code merged_at} records the merge, so retries and revalidations
+ * do not count the delta twice. A parent's row therefore describes the whole dataset; when
+ * the parent itself is validated again, the stored statistics of its merged deltas are
+ * folded back in.
+ *
+ * <p>Uploads the API registered as duplicates of identical content ({@code duplicate_of})
+ * are never processed themselves: each transition, statistics included, is applied to them
+ * in the same transaction as to the upload they duplicate.
+ */
 public class UploadStatusRepository {
 
+    private static final TypeReference<List<ColumnStatistics>> STATISTICS = new TypeReference<>() {
+    };
+
+    /** Channel the API's {@code UploadStatusListener} listens on to evict cached statistics. */
+    public static final String STATUS_CHANNEL = "csv_upload_status";
+
     private final String jdbcUrl;
     private final String username;
     private final String password;
+    private final ObjectMapper objectMapper;
 
     public UploadStatusRepository(String jdbcUrl, String username, String password) {
+        this(jdbcUrl, username, password, new ObjectMapper());
+    }
+
+    public UploadStatusRepository(String jdbcUrl, String username, String password, ObjectMapper objectMapper) {
         this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl is required");
         this.username = Objects.requireNonNull(username, "username is required");
         this.password = Objects.requireNonNull(password, "password is required");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper is required");
     }
 
     public static UploadStatusRepository fromEnv() {
         return new UploadStatusRepository(
                 requireEnv("DB_URL"),
                 requireEnv("DB_USERNAME"),
-                requireEnv("DB_PASSWORD")
+                requireEnv("DB_PASSWORD"),
+                new ObjectMapper()
         );
     }
 
@@ -39,27 +80,217 @@ public class UploadStatusRepository {
     }
 
     public void markValidating(long uploadId) {
-        update(uploadId, "VALIDATING", null);
+        update(uploadId, "VALIDATING", null, null, null);
     }
 
     public void markValidated(long uploadId) {
-        update(uploadId, "VALIDATED", null);
+        markValidated(uploadId, null);
+    }
+
+    /** Marks the upload validated and stores its statistics, unless {@code statistics} is {@code null}. */
+    public void markValidated(long uploadId, List<ColumnStatistics> statistics) {
+        markValidated(uploadId, statistics, null);
+    }
+
+    /** Also records the size of the CSV once decompressed, unless {@code uncompressedBytes} is {@code null}. */
+    public void markValidated(long uploadId, List<ColumnStatistics> statistics, Long uncompressedBytes) {
+        update(uploadId, "VALIDATED", null, statistics, uncompressedBytes);
+    }
+
+    public void markPersisted(long uploadId) {
+        update(uploadId, "PERSISTED", null, null, null);
     }
 
     public void markFailed(long uploadId, List<ValidationError> errors) {
-        update(uploadId, "VALIDATION_FAILED", buildErrorPayload(errors));
+        markFailed(uploadId, errors, null);
+    }
+
+    /** Failed uploads keep their statistics too: they show which columns hold the bad values. */
+    public void markFailed(long uploadId, List<ValidationError> errors, List<ColumnStatistics> statistics) {
+        markFailed(uploadId, errors, statistics, null);
     }
 
-    private void update(long uploadId, String status, String errorPayload) {
-        String sql = "UPDATE csv_uploads SET status = ?, error_message = ?, updated_at = NOW() WHERE id = ?";
+    public void markFailed(long uploadId, List<ValidationError> errors, List<ColumnStatistics> statistics,
+                           Long uncompressedBytes) {
+        update(uploadId, "VALIDATION_FAILED", buildErrorPayload(errors), statistics, uncompressedBytes);
+    }
+
+    /** Registered schema version the upload was bound to, if any. */
+    public Optional<SchemaRef> findSchemaRef(long uploadId) {
+        String sql = "SELECT s.id, s.version FROM csv_uploads u JOIN csv_schemas s ON s.id = u.schema_id WHERE u.id = ?";
         try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
              PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, uploadId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next()
+                        ? Optional.of(new SchemaRef(rs.getLong("id"), rs.getInt("version")))
+                        : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read schema for upload id=" + uploadId, e);
+        }
+    }
+
+    private void update(long uploadId, String status, String errorPayload, List<ColumnStatistics> statistics,
+                        Long uncompressedBytes) {
+        String sql = "UPDATE csv_uploads SET status = ?, error_message = ?, "
+                + "uncompressed_size_bytes = COALESCE(?, uncompressed_size_bytes), updated_at = NOW() WHERE id = ?";
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setString(1, status);
+                    statement.setString(2, errorPayload);
+                    statement.setObject(3, uncompressedBytes, Types.BIGINT);
+                    statement.setLong(4, uploadId);
+                    statement.executeUpdate();
+                }
+                if ("VALIDATING".equals(status)) {
+                    deleteStatistics(connection, uploadId);
+                } else if ("VALIDATED".equals(status) && statistics != null) {
+                    saveStatistics(connection, uploadId, withMergedDeltas(connection, uploadId, statistics));
+                    mergeIntoParent(connection, uploadId, statistics);
+                } else if (statistics != null) {
+                    saveStatistics(connection, uploadId, statistics);
+                }
+                notifyStatusChange(connection, uploadId);
+                for (long duplicateId : updateDuplicates(connection, uploadId, status, errorPayload, uncompressedBytes)) {
+                    if ("VALIDATING".equals(status)) {
+                        deleteStatistics(connection, duplicateId);
+                    } else if ("VALIDATED".equals(status) && statistics != null) {
+                        saveStatistics(connection, duplicateId, withMergedDeltas(connection, duplicateId, statistics));
+                    } else if (statistics != null) {
+                        saveStatistics(connection, duplicateId, statistics);
+                    }
+                    notifyStatusChange(connection, duplicateId);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to update upload status for id=" + uploadId, e);
+        }
+    }
+
+    /**
+     * Gives the uploads registered as duplicates of this one ({@code duplicate_of}) the same
+     * transition. It runs after the upload's own row is updated and locked, so it also
+     * covers a duplicate the API registered concurrently, which locks that row first.
+     */
+    private List<Long> updateDuplicates(Connection connection, long uploadId, String status, String errorPayload,
+                                        Long uncompressedBytes) throws SQLException {
+        String sql = "UPDATE csv_uploads SET status = ?, error_message = ?, "
+                + "uncompressed_size_bytes = COALESCE(?, uncompressed_size_bytes), updated_at = NOW() "
+                + "WHERE duplicate_of = ? RETURNING id";
+        List<Long> duplicates = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, status);
             statement.setString(2, errorPayload);
-            statement.setLong(3, uploadId);
+            statement.setObject(3, uncompressedBytes, Types.BIGINT);
+            statement.setLong(4, uploadId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    duplicates.add(rs.getLong(1));
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    private void saveStatistics(Connection connection, long uploadId, List<ColumnStatistics> statistics) throws SQLException {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(statistics);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize statistics for upload id=" + uploadId, e);
+        }
+        String sql = "INSERT INTO csv_upload_stats (upload_id, row_count, statistics_json, computed_at) VALUES (?, ?, ?, NOW()) "
+                + "ON CONFLICT (upload_id) DO UPDATE SET row_count = EXCLUDED.row_count, "
+                + "statistics_json = EXCLUDED.statistics_json, computed_at = EXCLUDED.computed_at";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, uploadId);
+            statement.setLong(2, rowCount(statistics));
+            statement.setString(3, json);
             statement.executeUpdate();
-        } catch (SQLException e) {
-            throw new IllegalStateException("Failed to update upload status for id=" + uploadId, e);
+        }
+    }
+
+    /**
+     * Adds a delta's statistics to its parent's, at a cost independent of the parent's size.
+     * Claiming {@code merged_at} makes the merge happen once, and locking the parent's row
+     * serialises concurrent deltas of one parent, so none of them is lost.
+     */
+    private void mergeIntoParent(Connection connection, long uploadId, List<ColumnStatistics> statistics) throws SQLException {
+        Long parentId = null;
+        String claim = "UPDATE csv_uploads SET merged_at = NOW() WHERE id = ? AND parent_id IS NOT NULL AND merged_at IS NULL RETURNING parent_id";
+        try (PreparedStatement statement = connection.prepareStatement(claim)) {
+            statement.setLong(1, uploadId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    parentId = rs.getLong(1);
+                }
+            }
+        }
+        if (parentId == null) {
+            return;
+        }
+
+        List<ColumnStatistics> parentStatistics;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT statistics_json FROM csv_upload_stats WHERE upload_id = ? FOR UPDATE")) {
+            statement.setLong(1, parentId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("Upload id=" + parentId + " has no statistics to merge upload id="
+                            + uploadId + " into");
+                }
+                parentStatistics = objectMapper.readValue(rs.getString(1), STATISTICS);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read statistics of upload id=" + parentId, e);
+        }
+        saveStatistics(connection, parentId, StatisticsMerger.merge(parentStatistics, statistics));
+        notifyStatusChange(connection, parentId);
+    }
+
+    /** {@code statistics} plus those of the deltas already merged into the upload, oldest first. */
+    private List<ColumnStatistics> withMergedDeltas(Connection connection, long uploadId, List<ColumnStatistics> statistics)
+            throws SQLException {
+        String sql = "SELECT s.statistics_json FROM csv_uploads u JOIN csv_upload_stats s ON s.upload_id = u.id "
+                + "WHERE u.parent_id = ? AND u.merged_at IS NOT NULL ORDER BY u.merged_at, u.id";
+        List<ColumnStatistics> merged = statistics;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, uploadId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    merged = StatisticsMerger.merge(merged, objectMapper.readValue(rs.getString(1), STATISTICS));
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read statistics of the deltas of upload id=" + uploadId, e);
+        }
+        return merged;
+    }
+
+    /** Every column summary counts all data rows. */
+    private static long rowCount(List<ColumnStatistics> statistics) {
+        return statistics.isEmpty() ? 0 : statistics.get(0).count();
+    }
+
+    private void deleteStatistics(Connection connection, long uploadId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM csv_upload_stats WHERE upload_id = ?")) {
+            statement.setLong(1, uploadId);
+            statement.executeUpdate();
+        }
+    }
+
+    private void notifyStatusChange(Connection connection, long uploadId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, STATUS_CHANNEL);
+            statement.setString(2, Long.toString(uploadId));
+            statement.execute();
         }
     }
 
@@ -0,0 +1,113 @@
+package com.paul.csvpipeline.backend.lambda.s3;
+
+import com.paul.csvpipeline.backend.lambda.validation.ByteRangeSource;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads an S3 object through ranged GETs on the Lambdas' async client (see {@link S3Objects}),
+ * so the chunks of a parallel scan share its connection pool.
+ *
+ * <p>Each stream first requests {@code [from, to)}. Reading past {@code to} continues with
+ * further GETs of {@link #DEFAULT_CONTINUATION_BYTES}, so a reader that only needs to finish
+ * its last record never pulls the rest of the object. Closing a stream before its range is
+ * consumed aborts the connection instead of draining it.
+ */
+public class S3ByteRangeSource implements ByteRangeSource {
+
+    static final long DEFAULT_CONTINUATION_BYTES = 1024 * 1024;
+
+    private final S3AsyncClient s3Client;
+    private final String bucket;
+    private final String key;
+    private final long size;
+
+    public S3ByteRangeSource(S3AsyncClient s3Client, String bucket, String key, long size) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.size = size;
+    }
+
+    /** Looks up the object size with a HEAD request. */
+    public static S3ByteRangeSource of(S3AsyncClient s3Client, String bucket, String key) {
+        return new S3ByteRangeSource(s3Client, bucket, key, S3Objects.size(s3Client, bucket, key));
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public InputStream open(long from, long to) {
+        return new RangedInputStream(from, Math.min(size, Math.max(to, from + 1)));
+    }
+
+    private final class RangedInputStream extends InputStream {
+
+        private long position;
+        private long rangeEnd;
+        private ResponseInputStream<GetObjectResponse> current;
+
+        private RangedInputStream(long from, long firstRangeEnd) {
+            this.position = from;
+            this.rangeEnd = firstRangeEnd;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                if (current == null) {
+                    if (position >= size) {
+                        return -1;
+                    }
+                    if (position >= rangeEnd) {
+                        rangeEnd = Math.min(size, position + DEFAULT_CONTINUATION_BYTES);
+                    }
+                    current = S3Objects.get(s3Client, GetObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .range("bytes=" + position + "-" + (rangeEnd - 1))
+                            .build());
+                }
+                int read = current.read(b, off, (int) Math.min(len, rangeEnd - position));
+                if (read > 0) {
+                    position += read;
+                    if (position >= rangeEnd) {
+                        current.close();
+                        current = null;
+                    }
+                    return read;
+                }
+                if (read < 0) {
+                    throw new IOException("S3 range ended at " + position + " before " + rangeEnd + " for key " + key);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.abort();
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.paul.csvpipeline.backend.lambda.s3;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes an S3 object of unknown length through a multipart upload, holding a fixed number
+ * of parts in memory.
+ *
+ * <p>The multipart upload starts once the first part is full; an object that never fills a
+ * part is sent with a single PUT on {@link #close()}. The object only appears when the
+ * stream is closed. Call {@link #abort()} instead after a failure, so S3 drops the parts
+ * already uploaded rather than billing for them.
+ *
+ * <p>By default memory holds one part, uploaded before writing continues. Given an executor
+ * and more {@code buffers}, full parts upload on the executor while the next buffer fills,
+ * and a writer that gets ahead waits for a buffer to come back: memory holds that many
+ * parts whatever the object's size, and at most that many upload at once. A failed part
+ * fails the next write or the close.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+    /** S3's smallest part size, except for the last part. */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String key;
+    private final String contentType;
+    private final int partSize;
+    private final Executor executor;
+    private final int maxBuffers;
+    private final BlockingQueue<byte[]> spareBuffers;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private byte[] part;
+    private int allocatedBuffers;
+    private int size;
+    private String uploadId;
+    private boolean closed;
+
+    public S3MultipartOutputStream(S3Client s3Client, String bucket, String key, String contentType) {
+        this(s3Client, bucket, key, contentType, DEFAULT_PART_SIZE);
+    }
+
+    public S3MultipartOutputStream(S3Client s3Client, String bucket, String key, String contentType, int partSize) {
+        this(s3Client, bucket, key, contentType, partSize, Runnable::run, 1);
+    }
+
+    /** Uploads parts on {@code executor}, from up to {@code buffers} buffers of {@code partSize}. */
+    public S3MultipartOutputStream(S3Client s3Client, String bucket, String key, String contentType, int partSize,
+                                   Executor executor, int buffers) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("partSize must be at least " + MIN_PART_SIZE + " bytes");
+        }
+        if (buffers < 1) {
+            throw new IllegalArgumentException("buffers must be at least 1");
+        }
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentType = contentType;
+        this.partSize = partSize;
+        this.executor = executor;
+        this.maxBuffers = buffers;
+        this.spareBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        this.part = new byte[partSize];
+        this.allocatedBuffers = 1;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (size == part.length) {
+            uploadPart();
+        }
+        part[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (size == part.length) {
+                uploadPart();
+            }
+            int copied = Math.min(len, part.length - size);
+            System.arraycopy(b, off, part, size, copied);
+            size += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    /** Uploads what is buffered, waits for the parts in flight and makes the object visible. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (uploadId == null) {
+            s3Client.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .contentType(contentType)
+                            .build(),
+                    RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, size), size));
+            return;
+        }
+        try {
+            if (size > 0) {
+                submitPart();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (CompletableFuture<CompletedPart> uploaded : parts) {
+                completedParts.add(await(uploaded));
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+        } catch (RuntimeException e) {
+            abortUpload();
+            throw e;
+        }
+    }
+
+    /** Discards the object: nothing becomes visible and uploaded parts are deleted. */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        abortUpload();
+    }
+
+    private void uploadPart() throws IOException {
+        submitPart();
+        part = nextBuffer();
+        size = 0;
+    }
+
+    private void submitPart() {
+        throwIfAPartFailed();
+        if (uploadId == null) {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).uploadId();
+        }
+        int partNumber = parts.size() + 1;
+        byte[] data = part;
+        int length = size;
+        parts.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                // ByteArrayInputStream can always reset for a retry.
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(data, 0, length), length)).eTag();
+                return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                spareBuffers.add(data);
+            }
+        }, executor));
+        throwIfAPartFailed();
+    }
+
+    /** A buffer no part in flight uses; allocated up to the limit, then waited for. */
+    private byte[] nextBuffer() throws IOException {
+        byte[] buffer = spareBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocatedBuffers < maxBuffers) {
+            allocatedBuffers++;
+            return new byte[partSize];
+        }
+        try {
+            return spareBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading s3://" + bucket + "/" + key);
+        }
+    }
+
+    private void throwIfAPartFailed() {
+        RuntimeException failed = failure.get();
+        if (failed != null) {
+            throw failed;
+        }
+    }
+
+    private static CompletedPart await(CompletableFuture<CompletedPart> uploaded) {
+        try {
+            return uploaded.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /** Waits for the parts in flight first: a part that lands after the abort would be kept. */
+    private void abortUpload() {
+        for (CompletableFuture<CompletedPart> uploaded : parts) {
+            uploaded.handle((completed, error) -> null).join();
+        }
+        if (uploadId != null) {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream to s3://" + bucket + "/" + key + " is closed");
+        }
+    }
+}
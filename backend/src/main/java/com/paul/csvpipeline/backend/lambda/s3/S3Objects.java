@@ -0,0 +1,54 @@
+package com.paul.csvpipeline.backend.lambda.s3;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Blocking reads through an {@link S3AsyncClient}, for the Lambdas' stream-based readers. A
+ * GET returns once the response headers arrive; its body is an {@code InputStream} that fills
+ * as the client receives it, so the transfer runs on the async client's pooled connections
+ * while the caller reads at its own pace.
+ */
+public final class S3Objects {
+
+    private S3Objects() {
+    }
+
+    public static ResponseInputStream<GetObjectResponse> get(S3AsyncClient s3Client, String bucket, String key) {
+        return get(s3Client, GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build());
+    }
+
+    public static ResponseInputStream<GetObjectResponse> get(S3AsyncClient s3Client, GetObjectRequest request) {
+        return join(s3Client.getObject(request, AsyncResponseTransformer.toBlockingInputStream()));
+    }
+
+    /** Object size from a HEAD request. */
+    public static long size(S3AsyncClient s3Client, String bucket, String key) {
+        return join(s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build())).contentLength();
+    }
+
+    /** Waits for the response; a failed request throws the SDK's exception, as the blocking client would. */
+    private static <T> T join(CompletableFuture<T> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
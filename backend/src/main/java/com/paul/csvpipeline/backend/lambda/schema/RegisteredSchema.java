@@ -0,0 +1,11 @@
+package com.paul.csvpipeline.backend.lambda.schema;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+
+import java.util.List;
+
+/**
+ * A schema version loaded from the registry.
+ */
+public record RegisteredSchema(long id, String userEmail, String name, int version, List<ColumnDefinition> columns) {
+}
@@ -0,0 +1,7 @@
+package com.paul.csvpipeline.backend.lambda.schema;
+
+/**
+ * Points at one registered schema version, as carried in the Step Functions input.
+ */
+public record SchemaRef(long schemaId, int version) {
+}
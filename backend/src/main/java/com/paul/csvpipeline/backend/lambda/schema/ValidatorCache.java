@@ -0,0 +1,94 @@
+package com.paul.csvpipeline.backend.lambda.schema;
+
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps prepared validators for registered schemas across warm invocations.
+ *
+ * <p>Schema versions are immutable rows, so a cached entry never goes stale; it is dropped
+ * only when it has not been used for the TTL, or when a newer version of the same schema is
+ * loaded. A schema that is in use is therefore fetched and prepared once per container.
+ */
+public class ValidatorCache {
+
+    private final SchemaRepository repository;
+    private final Function<List<ColumnDefinition>, CsvValidator> preparer;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public ValidatorCache(SchemaRepository repository,
+                          Function<List<ColumnDefinition>, CsvValidator> preparer,
+                          Duration ttl) {
+        this(repository, preparer, ttl, System::nanoTime);
+    }
+
+    ValidatorCache(SchemaRepository repository,
+                   Function<List<ColumnDefinition>, CsvValidator> preparer,
+                   Duration ttl,
+                   LongSupplier nanoTime) {
+        this.repository = repository;
+        this.preparer = preparer;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public CsvValidator validatorFor(SchemaRef ref) {
+        long now = nanoTime.getAsLong();
+        Entry entry = entries.get(ref.schemaId());
+        if (entry != null && entry.schema.version() == ref.version() && now - entry.lastUsed < ttlNanos) {
+            entry.lastUsed = now;
+            return entry.validator;
+        }
+        return load(ref, now).validator;
+    }
+
+    /** Number of prepared validators currently held. */
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry load(SchemaRef ref, long now) {
+        Entry current = entries.get(ref.schemaId());
+        if (current != null && current.schema.version() == ref.version() && now - current.lastUsed < ttlNanos) {
+            return current;
+        }
+        RegisteredSchema schema = repository.findById(ref.schemaId())
+                .orElseThrow(() -> new IllegalStateException("Schema id=" + ref.schemaId() + " does not exist"));
+        if (schema.version() != ref.version()) {
+            throw new IllegalStateException("Schema id=" + ref.schemaId() + " is version " + schema.version()
+                    + " but version " + ref.version() + " was requested");
+        }
+
+        // Expired entries and superseded versions of the same schema are of no further use.
+        entries.values().removeIf(other -> now - other.lastUsed >= ttlNanos
+                || (other.schema.userEmail().equals(schema.userEmail())
+                && other.schema.name().equals(schema.name())
+                && other.schema.version() < schema.version()));
+        Entry entry = new Entry(schema, preparer.apply(schema.columns()), now);
+        entries.put(schema.id(), entry);
+        return entry;
+    }
+
+    private static final class Entry {
+        private final RegisteredSchema schema;
+        private final CsvValidator validator;
+        private volatile long lastUsed;
+
+        private Entry(RegisteredSchema schema, CsvValidator validator, long lastUsed) {
+            this.schema = schema;
+            this.validator = validator;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of one column over every data row of an upload. {@code count} is the number of
+ * rows, each of which is blank (or missing), invalid for the column type, or a valid value;
+ * all other figures describe the valid values only and are {@code null} when they do not
+ * apply to the column type or no valid value was seen.
+ *
+ * @param distinctCount  estimated number of distinct valid values, within the error bound of
+ *                  {@link HyperLogLog}; numbers and dates compare by value, text byte for byte
+ * @param distinctSketch base64 {@link HyperLogLog} behind {@code distinctCount}; merge sketches
+ *                  of several uploads for their combined distinct count
+ * @param min       smallest value of an INTEGER ({@link Long}) or DECIMAL ({@link Double}) column
+ * @param max       largest value of an INTEGER or DECIMAL column
+ * @param mean      mean of an INTEGER or DECIMAL column
+ * @param variance  population variance of an INTEGER or DECIMAL column
+ * @param quantiles approximate {@code p50}, {@code p90} and {@code p99} of an INTEGER or
+ *                  DECIMAL column
+ * @param quantileSketch base64 {@link KllSketch} behind {@code quantiles}; merge sketches of
+ *                  several uploads or decode one to ask for any other quantile
+ * @param minLength shortest STRING or EMAIL value, in code points
+ * @param maxLength longest STRING or EMAIL value, in code points
+ * @param topValues most frequent STRING or EMAIL values with their error bounds, see
+ *                  {@link HeavyHitters}
+ * @param topValuesSketch base64 {@link HeavyHitters} behind {@code topValues}; merge trackers
+ *                  of several uploads for their combined most frequent values
+ * @param topDomains most frequent domains of an EMAIL column, lower-cased
+ * @param topDomainsSketch base64 {@link HeavyHitters} behind {@code topDomains}
+ * @param earliest  earliest DATE value, ISO formatted
+ * @param latest    latest DATE value, ISO formatted
+ */
+public record ColumnStatistics(String column,
+                               ColumnType type,
+                               long count,
+                               long blankCount,
+                               long invalidCount,
+                               Long distinctCount,
+                               String distinctSketch,
+                               Number min,
+                               Number max,
+                               Double mean,
+                               Double variance,
+                               Map<String, Double> quantiles,
+                               String quantileSketch,
+                               Integer minLength,
+                               Integer maxLength,
+                               List<FrequentValue> topValues,
+                               String topValuesSketch,
+                               List<FrequentValue> topDomains,
+                               String topDomainsSketch,
+                               String earliest,
+                               String latest) {
+}
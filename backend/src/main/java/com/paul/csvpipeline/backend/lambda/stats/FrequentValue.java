@@ -0,0 +1,8 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+/**
+ * One of the most frequent values of a column. The true number of occurrences lies within
+ * {@code [count - error, count]}; an {@code error} of zero means the count is exact.
+ */
+public record FrequentValue(String value, long count, long error) {
+}
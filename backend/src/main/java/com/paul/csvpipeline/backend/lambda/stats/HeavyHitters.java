@@ -0,0 +1,380 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Most frequent byte strings of a stream in fixed memory: Space-Saving (Metwally, Agrawal and
+ * El Abbadi, 2005) over {@code 20 * k} counters, guided by a Count-Min sketch (Cormode and
+ * Muthukrishnan, 2005).
+ *
+ * <p>Every value updates the sketch, whose estimate overestimates by at most {@code e / 2048}
+ * of {@code n} (0.13%) with 98% probability. A value without a counter takes over the smallest
+ * one only once its estimate exceeds that counter, and starts from the estimate, so a stream of
+ * one-off values cannot push out a recurring one. Counts therefore only ever overestimate, the
+ * smallest count never drops, and any value occurring more often than it (at most
+ * {@code n / (20 * k)} times) holds a counter. The reported count is the lower of the counter
+ * and the current estimate, so a value's true count always lies within the reported
+ * {@code count - error} and {@code count}.
+ *
+ * <p>Trackers {@link #merge} as mergeable summaries (Agarwal et al., 2012): a value missing
+ * from one side is charged that side's smallest count as error, and the sketches add up. They
+ * round-trip through {@link #toBase64()}, so the full state can be kept and merged later.
+ */
+public final class HeavyHitters {
+
+    public static final int DEFAULT_K = 10;
+    public static final int MAX_K = 1_000;
+
+    private static final int COUNTERS_PER_VALUE = 20;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2_048;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int k;
+    private final int capacity;
+    // Counter i: the value's hash, its bytes, count and error. heap orders counters by count,
+    // smallest first, and heapPosition is its inverse; slots is an open-addressing table from
+    // hash to counter, -1 when free.
+    private final long[] hashes;
+    private final byte[][] values;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;
+    private final int[] heapPosition;
+    private final int[] slots;
+    private int size;
+    private long total;
+    private final long[] sketch = new long[SKETCH_DEPTH * SKETCH_WIDTH];
+
+    public HeavyHitters() {
+        this(DEFAULT_K);
+    }
+
+    public HeavyHitters(int k) {
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("Heavy hitters k must be between 1 and " + MAX_K);
+        }
+        this.k = k;
+        this.capacity = COUNTERS_PER_VALUE * k;
+        this.hashes = new long[capacity];
+        this.values = new byte[capacity][];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapPosition = new int[capacity];
+        this.slots = new int[Integer.highestOneBit(capacity) << 2];
+        Arrays.fill(slots, -1);
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /** Number of values added, including through merges. */
+    public long count() {
+        return total;
+    }
+
+    /** Adds a byte slice, e.g. a field still in the tokenizer's buffer. */
+    public void add(byte[] buf, int offset, int length) {
+        add(XxHash64.hash(buf, offset, length), buf, offset, length);
+    }
+
+    /** {@link #add(byte[], int, int)} with the slice's {@link XxHash64} already computed. */
+    void add(long hash, byte[] buf, int offset, int length) {
+        total++;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            estimate = Math.min(estimate, ++sketch[sketchIndex(hash, row)]);
+        }
+        int counter = find(hash, buf, offset, length);
+        if (counter >= 0) {
+            counts[counter]++;
+            siftDown(heapPosition[counter]);
+            return;
+        }
+        if (size < capacity) {
+            // Nothing was ever dropped, so this is the value's first occurrence.
+            insert(hash, Arrays.copyOfRange(buf, offset, offset + length), 1, 0);
+            return;
+        }
+        counter = heap[0];
+        if (estimate <= counts[counter]) {
+            return;
+        }
+        removeSlot(counter);
+        hashes[counter] = hash;
+        values[counter] = Arrays.copyOfRange(buf, offset, offset + length);
+        counts[counter] = estimate;
+        errors[counter] = estimate - 1;
+        addSlot(counter);
+        siftDown(0);
+    }
+
+    /** Adds another tracker's input to this one. */
+    public void merge(HeavyHitters other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge heavy hitters with k " + k + " and " + other.k);
+        }
+        long ownMinimum = size < capacity ? 0 : counts[heap[0]];
+        long otherMinimum = other.size < other.capacity ? 0 : other.counts[other.heap[0]];
+        List<Candidate> candidates = new ArrayList<>(size + other.size);
+        boolean[] matched = new boolean[other.size];
+        for (int i = 0; i < size; i++) {
+            int match = other.find(hashes[i], values[i], 0, values[i].length);
+            if (match >= 0) {
+                matched[match] = true;
+                candidates.add(new Candidate(hashes[i], values[i],
+                        counts[i] + other.counts[match], errors[i] + other.errors[match]));
+            } else {
+                candidates.add(new Candidate(hashes[i], values[i],
+                        counts[i] + otherMinimum, errors[i] + otherMinimum));
+            }
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (!matched[i]) {
+                candidates.add(new Candidate(other.hashes[i], other.values[i],
+                        other.counts[i] + ownMinimum, other.errors[i] + ownMinimum));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::count).reversed());
+
+        Arrays.fill(slots, -1);
+        size = 0;
+        for (int i = 0; i < Math.min(capacity, candidates.size()); i++) {
+            Candidate candidate = candidates.get(i);
+            insert(candidate.hash, candidate.value, candidate.count, candidate.error);
+        }
+        total += other.total;
+        for (int i = 0; i < sketch.length; i++) {
+            sketch[i] += other.sketch[i];
+        }
+    }
+
+    /** The {@code k} most frequent values, most frequent first; ties in value order. */
+    public List<FrequentValue> top() {
+        List<FrequentValue> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long upper = Math.min(counts[i], estimate(hashes[i]));
+            long lower = counts[i] - errors[i];
+            top.add(new FrequentValue(new String(values[i], StandardCharsets.UTF_8), upper, upper - lower));
+        }
+        top.sort(Comparator.comparingLong(FrequentValue::count).reversed().thenComparing(FrequentValue::value));
+        return List.copyOf(top.subList(0, Math.min(k, top.size())));
+    }
+
+    /**
+     * Compact binary form, base64 encoded for JSON payloads: every counter's value, count and
+     * error, then the sketch's non-zero cells as gaps and values. Hashes are recomputed.
+     */
+    public String toBase64() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, k);
+        writeVarLong(out, total);
+        writeVarLong(out, size);
+        for (int i = 0; i < size; i++) {
+            writeVarLong(out, values[i].length);
+            out.writeBytes(values[i]);
+            writeVarLong(out, counts[i]);
+            writeVarLong(out, errors[i]);
+        }
+        int cells = 0;
+        for (long cell : sketch) {
+            if (cell != 0) {
+                cells++;
+            }
+        }
+        writeVarLong(out, cells);
+        int previous = -1;
+        for (int i = 0; i < sketch.length; i++) {
+            if (sketch[i] != 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, sketch[i]);
+                previous = i;
+            }
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    public static HeavyHitters fromBase64(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported heavy hitters format");
+            }
+            HeavyHitters tracker = new HeavyHitters(readLength(buffer, MAX_K));
+            tracker.total = readVarLong(buffer);
+            int size = readLength(buffer, tracker.capacity);
+            for (int i = 0; i < size; i++) {
+                byte[] value = new byte[readLength(buffer, buffer.remaining())];
+                buffer.get(value);
+                long count = readVarLong(buffer);
+                long error = readVarLong(buffer);
+                long hash = XxHash64.hash(value, 0, value.length);
+                if (error >= count || tracker.find(hash, value, 0, value.length) >= 0) {
+                    throw new IllegalArgumentException("Corrupt heavy hitters");
+                }
+                tracker.insert(hash, value, count, error);
+            }
+            int cells = readLength(buffer, tracker.sketch.length);
+            int cell = -1;
+            for (int i = 0; i < cells; i++) {
+                int gap = readLength(buffer, tracker.sketch.length - 1 - cell);
+                if (gap == 0) {
+                    throw new IllegalArgumentException("Corrupt heavy hitters");
+                }
+                cell += gap;
+                tracker.sketch[cell] = readVarLong(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after heavy hitters");
+            }
+            return tracker;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated heavy hitters", ex);
+        }
+    }
+
+    private long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            estimate = Math.min(estimate, sketch[sketchIndex(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /** Row {@code row}'s column from two halves of one hash (Kirsch and Mitzenmacher). */
+    private static int sketchIndex(long hash, int row) {
+        int column = ((int) hash + row * ((int) (hash >>> 32) | 1)) & (SKETCH_WIDTH - 1);
+        return row * SKETCH_WIDTH + column;
+    }
+
+    private int find(long hash, byte[] buf, int offset, int length) {
+        int mask = slots.length - 1;
+        for (int slot = (int) hash & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+            int counter = slots[slot];
+            if (hashes[counter] == hash
+                    && Arrays.equals(values[counter], 0, values[counter].length, buf, offset, offset + length)) {
+                return counter;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long hash, byte[] value, long count, long error) {
+        int counter = size++;
+        hashes[counter] = hash;
+        values[counter] = value;
+        counts[counter] = count;
+        errors[counter] = error;
+        heap[counter] = counter;
+        heapPosition[counter] = counter;
+        addSlot(counter);
+        siftUp(counter);
+    }
+
+    private void addSlot(int counter) {
+        int mask = slots.length - 1;
+        int slot = (int) hashes[counter] & mask;
+        while (slots[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = counter;
+    }
+
+    /** Linear-probing delete: shifts later entries of the cluster back over the hole. */
+    private void removeSlot(int counter) {
+        int mask = slots.length - 1;
+        int hole = (int) hashes[counter] & mask;
+        while (slots[hole] != counter) {
+            hole = (hole + 1) & mask;
+        }
+        for (int slot = (hole + 1) & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+            int home = (int) hashes[slots[slot]] & mask;
+            // Movable unless its home lies cyclically within (hole, slot].
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                slots[hole] = slots[slot];
+                hole = slot;
+            }
+        }
+        slots[hole] = -1;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[heap[position]]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < size && counts[heap[left]] < counts[heap[smallest]]) {
+                smallest = left;
+            }
+            if (left + 1 < size && counts[heap[left + 1]] < counts[heap[smallest]]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int counter = heap[a];
+        heap[a] = heap[b];
+        heap[b] = counter;
+        heapPosition[heap[a]] = a;
+        heapPosition[heap[b]] = b;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt heavy hitters");
+    }
+
+    /** A var-long that must lie within {@code [0, max]}. */
+    private static int readLength(ByteBuffer buffer, int max) {
+        long value = readVarLong(buffer);
+        if (value > max) {
+            throw new IllegalArgumentException("Corrupt heavy hitters");
+        }
+        return (int) value;
+    }
+
+    private record Candidate(long hash, byte[] value, long count, long error) {
+    }
+}
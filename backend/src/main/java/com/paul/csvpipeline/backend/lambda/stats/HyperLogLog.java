@@ -0,0 +1,355 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * HyperLogLog++ distinct-count sketch (Heule, Nunkesser and Hall, 2013) over 64-bit hashes.
+ *
+ * <p>Small cardinalities use the sparse representation: a sorted list of hashes truncated to
+ * 25 bits of index, counted by linear counting over {@code 2^25} buckets, which is
+ * practically exact. Once the list would outgrow the dense form it becomes
+ * {@code 2^precision} six-bit registers with a standard error of
+ * {@code 1.04 / sqrt(2^precision)}: 1.6% at the default precision 12, 0.8% at 14. The dense
+ * estimate uses Ertl's improved estimator (2017), which removes the small- and mid-range
+ * bias that HLL++ corrects with empirical tables.
+ *
+ * <p>Sketches with the same precision {@link #merge} into the sketch of the combined input and
+ * round-trip through {@link #toBase64()}.
+ */
+public final class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final int SPARSE_PRECISION = 25;
+    private static final int RHO_BITS = 6;
+    private static final int MAX_SPARSE_RHO = 64 - SPARSE_PRECISION + 1;
+    private static final int REGISTER_BITS = 6;
+    private static final double ALPHA_INFINITY = 1 / (2 * Math.log(2));
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+
+    private final int precision;
+    // Sparse entries, (index << RHO_BITS) | rho at SPARSE_PRECISION: a sorted list with one
+    // entry per index plus an unsorted buffer of recent ones. Both null once dense.
+    private int[] sparse = new int[16];
+    private int sparseSize;
+    private int[] pending = new int[16];
+    private int pendingSize;
+    private byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /** Adds a byte slice, e.g. a field still in the tokenizer's buffer. */
+    public void add(byte[] buf, int offset, int length) {
+        addHash(XxHash64.hash(buf, offset, length));
+    }
+
+    /** Adds a value by its 64-bit representation, e.g. a long or a double's bits. */
+    public void add(long value) {
+        addHash(XxHash64.hash(value));
+    }
+
+    /** Adds a value by its {@link XxHash64}, for callers that need the hash themselves. */
+    void addHash(long hash) {
+        if (registers != null) {
+            int index = (int) (hash >>> (64 - precision));
+            // The guard bit caps rho at 64 - precision + 1 when the remaining bits are zero.
+            int rho = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+            if (rho > registers[index]) {
+                registers[index] = (byte) rho;
+            }
+            return;
+        }
+        int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+        int rho = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1))) + 1;
+        addSparse(index << RHO_BITS | rho);
+    }
+
+    /** Adds another sketch's input to this one. */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches with precision "
+                    + precision + " and " + other.precision);
+        }
+        if (other.registers != null) {
+            toDense();
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < other.sparseSize; i++) {
+            addEntry(other.sparse[i]);
+        }
+        for (int i = 0; i < other.pendingSize; i++) {
+            addEntry(other.pending[i]);
+        }
+        flush();
+    }
+
+    /** Estimated number of distinct values added, including through merges. */
+    public long estimate() {
+        flush();
+        if (registers == null) {
+            // Linear counting: every sparse entry is one occupied bucket out of 2^25.
+            double buckets = 1 << SPARSE_PRECISION;
+            return Math.round(buckets * Math.log(buckets / (buckets - sparseSize)));
+        }
+        return Math.round(denseEstimate());
+    }
+
+    /** Compact binary form, base64 encoded for JSON payloads. */
+    public String toBase64() {
+        flush();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        out.write(precision);
+        if (registers == null) {
+            out.write(SPARSE);
+            writeVarInt(out, sparseSize);
+            int previous = 0;
+            for (int i = 0; i < sparseSize; i++) {
+                writeVarInt(out, sparse[i] - previous);
+                previous = sparse[i];
+            }
+        } else {
+            out.write(DENSE);
+            long bits = 0;
+            int bitCount = 0;
+            for (byte register : registers) {
+                bits = bits << REGISTER_BITS | register;
+                bitCount += REGISTER_BITS;
+                if (bitCount >= 8) {
+                    bitCount -= 8;
+                    out.write((int) (bits >>> bitCount));
+                }
+            }
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    public static HyperLogLog fromBase64(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported HyperLogLog format");
+            }
+            HyperLogLog sketch = new HyperLogLog(buffer.get());
+            byte mode = buffer.get();
+            if (mode == SPARSE) {
+                int size = readVarInt(buffer);
+                int entry = 0;
+                for (int i = 0; i < size; i++) {
+                    entry += readVarInt(buffer);
+                    int rho = entry & ((1 << RHO_BITS) - 1);
+                    if (entry < 0 || rho < 1 || rho > MAX_SPARSE_RHO) {
+                        throw new IllegalArgumentException("Corrupt HyperLogLog sketch");
+                    }
+                    sketch.addEntry(entry);
+                }
+                sketch.flush();
+            } else if (mode == DENSE) {
+                sketch.toDense();
+                int maxRho = 64 - sketch.precision + 1;
+                long bits = 0;
+                int bitCount = 0;
+                for (int i = 0; i < sketch.registers.length; i++) {
+                    if (bitCount < REGISTER_BITS) {
+                        bits = bits << 8 | (buffer.get() & 0xFF);
+                        bitCount += 8;
+                    }
+                    bitCount -= REGISTER_BITS;
+                    int register = (int) (bits >>> bitCount) & ((1 << REGISTER_BITS) - 1);
+                    if (register > maxRho) {
+                        throw new IllegalArgumentException("Corrupt HyperLogLog sketch");
+                    }
+                    sketch.registers[i] = (byte) register;
+                }
+            } else {
+                throw new IllegalArgumentException("Corrupt HyperLogLog sketch");
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after HyperLogLog sketch");
+            }
+            return sketch;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated HyperLogLog sketch", ex);
+        }
+    }
+
+    /** A sparse entry, into the buffer while sparse or straight into the registers once dense. */
+    private void addEntry(int entry) {
+        if (registers == null) {
+            addSparse(entry);
+        } else {
+            applySparse(entry);
+        }
+    }
+
+    private void addSparse(int entry) {
+        if (pendingSize == pending.length) {
+            flush();
+            if (registers != null) {
+                applySparse(entry);
+                return;
+            }
+        }
+        pending[pendingSize++] = entry;
+    }
+
+    /**
+     * Sorts the buffer into the list, keeping the highest rho per index, and turns dense once
+     * the list would take more space than the packed registers.
+     */
+    private void flush() {
+        if (registers != null || pendingSize == 0) {
+            return;
+        }
+        Arrays.sort(pending, 0, pendingSize);
+        int[] merged = new int[sparseSize + pendingSize];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sparseSize || j < pendingSize) {
+            int next = j == pendingSize || (i < sparseSize && sparse[i] <= pending[j]) ? sparse[i++] : pending[j++];
+            // Sorted entries of one index end with its highest rho.
+            if (size > 0 && merged[size - 1] >>> RHO_BITS == next >>> RHO_BITS) {
+                merged[size - 1] = next;
+            } else {
+                merged[size++] = next;
+            }
+        }
+        sparse = merged;
+        sparseSize = size;
+        pendingSize = 0;
+        int denseBytes = (1 << precision) * REGISTER_BITS / 8;
+        if (sparseSize * Integer.BYTES > denseBytes) {
+            toDense();
+        } else if (pending.length < denseBytes / Integer.BYTES / 4) {
+            pending = new int[pending.length * 2];
+        }
+    }
+
+    private void toDense() {
+        if (registers != null) {
+            return;
+        }
+        int[] entries = sparse;
+        int size = sparseSize;
+        int[] buffered = pending;
+        int bufferedSize = pendingSize;
+        registers = new byte[1 << precision];
+        sparse = null;
+        pending = null;
+        sparseSize = 0;
+        pendingSize = 0;
+        for (int i = 0; i < size; i++) {
+            applySparse(entries[i]);
+        }
+        for (int i = 0; i < bufferedSize; i++) {
+            applySparse(buffered[i]);
+        }
+    }
+
+    /** Folds a 25-bit index entry into the register it falls in at this precision. */
+    private void applySparse(int entry) {
+        int index = entry >>> RHO_BITS;
+        int extraBits = SPARSE_PRECISION - precision;
+        int register = index >>> extraBits;
+        int extra = index & ((1 << extraBits) - 1);
+        int rho = extra != 0
+                ? Integer.numberOfLeadingZeros(extra) - (Integer.SIZE - extraBits) + 1
+                : extraBits + (entry & ((1 << RHO_BITS) - 1));
+        if (rho > registers[register]) {
+            registers[register] = (byte) rho;
+        }
+    }
+
+    /** Ertl, "New cardinality estimation algorithms for HyperLogLog sketches", algorithm 6. */
+    private double denseEstimate() {
+        int q = 64 - precision;
+        int m = registers.length;
+        int[] histogram = new int[q + 2];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = m * tau((m - histogram[q + 1]) / (double) m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += m * sigma(histogram[0] / (double) m);
+        return ALPHA_INFINITY * m * m / z;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt HyperLogLog sketch");
+    }
+}
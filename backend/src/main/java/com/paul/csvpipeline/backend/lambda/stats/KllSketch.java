@@ -0,0 +1,278 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * KLL quantile sketch (Karnin, Lang and Liberty, 2016) over doubles.
+ *
+ * <p>Values are kept in a stack of compactors. Level {@code h} holds items that each stand
+ * for {@code 2^h} inputs; when a level reaches its capacity it is sorted and every other
+ * item, starting at a random offset, is promoted to the next level. Capacities shrink by a
+ * factor of 2/3 per level below the top, so the sketch retains about {@code 3k} items
+ * whatever the input size, and the rank error of any quantile is roughly {@code 1.7 / k}
+ * of the count (about 0.8% for the default {@code k = 200}).
+ *
+ * <p>Sketches with the same {@code k} {@link #merge} into a sketch of the combined input
+ * with the same guarantee, and round-trip through {@link #toBase64()}. Until the first
+ * compaction every value is kept in arrival order, so small inputs are answered exactly.
+ */
+public final class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+    public static final int MIN_K = 8;
+    public static final int MAX_K = 65_535;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    // As in DataSketches: tiny bottom levels would compact, and sort, every few updates.
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int k;
+    private double[][] levels = new double[0][];
+    private int[] sizes = new int[0];
+    private int[] capacities = new int[0];
+    private int retained;
+    private int totalCapacity;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    // Fixed seed: the same input always yields the same sketch.
+    private long random = 0x9E37_79B9_7F4A_7C15L;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < MIN_K || k > MAX_K) {
+            throw new IllegalArgumentException("KLL k must be between " + MIN_K + " and " + MAX_K);
+        }
+        this.k = k;
+        grow();
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /** Number of values added, including through merges. */
+    public long count() {
+        return count;
+    }
+
+    /** Items currently held; bounded by about {@code 3k}. */
+    public int retained() {
+        return retained;
+    }
+
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN cannot be ranked");
+        }
+        append(0, value);
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (retained >= totalCapacity) {
+            compress();
+        }
+    }
+
+    /** Adds another sketch's input to this one. */
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge KLL sketches with k " + k + " and " + other.k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        while (levels.length < other.levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        while (retained >= totalCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Smallest retained value whose estimated rank reaches {@code fraction} of the count.
+     * {@code 0} and {@code 1} return the exact minimum and maximum; an empty sketch returns
+     * {@link Double#NaN}.
+     */
+    public double quantile(double fraction) {
+        return quantiles(fraction)[0];
+    }
+
+    /** {@link #quantile} for several fractions, sorting the retained items only once. */
+    public double[] quantiles(double... fractions) {
+        for (double fraction : fractions) {
+            if (!(fraction >= 0 && fraction <= 1)) {
+                throw new IllegalArgumentException("Quantile fraction must be within [0, 1]: " + fraction);
+            }
+        }
+        double[] result = new double[fractions.length];
+        if (count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        sortedItems(values, weights);
+        for (int q = 0; q < fractions.length; q++) {
+            double fraction = fractions[q];
+            if (fraction == 0) {
+                result[q] = min;
+            } else if (fraction == 1) {
+                result[q] = max;
+            } else {
+                double target = fraction * count;
+                long cumulative = 0;
+                int i = 0;
+                while (i < values.length - 1 && (cumulative += weights[i]) < target) {
+                    i++;
+                }
+                result[q] = values[i];
+            }
+        }
+        return result;
+    }
+
+    /** Compact binary form, base64 encoded for JSON payloads. */
+    public String toBase64() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + 8 + 8 + 1 + levels.length * 4 + retained * 8);
+        buffer.put(FORMAT_VERSION).putInt(k).putLong(count).putDouble(min).putDouble(max);
+        buffer.put((byte) levels.length);
+        for (int h = 0; h < levels.length; h++) {
+            buffer.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                buffer.putDouble(levels[h][i]);
+            }
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    public static KllSketch fromBase64(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported KLL sketch format");
+            }
+            KllSketch sketch = new KllSketch(buffer.getInt());
+            sketch.count = buffer.getLong();
+            sketch.min = buffer.getDouble();
+            sketch.max = buffer.getDouble();
+            int height = buffer.get();
+            if (height < 1) {
+                throw new IllegalArgumentException("Corrupt KLL sketch");
+            }
+            while (sketch.levels.length < height) {
+                sketch.grow();
+            }
+            for (int h = 0; h < height; h++) {
+                int size = buffer.getInt();
+                for (int i = 0; i < size; i++) {
+                    sketch.append(h, buffer.getDouble());
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after KLL sketch");
+            }
+            return sketch;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated KLL sketch", ex);
+        }
+    }
+
+    /** Adds a level on top; every level below moves one step further from the top. */
+    private void grow() {
+        int height = levels.length + 1;
+        levels = Arrays.copyOf(levels, height);
+        sizes = Arrays.copyOf(sizes, height);
+        capacities = new int[height];
+        levels[height - 1] = new double[MIN_LEVEL_CAPACITY];
+        totalCapacity = 0;
+        for (int h = 0; h < height; h++) {
+            int depth = height - h - 1;
+            capacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+            totalCapacity += capacities[h];
+        }
+    }
+
+    private void append(int level, double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    /** Compacts the lowest full level, growing the stack when that is the top. */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacities[h]) {
+                if (h + 1 == levels.length) {
+                    grow();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts the level and promotes one item of every adjacent pair. With an odd size the
+     * smallest item stays behind so the total weight is preserved exactly.
+     */
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int start = size & 1;
+        int offset = nextBit();
+        for (int i = start + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        retained -= size - start;
+        sizes[level] = start;
+    }
+
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+
+    /** All retained items in ascending order with their weights. */
+    private void sortedItems(double[] values, long[] weights) {
+        double[] items = new double[retained];
+        int[] itemLevels = new int[retained];
+        Integer[] order = new Integer[retained];
+        int n = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                items[n] = levels[h][i];
+                itemLevels[n] = h;
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> items[i]));
+        for (int i = 0; i < n; i++) {
+            values[i] = items[order[i]];
+            weights[i] = 1L << itemLevels[order[i]];
+        }
+    }
+}
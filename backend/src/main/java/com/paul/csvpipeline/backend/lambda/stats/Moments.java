@@ -0,0 +1,69 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+/**
+ * Count, mean, variance and range of a stream of values in constant memory.
+ *
+ * <p>Uses Welford's update, which stays accurate where the naive sum of squares cancels
+ * catastrophically, and Chan et al.'s pairwise combination to {@link #merge} partial
+ * results, e.g. those of independently scanned chunks.
+ */
+public final class Moments {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(Moments other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long combined = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / combined;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / combined);
+        count = combined;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** {@link Double#NaN} when empty. */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /** Population variance; {@link Double#NaN} when empty. */
+    public double variance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+}
@@ -0,0 +1,313 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import com.paul.csvpipeline.backend.lambda.validation.ValueCheckers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates {@link ColumnStatistics} for every column during the validation pass.
+ *
+ * <p>Memory is fixed per column whatever the row count. Values arrive as the same trimmed
+ * UTF-8 slices the type checks just accepted, so the common ASCII forms are decoded in place
+ * and only unusual ones (non-ASCII digits, exponents, long decimals) fall back to a
+ * {@code String}. Every column feeds a {@link HyperLogLog} for its distinct count, numeric
+ * columns also a {@link KllSketch} for quantiles and text columns {@link HeavyHitters} for
+ * their most frequent values (and email domains). Collectors of consecutive chunks combine
+ * with {@link #merge}.
+ */
+public final class StatisticsCollector {
+
+    static final double[] REPORTED_QUANTILES = {0.5, 0.9, 0.99};
+    static final String[] REPORTED_QUANTILE_NAMES = {"p50", "p90", "p99"};
+
+    private static final StatisticsCollector NONE = new StatisticsCollector();
+
+    private final List<ColumnDefinition> schema;
+    // Null for NONE.
+    private final Column[] columns;
+    // Lower-cased email domains are built here rather than in a new array per value.
+    private byte[] scratch = new byte[64];
+
+    public StatisticsCollector(List<ColumnDefinition> schema) {
+        this(schema, StatisticsConfig.defaults());
+    }
+
+    public StatisticsCollector(List<ColumnDefinition> schema, StatisticsConfig config) {
+        this.schema = List.copyOf(schema);
+        this.columns = new Column[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(this.schema.get(i).type(), config);
+        }
+    }
+
+    private StatisticsCollector() {
+        this.schema = List.of();
+        this.columns = null;
+    }
+
+    /**
+     * A collector that records nothing and reports no columns, for scans whose statistics
+     * would be discarded. Shared, since it has no state.
+     */
+    public static StatisticsCollector none() {
+        return NONE;
+    }
+
+    /** A blank value, or no value at all in a short row. */
+    public void blank(int column) {
+        if (columns == null) {
+            return;
+        }
+        Column stats = columns[column];
+        stats.count++;
+        stats.blank++;
+    }
+
+    /** A non-blank value that failed its type check. */
+    public void invalid(int column) {
+        if (columns == null) {
+            return;
+        }
+        Column stats = columns[column];
+        stats.count++;
+        stats.invalid++;
+    }
+
+    /** A valid STRING or EMAIL value. */
+    public void text(int column, byte[] buf, int offset, int length) {
+        if (columns == null) {
+            return;
+        }
+        Column stats = columns[column];
+        stats.count++;
+        long hash = XxHash64.hash(buf, offset, length);
+        stats.distinct.addHash(hash);
+        stats.frequentValues.add(hash, buf, offset, length);
+        if (stats.frequentDomains != null) {
+            addDomain(stats.frequentDomains, buf, offset, length);
+        }
+        int codePoints = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if ((buf[i] & 0xC0) != 0x80) {
+                codePoints++;
+            }
+        }
+        stats.minLength = Math.min(stats.minLength, codePoints);
+        stats.maxLength = Math.max(stats.maxLength, codePoints);
+    }
+
+    /** A value already accepted as an INTEGER; returns it parsed. */
+    public long integer(int column, byte[] buf, int offset, int length) {
+        if (columns == null) {
+            return ValueCheckers.integerValue(buf, offset, length);
+        }
+        Column stats = columns[column];
+        stats.count++;
+        long value = ValueCheckers.integerValue(buf, offset, length);
+        stats.minInteger = Math.min(stats.minInteger, value);
+        stats.maxInteger = Math.max(stats.maxInteger, value);
+        stats.moments.add(value);
+        stats.quantiles.update(value);
+        // By value, so 7 and 007 are one distinct integer.
+        stats.distinct.add(value);
+        return value;
+    }
+
+    /** A value already accepted as a DECIMAL. */
+    public void decimal(int column, byte[] buf, int offset, int length) {
+        if (columns == null) {
+            return;
+        }
+        Column stats = columns[column];
+        stats.count++;
+        double value = ValueCheckers.decimalValue(buf, offset, length);
+        stats.moments.add(value);
+        // Adding 0.0 folds -0.0 into 0.0, so only numerically different values count.
+        stats.distinct.add(Double.doubleToLongBits(value + 0.0));
+        // Infinite overflows stay out of the sketch so reported quantiles remain JSON numbers.
+        if (Double.isFinite(value)) {
+            stats.quantiles.update(value);
+        }
+    }
+
+    /** A valid DATE, as a {@code year * 10_000 + month * 100 + day} key. */
+    public void date(int column, long dateKey) {
+        if (columns == null) {
+            return;
+        }
+        Column stats = columns[column];
+        stats.count++;
+        stats.earliest = Math.min(stats.earliest, dateKey);
+        stats.latest = Math.max(stats.latest, dateKey);
+        stats.distinct.add(dateKey);
+    }
+
+    /** Domains are case-insensitive, so {@code Example.COM} and {@code example.com} count as one. */
+    private void addDomain(HeavyHitters domains, byte[] buf, int offset, int length) {
+        int at = offset + length - 1;
+        while (at >= offset && buf[at] != '@') {
+            at--;
+        }
+        int domainLength = offset + length - at - 1;
+        if (scratch.length < domainLength) {
+            scratch = new byte[Math.max(domainLength, scratch.length * 2)];
+        }
+        for (int i = 0; i < domainLength; i++) {
+            byte b = buf[at + 1 + i];
+            scratch[i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+        domains.add(scratch, 0, domainLength);
+    }
+
+    /** Adds the rows another collector for the same schema has seen. */
+    public void merge(StatisticsCollector other) {
+        if (columns == null) {
+            throw new IllegalStateException("Cannot merge into a collector that records nothing");
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].merge(other.columns[i]);
+        }
+    }
+
+    public List<ColumnStatistics> toStatistics() {
+        if (columns == null) {
+            return List.of();
+        }
+        List<ColumnStatistics> statistics = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            statistics.add(columns[i].toStatistics(schema.get(i)));
+        }
+        return statistics;
+    }
+
+    private static final class Column {
+        private long count;
+        private long blank;
+        private long invalid;
+        private final Moments moments = new Moments();
+        private final HyperLogLog distinct;
+        // Only numeric columns get a sketch, only text columns frequent values and only email
+        // columns frequent domains; null otherwise.
+        private final KllSketch quantiles;
+        private final HeavyHitters frequentValues;
+        private final HeavyHitters frequentDomains;
+        private long minInteger = Long.MAX_VALUE;
+        private long maxInteger = Long.MIN_VALUE;
+        private int minLength = Integer.MAX_VALUE;
+        private int maxLength = -1;
+        private long earliest = Long.MAX_VALUE;
+        private long latest = Long.MIN_VALUE;
+
+        private Column(ColumnType type, StatisticsConfig config) {
+            boolean numeric = type == ColumnType.INTEGER || type == ColumnType.DECIMAL;
+            this.quantiles = numeric ? new KllSketch(config.quantileK()) : null;
+            boolean text = type == ColumnType.STRING || type == ColumnType.EMAIL;
+            this.frequentValues = text ? new HeavyHitters(config.topValues()) : null;
+            this.frequentDomains = type == ColumnType.EMAIL ? new HeavyHitters(config.topValues()) : null;
+            this.distinct = new HyperLogLog(config.distinctPrecision());
+        }
+
+        private void merge(Column other) {
+            count += other.count;
+            blank += other.blank;
+            invalid += other.invalid;
+            moments.merge(other.moments);
+            distinct.merge(other.distinct);
+            if (quantiles != null) {
+                quantiles.merge(other.quantiles);
+            }
+            if (frequentValues != null) {
+                frequentValues.merge(other.frequentValues);
+            }
+            if (frequentDomains != null) {
+                frequentDomains.merge(other.frequentDomains);
+            }
+            minInteger = Math.min(minInteger, other.minInteger);
+            maxInteger = Math.max(maxInteger, other.maxInteger);
+            minLength = Math.min(minLength, other.minLength);
+            maxLength = Math.max(maxLength, other.maxLength);
+            earliest = Math.min(earliest, other.earliest);
+            latest = Math.max(latest, other.latest);
+        }
+
+        private ColumnStatistics toStatistics(ColumnDefinition definition) {
+            Long distinctCount = null;
+            String distinctSketch = null;
+            if (count > blank + invalid) {
+                distinctCount = distinct.estimate();
+                distinctSketch = distinct.toBase64();
+            }
+            Number min = null;
+            Number max = null;
+            Double mean = null;
+            Double variance = null;
+            Map<String, Double> quantileValues = null;
+            String quantileSketch = null;
+            Integer shortest = null;
+            Integer longest = null;
+            List<FrequentValue> topValues = null;
+            String topValuesSketch = null;
+            List<FrequentValue> topDomains = null;
+            String topDomainsSketch = null;
+            String first = null;
+            String last = null;
+            switch (definition.type()) {
+                case INTEGER, DECIMAL -> {
+                    if (moments.count() > 0) {
+                        boolean integer = definition.type() == ColumnType.INTEGER;
+                        min = integer ? (Number) minInteger : finiteOrNull(moments.min());
+                        max = integer ? (Number) maxInteger : finiteOrNull(moments.max());
+                        mean = finiteOrNull(moments.mean());
+                        variance = finiteOrNull(moments.variance());
+                    }
+                    if (quantiles.count() > 0) {
+                        quantileValues = new LinkedHashMap<>();
+                        double[] values = quantiles.quantiles(REPORTED_QUANTILES);
+                        for (int q = 0; q < values.length; q++) {
+                            quantileValues.put(REPORTED_QUANTILE_NAMES[q], values[q]);
+                        }
+                        quantileSketch = quantiles.toBase64();
+                    }
+                }
+                case STRING, EMAIL -> {
+                    if (maxLength >= 0) {
+                        shortest = minLength;
+                        longest = maxLength;
+                        topValues = frequentValues.top();
+                        topValuesSketch = frequentValues.toBase64();
+                        if (frequentDomains != null) {
+                            topDomains = frequentDomains.top();
+                            topDomainsSketch = frequentDomains.toBase64();
+                        }
+                    }
+                }
+                case DATE -> {
+                    if (earliest <= latest) {
+                        first = toIsoDate(earliest);
+                        last = toIsoDate(latest);
+                    }
+                }
+            }
+            return new ColumnStatistics(definition.name(), definition.type(), count, blank, invalid,
+                    distinctCount, distinctSketch, min, max, mean, variance, quantileValues, quantileSketch, shortest, longest,
+                    topValues, topValuesSketch, topDomains, topDomainsSketch, first, last);
+        }
+
+        /** Decimals beyond double range overflow to infinity, which JSON cannot carry. */
+        private static Double finiteOrNull(double value) {
+            return Double.isFinite(value) ? value : null;
+        }
+
+        private static String toIsoDate(long key) {
+            long year = Math.floorDiv(key, 10_000);
+            int monthDay = Math.floorMod(key, 10_000);
+            return LocalDate.of((int) year, monthDay / 100, monthDay % 100).toString();
+        }
+    }
+}
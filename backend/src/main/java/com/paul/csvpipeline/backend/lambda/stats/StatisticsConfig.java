@@ -0,0 +1,32 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+/**
+ * Accuracy/size trade-offs of the sketches built during validation.
+ *
+ * @param quantileK         KLL {@code k} for INTEGER and DECIMAL columns: rank error about
+ *                          {@code 1.7 / k}, serialized size about {@code 24 * k} bytes before base64
+ * @param distinctPrecision HyperLogLog precision {@code p} for every column: standard error
+ *                          {@code 1.04 / sqrt(2^p)}, serialized size at most {@code 0.75 * 2^p}
+ *                          bytes before base64
+ * @param topValues         most frequent values reported per STRING and EMAIL column (and
+ *                          email domains); tracking costs about 64 KiB per column
+ */
+public record StatisticsConfig(int quantileK, int distinctPrecision, int topValues) {
+
+    public StatisticsConfig {
+        if (quantileK < KllSketch.MIN_K || quantileK > KllSketch.MAX_K) {
+            throw new IllegalArgumentException("Quantile k must be between " + KllSketch.MIN_K + " and " + KllSketch.MAX_K);
+        }
+        if (distinctPrecision < HyperLogLog.MIN_PRECISION || distinctPrecision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException("Distinct precision must be between "
+                    + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION);
+        }
+        if (topValues < 1 || topValues > HeavyHitters.MAX_K) {
+            throw new IllegalArgumentException("Top values must be between 1 and " + HeavyHitters.MAX_K);
+        }
+    }
+
+    public static StatisticsConfig defaults() {
+        return new StatisticsConfig(KllSketch.DEFAULT_K, HyperLogLog.DEFAULT_PRECISION, HeavyHitters.DEFAULT_K);
+    }
+}
@@ -0,0 +1,206 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Combines the {@link ColumnStatistics} of two sets of rows with the same schema, e.g. a
+ * dataset so far and a delta appended to it, from the statistics alone: the cost depends on
+ * the sketch sizes, never on how many rows either side summarises.
+ *
+ * <p>Counts, ranges and lengths combine exactly, means and variances through Chan et al.'s
+ * pairwise formula, and distinct counts, quantiles and most frequent values by merging the
+ * {@link HyperLogLog}, {@link KllSketch} and {@link HeavyHitters} carried in the statistics, so
+ * a value just below the reported cut-off on both sides still surfaces in the union.
+ *
+ * <p>Statistics persisted before the heavy hitters were kept, or tracked with another
+ * {@code k}, only have the reported top list, so they merge as bounds: a value missing from
+ * one side occurred there at most as often as that side's last reported value, which is added
+ * to its count and its error. The true count of every merged value therefore still lies within
+ * {@code count - error} and {@code count}, though errors widen with every merge.
+ */
+public final class StatisticsMerger {
+
+    private StatisticsMerger() {
+    }
+
+    /** Statistics of the rows of both {@code base} and {@code delta}, column by column. */
+    public static List<ColumnStatistics> merge(List<ColumnStatistics> base, List<ColumnStatistics> delta) {
+        if (base.size() != delta.size()) {
+            throw new IllegalArgumentException("Cannot merge statistics of " + base.size() + " and " + delta.size() + " columns");
+        }
+        List<ColumnStatistics> merged = new ArrayList<>(base.size());
+        for (int i = 0; i < base.size(); i++) {
+            merged.add(merge(base.get(i), delta.get(i)));
+        }
+        return merged;
+    }
+
+    static ColumnStatistics merge(ColumnStatistics a, ColumnStatistics b) {
+        if (!a.column().equals(b.column()) || a.type() != b.type()) {
+            throw new IllegalArgumentException("Cannot merge statistics of column " + a.column() + " (" + a.type()
+                    + ") with " + b.column() + " (" + b.type() + ")");
+        }
+        long validA = valid(a);
+        long validB = valid(b);
+
+        HyperLogLog distinct = union(a.distinctSketch(), b.distinctSketch(), HyperLogLog::fromBase64, HyperLogLog::merge);
+
+        Number min = null;
+        Number max = null;
+        Double mean = null;
+        Double variance = null;
+        Map<String, Double> quantiles = null;
+        String quantileSketch = null;
+        Integer minLength = null;
+        Integer maxLength = null;
+        Top topValues = Top.NONE;
+        Top topDomains = Top.NONE;
+        String earliest = null;
+        String latest = null;
+        switch (a.type()) {
+            case INTEGER, DECIMAL -> {
+                Comparator<Number> order = a.type() == ColumnType.INTEGER
+                        ? Comparator.comparingLong(Number::longValue)
+                        : Comparator.comparingDouble(Number::doubleValue);
+                min = pick(a.min(), b.min(), (x, y) -> order.compare(x, y) <= 0 ? x : y);
+                max = pick(a.max(), b.max(), (x, y) -> order.compare(x, y) >= 0 ? x : y);
+                if (validA == 0 || validB == 0) {
+                    mean = validA == 0 ? b.mean() : a.mean();
+                    variance = validA == 0 ? b.variance() : a.variance();
+                } else if (a.mean() != null && b.mean() != null && a.variance() != null && b.variance() != null) {
+                    // An overflowed side has no mean, and neither does the union.
+                    double n = (double) validA + validB;
+                    double deltaMean = b.mean() - a.mean();
+                    double m2 = a.variance() * validA + b.variance() * validB
+                            + deltaMean * deltaMean * ((double) validA * validB / n);
+                    mean = finiteOrNull(a.mean() + deltaMean * validB / n);
+                    variance = finiteOrNull(m2 / n);
+                }
+                KllSketch sketch = union(a.quantileSketch(), b.quantileSketch(), KllSketch::fromBase64, KllSketch::merge);
+                if (sketch != null) {
+                    quantiles = reportedQuantiles(sketch);
+                    quantileSketch = sketch.toBase64();
+                }
+            }
+            case STRING, EMAIL -> {
+                minLength = pick(a.minLength(), b.minLength(), Math::min);
+                maxLength = pick(a.maxLength(), b.maxLength(), Math::max);
+                topValues = mergeTop(new Top(a.topValues(), a.topValuesSketch()),
+                        new Top(b.topValues(), b.topValuesSketch()));
+                topDomains = mergeTop(new Top(a.topDomains(), a.topDomainsSketch()),
+                        new Top(b.topDomains(), b.topDomainsSketch()));
+            }
+            case DATE -> {
+                earliest = pick(a.earliest(), b.earliest(), (x, y) -> LocalDate.parse(x).isAfter(LocalDate.parse(y)) ? y : x);
+                latest = pick(a.latest(), b.latest(), (x, y) -> LocalDate.parse(x).isBefore(LocalDate.parse(y)) ? y : x);
+            }
+        }
+        return new ColumnStatistics(a.column(), a.type(), a.count() + b.count(), a.blankCount() + b.blankCount(),
+                a.invalidCount() + b.invalidCount(),
+                distinct == null ? null : distinct.estimate(), distinct == null ? null : distinct.toBase64(),
+                min, max, mean, variance,
+                quantiles, quantileSketch, minLength, maxLength,
+                topValues.values(), topValues.sketch(), topDomains.values(), topDomains.sketch(), earliest, latest);
+    }
+
+    /**
+     * Merges the trackers when every side that has values kept one with the same {@code k},
+     * and the reported lists as bounds otherwise.
+     */
+    private static Top mergeTop(Top a, Top b) {
+        if (a.values() == null) {
+            return b;
+        }
+        if (b.values() == null) {
+            return a;
+        }
+        if (a.sketch() != null && b.sketch() != null) {
+            HeavyHitters merged = HeavyHitters.fromBase64(a.sketch());
+            HeavyHitters other = HeavyHitters.fromBase64(b.sketch());
+            if (merged.k() == other.k()) {
+                merged.merge(other);
+                return new Top(merged.top(), merged.toBase64());
+            }
+        }
+        return new Top(mergeTop(a.values(), b.values()), null);
+    }
+
+    /** Top lists as mergeable summaries; keeps as many values as the longer list. */
+    static List<FrequentValue> mergeTop(List<FrequentValue> a, List<FrequentValue> b) {
+        long missingFromA = a.isEmpty() ? 0 : a.get(a.size() - 1).count();
+        long missingFromB = b.isEmpty() ? 0 : b.get(b.size() - 1).count();
+        Map<String, FrequentValue> fromB = new HashMap<>();
+        for (FrequentValue value : b) {
+            fromB.put(value.value(), value);
+        }
+        List<FrequentValue> merged = new ArrayList<>(a.size() + b.size());
+        for (FrequentValue value : a) {
+            FrequentValue other = fromB.remove(value.value());
+            merged.add(other == null
+                    ? new FrequentValue(value.value(), value.count() + missingFromB, value.error() + missingFromB)
+                    : new FrequentValue(value.value(), value.count() + other.count(), value.error() + other.error()));
+        }
+        for (FrequentValue value : b) {
+            if (fromB.containsKey(value.value())) {
+                merged.add(new FrequentValue(value.value(), value.count() + missingFromA, value.error() + missingFromA));
+            }
+        }
+        merged.sort(Comparator.comparingLong(FrequentValue::count).reversed().thenComparing(FrequentValue::value));
+        return List.copyOf(merged.subList(0, Math.min(Math.max(a.size(), b.size()), merged.size())));
+    }
+
+    private static long valid(ColumnStatistics statistics) {
+        return statistics.count() - statistics.blankCount() - statistics.invalidCount();
+    }
+
+    private static Map<String, Double> reportedQuantiles(KllSketch sketch) {
+        Map<String, Double> quantiles = new LinkedHashMap<>();
+        double[] values = sketch.quantiles(StatisticsCollector.REPORTED_QUANTILES);
+        for (int q = 0; q < values.length; q++) {
+            quantiles.put(StatisticsCollector.REPORTED_QUANTILE_NAMES[q], values[q]);
+        }
+        return quantiles;
+    }
+
+    /** Only non-null sides take part: a side without valid values contributes nothing. */
+    private static <T> T pick(T a, T b, BinaryOperator<T> combine) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : combine.apply(a, b);
+    }
+
+    /** Decodes both sketches and merges the second into the first; {@code null} when neither exists. */
+    private static <S> S union(String a, String b, Function<String, S> decode, BiConsumer<S, S> merge) {
+        S sketch = a == null ? null : decode.apply(a);
+        if (b == null) {
+            return sketch;
+        }
+        if (sketch == null) {
+            return decode.apply(b);
+        }
+        merge.accept(sketch, decode.apply(b));
+        return sketch;
+    }
+
+    private static Double finiteOrNull(double value) {
+        return Double.isFinite(value) ? value : null;
+    }
+
+    /** A reported top list and the base64 {@link HeavyHitters} behind it, if one was kept. */
+    private record Top(List<FrequentValue> values, String sketch) {
+
+        static final Top NONE = new Top(null, null);
+    }
+}
@@ -0,0 +1,92 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * xxHash64 (seed 0) straight over a byte slice, so field values are hashed where the
+ * tokenizer left them without building a {@code String}. Matches the reference
+ * implementation bit for bit, which keeps serialized sketches portable.
+ */
+final class XxHash64 {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private XxHash64() {
+    }
+
+    static long hash(byte[] buf, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        long hash;
+        if (length >= 32) {
+            long v1 = PRIME1 + PRIME2;
+            long v2 = PRIME2;
+            long v3 = 0;
+            long v4 = -PRIME1;
+            for (int limit = end - 32; i <= limit; i += 32) {
+                v1 = round(v1, (long) LONGS.get(buf, i));
+                v2 = round(v2, (long) LONGS.get(buf, i + 8));
+                v3 = round(v3, (long) LONGS.get(buf, i + 16));
+                v4 = round(v4, (long) LONGS.get(buf, i + 24));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length;
+        for (; i + 8 <= end; i += 8) {
+            hash ^= round(0, (long) LONGS.get(buf, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= end) {
+            hash ^= ((int) INTS.get(buf, i) & 0xFFFF_FFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < end; i++) {
+            hash ^= (buf[i] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        return avalanche(hash);
+    }
+
+    /** The hash of the value's eight little-endian bytes, without materialising them. */
+    static long hash(long value) {
+        long hash = PRIME5 + 8;
+        hash ^= round(0, value);
+        hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        return avalanche(hash);
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        return Long.rotateLeft(accumulator, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long hash, long value) {
+        hash ^= round(0, value);
+        return hash * PRIME1 + PRIME4;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
@@ -0,0 +1,33 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Random access to the bytes of one object, so it can be read in independent ranges.
+ */
+public interface ByteRangeSource {
+
+    long size();
+
+    /**
+     * Opens a stream positioned at {@code from} that runs to the end of the object. Sources may
+     * fetch {@code [from, to)} up front and anything past {@code to} only when it is read.
+     */
+    InputStream open(long from, long to) throws IOException;
+
+    static ByteRangeSource of(byte[] bytes) {
+        return new ByteRangeSource() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public InputStream open(long from, long to) {
+                return new ByteArrayInputStream(bytes, (int) from, bytes.length - (int) from);
+            }
+        };
+    }
+}
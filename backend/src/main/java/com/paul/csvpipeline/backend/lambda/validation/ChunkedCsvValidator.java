@@ -0,0 +1,261 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvFormatException;
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Validates one object as independent byte ranges on a worker pool, with the same result a
+ * sequential {@link CsvValidator} run would give.
+ *
+ * <p>A record belongs to the chunk its first byte falls in; each chunk reads on past its end
+ * to finish its last record. Chunks after the first cannot know whether they start inside a
+ * quoted field, so they guess: a chunk starts at the first line break it sees unless the byte
+ * before it already is one. Results are then stitched in order. The previous chunk knows
+ * exactly where the next record starts, so a wrong guess (a line break inside quotes) is
+ * detected and that chunk alone is validated again from the right offset. Row numbers are
+ * shifted by the rows of all earlier chunks when the errors are merged; column statistics
+ * of the accepted chunks are combined alongside. Repeated values of unique columns are only
+ * reported once every chunk is merged, against their first occurrence in the whole file.
+ *
+ * <p>Splitting only pays off once every worker has whole chunks to scan: below
+ * {@code minParallelBytes} the extra range requests, the guessed starts and the stitching
+ * cost more than they save, so smaller objects are read as one stream on the calling thread,
+ * exactly as {@link CsvValidator#validate} reads them.
+ *
+ * <p>A finished chunk holds its errors, unique key tables and statistics until it is merged,
+ * so at most {@code maxInFlight} chunks are submitted ahead of the merge: the next one only
+ * once the oldest is merged. Memory then stays at about {@code maxInFlight} chunks' worth
+ * however large the object; twice the pool size keeps every worker busy while a slow chunk
+ * holds up the merge.
+ */
+public class ChunkedCsvValidator {
+
+    /** Offset used for "no further record". */
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final CsvValidator validator;
+    private final ExecutorService executor;
+    private final long chunkBytes;
+    private final long minParallelBytes;
+    private final int maxInFlight;
+
+    /**
+     * @param minParallelBytes smallest object that is split into chunks; smaller ones are read
+     *                         as one stream
+     * @param maxInFlight      chunks submitted or finished but not yet merged, at most
+     */
+    public ChunkedCsvValidator(CsvValidator validator, ExecutorService executor, long chunkBytes, long minParallelBytes,
+                               int maxInFlight) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        if (minParallelBytes < 0) {
+            throw new IllegalArgumentException("Minimum parallel size must not be negative");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Chunks in flight must be positive");
+        }
+        this.validator = validator;
+        this.executor = executor;
+        this.chunkBytes = chunkBytes;
+        this.minParallelBytes = minParallelBytes;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Same pool and sizes, validating against another schema. */
+    public ChunkedCsvValidator withValidator(CsvValidator other) {
+        return other == validator
+                ? this
+                : new ChunkedCsvValidator(other, executor, chunkBytes, minParallelBytes, maxInFlight);
+    }
+
+    public CsvValidationResult validate(ByteRangeSource source) {
+        long size = source.size();
+        if (size < minParallelBytes) {
+            try {
+                return validator.validate(source.open(0, size));
+            } catch (IOException e) {
+                return validator.unreadable(e.getMessage());
+            }
+        }
+        int chunkCount = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+        SpillDirectory spill = validator.newSpillDirectory();
+        // Chunks submitted but not yet merged, oldest first.
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>(maxInFlight);
+        int submitted = 0;
+        while (submitted < Math.min(chunkCount, maxInFlight)) {
+            inFlight.add(submit(source, size, submitted++, spill));
+        }
+
+        ValidationErrorCollector errors = validator.newCollector(spill);
+        StatisticsCollector statistics = validator.newStatistics();
+        try {
+            long nextRecord = 0;
+            int rowsBefore = 0;
+            boolean complete = true;
+            for (int i = 0; i < chunkCount; i++) {
+                Chunk chunk = await(inFlight.poll());
+                if (i > 0 && chunk.firstRecord != nextRecord) {
+                    chunk = validateChunk(source, nextRecord, Math.min(size, (i + 1) * chunkBytes), false, spill);
+                }
+
+                errors.merge(chunk.errors, rowsBefore);
+                statistics.merge(chunk.statistics);
+                if (errors.isExhausted()) {
+                    errors.markStoppedEarly();
+                    complete = false;
+                    break;
+                }
+                if (chunk.failure != null) {
+                    errors.rejectFile("Unable to read CSV: " + failureMessage(chunk.failure, i == 0 ? 0 : 1 + rowsBefore));
+                    complete = false;
+                    break;
+                }
+                rowsBefore += chunk.rows;
+                nextRecord = chunk.nextRecord;
+                if (submitted < chunkCount) {
+                    inFlight.add(submit(source, size, submitted++, spill));
+                }
+            }
+            if (complete) {
+                errors.reportDuplicateKeys();
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            spill.close();
+        }
+        return errors.toResult(statistics.toStatistics());
+    }
+
+    private Future<Chunk> submit(ByteRangeSource source, long size, int index, SpillDirectory spill) {
+        long start = index * chunkBytes;
+        long end = Math.min(size, start + chunkBytes);
+        return executor.submit(() -> start == 0
+                ? validateFirstChunk(source, end, spill)
+                : validateChunk(source, start, end, true, spill));
+    }
+
+    private Chunk validateFirstChunk(ByteRangeSource source, long end, SpillDirectory spill) {
+        Chunk chunk = new Chunk(validator.newCollector(spill), validator.newStatistics());
+        try (InputStream in = new BufferedInputStream(source.open(0, end))) {
+            CsvTokenizer tokenizer = new CsvTokenizer(in);
+            validator.validateHeaders(tokenizer, chunk.errors);
+            scan(tokenizer, 0, end, chunk);
+        } catch (IOException e) {
+            chunk.failure = e;
+        }
+        return chunk;
+    }
+
+    /**
+     * Validates the records that start in {@code [start, end)}. A speculative run first has to
+     * find a record boundary; otherwise {@code start} is known to be one.
+     */
+    private Chunk validateChunk(ByteRangeSource source, long start, long end, boolean speculative,
+                                SpillDirectory spill) {
+        Chunk chunk = new Chunk(validator.newCollector(spill), validator.newStatistics());
+        if (!speculative && start >= end) {
+            // The previous chunk's last record covers this whole range.
+            chunk.firstRecord = start;
+            chunk.nextRecord = start;
+            return chunk;
+        }
+        try (InputStream in = new BufferedInputStream(source.open(speculative ? start - 1 : start, end))) {
+            long recordStart = speculative ? skipToLineStart(in, start) : start;
+            if (recordStart == NONE) {
+                chunk.firstRecord = NONE;
+                return chunk;
+            }
+            scan(new CsvTokenizer(in), recordStart, end, chunk);
+        } catch (IOException e) {
+            chunk.failure = e;
+        }
+        return chunk;
+    }
+
+    private void scan(CsvTokenizer tokenizer, long streamStart, long end, Chunk chunk) throws IOException {
+        while (!chunk.errors.isExhausted()) {
+            long offset = tokenizer.nextRecordOffset();
+            if (offset < 0) {
+                break;
+            }
+            offset += streamStart;
+            if (chunk.firstRecord < 0) {
+                chunk.firstRecord = offset;
+            }
+            if (offset >= end) {
+                chunk.nextRecord = offset;
+                return;
+            }
+            tokenizer.nextRecord();
+            validator.validateRow(tokenizer, ++chunk.rows, chunk.errors, chunk.statistics);
+        }
+        if (chunk.firstRecord < 0) {
+            chunk.firstRecord = NONE;
+        }
+    }
+
+    /**
+     * Reads from the byte before {@code start} up to the first line break and returns the
+     * offset just after it, or {@code start} itself if that byte is a line break.
+     */
+    private static long skipToLineStart(InputStream in, long start) throws IOException {
+        int b = in.read();
+        long next = start;
+        while (true) {
+            if (b < 0) {
+                return NONE;
+            }
+            if (b == '\n' || b == '\r') {
+                return next;
+            }
+            b = in.read();
+            next++;
+        }
+    }
+
+    private static String failureMessage(IOException failure, long recordsBefore) {
+        if (failure instanceof CsvFormatException formatException) {
+            return formatException.withRecordOffset(recordsBefore).getMessage();
+        }
+        return failure.getMessage();
+    }
+
+    private static Chunk await(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating CSV chunks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("CSV chunk validation failed", e.getCause());
+        }
+    }
+
+    private static final class Chunk {
+        private final ValidationErrorCollector errors;
+        private final StatisticsCollector statistics;
+        private int rows;
+        private long firstRecord = -1;
+        private long nextRecord = NONE;
+        private IOException failure;
+
+        private Chunk(ValidationErrorCollector errors, StatisticsCollector statistics) {
+            this.errors = errors;
+            this.statistics = statistics;
+        }
+    }
+}
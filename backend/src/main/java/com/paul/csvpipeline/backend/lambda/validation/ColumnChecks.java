@@ -0,0 +1,131 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+
+/**
+ * The check for one column of one record, per {@link ColumnType}. Shared by the interpreted
+ * and the compiled {@link RowValidator} so both report exactly the same errors. Each check
+ * also feeds the value it just classified to the column's statistics, so the data is read
+ * only once.
+ */
+final class ColumnChecks {
+
+    private ColumnChecks() {
+    }
+
+    static void check(ColumnDefinition definition, int column, CsvTokenizer record, int rowNumber,
+                      ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (definition.unique()) {
+            checkUniqueInteger(column, record, rowNumber, errors, statistics);
+            return;
+        }
+        ColumnType type = definition.type();
+        switch (type) {
+            case STRING -> checkString(column, record, rowNumber, errors, statistics);
+            case INTEGER -> checkInteger(column, record, rowNumber, errors, statistics);
+            case DECIMAL -> checkDecimal(column, record, rowNumber, errors, statistics);
+            case EMAIL -> checkEmail(column, record, rowNumber, errors, statistics);
+            case DATE -> checkDate(column, record, rowNumber, errors, statistics);
+            default -> throw new IllegalStateException("Unsupported column type: " + type);
+        }
+    }
+
+    static void checkString(int column, CsvTokenizer record, int rowNumber,
+                            ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (isPresent(column, record, rowNumber, errors, statistics)) {
+            statistics.text(column, record.buffer(), record.fieldStart(column), record.fieldLength(column));
+        }
+    }
+
+    static void checkInteger(int column, CsvTokenizer record, int rowNumber,
+                             ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (!isPresent(column, record, rowNumber, errors, statistics)) {
+            return;
+        }
+        byte[] buf = record.buffer();
+        int start = record.fieldStart(column);
+        int length = record.fieldLength(column);
+        if (ValueCheckers.isInteger(buf, start, length)) {
+            statistics.integer(column, buf, start, length);
+        } else {
+            reject(column, rowNumber, "Value is not an integer", errors, statistics);
+        }
+    }
+
+    /** {@link #checkInteger} that also records the value so repeats can be reported. */
+    static void checkUniqueInteger(int column, CsvTokenizer record, int rowNumber,
+                                   ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (!isPresent(column, record, rowNumber, errors, statistics)) {
+            return;
+        }
+        byte[] buf = record.buffer();
+        int start = record.fieldStart(column);
+        int length = record.fieldLength(column);
+        if (ValueCheckers.isInteger(buf, start, length)) {
+            errors.uniqueKey(column, statistics.integer(column, buf, start, length), rowNumber);
+        } else {
+            reject(column, rowNumber, "Value is not an integer", errors, statistics);
+        }
+    }
+
+    static void checkDecimal(int column, CsvTokenizer record, int rowNumber,
+                             ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (!isPresent(column, record, rowNumber, errors, statistics)) {
+            return;
+        }
+        byte[] buf = record.buffer();
+        int start = record.fieldStart(column);
+        int length = record.fieldLength(column);
+        if (ValueCheckers.isDecimal(buf, start, length)) {
+            statistics.decimal(column, buf, start, length);
+        } else {
+            reject(column, rowNumber, "Value is not numeric", errors, statistics);
+        }
+    }
+
+    static void checkEmail(int column, CsvTokenizer record, int rowNumber,
+                           ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (!isPresent(column, record, rowNumber, errors, statistics)) {
+            return;
+        }
+        byte[] buf = record.buffer();
+        int start = record.fieldStart(column);
+        int length = record.fieldLength(column);
+        if (ValueCheckers.isEmail(buf, start, length)) {
+            statistics.text(column, buf, start, length);
+        } else {
+            reject(column, rowNumber, "Value is not a valid email", errors, statistics);
+        }
+    }
+
+    static void checkDate(int column, CsvTokenizer record, int rowNumber,
+                          ValidationErrorCollector errors, StatisticsCollector statistics) {
+        if (!isPresent(column, record, rowNumber, errors, statistics)) {
+            return;
+        }
+        long dateKey = ValueCheckers.dateKey(record.buffer(), record.fieldStart(column), record.fieldLength(column));
+        if (dateKey != Long.MIN_VALUE) {
+            statistics.date(column, dateKey);
+        } else {
+            reject(column, rowNumber, "Invalid date (expected yyyy-MM-dd)", errors, statistics);
+        }
+    }
+
+    private static boolean isPresent(int column, CsvTokenizer record, int rowNumber,
+                                     ValidationErrorCollector errors, StatisticsCollector statistics) {
+        // Short rows count as missing values rather than failing the whole file.
+        if (column >= record.fieldCount() || record.isBlank(column)) {
+            errors.reject(column, rowNumber, "Value is required");
+            statistics.blank(column);
+            return false;
+        }
+        return true;
+    }
+
+    private static void reject(int column, int rowNumber, String message,
+                               ValidationErrorCollector errors, StatisticsCollector statistics) {
+        errors.reject(column, rowNumber, message);
+        statistics.invalid(column);
+    }
+}
@@ -1,6 +1,10 @@
 package com.paul.csvpipeline.backend.lambda.validation;
 
-public record ColumnDefinition(String name, ColumnType type) {
+/**
+ * @param unique whether every value of the column must differ from all others in the upload;
+ *               only INTEGER columns can be unique
+ */
+public record ColumnDefinition(String name, ColumnType type, boolean unique) {
     public ColumnDefinition {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Column name cannot be blank");
@@ -8,5 +12,12 @@ public record ColumnDefinition(String name, ColumnType type) {
         if (type == null) {
             throw new IllegalArgumentException("Column type is required");
         }
+        if (unique && type != ColumnType.INTEGER) {
+            throw new IllegalArgumentException("Only INTEGER columns can be unique: " + name);
+        }
+    }
+
+    public ColumnDefinition(String name, ColumnType type) {
+        this(name, type, false);
     }
 }
@@ -1,13 +1,28 @@
 package com.paul.csvpipeline.backend.lambda.validation;
 
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
+
 import java.util.List;
+import java.util.Map;
 
-public record CsvValidationResult(boolean valid, List<ValidationError> errors) {
-    public static CsvValidationResult success() {
-        return new CsvValidationResult(true, List.of());
-    }
+/**
+ * Outcome of a validation run.
+ *
+ * @param errors       the errors kept within the {@link ErrorBudget}
+ * @param totalErrors  every error found, including those beyond the budget
+ * @param errorCounts  error totals per column ({@code header} and {@code file} included)
+ * @param complete     {@code false} when a fail-fast budget stopped the scan early
+ * @param statistics   per-column statistics in schema order; empty when the scan stopped
+ *                     early, since they would only describe part of the file
+ */
+public record CsvValidationResult(boolean valid,
+                                  List<ValidationError> errors,
+                                  long totalErrors,
+                                  Map<String, Long> errorCounts,
+                                  boolean complete,
+                                  List<ColumnStatistics> statistics) {
 
-    public static CsvValidationResult failure(List<ValidationError> errors) {
-        return new CsvValidationResult(false, errors);
+    public static CsvValidationResult success(List<ColumnStatistics> statistics) {
+        return new CsvValidationResult(true, List.of(), 0, Map.of(), true, statistics);
     }
 }
@@ -1,120 +1,137 @@
 package com.paul.csvpipeline.backend.lambda.validation;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsConfig;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 public class CsvValidator {
 
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
-
     private final List<ColumnDefinition> schema;
+    private final ErrorBudget errorBudget;
+    private final StatisticsConfig statisticsConfig;
+    private final UniqueKeyLimits uniqueKeyLimits;
+    private final RowValidator rowValidator;
+    private final boolean hasUniqueColumns;
 
     public CsvValidator(List<ColumnDefinition> schema) {
+        this(schema, ErrorBudget.unlimited());
+    }
+
+    public CsvValidator(List<ColumnDefinition> schema, ErrorBudget errorBudget) {
+        this(schema, errorBudget, StatisticsConfig.defaults());
+    }
+
+    public CsvValidator(List<ColumnDefinition> schema, ErrorBudget errorBudget, StatisticsConfig statisticsConfig) {
+        this(schema, errorBudget, statisticsConfig, UniqueKeyLimits.defaults());
+    }
+
+    public CsvValidator(List<ColumnDefinition> schema, ErrorBudget errorBudget, StatisticsConfig statisticsConfig,
+                        UniqueKeyLimits uniqueKeyLimits) {
         this.schema = List.copyOf(schema);
+        this.errorBudget = errorBudget;
+        this.statisticsConfig = statisticsConfig;
+        this.uniqueKeyLimits = uniqueKeyLimits;
+        this.rowValidator = RowValidatorCompiler.compile(this.schema);
+        this.hasUniqueColumns = this.schema.stream().anyMatch(ColumnDefinition::unique);
     }
 
     public CsvValidationResult validate(InputStream inputStream) {
-        List<ValidationError> errors = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT
-                     .withFirstRecordAsHeader()
-                     .withTrim()
-                     .withAllowMissingColumnNames(false))) {
-
-            validateHeaders(parser, errors);
-            int rowNumber = 1;
-            for (CSVRecord record : parser) {
-                validateRow(record, rowNumber, errors);
-                rowNumber++;
+        try (SpillDirectory spill = newSpillDirectory()) {
+            ValidationErrorCollector errors = newCollector(spill);
+            StatisticsCollector statistics = newStatistics();
+            try (CsvTokenizer tokenizer = new CsvTokenizer(inputStream)) {
+                validateHeaders(tokenizer, errors);
+                int rowNumber = 1;
+                while (!errors.isExhausted() && tokenizer.nextRecord()) {
+                    validateRow(tokenizer, rowNumber, errors, statistics);
+                    rowNumber++;
+                }
+                if (errors.isExhausted()) {
+                    errors.markStoppedEarly();
+                } else {
+                    errors.reportDuplicateKeys();
+                }
+            } catch (IOException e) {
+                errors.rejectFile("Unable to read CSV: " + e.getMessage());
             }
-        } catch (IOException e) {
-            errors.add(new ValidationError(0, "file", "Unable to read CSV: " + e.getMessage()));
-        }
-
-        if (errors.isEmpty()) {
-            return CsvValidationResult.success();
+            return errors.toResult(statistics.toStatistics());
         }
-        return CsvValidationResult.failure(errors);
     }
 
-    private void validateHeaders(CSVParser parser, List<ValidationError> errors) {
-        List<String> headers = parser.getHeaderNames();
-        if (headers.size() != schema.size()) {
-            errors.add(new ValidationError(0, "header", "Expected " + schema.size() + " columns but found " + headers.size()));
-            return;
-        }
+    /** The result {@link #validate} gives for a file that cannot be read at all. */
+    public CsvValidationResult unreadable(String reason) {
+        ValidationErrorCollector errors = new ValidationErrorCollector(schema, errorBudget);
+        errors.rejectFile("Unable to read CSV: " + reason);
+        return errors.toResult(List.of());
+    }
 
-        for (int i = 0; i < schema.size(); i++) {
-            String expected = schema.get(i).name().toLowerCase(Locale.ROOT);
-            String actual = headers.get(i).toLowerCase(Locale.ROOT);
-            if (!expected.equals(actual)) {
-                errors.add(new ValidationError(0, "header", "Expected column '" + schema.get(i).name() + "' but found '" + headers.get(i) + "'"));
+    /**
+     * Checks the header and at most {@code maxRows} rows by the same rules as {@link #validate},
+     * so a file that already fails at its start can be turned away before it is stored. Every
+     * error found here would also fail the full scan. Statistics are neither gathered nor
+     * reported, since they would only describe the rows read, and a schema without unique
+     * columns gets no spill directory.
+     */
+    public CsvValidationResult validatePrefix(InputStream inputStream, int maxRows) {
+        try (SpillDirectory spill = hasUniqueColumns ? newSpillDirectory() : null) {
+            ValidationErrorCollector errors = newCollector(spill);
+            try (CsvTokenizer tokenizer = new CsvTokenizer(inputStream)) {
+                validateHeaders(tokenizer, errors);
+                int rowNumber = 1;
+                while (rowNumber <= maxRows && !errors.isExhausted() && tokenizer.nextRecord()) {
+                    validateRow(tokenizer, rowNumber, errors, StatisticsCollector.none());
+                    rowNumber++;
+                }
+                errors.reportDuplicateKeys();
+            } catch (IOException e) {
+                errors.rejectFile("Unable to read CSV: " + e.getMessage());
             }
+            return errors.toResult(List.of());
         }
     }
 
-    private void validateRow(CSVRecord record, int rowNumber, List<ValidationError> errors) {
-        for (int i = 0; i < schema.size(); i++) {
-            ColumnDefinition column = schema.get(i);
-            String value = record.get(i);
-            if (value == null || value.isBlank()) {
-                errors.add(new ValidationError(rowNumber, column.name(), "Value is required"));
-                continue;
-            }
+    /** Where one scan's unique column values spill; closing it deletes them. */
+    SpillDirectory newSpillDirectory() {
+        return new SpillDirectory(uniqueKeyLimits.spillDirectory());
+    }
 
-            switch (column.type()) {
-                case STRING -> {}
-                case INTEGER -> validateInteger(value, rowNumber, column.name(), errors);
-                case DECIMAL -> validateDecimal(value, rowNumber, column.name(), errors);
-                case EMAIL -> validateEmail(value, rowNumber, column.name(), errors);
-                case DATE -> validateDate(value, rowNumber, column.name(), errors);
-                default -> throw new IllegalStateException("Unsupported column type: " + column.type());
-            }
-        }
+    ValidationErrorCollector newCollector(SpillDirectory spill) {
+        return new ValidationErrorCollector(schema, errorBudget, uniqueKeyLimits.memoryBytes(), spill);
     }
 
-    private void validateInteger(String value, int row, String column, List<ValidationError> errors) {
-        try {
-            Long.parseLong(value);
-        } catch (NumberFormatException ex) {
-            errors.add(new ValidationError(row, column, "Value is not an integer"));
-        }
+    StatisticsCollector newStatistics() {
+        return new StatisticsCollector(schema, statisticsConfig);
     }
 
-    private void validateDecimal(String value, int row, String column, List<ValidationError> errors) {
-        try {
-            new BigDecimal(value);
-        } catch (NumberFormatException ex) {
-            errors.add(new ValidationError(row, column, "Value is not numeric"));
+    void validateHeaders(CsvTokenizer tokenizer, ValidationErrorCollector errors) throws IOException {
+        List<String> headers = new ArrayList<>();
+        if (tokenizer.nextRecord()) {
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                headers.add(tokenizer.fieldAsString(i));
+            }
+        }
+        if (headers.size() != schema.size()) {
+            errors.rejectHeader("Expected " + schema.size() + " columns but found " + headers.size());
+            return;
         }
-    }
 
-    private void validateEmail(String value, int row, String column, List<ValidationError> errors) {
-        if (!EMAIL_PATTERN.matcher(value).matches()) {
-            errors.add(new ValidationError(row, column, "Value is not a valid email"));
+        for (int i = 0; i < schema.size(); i++) {
+            String expected = schema.get(i).name().toLowerCase(Locale.ROOT);
+            String actual = headers.get(i).toLowerCase(Locale.ROOT);
+            if (!expected.equals(actual)) {
+                errors.rejectHeader("Expected column '" + schema.get(i).name() + "' but found '" + headers.get(i) + "'");
+            }
         }
     }
 
-    private void validateDate(String value, int row, String column, List<ValidationError> errors) {
-        try {
-            LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE);
-        } catch (DateTimeParseException ex) {
-            errors.add(new ValidationError(row, column, "Invalid date (expected yyyy-MM-dd)"));
-        }
+    void validateRow(CsvTokenizer record, int rowNumber, ValidationErrorCollector errors,
+                     StatisticsCollector statistics) {
+        rowValidator.validate(record, rowNumber, errors, statistics);
     }
 }
@@ -0,0 +1,47 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+/**
+ * How many {@link ValidationError}s a validation run keeps in its sample.
+ *
+ * <p>Errors beyond the budget are still counted per column; with {@code failFast} the
+ * scan stops as soon as the first {@code limit} errors have been collected.
+ */
+public record ErrorBudget(Mode mode, int limit, boolean failFast) {
+
+    public enum Mode {
+        /** Keep the first {@code limit} errors of the file. */
+        FIRST_N,
+        /** Keep the first {@code limit} errors of every column. */
+        FIRST_N_PER_COLUMN,
+        /** Keep every error. */
+        ALL
+    }
+
+    public ErrorBudget {
+        if (mode == null) {
+            throw new IllegalArgumentException("Error budget mode is required");
+        }
+        if (mode != Mode.ALL && limit < 1) {
+            throw new IllegalArgumentException("Error budget limit must be positive");
+        }
+        if (failFast && mode != Mode.FIRST_N) {
+            throw new IllegalArgumentException("Fail-fast is only supported with the FIRST_N mode");
+        }
+    }
+
+    public static ErrorBudget firstErrors(int limit) {
+        return new ErrorBudget(Mode.FIRST_N, limit, false);
+    }
+
+    public static ErrorBudget firstErrorsPerColumn(int limit) {
+        return new ErrorBudget(Mode.FIRST_N_PER_COLUMN, limit, false);
+    }
+
+    public static ErrorBudget unlimited() {
+        return new ErrorBudget(Mode.ALL, Integer.MAX_VALUE, false);
+    }
+
+    public ErrorBudget failingFast() {
+        return new ErrorBudget(mode, limit, true);
+    }
+}
@@ -8,7 +8,7 @@ public final class ExpectedSchema {
 
     public static List<ColumnDefinition> defaultSchema() {
         return List.of(
-                new ColumnDefinition("id", ColumnType.INTEGER),
+                new ColumnDefinition("id", ColumnType.INTEGER, true),
                 new ColumnDefinition("name", ColumnType.STRING),
                 new ColumnDefinition("email", ColumnType.EMAIL),
                 new ColumnDefinition("amount", ColumnType.DECIMAL)
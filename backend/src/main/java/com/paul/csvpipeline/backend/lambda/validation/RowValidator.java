@@ -0,0 +1,25 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+
+import java.util.List;
+
+/**
+ * Checks every column of the current record against one schema, reporting errors and
+ * adding each value to the column statistics.
+ */
+public interface RowValidator {
+
+    void validate(CsvTokenizer record, int rowNumber, ValidationErrorCollector errors, StatisticsCollector statistics);
+
+    /** Walks the schema and switches on each column type for every record. */
+    static RowValidator interpreted(List<ColumnDefinition> schema) {
+        List<ColumnDefinition> columns = List.copyOf(schema);
+        return (record, rowNumber, errors, statistics) -> {
+            for (int i = 0; i < columns.size(); i++) {
+                ColumnChecks.check(columns.get(i), i, record, rowNumber, errors, statistics);
+            }
+        };
+    }
+}
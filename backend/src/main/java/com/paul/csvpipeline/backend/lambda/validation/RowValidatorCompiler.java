@@ -0,0 +1,271 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a schema into a {@link RowValidator} class specialised for it.
+ *
+ * <p>The generated hidden class calls the {@link ColumnChecks} method of each column's type
+ * directly, with the column index as a constant: no schema walk, no type switch, and every
+ * call site monomorphic, so the JIT inlines each check and folds its column index. Columns are
+ * split into small static methods so neither the JIT's huge-method limit nor its inlining
+ * budget is hit on wide schemas. Each call defines a new class and nothing is kept here: the
+ * class is not strongly tied to its loader, so it is unloaded with the last validator using
+ * it, and callers that see a schema repeatedly keep its validator in their own bounded cache.
+ */
+public final class RowValidatorCompiler {
+
+    /** Columns per generated method; keeps each method well inside the JIT's inlining budget. */
+    static final int COLUMNS_PER_METHOD = 32;
+
+    private static final String CLASS_NAME = internalName(RowValidatorCompiler.class.getPackageName()) + "/CompiledRowValidator";
+    private static final String ROW_DESCRIPTOR = "(L" + internalName(CsvTokenizer.class) + ";IL"
+            + internalName(ValidationErrorCollector.class) + ";L" + internalName(StatisticsCollector.class) + ";)V";
+    private static final String CHECK_DESCRIPTOR = "(I" + ROW_DESCRIPTOR.substring(1);
+
+    private RowValidatorCompiler() {
+    }
+
+    public static RowValidator compile(List<ColumnDefinition> schema) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                    .defineHiddenClass(generate(schema), true);
+            return (RowValidator) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to compile validator for schema " + schema, t);
+        }
+    }
+
+    /**
+     * Class file equivalent of:
+     * <pre>
+     * final class CompiledRowValidator implements RowValidator {
+     *     public void validate(CsvTokenizer record, int rowNumber, ValidationErrorCollector errors,
+     *                          StatisticsCollector statistics) {
+     *         part0(record, rowNumber, errors, statistics);
+     *         part1(record, rowNumber, errors, statistics);
+     *     }
+     *     static void part0(CsvTokenizer record, int rowNumber, ValidationErrorCollector errors,
+     *                       StatisticsCollector statistics) {
+     *         ColumnChecks.checkInteger(0, record, rowNumber, errors, statistics);
+     *         ColumnChecks.checkString(1, record, rowNumber, errors, statistics);
+     *         ...
+     *     }
+     * }
+     * </pre>
+     * Every method is straight-line code, so no stack map frames are needed.
+     */
+    static byte[] generate(List<ColumnDefinition> schema) throws IOException {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int rowValidator = pool.classRef(internalName(RowValidator.class));
+        int objectInit = pool.methodRef(superClass, "<init>", "()V");
+        int code = pool.utf8("Code");
+
+        Map<ColumnType, Integer> checks = new EnumMap<>(ColumnType.class);
+        int columnChecks = pool.classRef(internalName(ColumnChecks.class));
+        for (ColumnType type : ColumnType.values()) {
+            checks.put(type, pool.methodRef(columnChecks, checkName(type), CHECK_DESCRIPTOR));
+        }
+        int uniqueIntegerCheck = pool.methodRef(columnChecks, "checkUniqueInteger", CHECK_DESCRIPTOR);
+
+        List<byte[]> parts = new ArrayList<>();
+        List<Integer> partRefs = new ArrayList<>();
+        for (int from = 0; from < schema.size(); from += COLUMNS_PER_METHOD) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            for (int column = from; column < Math.min(schema.size(), from + COLUMNS_PER_METHOD); column++) {
+                pushInt(body, column);
+                body.write(0x2a); // aload_0
+                body.write(0x1b); // iload_1
+                body.write(0x2c); // aload_2
+                body.write(0x2d); // aload_3
+                ColumnDefinition definition = schema.get(column);
+                invokeStatic(body, definition.unique() ? uniqueIntegerCheck : checks.get(definition.type()));
+            }
+            body.write(0xb1); // return
+            parts.add(body.toByteArray());
+            partRefs.add(pool.methodRef(thisClass, "part" + partRefs.size(), ROW_DESCRIPTOR));
+        }
+
+        ByteArrayOutputStream validate = new ByteArrayOutputStream();
+        for (int partRef : partRefs) {
+            validate.write(0x2b); // aload_1
+            validate.write(0x1c); // iload_2
+            validate.write(0x2d); // aload_3
+            validate.write(0x19); // aload
+            validate.write(4);
+            invokeStatic(validate, partRef);
+        }
+        validate.write(0xb1); // return
+
+        ByteArrayOutputStream init = new ByteArrayOutputStream();
+        init.write(0x2a); // aload_0
+        init.write(0xb7); // invokespecial
+        init.write(objectInit >>> 8);
+        init.write(objectInit);
+        init.write(0xb1); // return
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(61); // Java 17
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int validateName = pool.utf8("validate");
+        int rowDescriptor = pool.utf8(ROW_DESCRIPTOR);
+        List<Integer> partNames = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            partNames.add(pool.utf8("part" + i));
+        }
+        pool.writeTo(out);
+        out.writeShort(0x0011); // ACC_PUBLIC | ACC_FINAL
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(rowValidator);
+        out.writeShort(0); // fields
+
+        out.writeShort(2 + parts.size());
+        writeMethod(out, 0x0001, initName, initDescriptor, code, 1, 1, init.toByteArray());
+        writeMethod(out, 0x0001, validateName, rowDescriptor, code, 4, 5, validate.toByteArray());
+        for (int i = 0; i < parts.size(); i++) {
+            writeMethod(out, 0x0008, partNames.get(i), rowDescriptor, code, 5, 4, parts.get(i)); // ACC_STATIC
+        }
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeName,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+    }
+
+    private static void pushInt(ByteArrayOutputStream code, int value) {
+        if (value <= 5) {
+            code.write(0x03 + value); // iconst_<n>
+        } else if (value <= Byte.MAX_VALUE) {
+            code.write(0x10); // bipush
+            code.write(value);
+        } else if (value <= Short.MAX_VALUE) {
+            code.write(0x11); // sipush
+            code.write(value >>> 8);
+            code.write(value);
+        } else {
+            throw new IllegalArgumentException("Schemas are limited to " + Short.MAX_VALUE + " columns");
+        }
+    }
+
+    private static void invokeStatic(ByteArrayOutputStream code, int methodRef) {
+        code.write(0xb8);
+        code.write(methodRef >>> 8);
+        code.write(methodRef);
+    }
+
+    private static String checkName(ColumnType type) {
+        return switch (type) {
+            case STRING -> "checkString";
+            case INTEGER -> "checkInteger";
+            case DECIMAL -> "checkDecimal";
+            case EMAIL -> "checkEmail";
+            case DATE -> "checkDate";
+        };
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String internalName(String name) {
+        return name.replace('.', '/');
+    }
+
+    /** Deduplicating constant pool; entries are written in the order they were added. */
+    private static final class ConstantPool {
+
+        private final Map<String, Integer> entries = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(int owner, String name, String descriptor) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, () -> {
+                out.writeByte(10);
+                out.writeShort(owner);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(entries.size() + 1);
+            out.flush();
+            bytes.writeTo(target);
+        }
+
+        private int entry(String key, Writer writer) {
+            Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = entries.size() + 1;
+            entries.put(key, index);
+            return index;
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
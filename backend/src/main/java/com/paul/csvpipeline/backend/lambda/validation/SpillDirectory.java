@@ -0,0 +1,57 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary directory for the spill files of one scan, created on first use and deleted with
+ * everything in it on {@link #close()}. Shared by the chunks of a parallel scan, so files of
+ * discarded or cancelled chunks are cleaned up as well.
+ */
+final class SpillDirectory implements Closeable {
+
+    private final Path parent;
+    private Path directory;
+    private boolean closed;
+
+    SpillDirectory(Path parent) {
+        this.parent = parent;
+    }
+
+    synchronized Path newFile() {
+        if (closed) {
+            // A cancelled chunk still running after its scan ended.
+            throw new IllegalStateException("Scan already finished");
+        }
+        try {
+            if (directory == null) {
+                directory = Files.createTempDirectory(parent, "csv-unique-keys-");
+            }
+            return Files.createTempFile(directory, "keys-", ".bin");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create unique key spill file", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete unique key spill files in " + directory, e);
+        } finally {
+            directory = null;
+        }
+    }
+}
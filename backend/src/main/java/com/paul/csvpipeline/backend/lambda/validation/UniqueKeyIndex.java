@@ -0,0 +1,412 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The values of one unique INTEGER column with the row each first appeared in, so repeated
+ * values can be reported once the whole file has been seen.
+ *
+ * <p>Keys are kept in an open-addressing table of primitive {@code long}s and {@code int} rows,
+ * and later occurrences in plain arrays; nothing is boxed. When the table and the occurrences
+ * would outgrow the memory limit, all of them move to {@value #PARTITIONS} spill files split by
+ * key hash and further keys are appended there. Duplicates are then found one partition at a
+ * time; a partition that still holds too many distinct keys is split again on the next hash
+ * bits.
+ */
+final class UniqueKeyIndex {
+
+    private static final int PARTITION_BITS = 6;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    /** Partitioning deeper than this would run out of hash bits. */
+    private static final int MAX_LEVEL = Long.SIZE / PARTITION_BITS - 1;
+    /** A key and its row, both in memory and in a spill file. */
+    private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int MIN_CAPACITY = 16;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final long memoryBytes;
+    // Null for an index that never spills.
+    private final SpillDirectory spill;
+
+    private KeyTable firsts = new KeyTable(MIN_CAPACITY);
+    private long[] repeatKeys = new long[MIN_CAPACITY];
+    private int[] repeatRows = new int[MIN_CAPACITY];
+    private int repeatCount;
+
+    // Non-null once spilled; the in-memory state above is then released.
+    private Path[] partitionFiles;
+    private DataOutputStream[] partitions;
+
+    UniqueKeyIndex(long memoryBytes, SpillDirectory spill) {
+        this.memoryBytes = memoryBytes;
+        this.spill = spill;
+    }
+
+    /** One occurrence of {@code key}; rows must be added in increasing order. */
+    void add(long key, int row) {
+        if (partitions != null) {
+            write(key, row);
+            return;
+        }
+        if (firsts.putIfAbsent(key, row) != 0) {
+            addRepeat(key, row);
+        } else if (firsts.isFull()) {
+            if (fitsInMemory(firsts.bytes() * 2 + (long) repeatKeys.length * ENTRY_BYTES)) {
+                firsts = firsts.grown();
+            } else {
+                spillToDisk();
+            }
+        }
+    }
+
+    /**
+     * Adds the keys of an index over the rows that follow this one's, shifting its rows by
+     * {@code rowOffset}. The other index must not be used afterwards.
+     */
+    void merge(UniqueKeyIndex later, int rowOffset) {
+        if (later.partitions == null) {
+            KeyTable table = later.firsts;
+            for (int slot = 0; slot < table.rows.length; slot++) {
+                if (table.rows[slot] != 0) {
+                    add(table.keys[slot], table.rows[slot] + rowOffset);
+                }
+            }
+            for (int i = 0; i < later.repeatCount; i++) {
+                addRepeat(later.repeatKeys[i], later.repeatRows[i] + rowOffset);
+            }
+            return;
+        }
+        if (partitions == null) {
+            spillToDisk();
+        }
+        later.closePartitions();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            Path file = later.partitionFiles[partition];
+            // Same hash, same partition: records can be copied across with their rows shifted.
+            try (DataInputStream in = open(file)) {
+                for (long records = Files.size(file) / ENTRY_BYTES; records > 0; records--) {
+                    partitions[partition].writeLong(in.readLong());
+                    partitions[partition].writeInt(in.readInt() + rowOffset);
+                }
+                Files.delete(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to merge unique key spill files", e);
+            }
+        }
+    }
+
+    /**
+     * Every occurrence of a key after its first, as the earliest {@code keep} of them in row
+     * order plus the total.
+     */
+    Duplicates duplicates(int keep) {
+        EarliestDuplicates earliest = new EarliestDuplicates(keep);
+        if (partitions == null) {
+            for (int i = 0; i < repeatCount; i++) {
+                earliest.offer(repeatRows[i], firsts.get(repeatKeys[i]), repeatKeys[i]);
+            }
+            return earliest.result();
+        }
+        closePartitions();
+        try {
+            for (Path file : partitionFiles) {
+                findDuplicates(file, 0, earliest);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read unique key spill files", e);
+        }
+        return earliest.result();
+    }
+
+    private void addRepeat(long key, int row) {
+        if (partitions != null) {
+            write(key, row);
+            return;
+        }
+        if (repeatCount == repeatKeys.length) {
+            if (!fitsInMemory(firsts.bytes() + (long) repeatKeys.length * 2 * ENTRY_BYTES)) {
+                spillToDisk();
+                write(key, row);
+                return;
+            }
+            repeatKeys = Arrays.copyOf(repeatKeys, repeatKeys.length * 2);
+            repeatRows = Arrays.copyOf(repeatRows, repeatRows.length * 2);
+        }
+        repeatKeys[repeatCount] = key;
+        repeatRows[repeatCount++] = row;
+    }
+
+    private boolean fitsInMemory(long bytes) {
+        return spill == null || bytes <= memoryBytes;
+    }
+
+    private void spillToDisk() {
+        partitionFiles = new Path[PARTITIONS];
+        partitions = new DataOutputStream[PARTITIONS];
+        try {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                partitionFiles[partition] = spill.newFile();
+                partitions[partition] = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(partitionFiles[partition]), BUFFER_BYTES));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create unique key spill files", e);
+        }
+        for (int slot = 0; slot < firsts.rows.length; slot++) {
+            if (firsts.rows[slot] != 0) {
+                write(firsts.keys[slot], firsts.rows[slot]);
+            }
+        }
+        for (int i = 0; i < repeatCount; i++) {
+            write(repeatKeys[i], repeatRows[i]);
+        }
+        firsts = null;
+        repeatKeys = null;
+        repeatRows = null;
+        repeatCount = 0;
+    }
+
+    private void write(long key, int row) {
+        try {
+            DataOutputStream out = partitions[partition(key, 0)];
+            out.writeLong(key);
+            out.writeInt(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write unique key spill file", e);
+        }
+    }
+
+    private void closePartitions() {
+        try {
+            for (DataOutputStream partition : partitions) {
+                partition.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write unique key spill file", e);
+        }
+    }
+
+    /**
+     * First pass finds each key's lowest row, second pass reports every other row. Files are
+     * not in row order once merged, so the lowest row rather than the first seen counts.
+     */
+    private void findDuplicates(Path file, int level, EarliestDuplicates earliest) throws IOException {
+        long records = Files.size(file) / ENTRY_BYTES;
+        KeyTable lowest = new KeyTable(MIN_CAPACITY);
+        try (DataInputStream in = open(file)) {
+            for (long i = 0; i < records; i++) {
+                lowest.keepLowest(in.readLong(), in.readInt());
+                if (lowest.isFull()) {
+                    if (lowest.bytes() * 2 > memoryBytes && level < MAX_LEVEL) {
+                        lowest = null;
+                        break;
+                    }
+                    lowest = lowest.grown();
+                }
+            }
+        }
+        if (lowest == null) {
+            for (Path part : repartition(file, records, level + 1)) {
+                findDuplicates(part, level + 1, earliest);
+                Files.delete(part);
+            }
+            return;
+        }
+        try (DataInputStream in = open(file)) {
+            for (long i = 0; i < records; i++) {
+                long key = in.readLong();
+                int row = in.readInt();
+                int first = lowest.get(key);
+                if (row != first) {
+                    earliest.offer(row, first, key);
+                }
+            }
+        }
+    }
+
+    private Path[] repartition(Path file, long records, int level) throws IOException {
+        Path[] files = new Path[PARTITIONS];
+        DataOutputStream[] outs = new DataOutputStream[PARTITIONS];
+        try (DataInputStream in = open(file)) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                files[partition] = spill.newFile();
+                outs[partition] = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(files[partition]), BUFFER_BYTES));
+            }
+            for (long i = 0; i < records; i++) {
+                long key = in.readLong();
+                DataOutputStream out = outs[partition(key, level)];
+                out.writeLong(key);
+                out.writeInt(in.readInt());
+            }
+        } finally {
+            for (DataOutputStream out : outs) {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+        return files;
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES));
+    }
+
+    private static int partition(long key, int level) {
+        return (int) (mix(key) >>> (Long.SIZE - PARTITION_BITS * (level + 1))) & (PARTITIONS - 1);
+    }
+
+    /** MurmurHash3's finaliser: a bijection, so distinct keys always end up in distinct hashes. */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /** Repeated keys in row order; {@code total} counts all of them, listed or not. */
+    record Duplicates(long total, int[] rows, int[] firstRows, long[] keys) {
+    }
+
+    /** Open-addressing map from key to row; row 0 marks a free slot, as rows start at 1. */
+    private static final class KeyTable {
+
+        private final long[] keys;
+        private final int[] rows;
+        private final int mask;
+        private int size;
+
+        private KeyTable(int capacity) {
+            this.keys = new long[capacity];
+            this.rows = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /** The row stored for {@code key}, or 0 after storing {@code row} for it. */
+        int putIfAbsent(long key, int row) {
+            int slot = slot(key);
+            if (rows[slot] != 0) {
+                return rows[slot];
+            }
+            keys[slot] = key;
+            rows[slot] = row;
+            size++;
+            return 0;
+        }
+
+        void keepLowest(long key, int row) {
+            int slot = slot(key);
+            if (rows[slot] == 0) {
+                keys[slot] = key;
+                rows[slot] = row;
+                size++;
+            } else if (row < rows[slot]) {
+                rows[slot] = row;
+            }
+        }
+
+        int get(long key) {
+            return rows[slot(key)];
+        }
+
+        /** Kept at most half full so probe sequences stay short. */
+        boolean isFull() {
+            return size * 2 >= keys.length;
+        }
+
+        long bytes() {
+            return (long) keys.length * ENTRY_BYTES;
+        }
+
+        KeyTable grown() {
+            KeyTable grown = new KeyTable(keys.length * 2);
+            for (int slot = 0; slot < rows.length; slot++) {
+                if (rows[slot] != 0) {
+                    grown.putIfAbsent(keys[slot], rows[slot]);
+                }
+            }
+            return grown;
+        }
+
+        /** The key's slot, or the free slot where it belongs. */
+        private int slot(long key) {
+            int slot = (int) mix(key) & mask;
+            while (rows[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /** Keeps the {@code keep} duplicates with the lowest rows, counting all of them. */
+    private static final class EarliestDuplicates {
+
+        private final int keep;
+        private int[] rows = new int[MIN_CAPACITY];
+        private int[] firstRows = new int[MIN_CAPACITY];
+        private long[] keys = new long[MIN_CAPACITY];
+        private int size;
+        private long total;
+
+        private EarliestDuplicates(int keep) {
+            this.keep = keep;
+        }
+
+        void offer(int row, int firstRow, long key) {
+            total++;
+            if (size == rows.length) {
+                if (size >= 2L * keep) {
+                    sortAndTruncate();
+                } else {
+                    rows = Arrays.copyOf(rows, size * 2);
+                    firstRows = Arrays.copyOf(firstRows, size * 2);
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+            }
+            rows[size] = row;
+            firstRows[size] = firstRow;
+            keys[size++] = key;
+        }
+
+        Duplicates result() {
+            sortAndTruncate();
+            return new Duplicates(total, Arrays.copyOf(rows, size), Arrays.copyOf(firstRows, size),
+                    Arrays.copyOf(keys, size));
+        }
+
+        private void sortAndTruncate() {
+            // Row and position packed in one long sort by row without boxing.
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (long) rows[i] << 32 | i;
+            }
+            Arrays.sort(order);
+            int kept = Math.min(size, keep);
+            int[] sortedRows = new int[rows.length];
+            int[] sortedFirstRows = new int[rows.length];
+            long[] sortedKeys = new long[rows.length];
+            for (int i = 0; i < kept; i++) {
+                int from = (int) order[i];
+                sortedRows[i] = rows[from];
+                sortedFirstRows[i] = firstRows[from];
+                sortedKeys[i] = keys[from];
+            }
+            rows = sortedRows;
+            firstRows = sortedFirstRows;
+            keys = sortedKeys;
+            size = kept;
+        }
+    }
+}
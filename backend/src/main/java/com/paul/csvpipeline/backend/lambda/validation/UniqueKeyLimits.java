@@ -0,0 +1,30 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import java.nio.file.Path;
+
+/**
+ * Memory allowed for checking unique columns before their keys spill to disk.
+ *
+ * @param memoryBytes    key index size per unique column and scan (each chunk of a parallel
+ *                       scan has its own) above which keys move to files under
+ *                       {@code spillDirectory}
+ * @param spillDirectory where spill files are created, e.g. the Lambda's {@code /tmp}; they
+ *                       are removed when the scan ends
+ */
+public record UniqueKeyLimits(long memoryBytes, Path spillDirectory) {
+
+    public static final long DEFAULT_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    public UniqueKeyLimits {
+        if (memoryBytes < 1) {
+            throw new IllegalArgumentException("Unique key memory must be positive");
+        }
+        if (spillDirectory == null) {
+            throw new IllegalArgumentException("Spill directory is required");
+        }
+    }
+
+    public static UniqueKeyLimits defaults() {
+        return new UniqueKeyLimits(DEFAULT_MEMORY_BYTES, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+}
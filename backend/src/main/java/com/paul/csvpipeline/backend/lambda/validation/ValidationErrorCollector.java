@@ -0,0 +1,185 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects validation errors within an {@link ErrorBudget}.
+ *
+ * <p>Errors are counted per column in a fixed array whatever the budget, so memory stays
+ * constant once the sample is full; only the kept sample is materialised as
+ * {@link ValidationError} objects.
+ *
+ * <p>Values of unique columns are indexed as they arrive, but repeats can only be told apart
+ * from first occurrences once every row has been seen; {@link #reportDuplicateKeys()} reports
+ * them after the scan.
+ */
+public final class ValidationErrorCollector {
+
+    static final String HEADER = "header";
+    static final String FILE = "file";
+
+    private final ErrorBudget budget;
+    private final String[] slotNames;
+    private final int headerSlot;
+    private final int fileSlot;
+    private final long[] counts;
+    private final int[] kept;
+    // Per column, null unless the column is unique.
+    private final UniqueKeyIndex[] uniqueKeys;
+
+    private final List<Kept> sample = new ArrayList<>();
+    private long total;
+    private boolean stoppedEarly;
+
+    public ValidationErrorCollector(List<ColumnDefinition> schema, ErrorBudget budget) {
+        this(schema, budget, Long.MAX_VALUE, null);
+    }
+
+    /** Unique column values beyond {@code uniqueKeyMemory} bytes spill to {@code spill}. */
+    ValidationErrorCollector(List<ColumnDefinition> schema, ErrorBudget budget, long uniqueKeyMemory,
+                             SpillDirectory spill) {
+        this.budget = budget;
+        this.headerSlot = schema.size();
+        this.fileSlot = schema.size() + 1;
+        this.slotNames = new String[schema.size() + 2];
+        for (int i = 0; i < schema.size(); i++) {
+            slotNames[i] = schema.get(i).name();
+        }
+        slotNames[headerSlot] = HEADER;
+        slotNames[fileSlot] = FILE;
+        this.counts = new long[slotNames.length];
+        this.kept = new int[slotNames.length];
+        this.uniqueKeys = new UniqueKeyIndex[schema.size()];
+        for (int i = 0; i < schema.size(); i++) {
+            if (schema.get(i).unique()) {
+                uniqueKeys[i] = new UniqueKeyIndex(uniqueKeyMemory, spill);
+            }
+        }
+    }
+
+    /** Records an error for the data column at {@code column}. */
+    public void reject(int column, int rowNumber, String message) {
+        add(column, rowNumber, message);
+    }
+
+    public void rejectHeader(String message) {
+        add(headerSlot, 0, message);
+    }
+
+    public void rejectFile(String message) {
+        add(fileSlot, 0, message);
+    }
+
+    /** Records a valid value of the unique column at {@code column}. */
+    public void uniqueKey(int column, long value, int rowNumber) {
+        uniqueKeys[column].add(value, rowNumber);
+    }
+
+    /**
+     * Rejects every value of a unique column that repeats an earlier row's, in row order. Only
+     * meaningful once the scan has covered the whole file.
+     */
+    public void reportDuplicateKeys() {
+        for (int column = 0; column < uniqueKeys.length; column++) {
+            if (uniqueKeys[column] == null) {
+                continue;
+            }
+            UniqueKeyIndex.Duplicates duplicates = uniqueKeys[column].duplicates(budget.limit());
+            for (int i = 0; i < duplicates.rows().length; i++) {
+                add(column, duplicates.rows()[i], "Duplicate value " + duplicates.keys()[i]
+                        + ", first seen in row " + duplicates.firstRows()[i]);
+            }
+            // Beyond the earliest budget-many, no budget keeps any of them.
+            long unlisted = duplicates.total() - duplicates.rows().length;
+            total += unlisted;
+            counts[column] += unlisted;
+        }
+    }
+
+    /** {@code true} once a fail-fast budget is full and scanning should stop. */
+    public boolean isExhausted() {
+        return budget.failFast() && sample.size() >= budget.limit();
+    }
+
+    /** Marks that the scan ended because the budget was exhausted. */
+    public void markStoppedEarly() {
+        stoppedEarly = true;
+    }
+
+    public long totalErrors() {
+        return total;
+    }
+
+    public CsvValidationResult toResult(List<ColumnStatistics> statistics) {
+        if (total == 0) {
+            return CsvValidationResult.success(statistics);
+        }
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] > 0) {
+                errorCounts.merge(slotNames[slot], counts[slot], Long::sum);
+            }
+        }
+        List<ValidationError> errors = sample.stream().map(Kept::error).toList();
+        return new CsvValidationResult(false, errors, total, errorCounts, !stoppedEarly,
+                stoppedEarly ? List.of() : statistics);
+    }
+
+    /**
+     * Appends the errors another collector found in the rows that follow this one's, as if
+     * they had been reported here directly. Row numbers are shifted by {@code rowOffset}.
+     *
+     * <p>The other collector must use the same schema and budget. Its sample always holds
+     * every error this collector could keep, since a budget keeps the earliest errors. With a
+     * fail-fast budget the replay stops at the end of the row that exhausts this collector,
+     * which is where a sequential scan would have stopped as well. Unique column values move
+     * over in full, shifted the same way.
+     */
+    public void merge(ValidationErrorCollector other, int rowOffset) {
+        for (int column = 0; column < uniqueKeys.length; column++) {
+            if (uniqueKeys[column] != null) {
+                uniqueKeys[column].merge(other.uniqueKeys[column], rowOffset);
+            }
+        }
+        int lastRow = -1;
+        for (Kept kept : other.sample) {
+            int rowNumber = kept.error().rowNumber() == 0 ? 0 : kept.error().rowNumber() + rowOffset;
+            if (isExhausted() && rowNumber != lastRow) {
+                return;
+            }
+            add(kept.slot(), rowNumber, kept.error().message());
+            lastRow = rowNumber;
+        }
+        // Errors the other collector counted but did not keep.
+        for (int slot = 0; slot < counts.length; slot++) {
+            long dropped = other.counts[slot] - other.kept[slot];
+            total += dropped;
+            counts[slot] += dropped;
+        }
+    }
+
+    private void add(int slot, int rowNumber, String message) {
+        total++;
+        counts[slot]++;
+        if (shouldKeep(slot)) {
+            kept[slot]++;
+            sample.add(new Kept(slot, new ValidationError(rowNumber, slotNames[slot], message)));
+        }
+    }
+
+    private boolean shouldKeep(int slot) {
+        return switch (budget.mode()) {
+            case FIRST_N -> sample.size() < budget.limit();
+            case FIRST_N_PER_COLUMN -> kept[slot] < budget.limit();
+            case ALL -> true;
+        };
+    }
+
+    private record Kept(int slot, ValidationError error) {
+    }
+}
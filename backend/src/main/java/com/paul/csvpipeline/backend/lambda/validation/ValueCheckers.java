@@ -0,0 +1,381 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-free type checks over trimmed UTF-8 field slices, and parsers for the values
+ * they accept.
+ *
+ * <p>Each check accepts exactly the values the JDK parser it replaces accepts
+ * ({@link Long#parseLong(String)}, {@link java.math.BigDecimal#BigDecimal(String)},
+ * {@code LocalDate.parse(value, ISO_LOCAL_DATE)} and the
+ * {@code ^[^@\s]+@[^@\s]+\.[^@\s]+$} email pattern), but reports failure with a
+ * return value instead of an exception. Like the JDK parsers, the numeric checks
+ * also accept non-ASCII decimal digits, which are decoded in place.
+ */
+public final class ValueCheckers {
+
+    private static final long MAX_YEAR = 999_999_999L;
+    /** Powers of ten that are exact doubles. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+    /** Decimal digits that always fit a double's 53-bit mantissa exactly. */
+    private static final int EXACT_DIGITS = 15;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ValueCheckers() {
+    }
+
+    /** Same acceptance as {@link Long#parseLong(String)}. */
+    public static boolean isInteger(byte[] buf, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+        int i = offset;
+        int end = offset + length;
+        long limit = -Long.MAX_VALUE;
+        int first = buf[i] & 0xFF;
+        if (first < '0') {
+            if (first == '-') {
+                limit = Long.MIN_VALUE;
+            } else if (first != '+') {
+                return false;
+            }
+            if (length == 1) {
+                return false;
+            }
+            i++;
+        }
+
+        // Accumulate negatively, like the JDK, so Long.MIN_VALUE is representable.
+        long multmin = limit / 10;
+        long result = 0;
+        while (i < end) {
+            int digit;
+            int b = buf[i] & 0xFF;
+            if (b < 0x80) {
+                digit = b - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                i++;
+            } else {
+                int decoded = decodeBmp(buf, i, end);
+                digit = decoded < 0 ? -1 : Character.digit(decoded & 0xFFFF, 10);
+                if (digit < 0) {
+                    return false;
+                }
+                i += decoded >>> 16;
+            }
+            if (result < multmin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    /** Same acceptance as {@link java.math.BigDecimal#BigDecimal(String)}. */
+    public static boolean isDecimal(byte[] buf, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+        int i = offset;
+        int end = offset + length;
+        if (buf[i] == '-' || buf[i] == '+') {
+            i++;
+        }
+
+        boolean dot = false;
+        int digits = 0;
+        int scale = 0;
+        while (i < end) {
+            int b = buf[i] & 0xFF;
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+                i++;
+            } else if (b == '.') {
+                if (dot) {
+                    return false;
+                }
+                dot = true;
+                i++;
+            } else if (b == 'e' || b == 'E') {
+                return digits > 0 && isExponent(buf, i + 1, end, scale);
+            } else if (b >= 0x80) {
+                int decoded = decodeBmp(buf, i, end);
+                if (decoded < 0 || !Character.isDigit(decoded & 0xFFFF)) {
+                    return false;
+                }
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+                i += decoded >>> 16;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    /**
+     * Exponent rules of {@code BigDecimal}: at most ten significant digits, the value must
+     * fit an {@code int}, and so must the resulting scale.
+     */
+    private static boolean isExponent(byte[] buf, int i, int end, int scale) {
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        if (i >= end) {
+            return false;
+        }
+
+        long exponent = 0;
+        int significant = 0;
+        while (i < end) {
+            int digit;
+            int b = buf[i] & 0xFF;
+            if (b < 0x80) {
+                digit = b - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                i++;
+            } else {
+                int decoded = decodeBmp(buf, i, end);
+                digit = decoded < 0 ? -1 : Character.digit(decoded & 0xFFFF, 10);
+                if (digit < 0) {
+                    return false;
+                }
+                i += decoded >>> 16;
+            }
+            if (digit != 0 || significant > 0) {
+                if (++significant > 10) {
+                    return false;
+                }
+                exponent = exponent * 10 + digit;
+            }
+        }
+        if (negative) {
+            exponent = -exponent;
+        }
+        if ((int) exponent != exponent) {
+            return false;
+        }
+        long adjustedScale = scale - exponent;
+        return adjustedScale >= Integer.MIN_VALUE && adjustedScale <= Integer.MAX_VALUE;
+    }
+
+    /** Same acceptance as the {@code ^[^@\s]+@[^@\s]+\.[^@\s]+$} pattern. */
+    public static boolean isEmail(byte[] buf, int offset, int length) {
+        int end = offset + length;
+        int at = -1;
+        for (int i = offset; i < end; i++) {
+            byte b = buf[i];
+            if (b == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            } else if (b == ' ' || (b >= '\t' && b <= '\r')) {
+                return false;
+            }
+        }
+        if (at <= offset) {
+            return false;
+        }
+        // The domain needs a dot with at least one character on either side.
+        for (int i = at + 2; i < end - 1; i++) {
+            if (buf[i] == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Same acceptance as {@code LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE)}. */
+    public static boolean isDate(byte[] buf, int offset, int length) {
+        return dateKey(buf, offset, length) != Long.MIN_VALUE;
+    }
+
+    /**
+     * Parses an ISO local date into {@code year * 10_000 + month * 100 + day}, which orders
+     * the same way as the dates themselves, or returns {@link Long#MIN_VALUE} if invalid.
+     *
+     * <p>Follows the strict {@code ISO_LOCAL_DATE} rules: four-digit years unless signed,
+     * a leading {@code +} only for years longer than four digits, no negative zero year,
+     * two-digit month and day, and a day that exists in that month.
+     */
+    public static long dateKey(byte[] buf, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        if (length <= 0) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = buf[i] == '-';
+        boolean positive = buf[i] == '+';
+        if (negative || positive) {
+            i++;
+        }
+
+        int yearStart = i;
+        long year = 0;
+        while (i < end && i - yearStart < 10 && isAsciiDigit(buf[i])) {
+            year = year * 10 + (buf[i] - '0');
+            i++;
+        }
+        int yearDigits = i - yearStart;
+        if (yearDigits < 4) {
+            return Long.MIN_VALUE;
+        }
+        if (negative) {
+            if (year == 0) {
+                return Long.MIN_VALUE;
+            }
+            year = -year;
+        } else if (positive ? yearDigits <= 4 : yearDigits > 4) {
+            return Long.MIN_VALUE;
+        }
+        if (year > MAX_YEAR || year < -MAX_YEAR) {
+            return Long.MIN_VALUE;
+        }
+
+        if (end - i != 6 || buf[i] != '-' || buf[i + 3] != '-'
+                || !isAsciiDigit(buf[i + 1]) || !isAsciiDigit(buf[i + 2])
+                || !isAsciiDigit(buf[i + 4]) || !isAsciiDigit(buf[i + 5])) {
+            return Long.MIN_VALUE;
+        }
+        int month = (buf[i + 1] - '0') * 10 + (buf[i + 2] - '0');
+        int day = (buf[i + 4] - '0') * 10 + (buf[i + 5] - '0');
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        return year * 10_000 + month * 100 + day;
+    }
+
+    /** Parses a value already accepted as an INTEGER. */
+    public static long integerValue(byte[] buf, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        // At most 18 digits cannot overflow; longer or non-ASCII values take the JDK path.
+        if (end - i > 18) {
+            return Long.parseLong(decode(buf, offset, length));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(decode(buf, offset, length));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a value already accepted as a DECIMAL, rounded to the nearest double.
+     * Plain decimals of up to 15 significant digits are one exact division of two exact
+     * doubles, which IEEE rounds correctly; anything else goes through {@link BigDecimal}.
+     */
+    public static double decimalValue(byte[] buf, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            int b = buf[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || (mantissa > 0 && digits >= EXACT_DIGITS)) {
+                return new BigDecimal(decode(buf, offset, length)).doubleValue();
+            }
+            if (mantissa > 0 || digit > 0) {
+                digits++;
+            }
+            mantissa = mantissa * 10 + digit;
+            if (scale >= 0 && ++scale >= POWERS_OF_TEN.length) {
+                return new BigDecimal(decode(buf, offset, length)).doubleValue();
+            }
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static String decode(byte[] buf, int offset, int length) {
+        return new String(buf, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static boolean isAsciiDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Decodes one well-formed 2 or 3 byte UTF-8 sequence into {@code (length << 16) | codePoint}.
+     * Anything else, including 4 byte sequences that decode to surrogate pairs, returns -1:
+     * none of those can be a digit in the {@code char}-based JDK parsers.
+     */
+    private static int decodeBmp(byte[] buf, int i, int end) {
+        int b0 = buf[i] & 0xFF;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            if (i + 1 >= end || !isContinuation(buf[i + 1])) {
+                return -1;
+            }
+            return (2 << 16) | ((b0 & 0x1F) << 6) | (buf[i + 1] & 0x3F);
+        }
+        if (b0 >= 0xE0 && b0 <= 0xEF) {
+            if (i + 2 >= end || !isContinuation(buf[i + 1]) || !isContinuation(buf[i + 2])) {
+                return -1;
+            }
+            int b1 = buf[i + 1] & 0xFF;
+            if ((b0 == 0xE0 && b1 < 0xA0) || (b0 == 0xED && b1 >= 0xA0)) {
+                return -1;
+            }
+            return (3 << 16) | ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (buf[i + 2] & 0x3F);
+        }
+        return -1;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
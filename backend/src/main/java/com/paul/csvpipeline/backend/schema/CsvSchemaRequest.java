@@ -0,0 +1,8 @@
+package com.paul.csvpipeline.backend.schema;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+
+import java.util.List;
+
+public record CsvSchemaRequest(String name, List<ColumnDefinition> columns) {
+}
@@ -0,0 +1,25 @@
+package com.paul.csvpipeline.backend.schema;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.schema.entity.CsvSchema;
+
+import java.time.Instant;
+import java.util.List;
+
+public record CsvSchemaResponse(
+        Long id,
+        String name,
+        int version,
+        List<ColumnDefinition> columns,
+        Instant createdAt
+) {
+    public static CsvSchemaResponse from(CsvSchema schema, List<ColumnDefinition> columns) {
+        return new CsvSchemaResponse(
+                schema.getId(),
+                schema.getName(),
+                schema.getVersion(),
+                columns,
+                schema.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package com.paul.csvpipeline.backend.schema.controller;
+
+import com.paul.csvpipeline.backend.schema.CsvSchemaRequest;
+import com.paul.csvpipeline.backend.schema.CsvSchemaResponse;
+import com.paul.csvpipeline.backend.schema.service.CsvSchemaService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/schemas")
+public class CsvSchemaController {
+
+    private final CsvSchemaService service;
+
+    public CsvSchemaController(CsvSchemaService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    public ResponseEntity<CsvSchemaResponse> create(
+            @RequestBody CsvSchemaRequest request,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(service.createVersion(request, authentication.getName()));
+    }
+
+    @GetMapping
+    public List<CsvSchemaResponse> list(Authentication authentication) {
+        return service.listSchemas(authentication.getName());
+    }
+
+    @GetMapping("/{name}")
+    public CsvSchemaResponse latest(
+            @PathVariable String name,
+            Authentication authentication
+    ) {
+        return service.getSchema(name, null, authentication.getName());
+    }
+
+    @GetMapping("/{name}/versions/{version}")
+    public CsvSchemaResponse version(
+            @PathVariable String name,
+            @PathVariable int version,
+            Authentication authentication
+    ) {
+        return service.getSchema(name, version, authentication.getName());
+    }
+}
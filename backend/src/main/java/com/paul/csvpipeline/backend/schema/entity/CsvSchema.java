@@ -0,0 +1,77 @@
+package com.paul.csvpipeline.backend.schema.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One immutable version of a user's named CSV schema. A new version is a new row, so an
+ * upload that references a schema row always validates against the same columns.
+ */
+@Entity
+@Table(
+        name = "csv_schemas",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_csv_schemas_user_email_name_version", columnNames = {"user_email", "name", "version"})
+        }
+)
+public class CsvSchema {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private int version;
+
+    @Column(name = "columns_json", nullable = false, length = 65_535)
+    private String columnsJson;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    protected CsvSchema() {
+    }
+
+    public CsvSchema(String userEmail, String name, int version, String columnsJson) {
+        this.userEmail = userEmail;
+        this.name = name;
+        this.version = version;
+        this.columnsJson = columnsJson;
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getColumnsJson() {
+        return columnsJson;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.paul.csvpipeline.backend.schema.repository;
+
+import com.paul.csvpipeline.backend.schema.entity.CsvSchema;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CsvSchemaRepository extends JpaRepository<CsvSchema, Long> {
+
+    List<CsvSchema> findByUserEmailOrderByNameAscVersionDesc(String userEmail);
+
+    Optional<CsvSchema> findTopByUserEmailAndNameOrderByVersionDesc(String userEmail, String name);
+
+    Optional<CsvSchema> findByUserEmailAndNameAndVersion(String userEmail, String name, int version);
+}
@@ -0,0 +1,134 @@
+package com.paul.csvpipeline.backend.schema.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.schema.CsvSchemaRequest;
+import com.paul.csvpipeline.backend.schema.CsvSchemaResponse;
+import com.paul.csvpipeline.backend.schema.entity.CsvSchema;
+import com.paul.csvpipeline.backend.schema.repository.CsvSchemaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class CsvSchemaService {
+
+    /** Schema name used for a user's uploads that do not name one. */
+    public static final String DEFAULT_SCHEMA_NAME = "default";
+
+    private static final TypeReference<List<ColumnDefinition>> COLUMNS_TYPE = new TypeReference<>() {
+    };
+
+    private final CsvSchemaRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public CsvSchemaService(CsvSchemaRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Stores the columns as the next version of the named schema. */
+    @Transactional
+    public CsvSchemaResponse createVersion(CsvSchemaRequest request, String userEmail) {
+        if (request == null || request.name() == null || request.name().isBlank()) {
+            throw new IllegalArgumentException("Schema name is required");
+        }
+        String name = request.name().trim();
+        if (name.length() > 100) {
+            throw new IllegalArgumentException("Schema name must be at most 100 characters");
+        }
+        List<ColumnDefinition> columns = requireColumns(request.columns());
+
+        int version = repository.findTopByUserEmailAndNameOrderByVersionDesc(userEmail, name)
+                .map(latest -> latest.getVersion() + 1)
+                .orElse(1);
+        CsvSchema saved = repository.save(new CsvSchema(userEmail, name, version, writeColumns(columns)));
+        return CsvSchemaResponse.from(saved, columns);
+    }
+
+    public List<CsvSchemaResponse> listSchemas(String userEmail) {
+        return repository.findByUserEmailOrderByNameAscVersionDesc(userEmail)
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    public CsvSchemaResponse getSchema(String name, Integer version, String userEmail) {
+        return find(userEmail, name, version)
+                .map(this::toResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Schema not found"));
+    }
+
+    /**
+     * Picks the schema an upload validates against: the requested one (latest version unless
+     * one is given), else the user's {@value #DEFAULT_SCHEMA_NAME} schema, else none, which
+     * leaves the built-in schema in place.
+     */
+    public Optional<CsvSchema> resolveForUpload(String userEmail, String schemaName, Integer schemaVersion) {
+        if (schemaName == null || schemaName.isBlank()) {
+            if (schemaVersion != null) {
+                throw new IllegalArgumentException("Schema version requires a schema name");
+            }
+            return repository.findTopByUserEmailAndNameOrderByVersionDesc(userEmail, DEFAULT_SCHEMA_NAME);
+        }
+        return Optional.of(find(userEmail, schemaName.trim(), schemaVersion)
+                .orElseThrow(() -> new IllegalArgumentException("Schema not found")));
+    }
+
+    /** Columns of the schema version with {@code schemaId}. */
+    public List<ColumnDefinition> columnsOf(long schemaId) {
+        return repository.findById(schemaId)
+                .map(this::readColumns)
+                .orElseThrow(() -> new IllegalArgumentException("Schema not found"));
+    }
+
+    private Optional<CsvSchema> find(String userEmail, String name, Integer version) {
+        return version == null
+                ? repository.findTopByUserEmailAndNameOrderByVersionDesc(userEmail, name)
+                : repository.findByUserEmailAndNameAndVersion(userEmail, name, version);
+    }
+
+    private List<ColumnDefinition> requireColumns(List<ColumnDefinition> columns) {
+        if (columns == null || columns.isEmpty()) {
+            throw new IllegalArgumentException("At least one column is required");
+        }
+        Set<String> names = new HashSet<>();
+        for (ColumnDefinition column : columns) {
+            if (column == null) {
+                throw new IllegalArgumentException("Column definitions cannot be null");
+            }
+            // Headers are matched case-insensitively, so names must differ the same way.
+            if (!names.add(column.name().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Duplicate column '" + column.name() + "'");
+            }
+        }
+        return List.copyOf(columns);
+    }
+
+    private CsvSchemaResponse toResponse(CsvSchema schema) {
+        return CsvSchemaResponse.from(schema, readColumns(schema));
+    }
+
+    private String writeColumns(List<ColumnDefinition> columns) {
+        try {
+            return objectMapper.writeValueAsString(columns);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize schema columns", e);
+        }
+    }
+
+    private List<ColumnDefinition> readColumns(CsvSchema schema) {
+        try {
+            return objectMapper.readValue(schema.getColumnsJson(), COLUMNS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored columns of schema " + schema.getId() + " are unreadable", e);
+        }
+    }
+}
@@ -14,10 +14,13 @@ import org.testcontainers.utility.DockerImageName;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 /**
  * Base class to share Testcontainers across ALL integration tests in the same JVM.
@@ -94,5 +97,37 @@ public abstract class IntegrationTestBase {
                     .endpointOverride(endpoint)
                     .build();
         }
+
+        /** The Lambdas read through an async client. */
+        @Bean
+        @Primary
+        public S3AsyncClient testS3AsyncClient() {
+            ensureContainersStarted();
+
+            return S3AsyncClient.builder()
+                    .region(Region.of(LOCALSTACK.getRegion()))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create("test", "test")))
+                    .forcePathStyle(true)
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder())
+                    .endpointOverride(LOCALSTACK.getEndpointOverride(LocalStackContainer.Service.S3))
+                    .build();
+        }
+
+        @Bean
+        @Primary
+        public S3Presigner testS3Presigner() {
+            ensureContainersStarted();
+
+            return S3Presigner.builder()
+                    .region(Region.of(LOCALSTACK.getRegion()))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create("test", "test")))
+                    .serviceConfiguration(S3Configuration.builder()
+                            .pathStyleAccessEnabled(true)
+                            .build())
+                    .endpointOverride(LOCALSTACK.getEndpointOverride(LocalStackContainer.Service.S3))
+                    .build();
+        }
     }
 }
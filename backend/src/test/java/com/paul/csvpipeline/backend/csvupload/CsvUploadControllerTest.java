@@ -1,6 +1,8 @@
 package com.paul.csvpipeline.backend.csvupload;
 
+import com.jayway.jsonpath.JsonPath;
 import com.paul.csvpipeline.backend.csvupload.service.S3StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -12,8 +14,17 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -25,6 +36,9 @@ class CsvUploadControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoBean
     private S3StorageService s3StorageService;
 
@@ -35,7 +49,7 @@ class CsvUploadControllerTest {
                 "file",
                 "data.csv",
                 "text/csv",
-                "id,name\n1,test".getBytes()
+                "id,name,email,amount\n1,test,test@example.com,1.00".getBytes()
         );
 
         mockMvc.perform(multipart("/api/uploads")
@@ -45,6 +59,25 @@ class CsvUploadControllerTest {
                 .andExpect(jsonPath("$.filename").value("data.csv"));
     }
 
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void uploadIsSavedWithTheKeyOfItsId() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "keyed.csv",
+                "text/csv",
+                "id,name,email,amount\n1,keyed,keyed@example.com,3.00".getBytes()
+        );
+
+        String body = mockMvc.perform(multipart("/api/uploads")
+                        .file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Number id = JsonPath.read(body, "$.id");
+        assertThat(JsonPath.<String>read(body, "$.s3Key")).isEqualTo("uploads/user@example.com/" + id + "/keyed.csv");
+    }
+
     @Test
     @WithMockUser(username = "user@example.com")
     void uploadNonCsvShouldBeRejected() throws Exception {
@@ -63,7 +96,7 @@ class CsvUploadControllerTest {
 
     @Test
     @WithMockUser(username = "user@example.com")
-    void listUploadsShouldIncrementMetrics() throws Exception {
+    void uploadWithWrongHeaderIsRejectedBeforeItIsStored() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
                 "file",
                 "data.csv",
@@ -71,10 +104,115 @@ class CsvUploadControllerTest {
                 "id,name\n1,test".getBytes()
         );
 
+        mockMvc.perform(multipart("/api/uploads")
+                        .file(file))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("File does not match its schema: Expected 4 columns but found 2"));
+        verifyNoInteractions(s3StorageService);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void listUploadsShouldIncrementMetrics() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "data.csv",
+                "text/csv",
+                "id,name,email,amount\n1,test,test@example.com,1.00".getBytes()
+        );
+
         mockMvc.perform(multipart("/api/uploads").file(file))
                 .andExpect(status().isOk());
 
         mockMvc.perform(get("/api/uploads"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void directUploadOverTheUploadLimitIsRejected() throws Exception {
+        mockMvc.perform(post("/api/uploads/direct")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"filename": "huge.csv", "sizeBytes": 2147483648, "contentType": "text/csv"}"""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("File exceeds the maximum upload size of 1024 MB"));
+        verifyNoInteractions(s3StorageService);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void bulkUploadOfAZipRegistersEachEntry() throws Exception {
+        MockMultipartFile archive = new MockMultipartFile("files", "batch.zip", "application/zip", zip(
+                "batch/first.csv", "id,name,email,amount\n1,first,first@example.com,1.00",
+                "batch/second.csv", "id,name,email,amount\n2,second,second@example.com,2.00",
+                "batch/copy.csv", "id,name,email,amount\n1,first,first@example.com,1.00",
+                "__MACOSX/batch/._first.csv", "metadata"));
+        Counts before = counts();
+
+        String body = mockMvc.perform(multipart("/api/uploads/bulk")
+                        .file(archive))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].filename").value("first.csv"))
+                .andExpect(jsonPath("$[1].filename").value("second.csv"))
+                .andExpect(jsonPath("$[1].status").value("PENDING"))
+                .andExpect(jsonPath("$[2].filename").value("copy.csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        Number id = JsonPath.read(body, "$[1].id");
+        assertThat(JsonPath.<String>read(body, "$[1].s3Key")).isEqualTo("uploads/user@example.com/" + id + "/second.csv");
+        assertThat(JsonPath.<Number>read(body, "$[2].duplicateOf").longValue())
+                .isEqualTo(JsonPath.<Number>read(body, "$[0].id").longValue());
+        // Three requested: two stored and accepted, and a copy of the first that is only deduplicated.
+        assertThat(counts().minus(before)).isEqualTo(new Counts(3, 2, 0, 1, 0));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void bulkUploadWithOneBadFileStoresNothing() throws Exception {
+        MockMultipartFile good = new MockMultipartFile("files", "good.csv", "text/csv",
+                "id,name,email,amount\n1,good,good@example.com,1.00".getBytes());
+        MockMultipartFile bad = new MockMultipartFile("files", "bad.csv", "text/csv",
+                "id,name\n1,bad".getBytes());
+
+        Counts before = counts();
+
+        mockMvc.perform(multipart("/api/uploads/bulk")
+                        .file(good)
+                        .file(bad))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("bad.csv: File does not match its schema: Expected 4 columns but found 2"));
+        verifyNoInteractions(s3StorageService);
+        // The bad file rejects the good one with it.
+        assertThat(counts().minus(before)).isEqualTo(new Counts(2, 0, 2, 0, 0));
+    }
+
+    private Counts counts() {
+        return new Counts(count("csv.upload.requests"), count("csv.upload.accepted"), count("csv.upload.rejected"),
+                count("csv.upload.deduplicated"), count("csv.upload.store.failed"));
+    }
+
+    private long count(String name) {
+        return (long) meterRegistry.get(name).counter().count();
+    }
+
+    private record Counts(long requested, long accepted, long rejected, long deduplicated, long storeFailed) {
+        Counts minus(Counts other) {
+            return new Counts(requested - other.requested, accepted - other.accepted, rejected - other.rejected,
+                    deduplicated - other.deduplicated, storeFailed - other.storeFailed);
+        }
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
 }
\ No newline at end of file
@@ -4,8 +4,18 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paul.csvpipeline.backend.IntegrationTestBase;
 import com.paul.csvpipeline.backend.IntegrationTestBase.LocalStackS3ClientConfig;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadStats;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadContentRepository;
 import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadStatsRepository;
+import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeAll;
@@ -17,6 +27,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -31,9 +42,11 @@ import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -56,9 +69,24 @@ class CsvUploadControllerIT extends IntegrationTestBase {
     @Autowired
     private CsvUploadRepository uploadRepository;
 
+    @Autowired
+    private CsvUploadStatsRepository statsRepository;
+
+    @Autowired
+    private CsvUploadContentRepository contentRepository;
+
     @Value("${csvpipeline.s3.bucket}")
     private String bucket;
 
+    @Value("${spring.datasource.url}")
+    private String jdbcUrl;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
     @BeforeAll
     void ensureBucket() {
         org.awaitility.Awaitility.await()
@@ -73,6 +101,8 @@ class CsvUploadControllerIT extends IntegrationTestBase {
 
     @BeforeEach
     void cleanState() {
+        contentRepository.deleteAll();
+        statsRepository.deleteAll();
         uploadRepository.deleteAll();
         deleteAllObjectsInBucket();
     }
@@ -81,7 +111,7 @@ class CsvUploadControllerIT extends IntegrationTestBase {
     @WithMockUser(username = "user@example.com")
     void uploadCsvStoresInS3AndReturnsPending() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
-                "file", "data.csv", "text/csv", "id,name\n1,test".getBytes());
+                "file", "data.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
 
         var mvcResult = mockMvc.perform(multipart("/api/uploads").file(file))
                 .andExpect(status().isOk())
@@ -104,7 +134,7 @@ class CsvUploadControllerIT extends IntegrationTestBase {
     @WithMockUser(username = "user@example.com")
     void listAndGetAreUserScoped() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
-                "file", "data.csv", "text/csv", "id,name\n1,test".getBytes());
+                "file", "data.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
 
         var uploadResult = mockMvc.perform(multipart("/api/uploads").file(file))
                 .andExpect(status().isOk())
@@ -121,10 +151,156 @@ class CsvUploadControllerIT extends IntegrationTestBase {
                 .andExpect(jsonPath("$.status").value("PENDING"));
     }
 
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void statisticsAreServedOnceStoredUntilTheStatusChanges() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
+        var uploadResult = mockMvc.perform(multipart("/api/uploads").file(file))
+                .andExpect(status().isOk())
+                .andReturn();
+        long id = MAPPER.readTree(uploadResult.getResponse().getContentAsByteArray()).get("id").asLong();
+
+        mockMvc.perform(get("/api/uploads/{id}/stats", id))
+                .andExpect(status().isNotFound());
+
+        statsRepository.save(new CsvUploadStats(id, 1, "[{\"column\":\"id\",\"type\":\"INTEGER\",\"count\":1}]"));
+
+        mockMvc.perform(get("/api/uploads/{id}/stats", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadId").value(id))
+                .andExpect(jsonPath("$.rowCount").value(1))
+                .andExpect(jsonPath("$.columns[0].column").value("id"));
+        mockMvc.perform(get("/api/uploads/{id}/stats", id)
+                        .with(org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user("other@example.com")))
+                .andExpect(status().isBadRequest());
+
+        // Revalidation drops the row and notifies the API, which must stop serving its cached copy.
+        new UploadStatusRepository(jdbcUrl, username, password).markValidating(id);
+
+        org.awaitility.Awaitility.await()
+                .atMost(java.time.Duration.ofSeconds(10))
+                .untilAsserted(() -> mockMvc.perform(get("/api/uploads/{id}/stats", id))
+                        .andExpect(status().isNotFound()));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void appendsAreAcceptedOnlyOnceTheParentPassedValidation() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "day1.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
+        var uploadResult = mockMvc.perform(multipart("/api/uploads").file(file))
+                .andExpect(status().isOk())
+                .andReturn();
+        long parentId = MAPPER.readTree(uploadResult.getResponse().getContentAsByteArray()).get("id").asLong();
+        MockMultipartFile delta = new MockMultipartFile(
+                "file", "day2.csv", "text/csv", "id,name,email,amount\n2,test,test@example.com,2.00".getBytes());
+
+        mockMvc.perform(multipart("/api/uploads").file(delta).param("appendTo", String.valueOf(parentId)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Upload " + parentId + " has not passed validation yet"));
+
+        var parent = uploadRepository.findById(parentId).orElseThrow();
+        parent.setStatus(CsvUploadStatus.VALIDATED);
+        uploadRepository.save(parent);
+
+        var deltaResult = mockMvc.perform(multipart("/api/uploads").file(delta).param("appendTo", String.valueOf(parentId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parentId").value(parentId))
+                .andReturn();
+        long deltaId = MAPPER.readTree(deltaResult.getResponse().getContentAsByteArray()).get("id").asLong();
+
+        // Appending to a delta appends to the dataset's first upload.
+        mockMvc.perform(multipart("/api/uploads").file(delta).param("appendTo", String.valueOf(deltaId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parentId").value(parentId));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void identicalContentIsStoredAndValidatedOnce() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "data.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
+        var firstResult = mockMvc.perform(multipart("/api/uploads").file(file))
+                .andExpect(status().isOk())
+                .andReturn();
+        long firstId = MAPPER.readTree(firstResult.getResponse().getContentAsByteArray()).get("id").asLong();
+        MockMultipartFile copy = new MockMultipartFile(
+                "file", "copy.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
+
+        // Still in flight: the copy follows the first upload instead of being stored again.
+        var copyResult = mockMvc.perform(multipart("/api/uploads").file(copy))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.duplicateOf").value(firstId))
+                .andReturn();
+        long copyId = MAPPER.readTree(copyResult.getResponse().getContentAsByteArray()).get("id").asLong();
+        assertThat(s3Client.listObjectsV2(b -> b.bucket(bucket)).contents()).hasSize(1);
+
+        UploadStatusRepository statusRepository = new UploadStatusRepository(jdbcUrl, username, password);
+        statusRepository.markValidated(firstId, List.of());
+
+        mockMvc.perform(get("/api/uploads/{id}", copyId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("VALIDATED"));
+
+        // Once validated, later copies take over the outcome and statistics straight away.
+        mockMvc.perform(multipart("/api/uploads").file(copy))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("VALIDATED"))
+                .andExpect(jsonPath("$.duplicateOf").value(firstId));
+
+        // Content that failed validation is processed again by its next upload.
+        statusRepository.markFailed(firstId, List.of());
+        mockMvc.perform(multipart("/api/uploads").file(copy))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.duplicateOf").doesNotExist());
+        assertThat(s3Client.listObjectsV2(b -> b.bucket(bucket)).contents()).hasSize(2);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void directUploadsSendTheirBytesStraightToS3() throws Exception {
+        byte[] content = "id,name\n1,direct".getBytes();
+        var initiated = mockMvc.perform(post("/api/uploads/direct")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"filename": "direct.csv", "sizeBytes": %d, "contentType": "text/csv"}""".formatted(content.length)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upload.status").value("PENDING"))
+                .andExpect(jsonPath("$.parts.length()").value(1))
+                .andReturn();
+        JsonNode root = MAPPER.readTree(initiated.getResponse().getContentAsByteArray());
+        long id = root.get("upload").get("id").asLong();
+        String expectedKey = "uploads/user@example.com/%s/direct.csv".formatted(id);
+        assertThat(root.get("upload").get("s3Key").asText()).isEqualTo(expectedKey);
+
+        HttpResponse<Void> put = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(root.get("parts").get(0).get("url").asText()))
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(put.statusCode()).isEqualTo(200);
+        String eTag = put.headers().firstValue("ETag").orElseThrow();
+
+        mockMvc.perform(post("/api/uploads/{id}/complete", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(MAPPER.writeValueAsString(Map.of(
+                                "multipartUploadId", root.get("multipartUploadId").asText(),
+                                "parts", List.of(Map.of("partNumber", 1, "eTag", eTag))))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id));
+
+        assertThat(s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(expectedKey).build())
+                .contentLength()).isEqualTo(content.length);
+        assertThat(uploadRepository.findById(id).orElseThrow().getSizeBytes()).isEqualTo(content.length);
+    }
+
     @Test
     void uploadWithoutAuthReturns401() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
-                "file", "data.csv", "text/csv", "id,name\n1,test".getBytes());
+                "file", "data.csv", "text/csv", "id,name,email,amount\n1,test,test@example.com,1.00".getBytes());
 
         mockMvc.perform(multipart("/api/uploads").file(file))
                 .andExpect(status().isUnauthorized());
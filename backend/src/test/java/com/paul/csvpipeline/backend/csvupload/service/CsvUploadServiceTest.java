@@ -0,0 +1,113 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadResponse;
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadCompleteRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadRequest;
+import com.paul.csvpipeline.backend.csvupload.DirectUploadResponse;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CsvUploadServiceTest {
+
+    private static final String USER = "user@example.com";
+
+    @Autowired
+    private CsvUploadService service;
+
+    @Autowired
+    private CsvUploadRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private S3StorageService storage;
+
+    @Test
+    void completingADirectUploadKeepsTheStatusThePipelineWroteMeanwhile() {
+        when(storage.startDirectUpload(anyString(), anyString(), anyLong()))
+                .thenReturn(new S3StorageService.PresignedParts("mpu-1", 8 * 1024 * 1024, List.of("http://part/1"),
+                        Instant.now()));
+        DirectUploadResponse initiated = service.initiateDirectUpload(
+                new DirectUploadRequest("direct.csv", 10L, "text/csv", null, null, null), USER);
+        long id = initiated.upload().id();
+
+        // The object's creation has the validation Lambda mark the upload before completion returns.
+        when(storage.completeDirectUpload(eq(initiated.upload().s3Key()), eq("mpu-1"), any())).thenAnswer(invocation -> {
+            jdbc.update("update csv_uploads set status = ? where id = ?", CsvUploadStatus.VALIDATING.name(), id);
+            return 12L;
+        });
+
+        CsvUploadResponse completed = service.completeDirectUpload(id,
+                new DirectUploadCompleteRequest("mpu-1", List.of(new DirectUploadCompleteRequest.Part(1, "\"etag\""))), USER);
+
+        assertThat(completed.status()).isEqualTo(CsvUploadStatus.VALIDATING);
+        var stored = repository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(CsvUploadStatus.VALIDATING);
+        assertThat(stored.getSizeBytes()).isEqualTo(12L);
+        assertThat(stored.getUncompressedSizeBytes()).isEqualTo(12L);
+    }
+
+    @Test
+    void directUploadsLargerThanTheUploadLimitAreRejectedBeforeAnythingIsReserved() {
+        long uploads = repository.count();
+
+        assertThatThrownBy(() -> service.initiateDirectUpload(
+                new DirectUploadRequest("huge.csv", 2L * 1024 * 1024 * 1024, "text/csv", null, null, null), USER))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File exceeds the maximum upload size of 1024 MB");
+        assertThat(repository.count()).isEqualTo(uploads);
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void bulkUploadsCountOnlyStoredFilesAsAccepted() {
+        MockMultipartFile stored = new MockMultipartFile("files", "stored.csv", "text/csv",
+                "id,name,email,amount\n1,stored,stored@example.com,1.00".getBytes());
+        MockMultipartFile lost = new MockMultipartFile("files", "lost.csv", "text/csv",
+                "id,name,email,amount\n2,lost,lost@example.com,2.00".getBytes());
+        doThrow(new IllegalStateException("S3 is down")).when(storage).upload(endsWith("/lost.csv"), any(), eq("text/csv"));
+        double requested = count("csv.upload.requests");
+        double accepted = count("csv.upload.accepted");
+        double storeFailed = count("csv.upload.store.failed");
+
+        List<CsvUploadResponse> responses = service.registerBulkUpload(List.of(stored, lost), USER, null, null);
+
+        assertThat(responses).extracting(CsvUploadResponse::status)
+                .containsExactly(CsvUploadStatus.PENDING, CsvUploadStatus.VALIDATION_FAILED);
+        assertThat(count("csv.upload.requests") - requested).isEqualTo(2);
+        assertThat(count("csv.upload.accepted") - accepted).isEqualTo(1);
+        assertThat(count("csv.upload.store.failed") - storeFailed).isEqualTo(1);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
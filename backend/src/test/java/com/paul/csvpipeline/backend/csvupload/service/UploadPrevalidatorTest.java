@@ -0,0 +1,85 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
+import com.paul.csvpipeline.backend.schema.service.CsvSchemaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadPrevalidatorTest {
+
+    private static final byte[] CSV = "id,name,email,amount\n1,test,test@example.com,1.00".getBytes();
+
+    private final CsvSchemaService schemaService = mock(CsvSchemaService.class);
+    private final UploadPrevalidator prevalidator = new UploadPrevalidator(schemaService, 100);
+
+    @Test
+    void concurrentFirstUploadsOfASchemaPrepareOneValidator() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        when(schemaService.columnsOf(7L)).thenAnswer(invocation -> ExpectedSchema.defaultSchema());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> checks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                checks.add(executor.submit(() -> {
+                    start.await();
+                    prevalidator.check(file(), 7L);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> check : checks) {
+                check.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(schemaService, times(1)).columnsOf(7L);
+    }
+
+    @Test
+    void aFullCacheDropsOnlyTheLeastRecentlyUsedValidator() {
+        when(schemaService.columnsOf(anyLong())).thenAnswer(invocation -> ExpectedSchema.defaultSchema());
+        for (long schemaId = 1; schemaId <= 1_000; schemaId++) {
+            prevalidator.check(file(), schemaId);
+        }
+        prevalidator.check(file(), 1L);
+
+        prevalidator.check(file(), 1_001L);
+        prevalidator.check(file(), 1L);
+        prevalidator.check(file(), 3L);
+        prevalidator.check(file(), 2L);
+
+        verify(schemaService, times(1)).columnsOf(1L);
+        verify(schemaService, times(1)).columnsOf(3L);
+        verify(schemaService, times(2)).columnsOf(2L);
+    }
+
+    @Test
+    void rejectsAFileWhoseFirstRowsFail() {
+        MockMultipartFile bad = new MockMultipartFile("file", "bad.csv", "text/csv",
+                "id,name,email,amount\nx,test,nope,1.00".getBytes());
+
+        assertThatThrownBy(() -> prevalidator.check(bad, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("File does not match its schema: row 1");
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "data.csv", "text/csv", CSV);
+    }
+}
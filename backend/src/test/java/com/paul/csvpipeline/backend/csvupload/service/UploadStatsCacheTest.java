@@ -0,0 +1,82 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadStatsCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private final UploadStatsCache cache = new UploadStatsCache(1);
+
+    @Test
+    void returnsWhatWasPutWithItsOwner() {
+        cache.put("user@example.com", stats(1L, 100), cache.generation());
+
+        assertThat(cache.get(1L)).hasValueSatisfying(entry -> {
+            assertThat(entry.userEmail()).isEqualTo("user@example.com");
+            assertThat(entry.stats().uploadId()).isEqualTo(1L);
+        });
+        assertThat(cache.get(2L)).isEmpty();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadUploadsOnceFull() {
+        cache.put("user@example.com", stats(1L, MB / 3), cache.generation());
+        cache.put("user@example.com", stats(2L, MB / 3), cache.generation());
+        cache.put("user@example.com", stats(3L, MB / 4), cache.generation());
+        cache.get(1L);
+
+        cache.put("user@example.com", stats(4L, MB / 4), cache.generation());
+
+        assertThat(cache.get(2L)).isEmpty();
+        assertThat(cache.get(1L)).isPresent();
+        assertThat(cache.get(3L)).isPresent();
+        assertThat(cache.get(4L)).isPresent();
+        assertThat(cache.bytes()).isLessThanOrEqualTo(MB);
+    }
+
+    @Test
+    void neverHoldsStatisticsLargerThanItself() {
+        cache.put("user@example.com", stats(1L, MB + 1), cache.generation());
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.bytes()).isZero();
+    }
+
+    @Test
+    void statusChangesEvictTheUpload() {
+        cache.put("user@example.com", stats(1L, 100), cache.generation());
+        cache.put("user@example.com", stats(2L, 100), cache.generation());
+
+        cache.evict(1L);
+
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(cache.get(2L)).isPresent();
+    }
+
+    @Test
+    void readsThatRacedAnEvictionAreNotCached() {
+        long loadedAt = cache.generation();
+        cache.evict(1L);
+
+        cache.put("user@example.com", stats(1L, 100), loadedAt);
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void rejectsANegativeSize() {
+        assertThatThrownBy(() -> new UploadStatsCache(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CsvUploadStatsResponse stats(Long uploadId, int jsonLength) {
+        return new CsvUploadStatsResponse(uploadId, 10, "x".repeat(jsonLength), Instant.now());
+    }
+}
@@ -0,0 +1,146 @@
+package com.paul.csvpipeline.backend.csvupload.service;
+
+import com.paul.csvpipeline.backend.csvupload.UploadMetrics;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadTransfersTest {
+
+    private static final String KEY = "uploads/user@example.com/7/data.csv";
+    private static final byte[] CSV = "id,name,email,amount\n1,test,test@example.com,1.00".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path spool;
+
+    private final S3StorageService storage = mock(S3StorageService.class);
+    private final UploadDeduplicator deduplicator = mock(UploadDeduplicator.class);
+    private final CsvUploadRepository repository = mock(CsvUploadRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private UploadTransfers transfers;
+
+    @AfterEach
+    void shutDown() throws InterruptedException {
+        if (transfers != null) {
+            transfers.shutdown();
+        }
+    }
+
+    @Test
+    void syncModeStoresTheFileBeforeReturning() {
+        transfers = transfers(false);
+        MockMultipartFile file = file();
+
+        transfers.store(upload(), file);
+
+        verify(storage).upload(KEY, file, "text/csv");
+        assertThat(spool).isEmptyDirectory();
+    }
+
+    @Test
+    void asyncModeStoresTheSpooledFileInTheBackgroundAndDeletesIt() {
+        transfers = transfers(true);
+        CompletableFuture<byte[]> stored = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            try (InputStream in = invocation.<InputStreamSource>getArgument(1).getInputStream()) {
+                return stored.complete(in.readAllBytes());
+            }
+        }).when(storage).upload(eq(KEY), any(), eq("text/csv"));
+
+        transfers.store(upload(), file());
+
+        assertThat(stored).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(CSV);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertThat(spool).isEmptyDirectory());
+    }
+
+    @Test
+    void failedTransferFailsTheUpload() {
+        transfers = transfers(true);
+        doThrow(new IllegalStateException("S3 is down")).when(storage).upload(eq(KEY), any(), any());
+
+        transfers.store(upload(), file());
+
+        verify(deduplicator, timeout(5_000)).failStore(7L, UploadTransfers.STORE_FAILED);
+        assertThat(registry.get("csv.upload.store.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void syncBulkStoreReturnsTheUploadsThatFailed() {
+        transfers = transfers(false);
+        CsvUpload other = new CsvUpload("user@example.com", "other.csv", CSV.length, "text/csv", "uploads/user@example.com/8/other.csv");
+        ReflectionTestUtils.setField(other, "id", 8L);
+        doThrow(new IllegalStateException("S3 is down")).when(storage).upload(eq(KEY), any(), any());
+
+        Set<Long> failed = transfers.storeAll(List.of(upload(), other), List.of(file(), file()));
+
+        assertThat(failed).containsExactly(7L);
+        verify(storage).upload(eq(other.getS3Key()), any(), eq("text/csv"));
+        verify(deduplicator).failStore(7L, UploadTransfers.STORE_FAILED);
+    }
+
+    @Test
+    void pendingUploadsLeftInTheSpoolAreResumedOnStartup() throws IOException {
+        Files.write(spool.resolve("7" + UploadTransfers.SPOOL_SUFFIX), CSV);
+        Files.write(spool.resolve("8" + UploadTransfers.SPOOL_SUFFIX), CSV);
+        when(repository.findById(7L)).thenReturn(Optional.of(upload()));
+        when(repository.findById(8L)).thenReturn(Optional.empty());
+        transfers = transfers(true);
+
+        transfers.resumeSpooled();
+
+        verify(storage, timeout(5_000)).upload(eq(KEY), any(), eq("text/csv"));
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertThat(spool).isEmptyDirectory());
+    }
+
+    @Test
+    void queueDepthIsPublished() {
+        transfers = transfers(true);
+
+        assertThat(registry.get("executor.queued").tag("name", "csv.upload.transfers").gauge().value()).isZero();
+        assertThat(registry.get("executor.queue.remaining").tag("name", "csv.upload.transfers").gauge().value()).isEqualTo(2);
+    }
+
+    private UploadTransfers transfers(boolean async) {
+        return new UploadTransfers(storage, deduplicator, repository, new UploadMetrics(registry), registry,
+                async, spool.toString(), 1, 2);
+    }
+
+    private static CsvUpload upload() {
+        CsvUpload upload = new CsvUpload("user@example.com", "data.csv", CSV.length, "text/csv", KEY);
+        ReflectionTestUtils.setField(upload, "id", 7L);
+        return upload;
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "data.csv", "text/csv", CSV);
+    }
+}
@@ -0,0 +1,172 @@
+package com.paul.csvpipeline.backend.lambda;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paul.csvpipeline.backend.IntegrationTestBase;
+import com.paul.csvpipeline.backend.IntegrationTestBase.LocalStackS3ClientConfig;
+import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.lambda.handler.CsvPersistLambda;
+import com.paul.csvpipeline.backend.lambda.persistence.CsvTableLoader;
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import software.amazon.awssdk.core.retry.backoff.FixedDelayBackoffStrategy;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+@SpringBootTest
+@Import(LocalStackS3ClientConfig.class)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CsvPersistLambdaIT extends IntegrationTestBase {
+
+    @Value("${spring.datasource.url}")
+    private String jdbcUrl;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${csvpipeline.s3.bucket}")
+    private String bucket;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
+
+    @Autowired
+    private CsvUploadRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CsvPersistLambda lambda;
+
+    @BeforeAll
+    void initLambda() {
+        this.lambda = new CsvPersistLambda(
+                s3AsyncClient,
+                new CsvTableLoader(jdbcUrl, username, password),
+                new SchemaRepository(jdbcUrl, username, password, new ObjectMapper()),
+                new UploadStatusRepository(jdbcUrl, username, password)
+        );
+    }
+
+    @BeforeEach
+    void clean() {
+        repository.deleteAll();
+        try {
+            s3Client.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+        } catch (S3Exception ex) {
+            createBucket();
+        }
+    }
+
+    @Test
+    void copiesRowsIntoTheUploadsTableAndMarksItPersisted() {
+        CsvUpload upload = seedUpload("valid.csv");
+        putCsv(upload.getS3Key(), "id,name,email,amount\n" +
+                "1, Jane Doe ,jane@example.com,120.50\n" +
+                "\n" +
+                "2,\"Doe,\tJohn\",john@example.com,+.5\n");
+
+        var response = lambda.handleRequest(request(upload), null);
+
+        assertThat(response.rowCount()).isEqualTo(2);
+        assertThat(response.table()).isEqualTo(CsvTableLoader.tableName(upload.getId()));
+        assertThat(jdbcTemplate.queryForList("SELECT * FROM " + response.table() + " ORDER BY id"))
+                .containsExactly(
+                        Map.of("id", 1L, "name", "Jane Doe", "email", "jane@example.com", "amount", new BigDecimal("120.50")),
+                        Map.of("id", 2L, "name", "Doe,\tJohn", "email", "john@example.com", "amount", new BigDecimal("0.5")));
+        assertThat(repository.findById(upload.getId()).orElseThrow().getStatus()).isEqualTo(CsvUploadStatus.PERSISTED);
+    }
+
+    @Test
+    void retriedLoadReplacesTheTable() {
+        CsvUpload upload = seedUpload("retry.csv");
+        putCsv(upload.getS3Key(), "id,name,email,amount\n1,Jane,jane@example.com,1\n2,John,john@example.com,2\n");
+
+        lambda.handleRequest(request(upload), null);
+        var response = lambda.handleRequest(request(upload), null);
+
+        assertThat(response.rowCount()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM " + response.table(), Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadLeavesNoTableBehind() {
+        CsvUpload upload = seedUpload("duplicate.csv");
+        // Not validated: the unique id constraint rejects the load as a whole.
+        putCsv(upload.getS3Key(), "id,name,email,amount\n1,Jane,jane@example.com,1\n1,John,john@example.com,2\n");
+
+        assertThatThrownBy(() -> lambda.handleRequest(request(upload), null))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text",
+                String.class, CsvTableLoader.tableName(upload.getId()))).isNull();
+        assertThat(repository.findById(upload.getId()).orElseThrow().getStatus()).isEqualTo(CsvUploadStatus.PENDING);
+    }
+
+    private CsvPersistLambda.PersistRequest request(CsvUpload upload) {
+        return new CsvPersistLambda.PersistRequest(upload.getId(), bucket, upload.getS3Key(), null, null);
+    }
+
+    private CsvUpload seedUpload(String filename) {
+        return repository.save(new CsvUpload("user@example.com", filename, 100, "text/csv", ""));
+    }
+
+    private void putCsv(String key, String content) {
+        s3Client.putObject(
+                PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType("text/csv")
+                        .build(),
+                RequestBody.fromBytes(content.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    private void createBucket() {
+        try {
+            s3Client.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+        } catch (S3Exception ex) {
+            if (ex.statusCode() != 409) {
+                throw ex;
+            }
+        }
+
+        s3Client.waiter().waitUntilBucketExists(
+                (HeadBucketRequest.Builder b) -> b.bucket(bucket),
+                w -> w.maxAttempts(5).backoffStrategy(FixedDelayBackoffStrategy.create(Duration.ofSeconds(1)))
+        );
+    }
+}
@@ -6,8 +6,10 @@ import com.paul.csvpipeline.backend.lambda.handler.CsvValidationLambda;
 import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
 import com.paul.csvpipeline.backend.lambda.validation.ExpectedSchema;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +22,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import software.amazon.awssdk.core.retry.backoff.FixedDelayBackoffStrategy;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
 import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
@@ -41,9 +44,9 @@ class CsvValidationLambdaIT extends IntegrationTestBase {
     @Value("${csvpipeline.s3.bucket}")
     private String bucket;
 
-    CsvValidationLambdaIT(S3Client s3Client) {
+    CsvValidationLambdaIT(S3Client s3Client, S3AsyncClient s3AsyncClient) {
         this.s3Client = s3Client;
-        this.lambda = new CsvValidationLambda(s3Client, new CsvValidator(ExpectedSchema.defaultSchema()));
+        this.lambda = new CsvValidationLambda(s3AsyncClient, new CsvValidator(ExpectedSchema.defaultSchema()));
     }
 
     @BeforeEach
@@ -83,6 +86,37 @@ class CsvValidationLambdaIT extends IntegrationTestBase {
                 .contains("id", "email", "amount");
     }
 
+    @Test
+    void compressedCsvIsValidatedAsItsDecompressedContent() throws Exception {
+        long uploadId = 12L;
+        String key = buildKey(uploadId, "valid.csv.gz");
+        byte[] csv = "id,name,email,amount\n1,Jane,jane@example.com,10.5\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(csv);
+        }
+        s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentType("application/gzip").build(),
+                RequestBody.fromBytes(gzipped.toByteArray()));
+
+        var response = lambda.handleRequest(new CsvValidationLambda.ValidationRequest(uploadId, bucket, key), null);
+
+        assertThat(response.valid()).isTrue();
+        assertThat(response.uncompressedBytes()).isEqualTo(csv.length);
+    }
+
+    @Test
+    void corruptCompressedCsvFailsValidation() {
+        long uploadId = 13L;
+        String key = buildKey(uploadId, "corrupt.csv.gz");
+        putCsv(key, "id,name,email,amount\n");
+
+        var response = lambda.handleRequest(new CsvValidationLambda.ValidationRequest(uploadId, bucket, key), null);
+
+        assertThat(response.valid()).isFalse();
+        assertThat(response.errors()).extracting("column").containsExactly("file");
+        assertThat(response.uncompressedBytes()).isEqualTo(CsvValidationLambda.UNKNOWN_SIZE);
+    }
+
     private void putCsv(String key, String content) {
         s3Client.putObject(
                 PutObjectRequest.builder()
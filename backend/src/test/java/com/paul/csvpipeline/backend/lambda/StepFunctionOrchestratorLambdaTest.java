@@ -5,6 +5,7 @@ import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotificatio
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paul.csvpipeline.backend.lambda.handler.StepFunctionOrchestratorLambda;
 import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import com.paul.csvpipeline.backend.lambda.schema.SchemaRef;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import software.amazon.awssdk.services.sfn.SfnClient;
@@ -12,6 +13,7 @@ import software.amazon.awssdk.services.sfn.model.StartExecutionRequest;
 import software.amazon.awssdk.services.sfn.model.StartExecutionResponse;
 
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -53,6 +55,36 @@ class StepFunctionOrchestratorLambdaTest {
         assertThat(input.uploadId()).isEqualTo(123L);
         assertThat(input.bucket()).isEqualTo("csv-upload-bucket");
         assertThat(input.key()).isEqualTo("uploads/user@example.com/123/data.csv");
+        assertThat(input.schemaId()).isNull();
+        assertThat(input.schemaVersion()).isNull();
+    }
+
+    @Test
+    void passesTheUploadsRegisteredSchemaToTheStateMachine() throws Exception {
+        SfnClient sfnClient = mock(SfnClient.class);
+        when(sfnClient.startExecution(any(StartExecutionRequest.class)))
+                .thenReturn(StartExecutionResponse.builder().executionArn("arn").build());
+
+        UploadStatusRepository repository = mock(UploadStatusRepository.class);
+        when(repository.findSchemaRef(123L)).thenReturn(Optional.of(new SchemaRef(7L, 2)));
+        StepFunctionOrchestratorLambda lambda = new StepFunctionOrchestratorLambda(
+                sfnClient,
+                repository,
+                "arn:aws:states:us-east-1:123:stateMachine:csv-pipeline",
+                objectMapper
+        );
+
+        lambda.handleRequest(new S3Event(List.of(buildRecord("csv-upload-bucket", "uploads/user@example.com/123/data.csv"))), null);
+
+        ArgumentCaptor<StartExecutionRequest> requestCaptor = ArgumentCaptor.forClass(StartExecutionRequest.class);
+        verify(sfnClient).startExecution(requestCaptor.capture());
+        StepFunctionOrchestratorLambda.StateMachineInput input = objectMapper.readValue(
+                requestCaptor.getValue().input(),
+                StepFunctionOrchestratorLambda.StateMachineInput.class
+        );
+
+        assertThat(input.schemaId()).isEqualTo(7L);
+        assertThat(input.schemaVersion()).isEqualTo(2);
     }
 
     private S3EventNotification.S3EventNotificationRecord buildRecord(String bucket, String key) {
@@ -3,12 +3,17 @@ package com.paul.csvpipeline.backend.lambda;
 import com.paul.csvpipeline.backend.IntegrationTestBase;
 import com.paul.csvpipeline.backend.csvupload.CsvUploadStatus;
 import com.paul.csvpipeline.backend.csvupload.entity.CsvUpload;
+import com.paul.csvpipeline.backend.csvupload.entity.CsvUploadStats;
 import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadStatsRepository;
 import com.paul.csvpipeline.backend.lambda.handler.UploadStatusLambda;
 import com.paul.csvpipeline.backend.lambda.persistence.UploadStatusRepository;
+import com.paul.csvpipeline.backend.lambda.stats.ColumnStatistics;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
 import com.paul.csvpipeline.backend.lambda.validation.ValidationError;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,6 +45,9 @@ class UploadStatusLambdaIT extends IntegrationTestBase {
     @Autowired
     private CsvUploadRepository repository;
 
+    @Autowired
+    private CsvUploadStatsRepository statsRepository;
+
     private UploadStatusRepository statusRepository;
 
     @BeforeAll
@@ -49,6 +57,7 @@ class UploadStatusLambdaIT extends IntegrationTestBase {
 
     @BeforeEach
     void clean() {
+        statsRepository.deleteAll();
         repository.deleteAll();
     }
 
@@ -91,10 +100,94 @@ class UploadStatusLambdaIT extends IntegrationTestBase {
         assertThat(refreshed.getStatus()).isEqualTo(CsvUploadStatus.VALIDATING);
     }
 
+    @Test
+    void markValidatedStoresStatisticsWithTheStatus() {
+        CsvUpload upload = seedUpload("user@example.com", "valid.csv");
+        UploadStatusLambda lambda = new UploadStatusLambda(statusRepository);
+
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(
+                upload.getId(), "VALIDATED", List.of(), List.of(amountStatistics())), null);
+
+        CsvUploadStats stats = statsRepository.findById(upload.getId()).orElseThrow();
+        assertThat(stats.getRowCount()).isEqualTo(3);
+        assertThat(stats.getStatisticsJson()).contains("\"column\":\"amount\"", "\"p50\":2.5");
+        assertThat(stats.getComputedAt()).isNotNull();
+    }
+
+    @Test
+    void revalidationDropsStoredStatistics() {
+        CsvUpload upload = seedUpload("user@example.com", "valid.csv");
+        UploadStatusLambda lambda = new UploadStatusLambda(statusRepository);
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(
+                upload.getId(), "VALIDATED", List.of(), List.of(amountStatistics())), null);
+
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(upload.getId(), "VALIDATING", null), null);
+
+        assertThat(statsRepository.findById(upload.getId())).isEmpty();
+    }
+
+    @Test
+    void validatedDeltaIsMergedIntoItsParentOnce() {
+        CsvUpload parent = seedUpload("user@example.com", "day1.csv");
+        CsvUpload delta = seedUpload("user@example.com", "day2.csv");
+        delta.setParentId(parent.getId());
+        repository.save(delta);
+        UploadStatusLambda lambda = new UploadStatusLambda(statusRepository);
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(
+                parent.getId(), "VALIDATED", List.of(), List.of(amountStatistics(3, 2.0))), null);
+
+        UploadStatusLambda.StatusRequest validated = new UploadStatusLambda.StatusRequest(
+                delta.getId(), "VALIDATED", List.of(), List.of(amountStatistics(1, 6.0)));
+        lambda.handleRequest(validated, null);
+        lambda.handleRequest(validated, null);
+
+        CsvUploadStats parentStats = statsRepository.findById(parent.getId()).orElseThrow();
+        assertThat(parentStats.getRowCount()).isEqualTo(4);
+        assertThat(parentStats.getStatisticsJson()).contains("\"mean\":3.0");
+        assertThat(statsRepository.findById(delta.getId()).orElseThrow().getRowCount()).isEqualTo(1);
+        assertThat(repository.findById(delta.getId()).orElseThrow().getMergedAt()).isNotNull();
+
+        // Validating the parent again keeps the deltas already merged into it.
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(parent.getId(), "VALIDATING", null), null);
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(
+                parent.getId(), "VALIDATED", List.of(), List.of(amountStatistics(3, 2.0))), null);
+
+        assertThat(statsRepository.findById(parent.getId()).orElseThrow().getRowCount()).isEqualTo(4);
+    }
+
+    @Test
+    void transitionsArePassedOnToDuplicates() {
+        CsvUpload original = seedUpload("user@example.com", "data.csv");
+        CsvUpload duplicate = seedUpload("user@example.com", "copy.csv");
+        duplicate.setDuplicateOf(original.getId());
+        repository.save(duplicate);
+        UploadStatusLambda lambda = new UploadStatusLambda(statusRepository);
+
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(
+                original.getId(), "VALIDATED", List.of(), List.of(amountStatistics())), null);
+
+        assertThat(repository.findById(duplicate.getId()).orElseThrow().getStatus()).isEqualTo(CsvUploadStatus.VALIDATED);
+        assertThat(statsRepository.findById(duplicate.getId()).orElseThrow().getRowCount()).isEqualTo(3);
+
+        lambda.handleRequest(new UploadStatusLambda.StatusRequest(original.getId(), "VALIDATING", null), null);
+
+        assertThat(repository.findById(duplicate.getId()).orElseThrow().getStatus()).isEqualTo(CsvUploadStatus.VALIDATING);
+        assertThat(statsRepository.findById(duplicate.getId())).isEmpty();
+    }
+
+    private static ColumnStatistics amountStatistics() {
+        return new ColumnStatistics("amount", ColumnType.DECIMAL, 3, 0, 0, 3L, null,
+                1.5, 3.5, 2.5, 0.67, Map.of("p50", 2.5), null,
+                null, null, null, null, null, null, null, null);
+    }
+
+    private static ColumnStatistics amountStatistics(long count, double mean) {
+        return new ColumnStatistics("amount", ColumnType.DECIMAL, count, 0, 0, null, null,
+                mean, mean, mean, 0.0, null, null,
+                null, null, null, null, null, null, null, null);
+    }
+
     private CsvUpload seedUpload(String email, String filename) {
-        CsvUpload upload = new CsvUpload(email, filename, 100, "text/csv", "");
-        CsvUpload saved = repository.save(upload);
-        saved.setS3Key("uploads/%s/%s/%s".formatted(email, saved.getId(), filename));
-        return repository.save(saved);
+        return repository.save(new CsvUpload(email, filename, 100, "text/csv", ""));
     }
 }
\ No newline at end of file
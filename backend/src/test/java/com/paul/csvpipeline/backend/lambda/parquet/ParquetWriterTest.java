@@ -0,0 +1,433 @@
+package com.paul.csvpipeline.backend.lambda.parquet;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParquetWriterTest {
+
+    private static final List<ColumnDefinition> SCHEMA = List.of(
+            new ColumnDefinition("id", ColumnType.INTEGER, true),
+            new ColumnDefinition("name", ColumnType.STRING),
+            new ColumnDefinition("amount", ColumnType.DECIMAL),
+            new ColumnDefinition("joined", ColumnType.DATE)
+    );
+
+    @Test
+    void deltaEncodingMatchesTheFormatSpecification() {
+        // The two examples of the DELTA_BINARY_PACKED section of the Parquet encodings spec.
+        assertThat(deltaEncode(1, 2, 3, 4, 5)).containsExactly(
+                0x80, 0x01, 0x04, 0x05, 0x02,
+                0x02, 0x00, 0x00, 0x00, 0x00);
+        assertThat(deltaEncode(7, 5, 3, 1, 2, 3, 4, 5)).containsExactly(
+                0x80, 0x01, 0x04, 0x08, 0x0E,
+                0x03, 0x02, 0x00, 0x00, 0x00,
+                0xC0, 0x3F, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00);
+    }
+
+    @Test
+    void dictionaryIndicesMixRunsAndBitPackedGroups() {
+        int[] indices = {5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 1, 2, 3};
+        ByteBuilder out = new ByteBuilder(16);
+
+        Encodings.rleBitPackedHybrid(indices, indices.length, 3, out);
+
+        // A run of ten 5s, then one padded group of eight 3-bit values.
+        assertThat(unsigned(out.toByteArray())).containsExactly(0x14, 0x05, 0x03, 0xD1, 0x00, 0x00);
+    }
+
+    @Test
+    void writesMagicBytesAroundTheFooter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParquetWriter writer = new ParquetWriter(SCHEMA, out);
+
+        write(writer, "1,Jane,120.50,2024-01-31\n2,John,+.5,-0001-06-15\n");
+        byte[] file = out.toByteArray();
+
+        assertThat(writer.rowCount()).isEqualTo(2);
+        assertThat(writer.rowGroupCount()).isEqualTo(1);
+        assertThat(new String(file, 0, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+        assertThat(new String(file, file.length - 4, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+        int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        assertThat(footerLength).isPositive().isLessThan(file.length - 12);
+    }
+
+    @Test
+    void repeatedTextIsStoredOncePerRowGroup() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            csv.append(i).append(",customer-").append(i % 3).append(",1.5,2024-01-01\n");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        write(new ParquetWriter(SCHEMA, out), csv.toString());
+        byte[] file = out.toByteArray();
+
+        assertThat(occurrences(file, "customer-1")).isEqualTo(1);
+        // Consecutive ids and a constant date delta-encode to almost nothing, like the repeated text.
+        assertThat(file.length).isLessThan(csv.length() / 3);
+    }
+
+    @Test
+    void flushesRowGroupsOnceTheyReachTheirSize() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            csv.append(i).append(",name-").append(i).append(',').append(i).append(".25,2024-01-01\n");
+        }
+        ParquetWriter writer = new ParquetWriter(SCHEMA, new ByteArrayOutputStream(), 256 * 1024);
+
+        write(writer, csv.toString());
+
+        assertThat(writer.rowCount()).isEqualTo(50_000);
+        assertThat(writer.rowGroupCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void everyValueReadsBackFromTheFooterAndPages() throws IOException {
+        String[] amounts = {"120.50", "+.5", "-0.10", "12345678901234567.89", "0.1", "1E+3", "\u0661\u0662.\u0665"};
+        StringBuilder csv = new StringBuilder();
+        List<List<Object>> expected = new ArrayList<>();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 100_000; i++) {
+            String amount = i % 11 == 0 ? i + "." + (i % 100) : amounts[i % amounts.length];
+            LocalDate joined = start.minusDays(i % 5_000);
+            csv.append(i * 7L - 1_000).append(",name-").append(i % 4_000).append(',').append(amount)
+                    .append(',').append(joined).append('\n');
+            expected.add(List.of(i * 7L - 1_000, "name-" + (i % 4_000),
+                    amount.startsWith("\u0661") ? "12.5" : amount, joined.toEpochDay()));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParquetWriter writer = new ParquetWriter(SCHEMA, out, 64 * 1024);
+
+        write(writer, csv.toString());
+        ParquetFile file = ParquetFile.read(out.toByteArray());
+
+        assertThat(writer.rowGroupCount()).isGreaterThan(5);
+        assertThat(file.rowGroups()).isEqualTo(writer.rowGroupCount());
+        assertThat(file.columns()).containsExactly("id", "name", "amount", "joined");
+        // INT64, then BYTE_ARRAY strings for the text and the exact decimals, then an INT32 DATE.
+        assertThat(file.physicalTypes()).containsExactly(2, 6, 6, 1);
+        assertThat(file.logicalTypes()).containsExactly(0, 1, 1, 6);
+        assertThat(file.rows()).hasSize(expected.size()).isEqualTo(expected);
+    }
+
+    @Test
+    void rejectsRowsThatCouldNotHavePassedValidation() throws IOException {
+        ParquetWriter writer = new ParquetWriter(SCHEMA, new ByteArrayOutputStream());
+
+        assertThatThrownBy(() -> write(writer, "1,Jane,,2024-01-31\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("amount");
+    }
+
+    private static void write(ParquetWriter writer, String csv) throws IOException {
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            while (tokenizer.nextRecord()) {
+                writer.write(tokenizer);
+            }
+        }
+        writer.finish();
+    }
+
+    private static int[] deltaEncode(long... values) {
+        ByteBuilder out = new ByteBuilder(16);
+        Encodings.deltaBinaryPacked(values, values.length, false, out);
+        return unsigned(out.toByteArray());
+    }
+
+    private static int[] unsigned(byte[] bytes) {
+        int[] values = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            values[i] = bytes[i] & 0xFF;
+        }
+        return values;
+    }
+
+    private static int occurrences(byte[] file, String text) {
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = 0; i + needle.length <= file.length; i++) {
+            if (Arrays.equals(file, i, i + needle.length, needle, 0, needle.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Independent reader for what the writer produces: uncompressed, required columns of PLAIN,
+     * RLE_DICTIONARY and DELTA_BINARY_PACKED pages. Values come back as {@link Long} for
+     * INT32 and INT64 columns and {@link String} for byte arrays.
+     */
+    private record ParquetFile(List<String> columns, List<Integer> physicalTypes, List<Integer> logicalTypes,
+                               int rowGroups, List<List<Object>> rows) {
+
+        static ParquetFile read(byte[] file) {
+            assertThat(new String(file, 0, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+            assertThat(new String(file, file.length - 4, 4, StandardCharsets.US_ASCII)).isEqualTo("PAR1");
+            int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            Map<Integer, Object> metadata = new Thrift(file, file.length - 8 - footerLength).struct();
+
+            List<String> columns = new ArrayList<>();
+            List<Integer> physicalTypes = new ArrayList<>();
+            List<Integer> logicalTypes = new ArrayList<>();
+            for (Object element : list(metadata, 2).subList(1, list(metadata, 2).size())) {
+                Map<Integer, Object> column = struct(element);
+                columns.add(new String((byte[]) column.get(4), StandardCharsets.UTF_8));
+                physicalTypes.add(((Long) column.get(1)).intValue());
+                Map<Integer, Object> logical = column.containsKey(10) ? struct(column.get(10)) : Map.of();
+                logicalTypes.add(logical.keySet().stream().findFirst().orElse(0));
+            }
+
+            List<List<Object>> rows = new ArrayList<>();
+            List<Object> rowGroups = list(metadata, 4);
+            for (Object rowGroup : rowGroups) {
+                int rowCount = (int) (long) (Long) struct(rowGroup).get(3);
+                List<List<Object>> values = new ArrayList<>();
+                for (Object chunk : list(struct(rowGroup), 1)) {
+                    Map<Integer, Object> meta = struct(struct(chunk).get(3));
+                    assertThat(meta.get(4)).as("codec").isEqualTo(0L);
+                    assertThat(meta.get(5)).as("values").isEqualTo((long) rowCount);
+                    values.add(readChunk(file, meta, rowCount));
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    List<Object> row = new ArrayList<>(values.size());
+                    for (List<Object> column : values) {
+                        row.add(column.get(i));
+                    }
+                    rows.add(row);
+                }
+            }
+            assertThat(metadata.get(3)).as("num_rows").isEqualTo((long) rows.size());
+            return new ParquetFile(columns, physicalTypes, logicalTypes, rowGroups.size(), rows);
+        }
+
+        private static List<Object> readChunk(byte[] file, Map<Integer, Object> meta, int rowCount) {
+            int type = ((Long) meta.get(1)).intValue();
+            int position = (int) (long) (Long) meta.getOrDefault(11, meta.get(9));
+            List<Object> dictionary = null;
+            List<Object> values = new ArrayList<>(rowCount);
+            while (values.size() < rowCount) {
+                Thrift thrift = new Thrift(file, position);
+                Map<Integer, Object> header = thrift.struct();
+                int size = ((Long) header.get(3)).intValue();
+                assertThat(header.get(2)).isEqualTo((long) size);
+                ByteBuffer page = ByteBuffer.wrap(file, thrift.position, size).order(ByteOrder.LITTLE_ENDIAN);
+                position = thrift.position + size;
+                if ((Long) header.get(1) == 2) {
+                    dictionary = plain(page, type, ((Long) struct(header.get(7)).get(1)).intValue());
+                    continue;
+                }
+                Map<Integer, Object> data = struct(header.get(5));
+                int count = ((Long) data.get(1)).intValue();
+                switch (((Long) data.get(2)).intValue()) {
+                    case 0 -> values.addAll(plain(page, type, count));
+                    case 8 -> {
+                        int bitWidth = page.get() & 0xFF;
+                        for (long index : rleBitPacked(page, bitWidth, count)) {
+                            values.add(dictionary.get((int) index));
+                        }
+                    }
+                    case 5 -> values.addAll(deltaBinaryPacked(page, type == 1));
+                    default -> throw new AssertionError("Unexpected encoding " + data.get(2));
+                }
+                assertThat(page.hasRemaining()).as("page fully read").isFalse();
+            }
+            return values;
+        }
+
+        private static List<Object> plain(ByteBuffer page, int type, int count) {
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                switch (type) {
+                    case 1 -> values.add((long) page.getInt());
+                    case 2 -> values.add(page.getLong());
+                    case 6 -> {
+                        byte[] bytes = new byte[page.getInt()];
+                        page.get(bytes);
+                        values.add(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    default -> throw new AssertionError("Unexpected type " + type);
+                }
+            }
+            return values;
+        }
+
+        private static long[] rleBitPacked(ByteBuffer page, int bitWidth, int count) {
+            long[] values = new long[count];
+            int read = 0;
+            while (read < count) {
+                long header = varint(page);
+                if ((header & 1) == 0) {
+                    long value = 0;
+                    for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                        value |= (long) (page.get() & 0xFF) << (8 * b);
+                    }
+                    for (long run = header >>> 1; run > 0; run--) {
+                        values[read++] = value;
+                    }
+                } else {
+                    int groupValues = (int) (header >>> 1) * 8;
+                    long[] unpacked = unpack(page, groupValues, bitWidth);
+                    for (int i = 0; i < groupValues && read < count; i++) {
+                        values[read++] = unpacked[i];
+                    }
+                }
+            }
+            return values;
+        }
+
+        private static List<Object> deltaBinaryPacked(ByteBuffer page, boolean int32) {
+            int blockSize = (int) varint(page);
+            int miniblocks = (int) varint(page);
+            int count = (int) varint(page);
+            long value = zigZag(varint(page));
+            List<Object> values = new ArrayList<>(count);
+            if (count > 0) {
+                values.add(value);
+            }
+            int miniblockSize = blockSize / miniblocks;
+            while (values.size() < count) {
+                long minDelta = zigZag(varint(page));
+                int[] widths = new int[miniblocks];
+                for (int m = 0; m < miniblocks; m++) {
+                    widths[m] = page.get() & 0xFF;
+                }
+                for (int m = 0; m < miniblocks && values.size() < count; m++) {
+                    for (long delta : unpack(page, miniblockSize, widths[m])) {
+                        if (values.size() == count) {
+                            break;
+                        }
+                        value += minDelta + delta;
+                        if (int32) {
+                            value = (int) value;
+                        }
+                        values.add(value);
+                    }
+                }
+            }
+            return values;
+        }
+
+        /** Values of {@code width} bits packed least significant bit first. */
+        private static long[] unpack(ByteBuffer page, int count, int width) {
+            long[] values = new long[count];
+            int bit = 0;
+            int start = page.position();
+            for (int i = 0; i < count; i++) {
+                long value = 0;
+                for (int b = 0; b < width; b++, bit++) {
+                    value |= (long) ((page.get(start + bit / 8) >>> (bit % 8)) & 1) << b;
+                }
+                values[i] = value;
+            }
+            page.position(start + (count * width + 7) / 8);
+            return values;
+        }
+
+        private static long varint(ByteBuffer page) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = page.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private static long zigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<Integer, Object> struct(Object value) {
+            return (Map<Integer, Object>) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Object> list(Map<Integer, Object> struct, int fieldId) {
+            return (List<Object>) struct.get(fieldId);
+        }
+    }
+
+    /** Thrift compact protocol structs as maps of field id to Long, Boolean, byte[], List or Map. */
+    private static final class Thrift {
+
+        private final byte[] bytes;
+        private int position;
+
+        Thrift(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        Map<Integer, Object> struct() {
+            Map<Integer, Object> fields = new HashMap<>();
+            int lastId = 0;
+            while (true) {
+                int header = bytes[position++] & 0xFF;
+                if (header == 0) {
+                    return fields;
+                }
+                int delta = header >>> 4;
+                int id = delta == 0 ? (int) ParquetFile.zigZag(varint()) : lastId + delta;
+                fields.put(id, value(header & 0x0F));
+                lastId = id;
+            }
+        }
+
+        private Object value(int type) {
+            return switch (type) {
+                case 1 -> true;
+                case 2 -> false;
+                case 5, 6 -> ParquetFile.zigZag(varint());
+                case 8 -> {
+                    int length = (int) varint();
+                    position += length;
+                    yield Arrays.copyOfRange(bytes, position - length, position);
+                }
+                case 9 -> {
+                    int header = bytes[position++] & 0xFF;
+                    int size = header >>> 4 == 15 ? (int) varint() : header >>> 4;
+                    List<Object> elements = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        elements.add(value(header & 0x0F));
+                    }
+                    yield elements;
+                }
+                case 12 -> struct();
+                default -> throw new AssertionError("Unexpected Thrift type " + type);
+            };
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvCompressionTest {
+
+    private static final byte[] CSV = "id,name\n1,Jane\n2,John\n".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void compressionIsToldByTheSuffix() {
+        assertThat(CsvCompression.of("uploads/a@b.com/1/data.csv")).isEqualTo(CsvCompression.NONE);
+        assertThat(CsvCompression.of("data.CSV.GZ")).isEqualTo(CsvCompression.GZIP);
+        assertThat(CsvCompression.of("data.csv.zst")).isEqualTo(CsvCompression.ZSTD);
+        assertThat(CsvCompression.of("data.gz")).isEqualTo(CsvCompression.NONE);
+        assertThat(CsvCompression.of(null)).isEqualTo(CsvCompression.NONE);
+        assertThat(CsvCompression.GZIP.stripSuffix("data.csv.gz")).isEqualTo("data.csv");
+        assertThat(CsvCompression.NONE.stripSuffix("data.csv")).isEqualTo("data.csv");
+    }
+
+    @Test
+    void gzipStreamsAreDecompressedIncludingConcatenatedMembers() throws IOException {
+        byte[] twoMembers = concat(gzip(CSV), gzip(CSV));
+
+        // Twice, so the second stream reads into the buffer the first one handed back.
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = CsvCompression.GZIP.decompress(new ByteArrayInputStream(twoMembers))) {
+                assertThat(in.readAllBytes()).isEqualTo(concat(CSV, CSV));
+            }
+        }
+    }
+
+    @Test
+    void zstdStreamsAreDecompressed() throws IOException {
+        try (InputStream in = CsvCompression.ZSTD.decompress(new ByteArrayInputStream(Zstd.compress(CSV)))) {
+            assertThat(in.readAllBytes()).isEqualTo(CSV);
+        }
+    }
+
+    @Test
+    void bytesThatAreNotGzipAreRejected() {
+        assertThatThrownBy(() -> CsvCompression.GZIP.decompress(new ByteArrayInputStream(CSV)))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+}
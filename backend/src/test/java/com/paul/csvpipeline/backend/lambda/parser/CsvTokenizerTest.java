@@ -0,0 +1,105 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvTokenizerTest {
+
+    @Test
+    void splitsAndTrimsFields() throws IOException {
+        assertThat(readAll("id , name\n 1,  Jane Doe \n"))
+                .containsExactly(List.of("id", "name"), List.of("1", "Jane Doe"));
+    }
+
+    @Test
+    void handlesQuotedFieldsWithEscapesAndLineBreaks() throws IOException {
+        assertThat(readAll("a,b\r\n\"x, \"\"y\"\"\",\" line\nbreak \"\r\n"))
+                .containsExactly(List.of("a", "b"), List.of("x, \"y\"", "line\nbreak"));
+    }
+
+    @Test
+    void skipsEmptyLinesAndKeepsTrailingEmptyField() throws IOException {
+        assertThat(readAll("\n\na,b\r\r\n1,\n"))
+                .containsExactly(List.of("a", "b"), List.of("1", ""));
+    }
+
+    @Test
+    void recordsLongerThanTheBufferAreReadWhole() throws IOException {
+        String longValue = "v".repeat(200);
+        String csv = ("\"" + longValue + "\"\"q\"," + longValue + "\n").repeat(3);
+
+        List<List<String>> records = readAll(csv, 16);
+
+        assertThat(records).hasSize(3)
+                .allSatisfy(record -> assertThat(record).containsExactly(longValue + "\"q", longValue));
+    }
+
+    @Test
+    void unterminatedQuoteFails() {
+        assertThatThrownBy(() -> readAll("a,b\n\"open,1\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("EOF");
+    }
+
+    @Test
+    void textAfterClosingQuoteFails() {
+        assertThatThrownBy(() -> readAll("\"a\"b,c\n"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void blankCheckMatchesStringIsBlank() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("\" \",x,\u2003,\u00A0\n", 64);
+        assertThat(tokenizer.nextRecord()).isTrue();
+
+        assertThat(tokenizer.isBlank(0)).isTrue();
+        assertThat(tokenizer.isBlank(1)).isFalse();
+        assertThat(tokenizer.isBlank(2)).isTrue();
+        assertThat(tokenizer.isBlank(3)).isFalse();
+    }
+
+    @Test
+    void reportsRecordOffsetsWithoutConsumingTheRecord() throws IOException {
+        CsvTokenizer tokenizer = tokenizer("a,b\n\n\"x\ny\",z\r\nlast", 16);
+
+        assertThat(tokenizer.nextRecordOffset()).isZero();
+        assertThat(tokenizer.nextRecord()).isTrue();
+        assertThat(tokenizer.nextRecordOffset()).isEqualTo(5);
+        assertThat(tokenizer.nextRecord()).isTrue();
+        assertThat(tokenizer.recordOffset()).isEqualTo(5);
+        assertThat(tokenizer.fieldAsString(0)).isEqualTo("x\ny");
+        assertThat(tokenizer.nextRecord()).isTrue();
+        assertThat(tokenizer.recordOffset()).isEqualTo(14);
+        assertThat(tokenizer.nextRecordOffset()).isEqualTo(-1);
+    }
+
+    private List<List<String>> readAll(String csv) throws IOException {
+        return readAll(csv, CsvTokenizer.DEFAULT_BUFFER_SIZE);
+    }
+
+    private List<List<String>> readAll(String csv, int bufferSize) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvTokenizer tokenizer = tokenizer(csv, bufferSize)) {
+            while (tokenizer.nextRecord()) {
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    fields.add(tokenizer.fieldAsString(i));
+                }
+                records.add(fields);
+            }
+        }
+        return records;
+    }
+
+    private CsvTokenizer tokenizer(String csv, int bufferSize) {
+        return new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+}
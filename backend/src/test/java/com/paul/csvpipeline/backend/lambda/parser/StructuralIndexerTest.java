@@ -0,0 +1,93 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuralIndexerTest {
+
+    private static final String ALPHABET = "ab ,\"\n\r\té1";
+
+    @Test
+    void scalarMasksMarkEveryStructuralByte() {
+        byte[] buf = randomCsv(new Random(1), 64 * 8).getBytes(StandardCharsets.UTF_8);
+        int blocks = buf.length / StructuralIndexer.BLOCK_BYTES;
+        long[] separators = new long[blocks];
+        long[] quotes = new long[blocks];
+        long[] newlines = new long[blocks];
+
+        StructuralIndexer.scalar().index(buf, 0, blocks, separators, quotes, newlines);
+
+        for (int i = 0; i < blocks * StructuralIndexer.BLOCK_BYTES; i++) {
+            int block = i / StructuralIndexer.BLOCK_BYTES;
+            long bit = 1L << (i % StructuralIndexer.BLOCK_BYTES);
+            assertThat((separators[block] & bit) != 0).as("separator at %d", i).isEqualTo(buf[i] == ',');
+            assertThat((quotes[block] & bit) != 0).as("quote at %d", i).isEqualTo(buf[i] == '"');
+            assertThat((newlines[block] & bit) != 0).as("newline at %d", i)
+                    .isEqualTo(buf[i] == '\n' || buf[i] == '\r');
+        }
+    }
+
+    @Test
+    void preferredIndexerMatchesScalar() {
+        // Only exercises the vector implementation when built and run with the vector profile.
+        Random random = new Random(2);
+        for (int run = 0; run < 200; run++) {
+            byte[] buf = randomCsv(random, 64 * 16).getBytes(StandardCharsets.UTF_8);
+            int blocks = buf.length / StructuralIndexer.BLOCK_BYTES;
+            long[][] expected = new long[3][blocks];
+            long[][] actual = new long[3][blocks];
+
+            StructuralIndexer.scalar().index(buf, 0, blocks, expected[0], expected[1], expected[2]);
+            StructuralIndexer.preferred().index(buf, 0, blocks, actual[0], actual[1], actual[2]);
+
+            assertThat(actual).isDeepEqualTo(expected);
+        }
+    }
+
+    @Test
+    void indexedTokenizingMatchesByteScanning() {
+        Random random = new Random(3);
+        for (int run = 0; run < 500; run++) {
+            byte[] csv = randomCsv(random, random.nextInt(600)).getBytes(StandardCharsets.UTF_8);
+            for (int bufferSize : new int[]{16, 100, CsvTokenizer.DEFAULT_BUFFER_SIZE}) {
+                String expected = tokenize(csv, bufferSize, null);
+
+                assertThat(tokenize(csv, bufferSize, StructuralIndexer.scalar())).isEqualTo(expected);
+                assertThat(tokenize(csv, bufferSize, StructuralIndexer.preferred())).isEqualTo(expected);
+            }
+        }
+    }
+
+    private static String randomCsv(Random random, int length) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            csv.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return csv.toString();
+    }
+
+    /** Records with their offsets, or what was read before a format error plus its message. */
+    private static String tokenize(byte[] csv, int bufferSize, StructuralIndexer indexer) {
+        List<String> records = new ArrayList<>();
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv), bufferSize, indexer)) {
+            while (tokenizer.nextRecord()) {
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    fields.add(tokenizer.fieldAsString(i));
+                }
+                records.add(tokenizer.recordOffset() + ":" + fields);
+            }
+        } catch (IOException ex) {
+            records.add(ex.getMessage());
+        }
+        return records.toString();
+    }
+}
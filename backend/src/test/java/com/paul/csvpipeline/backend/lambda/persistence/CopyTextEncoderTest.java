@@ -0,0 +1,61 @@
+package com.paul.csvpipeline.backend.lambda.persistence;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CopyTextEncoderTest {
+
+    private static final List<ColumnDefinition> SCHEMA = List.of(
+            new ColumnDefinition("id", ColumnType.INTEGER, true),
+            new ColumnDefinition("name", ColumnType.STRING),
+            new ColumnDefinition("amount", ColumnType.DECIMAL),
+            new ColumnDefinition("joined", ColumnType.DATE)
+    );
+
+    @Test
+    void writesValuesAsTheValidatorReadThem() throws IOException {
+        String csv = "1, Jane Doe ,120.50,2024-01-31\n" +
+                "\n" +
+                "+7,\"tab\there, \"\"quoted\"\"\",1e3,+10000-01-01\n" +
+                "007,\"back\\slash\r\nnext line\",+.5,-0001-06-15\n" +
+                "١٢,Zoë,١٢.٥,0000-02-29\n" +
+                "8,short\n";
+
+        assertThat(encode(csv)).isEqualTo(
+                "1\tJane Doe\t120.50\t2024-01-31\n" +
+                "+7\ttab\\there, \"quoted\"\t1e3\t10000-01-01\n" +
+                "007\tback\\\\slash\\r\\nnext line\t+.5\t0002-06-15 BC\n" +
+                "12\tZoë\t12.5\t0001-02-29 BC\n" +
+                "8\tshort\t\\N\t\\N\n");
+    }
+
+    @Test
+    void fieldsLargerThanTheBufferAreWrittenWhole() throws IOException {
+        String name = "x".repeat(200_000);
+
+        assertThat(encode("1," + name + ",1,2024-01-01\n2,a,2,2024-01-02\n"))
+                .isEqualTo("1\t" + name + "\t1\t2024-01-01\n2\ta\t2\t2024-01-02\n");
+    }
+
+    private static String encode(String csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CopyTextEncoder encoder = new CopyTextEncoder(SCHEMA, out);
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            while (tokenizer.nextRecord()) {
+                encoder.encode(tokenizer);
+            }
+        }
+        encoder.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
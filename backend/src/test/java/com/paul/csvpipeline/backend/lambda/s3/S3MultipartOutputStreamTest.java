@@ -0,0 +1,113 @@
+package com.paul.csvpipeline.backend.lambda.s3;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class S3MultipartOutputStreamTest {
+
+    private static final int PART = S3MultipartOutputStream.MIN_PART_SIZE;
+
+    @Test
+    void objectsSmallerThanAPartAreOnePut() throws Exception {
+        S3Client s3 = mock(S3Client.class);
+
+        try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3, "bucket", "key.csv", "text/csv", PART)) {
+            out.write(new byte[1024]);
+        }
+
+        verify(s3).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void partsUploadInParallelAndCompleteInOrder() throws Exception {
+        S3Client s3 = multipartClient();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            UploadPartRequest request = invocation.getArgument(0);
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3, "bucket", "key.csv", "text/csv", PART, executor, 3)) {
+            for (int i = 0; i < 8; i++) {
+                out.write(new byte[PART]);
+            }
+            out.write(new byte[100]);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Parts overlap, but never more than there are buffers.
+        assertThat(mostInFlight.get()).isBetween(2, 3);
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3).completeMultipartUpload(complete.capture());
+        assertThat(complete.getValue().multipartUpload().parts())
+                .extracting(CompletedPart::partNumber)
+                .containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(complete.getValue().multipartUpload().parts().get(8).eTag()).isEqualTo("etag-9");
+    }
+
+    @Test
+    void aFailedPartAbortsTheUpload() {
+        S3Client s3 = multipartClient();
+        AtomicInteger calls = new AtomicInteger();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                throw S3Exception.builder().message("part rejected").build();
+            }
+            return UploadPartResponse.builder().eTag("etag").build();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3, "bucket", "key.csv", "text/csv", PART, executor, 2);
+        try {
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 6; i++) {
+                    out.write(new byte[PART]);
+                }
+                out.close();
+            }).isInstanceOf(S3Exception.class);
+            out.abort();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private static S3Client multipartClient() {
+        S3Client s3 = mock(S3Client.class);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        return s3;
+    }
+}
@@ -0,0 +1,81 @@
+package com.paul.csvpipeline.backend.lambda.schema;
+
+import com.paul.csvpipeline.backend.lambda.persistence.SchemaRepository;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ValidatorCacheTest {
+
+    private static final List<ColumnDefinition> COLUMNS = List.of(new ColumnDefinition("id", ColumnType.INTEGER));
+
+    private final SchemaRepository repository = mock(SchemaRepository.class);
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final ValidatorCache cache = new ValidatorCache(repository, columns -> {
+        prepared.incrementAndGet();
+        return new CsvValidator(columns);
+    }, Duration.ofMinutes(15), clock::get);
+
+    @Test
+    void warmLookupsNeitherFetchNorRebuild() {
+        when(repository.findById(1L)).thenReturn(Optional.of(schema(1L, 1)));
+
+        CsvValidator first = cache.validatorFor(new SchemaRef(1L, 1));
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        CsvValidator second = cache.validatorFor(new SchemaRef(1L, 1));
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertThat(cache.validatorFor(new SchemaRef(1L, 1))).isSameAs(first).isSameAs(second);
+        verify(repository, times(1)).findById(1L);
+        assertThat(prepared).hasValue(1);
+    }
+
+    @Test
+    void entriesUnusedForTheTtlAreReloaded() {
+        when(repository.findById(1L)).thenReturn(Optional.of(schema(1L, 1)));
+
+        cache.validatorFor(new SchemaRef(1L, 1));
+        clock.addAndGet(Duration.ofMinutes(16).toNanos());
+        cache.validatorFor(new SchemaRef(1L, 1));
+
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    void loadingANewerVersionDropsOlderOnes() {
+        when(repository.findById(1L)).thenReturn(Optional.of(schema(1L, 1)));
+        when(repository.findById(2L)).thenReturn(Optional.of(schema(2L, 2)));
+
+        cache.validatorFor(new SchemaRef(1L, 1));
+        cache.validatorFor(new SchemaRef(2L, 2));
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void versionMismatchFails() {
+        when(repository.findById(1L)).thenReturn(Optional.of(schema(1L, 1)));
+
+        assertThatThrownBy(() -> cache.validatorFor(new SchemaRef(1L, 3)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private RegisteredSchema schema(long id, int version) {
+        return new RegisteredSchema(id, "user@example.com", "orders", version, COLUMNS);
+    }
+}
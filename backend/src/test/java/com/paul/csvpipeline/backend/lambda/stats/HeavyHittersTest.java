@@ -0,0 +1,151 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HeavyHittersTest {
+
+    private static final int N = 300_000;
+
+    @Test
+    void countsExactlyWhileEveryValueHasACounter() {
+        HeavyHitters tracker = new HeavyHitters(3);
+        for (String value : List.of("b", "a", "c", "a", "b", "a", "d")) {
+            add(tracker, value);
+        }
+
+        assertThat(tracker.top()).containsExactly(
+                new FrequentValue("a", 3, 0),
+                new FrequentValue("b", 2, 0),
+                new FrequentValue("c", 1, 0));
+    }
+
+    @Test
+    void findsTheMostFrequentValuesWithinTheirBounds() {
+        Map<String, Long> exact = new HashMap<>();
+        HeavyHitters tracker = new HeavyHitters();
+        for (String value : zipf(new Random(1))) {
+            exact.merge(value, 1L, Long::sum);
+            add(tracker, value);
+        }
+
+        assertWithinBounds(tracker.top(), exact);
+        assertThat(tracker.count()).isEqualTo(N);
+    }
+
+    @Test
+    void mergedTrackersKeepTheBounds() {
+        Map<String, Long> exact = new HashMap<>();
+        HeavyHitters[] parts = new HeavyHitters[6];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new HeavyHitters();
+        }
+        List<String> values = zipf(new Random(2));
+        for (int i = 0; i < values.size(); i++) {
+            exact.merge(values.get(i), 1L, Long::sum);
+            add(parts[i * parts.length / values.size()], values.get(i));
+        }
+
+        HeavyHitters merged = new HeavyHitters();
+        for (HeavyHitters part : parts) {
+            merged.merge(part);
+        }
+
+        assertWithinBounds(merged.top(), exact);
+        assertThat(merged.count()).isEqualTo(N);
+    }
+
+    @Test
+    void oneOffValuesDoNotPushOutARecurringOne() {
+        HeavyHitters tracker = new HeavyHitters(1);
+        for (int i = 0; i < 100_000; i++) {
+            add(tracker, i % 37 == 0 ? "recurring" : "once-" + i);
+        }
+
+        assertThat(tracker.top()).containsExactly(new FrequentValue("recurring", 2_703, 0));
+    }
+
+    @Test
+    void serializedFormRoundTrips() {
+        HeavyHitters tracker = new HeavyHitters();
+        for (String value : zipf(new Random(3))) {
+            add(tracker, value);
+        }
+
+        HeavyHitters copy = HeavyHitters.fromBase64(tracker.toBase64());
+
+        assertThat(copy.k()).isEqualTo(HeavyHitters.DEFAULT_K);
+        assertThat(copy.count()).isEqualTo(N);
+        assertThat(copy.top()).isEqualTo(tracker.top());
+        assertThat(copy.toBase64()).isEqualTo(tracker.toBase64());
+        HeavyHitters empty = HeavyHitters.fromBase64(new HeavyHitters(3).toBase64());
+        assertThat(empty.k()).isEqualTo(3);
+        assertThat(empty.top()).isEmpty();
+    }
+
+    @Test
+    void rejectsIncompatibleTrackers() {
+        assertThatThrownBy(() -> new HeavyHitters(10).merge(new HeavyHitters(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HeavyHitters(0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HeavyHitters.fromBase64("AQoAAQ=="))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new HeavyHitters().top()).isEmpty();
+    }
+
+    private static void add(HeavyHitters tracker, String value) {
+        // Padded so the tracker has to honour the slice bounds.
+        byte[] bytes = ("<" + value + ">").getBytes(StandardCharsets.UTF_8);
+        tracker.add(bytes, 1, bytes.length - 2);
+    }
+
+    /** Zipf-distributed values over 50,000 names: a long tail behind a few frequent ones. */
+    private static List<String> zipf(Random random) {
+        double[] cumulative = new double[50_000];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        String[] values = new String[N];
+        for (int i = 0; i < N; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            values[i] = "name-" + low;
+        }
+        return List.of(values);
+    }
+
+    /** Every reported count brackets the true one, and the reported values are the true top ten. */
+    private static void assertWithinBounds(List<FrequentValue> top, Map<String, Long> exact) {
+        assertThat(top).hasSize(HeavyHitters.DEFAULT_K);
+        for (FrequentValue value : top) {
+            assertThat(exact.get(value.value())).as(value.value())
+                    .isBetween(value.count() - value.error(), value.count());
+        }
+        assertThat(top).extracting(FrequentValue::value).containsExactlyInAnyOrderElementsOf(
+                exact.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .limit(HeavyHitters.DEFAULT_K)
+                        .map(Map.Entry::getKey)
+                        .toList());
+    }
+}
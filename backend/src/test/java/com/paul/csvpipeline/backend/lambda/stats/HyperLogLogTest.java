@@ -0,0 +1,98 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class HyperLogLogTest {
+
+    @Test
+    void hashMatchesReferenceXxHash64() {
+        byte[] text = "xNobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(XxHash64.hash(text, 0, 0)).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(XxHash64.hash("abc".getBytes(StandardCharsets.US_ASCII), 0, 3)).isEqualTo(0x44BC2CF5AD770999L);
+        assertThat(XxHash64.hash(text, 1, text.length - 1)).isEqualTo(0xFBCEA83C8A378BF1L);
+        assertThat(XxHash64.hash(0x0807060504030201L))
+                .isEqualTo(XxHash64.hash(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, 0, 8));
+    }
+
+    @Test
+    void smallCardinalitiesAreCountedExactly() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i++) {
+            byte[] value = ("user" + i % 500 + "@example.com").getBytes(StandardCharsets.UTF_8);
+            sketch.add(value, 0, value.length);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(500);
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinTheErrorBound() {
+        for (int precision : new int[]{HyperLogLog.DEFAULT_PRECISION, 14}) {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            for (long i = 0; i < 300_000; i++) {
+                sketch.add(i % 100_000);
+            }
+
+            // Three standard errors.
+            double bound = 3 * 104 / Math.sqrt(1 << precision);
+            assertThat(sketch.estimate()).isCloseTo(100_000L, withinPercentage(bound));
+        }
+    }
+
+    @Test
+    void mergedSketchesEqualOneSketchOfTheWholeInput() {
+        for (int distinct : new int[]{100, 50_000}) {
+            HyperLogLog whole = new HyperLogLog();
+            HyperLogLog[] parts = new HyperLogLog[4];
+            for (int p = 0; p < parts.length; p++) {
+                parts[p] = new HyperLogLog();
+            }
+            for (long i = 0; i < distinct; i++) {
+                whole.add(i);
+                parts[(int) (i % parts.length)].add(i);
+            }
+
+            HyperLogLog merged = new HyperLogLog();
+            for (HyperLogLog part : parts) {
+                merged.merge(HyperLogLog.fromBase64(part.toBase64()));
+            }
+
+            assertThat(merged.toBase64()).isEqualTo(whole.toBase64());
+            assertThat(merged.estimate()).isEqualTo(whole.estimate());
+        }
+    }
+
+    @Test
+    void serializedFormRoundTrips() {
+        for (int distinct : new int[]{0, 10, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(10);
+            for (long i = 0; i < distinct; i++) {
+                sketch.add(i);
+            }
+
+            HyperLogLog copy = HyperLogLog.fromBase64(sketch.toBase64());
+
+            assertThat(copy.precision()).isEqualTo(10);
+            assertThat(copy.estimate()).isEqualTo(sketch.estimate());
+            assertThat(copy.toBase64()).isEqualTo(sketch.toBase64());
+        }
+    }
+
+    @Test
+    void rejectsIncompatibleOrCorruptInput() {
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(14)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBase64("AQwA"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+}
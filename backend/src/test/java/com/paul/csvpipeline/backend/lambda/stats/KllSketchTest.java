@@ -0,0 +1,124 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KllSketchTest {
+
+    private static final int N = 200_000;
+
+    @Test
+    void smallInputsAreAnsweredExactly() {
+        KllSketch sketch = new KllSketch();
+        for (int i = 100; i >= 1; i--) {
+            sketch.update(i);
+        }
+
+        assertThat(sketch.quantiles(0, 0.5, 0.9, 0.99, 1)).containsExactly(1, 50, 90, 99, 100);
+    }
+
+    @Test
+    void rankErrorStaysWithinTheBoundForLargeInputs() {
+        double[] values = randomValues(new Random(1));
+        KllSketch sketch = new KllSketch();
+        for (double value : values) {
+            sketch.update(value);
+        }
+
+        assertThat(maxRankError(sketch, values)).isLessThan(1.7 / KllSketch.DEFAULT_K * 2);
+        assertThat(sketch.retained()).isLessThan(4 * KllSketch.DEFAULT_K);
+    }
+
+    @Test
+    void mergedSketchesKeepTheBound() {
+        double[] values = randomValues(new Random(2));
+        KllSketch[] parts = new KllSketch[8];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new KllSketch();
+        }
+        for (int i = 0; i < values.length; i++) {
+            parts[i * parts.length / values.length].update(values[i]);
+        }
+
+        KllSketch merged = new KllSketch();
+        for (KllSketch part : parts) {
+            merged.merge(KllSketch.fromBase64(part.toBase64()));
+        }
+
+        assertThat(merged.count()).isEqualTo(values.length);
+        assertThat(maxRankError(merged, values)).isLessThan(1.7 / KllSketch.DEFAULT_K * 2);
+        assertThat(merged.quantile(0)).isEqualTo(Arrays.stream(values).min().orElseThrow());
+        assertThat(merged.quantile(1)).isEqualTo(Arrays.stream(values).max().orElseThrow());
+    }
+
+    @Test
+    void serializedFormRoundTrips() {
+        KllSketch sketch = new KllSketch(64);
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.update(random.nextGaussian());
+        }
+
+        KllSketch copy = KllSketch.fromBase64(sketch.toBase64());
+
+        assertThat(copy.k()).isEqualTo(64);
+        assertThat(copy.count()).isEqualTo(sketch.count());
+        assertThat(copy.toBase64()).isEqualTo(sketch.toBase64());
+        assertThat(copy.quantiles(0.1, 0.5, 0.9)).containsExactly(sketch.quantiles(0.1, 0.5, 0.9));
+    }
+
+    @Test
+    void rejectsIncompatibleOrCorruptInput() {
+        assertThatThrownBy(() -> new KllSketch(200).merge(new KllSketch(100)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KllSketch.fromBase64("AQAAAMg="))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new KllSketch().quantile(1.5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new KllSketch().quantile(0.5)).isNaN();
+    }
+
+    private static double[] randomValues(Random random) {
+        double[] values = new double[N];
+        for (int i = 0; i < N; i++) {
+            values[i] = random.nextInt(4) == 0 ? i : random.nextGaussian() * 1_000;
+        }
+        return values;
+    }
+
+    /** Worst distance between the requested rank and the true rank range of the answer. */
+    private static double maxRankError(KllSketch sketch, double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double worst = 0;
+        for (int i = 1; i < 100; i++) {
+            double fraction = i / 100.0;
+            double answer = sketch.quantile(fraction);
+            int below = lowerBound(sorted, answer);
+            int atOrBelow = lowerBound(sorted, Math.nextUp(answer));
+            double rank = fraction * sorted.length;
+            double error = rank < below ? below - rank : Math.max(0, rank - atOrBelow);
+            worst = Math.max(worst, error / sorted.length);
+        }
+        return worst;
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
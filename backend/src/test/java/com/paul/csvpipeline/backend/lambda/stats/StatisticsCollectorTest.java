@@ -0,0 +1,181 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidationResult;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.within;
+
+class StatisticsCollectorTest {
+
+    private static final List<ColumnDefinition> SCHEMA = List.of(
+            new ColumnDefinition("id", ColumnType.INTEGER),
+            new ColumnDefinition("name", ColumnType.STRING),
+            new ColumnDefinition("email", ColumnType.EMAIL),
+            new ColumnDefinition("amount", ColumnType.DECIMAL),
+            new ColumnDefinition("joined", ColumnType.DATE)
+    );
+
+    @Test
+    void summarisesEveryColumnInOnePass() {
+        String csv = "id,name,email,amount,joined\n" +
+                "1,Jane Doe,jane@example.com,120.50,2024-01-31\n" +
+                "-7,Zoë,bad-email,zz,2023-12-01\n" +
+                "12,,z@y.io,0.5,-0001-06-15\n" +
+                "x,Al\n";
+
+        List<ColumnStatistics> statistics = validate(csv).statistics();
+
+        assertThat(statistics).extracting(ColumnStatistics::column)
+                .containsExactly("id", "name", "email", "amount", "joined");
+        assertThat(statistics).allSatisfy(column -> assertThat(column.count()).isEqualTo(4));
+
+        ColumnStatistics id = statistics.get(0);
+        assertThat(id.invalidCount()).isEqualTo(1);
+        assertThat(id.min()).isEqualTo(-7L);
+        assertThat(id.max()).isEqualTo(12L);
+        assertThat(id.mean()).isEqualTo(2.0);
+        assertThat(id.variance()).isCloseTo(((1 - 2) * (1 - 2) + 81 + 100) / 3.0, within(1e-12));
+        assertThat(id.quantiles()).containsExactly(entry("p50", 1.0), entry("p90", 12.0), entry("p99", 12.0));
+        assertThat(KllSketch.fromBase64(id.quantileSketch()).count()).isEqualTo(3);
+        assertThat(id.distinctCount()).isEqualTo(3);
+
+        ColumnStatistics name = statistics.get(1);
+        assertThat(name.blankCount()).isEqualTo(1);
+        assertThat(name.minLength()).isEqualTo(2);
+        assertThat(name.maxLength()).isEqualTo(8);
+        assertThat(name.mean()).isNull();
+        assertThat(name.quantiles()).isNull();
+        assertThat(name.distinctCount()).isEqualTo(3);
+
+        ColumnStatistics email = statistics.get(2);
+        assertThat(email.blankCount()).isEqualTo(1);
+        assertThat(email.invalidCount()).isEqualTo(1);
+        assertThat(email.minLength()).isEqualTo(6);
+        assertThat(email.maxLength()).isEqualTo(16);
+        assertThat(email.distinctCount()).isEqualTo(2);
+
+        ColumnStatistics amount = statistics.get(3);
+        assertThat(amount.min()).isEqualTo(0.5);
+        assertThat(amount.max()).isEqualTo(120.5);
+        assertThat(amount.mean()).isEqualTo(60.5);
+
+        ColumnStatistics joined = statistics.get(4);
+        assertThat(joined.blankCount()).isEqualTo(1);
+        assertThat(joined.earliest()).isEqualTo("-0001-06-15");
+        assertThat(joined.latest()).isEqualTo("2024-01-31");
+        assertThat(joined.distinctCount()).isEqualTo(3);
+    }
+
+    @Test
+    void countsDistinctNumbersByValueAndTextByBytes() {
+        String csv = "id,name,email,amount,joined\n" +
+                "7,ann,a@b.io,1.5,2024-01-01\n" +
+                "007,Ann,a@b.io,1.50,2024-01-01\n" +
+                "+7,ann ,A@b.io,-0.0,2024-01-01\n" +
+                "8,ann,a@b.io,0,bad\n";
+
+        List<ColumnStatistics> statistics = validate(csv).statistics();
+
+        assertThat(statistics).extracting(ColumnStatistics::distinctCount).containsExactly(2L, 2L, 2L, 2L, 1L);
+        assertThat(HyperLogLog.fromBase64(statistics.get(2).distinctSketch()).estimate()).isEqualTo(2);
+        assertThat(validate("id,name,email,amount,joined\n,,,,\n").statistics())
+                .allSatisfy(column -> assertThat(column.distinctCount()).isNull());
+    }
+
+    @Test
+    void reportsMostFrequentTextValuesAndEmailDomains() {
+        String csv = "id,name,email,amount,joined\n" +
+                "1,ann,a@Example.com,1,2024-01-01\n" +
+                "2,bob,b@example.COM,2,2024-01-01\n" +
+                "3,ann,c@other.org,3,2024-01-01\n" +
+                "4,,bad,4,2024-01-01\n" +
+                "5,cy,a@Example.com,5,2024-01-01\n";
+
+        List<ColumnStatistics> statistics = validate(csv).statistics();
+
+        assertThat(statistics.get(1).topValues()).containsExactly(
+                new FrequentValue("ann", 2, 0), new FrequentValue("bob", 1, 0), new FrequentValue("cy", 1, 0));
+        assertThat(statistics.get(1).topDomains()).isNull();
+        assertThat(statistics.get(2).topValues()).first().isEqualTo(new FrequentValue("a@Example.com", 2, 0));
+        assertThat(statistics.get(2).topDomains()).containsExactly(
+                new FrequentValue("example.com", 3, 0), new FrequentValue("other.org", 1, 0));
+        assertThat(statistics.get(0).topValues()).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0.1", "-0.000000000000000000001", "123456789012345", "1234567890123456789",
+            "0.1234567890123456789", "1e3", "1.5E-7", "+.5", "7.", "١٢.٥", "1e400"
+    })
+    void decimalsParseLikeBigDecimal(String value) {
+        List<ColumnDefinition> schema = List.of(new ColumnDefinition("amount", ColumnType.DECIMAL));
+        CsvValidationResult result = new CsvValidator(schema).validate(toStream("amount\n" + value + "\n"));
+
+        double expected = new BigDecimal(value).doubleValue();
+        assertThat(result.statistics().get(0).max()).isEqualTo(Double.isFinite(expected) ? expected : null);
+    }
+
+    @Test
+    void mergedMomentsMatchOneSequentialPass() {
+        Random random = new Random(7);
+        Moments whole = new Moments();
+        Moments left = new Moments();
+        Moments right = new Moments();
+        double sum = 0;
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Large offset with small spread: the naive sum of squares loses every digit here.
+            values[i] = 1e9 + random.nextGaussian();
+            sum += values[i];
+            whole.add(values[i]);
+            (i < 3_000 ? left : right).add(values[i]);
+        }
+        double mean = sum / values.length;
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        left.merge(right);
+
+        assertThat(whole.variance()).isCloseTo(squares / values.length, within(1e-3));
+        assertThat(left.count()).isEqualTo(whole.count());
+        assertThat(left.mean()).isCloseTo(whole.mean(), within(1e-5));
+        assertThat(left.variance()).isCloseTo(whole.variance(), within(1e-6));
+        assertThat(left.min()).isEqualTo(whole.min());
+        assertThat(left.max()).isEqualTo(whole.max());
+    }
+
+    @Test
+    void theEmptyCollectorRecordsNothingButStillParsesIntegers() {
+        StatisticsCollector none = StatisticsCollector.none();
+        byte[] value = "42".getBytes(StandardCharsets.UTF_8);
+
+        none.blank(0);
+        none.text(1, value, 0, value.length);
+        none.date(4, 20240101);
+
+        assertThat(none.integer(0, value, 0, value.length)).isEqualTo(42);
+        assertThat(none.toStatistics()).isEmpty();
+    }
+
+    private static CsvValidationResult validate(String csv) {
+        return new CsvValidator(SCHEMA).validate(toStream(csv));
+    }
+
+    private static ByteArrayInputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
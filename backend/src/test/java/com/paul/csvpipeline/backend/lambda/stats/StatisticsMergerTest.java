@@ -0,0 +1,156 @@
+package com.paul.csvpipeline.backend.lambda.stats;
+
+import com.paul.csvpipeline.backend.lambda.validation.ColumnDefinition;
+import com.paul.csvpipeline.backend.lambda.validation.ColumnType;
+import com.paul.csvpipeline.backend.lambda.validation.CsvValidator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class StatisticsMergerTest {
+
+    private static final List<ColumnDefinition> SCHEMA = List.of(
+            new ColumnDefinition("id", ColumnType.INTEGER),
+            new ColumnDefinition("name", ColumnType.STRING),
+            new ColumnDefinition("email", ColumnType.EMAIL),
+            new ColumnDefinition("amount", ColumnType.DECIMAL),
+            new ColumnDefinition("joined", ColumnType.DATE)
+    );
+
+    @Test
+    void mergingTwoDeltasMatchesOnePassOverBoth() {
+        Random random = new Random(42);
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder rows = i < 12_000 ? first : second;
+            rows.append(i).append(",name-").append(random.nextInt(500))
+                    .append(",u").append(i).append("@d").append(random.nextInt(5)).append(".com,")
+                    .append(random.nextInt(100_000) / 100.0).append(',')
+                    .append(2000 + random.nextInt(20)).append("-01-0").append(1 + random.nextInt(9)).append('\n');
+        }
+        first.append("x,,bad,zz,2024-13-01\n");
+
+        List<ColumnStatistics> merged = StatisticsMerger.merge(statistics(first), statistics(second));
+        List<ColumnStatistics> whole = statistics(new StringBuilder(first).append(second));
+
+        for (int c = 0; c < SCHEMA.size(); c++) {
+            ColumnStatistics expected = whole.get(c);
+            ColumnStatistics actual = merged.get(c);
+            assertThat(actual.count()).isEqualTo(expected.count());
+            assertThat(actual.blankCount()).isEqualTo(expected.blankCount());
+            assertThat(actual.invalidCount()).isEqualTo(expected.invalidCount());
+            // Merged registers are those of one sketch over everything.
+            assertThat(actual.distinctCount()).isEqualTo(expected.distinctCount());
+            assertThat(actual.min()).isEqualTo(expected.min());
+            assertThat(actual.max()).isEqualTo(expected.max());
+            assertThat(actual.minLength()).isEqualTo(expected.minLength());
+            assertThat(actual.maxLength()).isEqualTo(expected.maxLength());
+            assertThat(actual.earliest()).isEqualTo(expected.earliest());
+            assertThat(actual.latest()).isEqualTo(expected.latest());
+        }
+        ColumnStatistics amount = merged.get(3);
+        assertThat(amount.mean()).isCloseTo(whole.get(3).mean(), within(1e-9));
+        assertThat(amount.variance()).isCloseTo(whole.get(3).variance(), within(1e-6));
+        assertThat(KllSketch.fromBase64(amount.quantileSketch()).count()).isEqualTo(20_000);
+        assertThat(amount.quantiles().get("p50")).isCloseTo(500.0, within(25.0));
+    }
+
+    @Test
+    void mergedTopValuesBoundTheTrueCounts() {
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        Map<String, Long> truth = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 30_000; i++) {
+            // Skewed names, and a value that is frequent only in the second delta.
+            String name = i >= 15_000 && i % 4 == 0 ? "late" : "n" + (int) Math.floor(Math.pow(random.nextDouble(), 3) * 300);
+            truth.merge(name, 1L, Long::sum);
+            (i < 15_000 ? first : second).append(i).append(',').append(name).append(",a@b.com,1.0,2024-01-01\n");
+        }
+
+        List<FrequentValue> top = StatisticsMerger.merge(statistics(first), statistics(second)).get(1).topValues();
+
+        assertThat(top).hasSize(HeavyHitters.DEFAULT_K);
+        assertThat(top).extracting(FrequentValue::value).contains("late", "n0");
+        assertThat(top).allSatisfy(value -> assertThat(truth.get(value.value()))
+                .isBetween(value.count() - value.error(), value.count()));
+    }
+
+    @Test
+    void aValueJustBelowTheCutOffOnBothSidesSurfacesInTheUnion() {
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            first.append(i).append(",a").append(i % 10).append(",a@b.com,1.0,2024-01-01\n");
+            second.append(i).append(",b").append(i % 10).append(",a@b.com,1.0,2024-01-01\n");
+        }
+        for (int i = 0; i < 90; i++) {
+            first.append(i).append(",steady,a@b.com,1.0,2024-01-01\n");
+            second.append(i).append(",steady,a@b.com,1.0,2024-01-01\n");
+        }
+        List<ColumnStatistics> base = statistics(first);
+        List<ColumnStatistics> delta = statistics(second);
+        assertThat(base.get(1).topValues()).extracting(FrequentValue::value).doesNotContain("steady");
+
+        ColumnStatistics name = StatisticsMerger.merge(base, delta).get(1);
+
+        assertThat(name.topValues()).first().isEqualTo(new FrequentValue("steady", 180, 0));
+        assertThat(HeavyHitters.fromBase64(name.topValuesSketch()).count()).isEqualTo(2_180);
+        // Without the trackers only the reported lists remain, which never saw the value.
+        ColumnStatistics fromLists = StatisticsMerger.merge(withoutTrackers(base.get(1)), withoutTrackers(delta.get(1)));
+        assertThat(fromLists.topValues()).extracting(FrequentValue::value).doesNotContain("steady");
+        assertThat(fromLists.topValues()).allSatisfy(value -> assertThat(value.count() - value.error()).isEqualTo(100));
+        assertThat(fromLists.topValuesSketch()).isNull();
+    }
+
+    @Test
+    void aSideWithoutValidValuesContributesOnlyItsCounts() {
+        List<ColumnStatistics> merged = StatisticsMerger.merge(
+                statistics(new StringBuilder("1,a,a@b.com,2.5,2024-01-01\n")),
+                statistics(new StringBuilder("x,,bad,zz,nope\n")));
+
+        ColumnStatistics id = merged.get(0);
+        assertThat(id.count()).isEqualTo(2);
+        assertThat(id.invalidCount()).isEqualTo(1);
+        assertThat(id.mean()).isEqualTo(1.0);
+        assertThat(id.variance()).isEqualTo(0.0);
+        assertThat(merged.get(1).topValues()).extracting(FrequentValue::value).containsExactly("a");
+        assertThat(merged.get(4).earliest()).isEqualTo("2024-01-01");
+    }
+
+    @Test
+    void rejectsStatisticsOfAnotherSchema() {
+        List<ColumnStatistics> statistics = statistics(new StringBuilder("1,a,a@b.com,2.5,2024-01-01\n"));
+
+        assertThatThrownBy(() -> StatisticsMerger.merge(statistics, statistics.subList(0, 4)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StatisticsMerger.merge(statistics.subList(0, 1), statistics.subList(1, 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("id");
+    }
+
+    /** Statistics as persisted before the heavy hitters were kept alongside the top lists. */
+    private static ColumnStatistics withoutTrackers(ColumnStatistics s) {
+        return new ColumnStatistics(s.column(), s.type(), s.count(), s.blankCount(), s.invalidCount(),
+                s.distinctCount(), s.distinctSketch(), s.min(), s.max(), s.mean(), s.variance(), s.quantiles(),
+                s.quantileSketch(), s.minLength(), s.maxLength(), s.topValues(), null, s.topDomains(), null,
+                s.earliest(), s.latest());
+    }
+
+    private static List<ColumnStatistics> statistics(CharSequence rows) {
+        String csv = "id,name,email,amount,joined\n" + rows;
+        return new CsvValidator(SCHEMA)
+                .validate(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))
+                .statistics();
+    }
+}
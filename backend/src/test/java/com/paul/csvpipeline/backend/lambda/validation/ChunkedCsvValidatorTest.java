@@ -0,0 +1,198 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedCsvValidatorTest {
+
+    private static final String CSV = "id,name,email,amount\n" +
+            "1,Jane Doe,jane@example.com,120.50\n" +
+            "abc,\"Doe,\nJane\",bad-email,zz\n" +
+            "\n\r\n" +
+            "2,\"multi\r\nline\n\"\"quoted\"\"\",john@example.com,1\r\n" +
+            "3,,x@y.z,\n" +
+            "4,\"\n5,Not A Row,nope,zz\n\",a@b.c,2\n" +
+            "x,Short\n" +
+            "6,Last,last@example.com,3";
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 7, 16, 31, 64, 1024})
+    void matchesSequentialRunForAnyChunkSize(long chunkBytes) {
+        CsvValidator validator = new CsvValidator(ExpectedSchema.defaultSchema());
+
+        assertSameResult(chunked(validator, chunkBytes, CSV), validator.validate(toStream(CSV)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 5, 13, 40})
+    void matchesSequentialRunWithBoundedBudgets(long chunkBytes) {
+        for (ErrorBudget budget : new ErrorBudget[]{
+                ErrorBudget.firstErrors(2),
+                ErrorBudget.firstErrorsPerColumn(1),
+                ErrorBudget.firstErrors(3).failingFast()}) {
+            CsvValidator validator = new CsvValidator(ExpectedSchema.defaultSchema(), budget);
+
+            assertSameResult(chunked(validator, chunkBytes, CSV), validator.validate(toStream(CSV)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 9, 25})
+    void malformedRecordIsReportedWithItsSequentialRecordNumber(long chunkBytes) {
+        String csv = "id,name,email,amount\n1,a,a@b.c,1\n2,\"b\"x,a@b.c,1\n3,c,a@b.c,1\n";
+        CsvValidator validator = new CsvValidator(ExpectedSchema.defaultSchema());
+
+        CsvValidationResult result = chunked(validator, chunkBytes, csv);
+
+        assertSameResult(result, validator.validate(toStream(csv)));
+        assertThat(result.errors())
+                .anyMatch(error -> error.column().equals("file") && error.message().endsWith("in record 3"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 7, 30, 1024})
+    void reportsRepeatedUniqueValuesAgainstTheWholeFile(long chunkBytes, @TempDir Path spillDirectory) throws IOException {
+        StringBuilder csv = new StringBuilder("id,name,email,amount\n");
+        for (int row = 1; row <= 300; row++) {
+            csv.append(row % 7 == 0 ? row / 7 : row * 31 % 1009).append(",a,a@b.c,1\n");
+        }
+        CsvValidator inMemory = new CsvValidator(ExpectedSchema.defaultSchema());
+        // Small enough that every chunk spills its keys.
+        CsvValidator spilling = new CsvValidator(ExpectedSchema.defaultSchema(), ErrorBudget.unlimited(),
+                StatisticsConfig.defaults(), new UniqueKeyLimits(64, spillDirectory));
+
+        CsvValidationResult expected = inMemory.validate(toStream(csv.toString()));
+
+        assertThat(expected.errors()).isNotEmpty()
+                .allMatch(error -> error.message().startsWith("Duplicate value "));
+        assertSameResult(chunked(inMemory, chunkBytes, csv.toString()), expected);
+        assertSameResult(chunked(spilling, chunkBytes, csv.toString()), expected);
+        assertSameResult(spilling.validate(toStream(csv.toString())), expected);
+        try (var files = Files.list(spillDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void objectsBelowTheParallelThresholdAreReadAsOneStreamOnTheCallingThread() {
+        CsvValidator validator = new CsvValidator(ExpectedSchema.defaultSchema());
+        byte[] bytes = CSV.getBytes(StandardCharsets.UTF_8);
+        List<String> opened = new CopyOnWriteArrayList<>();
+        ByteRangeSource source = new ByteRangeSource() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public InputStream open(long from, long to) {
+                opened.add(from + "-" + to + " on " + Thread.currentThread().getName());
+                return new ByteArrayInputStream(bytes, (int) from, bytes.length - (int) from);
+            }
+        };
+        CsvValidationResult expected = validator.validate(toStream(CSV));
+
+        CsvValidationResult small = new ChunkedCsvValidator(validator, executor, 16, bytes.length + 1, 8).validate(source);
+
+        assertSameResult(small, expected);
+        assertThat(opened).containsExactly("0-" + bytes.length + " on " + Thread.currentThread().getName());
+
+        opened.clear();
+        CsvValidationResult split = new ChunkedCsvValidator(validator, executor, 16, bytes.length, 8).validate(source);
+
+        assertSameResult(split, expected);
+        assertThat(opened).hasSizeGreaterThanOrEqualTo((bytes.length + 15) / 16);
+    }
+
+    @Test
+    void noMoreThanMaxInFlightChunksAreStartedAheadOfTheMerge() throws Exception {
+        CsvValidator validator = new CsvValidator(ExpectedSchema.defaultSchema());
+        byte[] bytes = CSV.getBytes(StandardCharsets.UTF_8);
+        List<Long> opened = new CopyOnWriteArrayList<>();
+        CountDownLatch secondChunkOpened = new CountDownLatch(1);
+        ByteRangeSource source = new ByteRangeSource() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public InputStream open(long from, long to) throws IOException {
+                opened.add(from);
+                if (from > 0) {
+                    secondChunkOpened.countDown();
+                    return new ByteArrayInputStream(bytes, (int) from, bytes.length - (int) from);
+                }
+                // The first chunk holds up the merge; with free workers, only the window may start.
+                try {
+                    secondChunkOpened.await(5, TimeUnit.SECONDS);
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                assertThat(opened).containsExactlyInAnyOrder(0L, 15L);
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+
+        CsvValidationResult result = new ChunkedCsvValidator(validator, executor, 16, 0, 2).validate(source);
+
+        assertSameResult(result, validator.validate(toStream(CSV)));
+        assertThat(opened).hasSizeGreaterThanOrEqualTo((bytes.length + 15) / 16);
+    }
+
+    /**
+     * Exact equality, except that means and variances merged from chunks may differ from a
+     * sequential Welford run in the last bits, and merged KLL sketches compact at other points
+     * than one sketch over every row, so only their reported quantiles are compared.
+     */
+    private void assertSameResult(CsvValidationResult actual, CsvValidationResult expected) {
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .ignoringFieldsMatchingRegexes("statistics\\.quantileSketch")
+                .withComparatorForType((a, b) -> Math.abs(a - b) <= 1e-9 * Math.max(1, Math.abs(b)) ? 0 : 1, Double.class)
+                .isEqualTo(expected);
+    }
+
+    private CsvValidationResult chunked(CsvValidator validator, long chunkBytes, String csv) {
+        return new ChunkedCsvValidator(validator, executor, chunkBytes, 0, 3)
+                .validate(ByteRangeSource.of(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ByteArrayInputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
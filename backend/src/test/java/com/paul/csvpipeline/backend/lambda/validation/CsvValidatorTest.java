@@ -7,6 +7,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CsvValidatorTest {
 
@@ -65,6 +66,107 @@ class CsvValidatorTest {
                 .anyMatch(err -> err.column().equals("date") && err.message().contains("Invalid date"));
     }
 
+    @Test
+    void firstErrorsBudgetKeepsSampleAndCountsEverything() {
+        CsvValidator bounded = new CsvValidator(ExpectedSchema.defaultSchema(), ErrorBudget.firstErrors(3));
+
+        CsvValidationResult result = bounded.validate(toStream(badRows(10)));
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.errors()).hasSize(3);
+        assertThat(result.totalErrors()).isEqualTo(20);
+        assertThat(result.errorCounts()).containsEntry("id", 10L).containsEntry("email", 10L);
+        assertThat(result.complete()).isTrue();
+    }
+
+    @Test
+    void perColumnBudgetKeepsErrorsForEveryColumn() {
+        CsvValidator bounded = new CsvValidator(ExpectedSchema.defaultSchema(), ErrorBudget.firstErrorsPerColumn(2));
+
+        CsvValidationResult result = bounded.validate(toStream(badRows(10)));
+
+        assertThat(result.errors())
+                .extracting(ValidationError::column)
+                .containsExactly("id", "email", "id", "email");
+        assertThat(result.totalErrors()).isEqualTo(20);
+    }
+
+    @Test
+    void failFastStopsScanningOnceBudgetIsFull() {
+        CsvValidator bounded = new CsvValidator(ExpectedSchema.defaultSchema(), ErrorBudget.firstErrors(3).failingFast());
+
+        CsvValidationResult result = bounded.validate(toStream(badRows(10)));
+
+        assertThat(result.errors()).hasSize(3);
+        assertThat(result.totalErrors()).isEqualTo(4);
+        assertThat(result.complete()).isFalse();
+        assertThat(result.statistics()).isEmpty();
+    }
+
+    @Test
+    void prefixValidationOnlyReadsTheFirstRows() {
+        String csv = "id,name,email,amount\n" +
+                "1,Jane Doe,jane@example.com,120.50\n" +
+                "2,John Doe,john@example.com,80\n" +
+                "abc,Bad Row,bad-email,zz\n";
+
+        assertThat(validator.validatePrefix(toStream(csv), 2).valid()).isTrue();
+        CsvValidationResult result = validator.validatePrefix(toStream(csv), 3);
+        assertThat(result.valid()).isFalse();
+        assertThat(result.errors()).extracting(ValidationError::rowNumber).containsOnly(3);
+        assertThat(result.statistics()).isEmpty();
+    }
+
+    @Test
+    void prefixValidationRejectsAWrongHeader() {
+        CsvValidationResult result = validator.validatePrefix(toStream("id,name\n1,test\n"), 0);
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.errors()).extracting(ValidationError::column).containsExactly("header");
+    }
+
+    @Test
+    void prefixValidationReportsRepeatedUniqueValues() {
+        String csv = "id,name,email,amount\n" +
+                "7,Jane Doe,jane@example.com,1\n" +
+                "7,John Doe,john@example.com,2\n";
+
+        CsvValidationResult result = validator.validatePrefix(toStream(csv), 2);
+
+        assertThat(result.errors()).containsExactly(
+                new ValidationError(2, "id", "Duplicate value 7, first seen in row 1"));
+        assertThat(result.statistics()).isEmpty();
+    }
+
+    @Test
+    void repeatedUniqueValuesAreReportedWithTheirFirstRow() {
+        String csv = "id,name,email,amount\n" +
+                "7,Jane Doe,jane@example.com,1\n" +
+                "8,Jane Doe,jane@example.com,1\n" +
+                "007,Jane Doe,jane@example.com,1\n" +
+                "x,Jane Doe,jane@example.com,1\n" +
+                "7,Jane Doe,jane@example.com,1\n";
+
+        CsvValidationResult result = validator.validate(toStream(csv));
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.errorCounts()).containsEntry("id", 3L);
+        assertThat(result.errors()).containsExactly(
+                new ValidationError(4, "id", "Value is not an integer"),
+                new ValidationError(3, "id", "Duplicate value 7, first seen in row 1"),
+                new ValidationError(5, "id", "Duplicate value 7, first seen in row 1"));
+    }
+
+    @Test
+    void onlyIntegerColumnsCanBeUnique() {
+        assertThatThrownBy(() -> new ColumnDefinition("email", ColumnType.EMAIL, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String badRows(int count) {
+        return "id,name,email,amount\n" + "x,Jane Doe,bad-email,1.00\n".repeat(count);
+    }
+
     private ByteArrayInputStream toStream(String csv) {
         return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
     }
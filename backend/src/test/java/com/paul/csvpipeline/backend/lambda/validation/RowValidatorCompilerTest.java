@@ -0,0 +1,65 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import com.paul.csvpipeline.backend.lambda.parser.CsvTokenizer;
+import com.paul.csvpipeline.backend.lambda.stats.StatisticsCollector;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowValidatorCompilerTest {
+
+    @Test
+    void compiledValidatorReportsTheSameErrorsAndStatisticsAsTheInterpretedOne() throws IOException {
+        List<ColumnDefinition> schema = wideSchema(200);
+        String csv = "1,x,a@b.c,1.5,2024-01-31\n" +
+                "x,,bad,zz,2024-02-30\n" +
+                "2,y\n";
+
+        assertThat(validateAll(RowValidatorCompiler.compile(schema), schema, csv))
+                .isEqualTo(validateAll(RowValidator.interpreted(schema), schema, csv))
+                .extracting(CsvValidationResult::totalErrors)
+                .isNotEqualTo(0L);
+    }
+
+    @Test
+    void compiledValidatorsAreNotKeptByTheCompiler() {
+        RowValidator first = RowValidatorCompiler.compile(ExpectedSchema.defaultSchema());
+        RowValidator second = RowValidatorCompiler.compile(ExpectedSchema.defaultSchema());
+
+        // Each is its own hidden class, unloaded with its validator; callers cache them as needed.
+        assertThat(first.getClass().isHidden()).isTrue();
+        assertThat(second.getClass()).isNotSameAs(first.getClass());
+    }
+
+    @Test
+    void emptySchemaCompiles() throws IOException {
+        assertThat(validateAll(RowValidatorCompiler.compile(List.of()), List.of(), "a,b\n").valid()).isTrue();
+    }
+
+    private List<ColumnDefinition> wideSchema(int columns) {
+        List<ColumnDefinition> schema = new ArrayList<>();
+        ColumnType[] types = {ColumnType.INTEGER, ColumnType.STRING, ColumnType.EMAIL, ColumnType.DECIMAL, ColumnType.DATE};
+        for (int i = 0; i < columns; i++) {
+            schema.add(new ColumnDefinition("column" + i, types[i % types.length]));
+        }
+        return schema;
+    }
+
+    private CsvValidationResult validateAll(RowValidator rowValidator, List<ColumnDefinition> schema, String csv) throws IOException {
+        ValidationErrorCollector errors = new ValidationErrorCollector(schema, ErrorBudget.unlimited());
+        StatisticsCollector statistics = new StatisticsCollector(schema);
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            int rowNumber = 1;
+            while (tokenizer.nextRecord()) {
+                rowValidator.validate(tokenizer, rowNumber++, errors, statistics);
+            }
+        }
+        return errors.toResult(statistics.toStatistics());
+    }
+}
@@ -0,0 +1,107 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueKeyIndexTest {
+
+    private static final int ROWS = 200_000;
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void reportsEveryRepeatAgainstItsFirstRow() {
+        UniqueKeyIndex index = new UniqueKeyIndex(Long.MAX_VALUE, null);
+        long[] keys = {5, -1, 5, Long.MIN_VALUE, 0, -1, 5, Long.MIN_VALUE};
+        for (int i = 0; i < keys.length; i++) {
+            index.add(keys[i], i + 1);
+        }
+
+        UniqueKeyIndex.Duplicates duplicates = index.duplicates(Integer.MAX_VALUE);
+
+        assertThat(duplicates.total()).isEqualTo(4);
+        assertThat(duplicates.rows()).containsExactly(3, 6, 7, 8);
+        assertThat(duplicates.firstRows()).containsExactly(1, 2, 1, 4);
+        assertThat(duplicates.keys()).containsExactly(5, -1, 5, Long.MIN_VALUE);
+    }
+
+    @Test
+    void spilledIndexFindsTheSameDuplicates() throws IOException {
+        long[] keys = randomKeys(new Random(3));
+        try (SpillDirectory spill = new SpillDirectory(spillDirectory)) {
+            // Small enough that partitions have to be split again while looking for repeats.
+            UniqueKeyIndex index = new UniqueKeyIndex(4_096, spill);
+            for (int i = 0; i < keys.length; i++) {
+                index.add(keys[i], i + 1);
+            }
+
+            assertMatchesReference(index.duplicates(100), keys, 100);
+        }
+        try (var files = Files.list(spillDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void mergedIndexesMatchOneIndexOverAllRows() {
+        long[] keys = randomKeys(new Random(4));
+        try (SpillDirectory spill = new SpillDirectory(spillDirectory)) {
+            for (long memoryBytes : new long[]{Long.MAX_VALUE, 4_096, 1 << 20}) {
+                UniqueKeyIndex merged = new UniqueKeyIndex(memoryBytes, spill);
+                int from = 0;
+                for (int part = 1; from < keys.length; part++) {
+                    int to = Math.min(keys.length, from + part * 7_919);
+                    UniqueKeyIndex chunk = new UniqueKeyIndex(part % 2 == 0 ? 4_096 : Long.MAX_VALUE, spill);
+                    for (int i = from; i < to; i++) {
+                        chunk.add(keys[i], i - from + 1);
+                    }
+                    merged.merge(chunk, from);
+                    from = to;
+                }
+
+                assertMatchesReference(merged.duplicates(Integer.MAX_VALUE), keys, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private static long[] randomKeys(Random random) {
+        long[] keys = new long[ROWS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(ROWS);
+        }
+        return keys;
+    }
+
+    private static void assertMatchesReference(UniqueKeyIndex.Duplicates duplicates, long[] keys, int keep) {
+        Map<Long, Integer> firstRows = new HashMap<>();
+        List<Integer> rows = new ArrayList<>();
+        List<Integer> repeatedFirstRows = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            Integer first = firstRows.putIfAbsent(keys[i], i + 1);
+            if (first != null) {
+                rows.add(i + 1);
+                repeatedFirstRows.add(first);
+            }
+        }
+        int kept = Math.min(keep, rows.size());
+
+        assertThat(duplicates.total()).isEqualTo(rows.size());
+        assertThat(duplicates.rows()).containsExactly(rows.subList(0, kept).toArray(Integer[]::new));
+        assertThat(duplicates.firstRows()).containsExactly(repeatedFirstRows.subList(0, kept).toArray(Integer[]::new));
+        for (int i = 0; i < kept; i++) {
+            assertThat(duplicates.keys()[i]).isEqualTo(keys[duplicates.rows()[i] - 1]);
+        }
+    }
+}
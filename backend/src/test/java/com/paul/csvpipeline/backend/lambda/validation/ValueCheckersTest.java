@@ -0,0 +1,88 @@
+package com.paul.csvpipeline.backend.lambda.validation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValueCheckersTest {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "-0", "+0", "-", "+", "+-1", "007", "12a", "١٢٣", "１２",
+            "9223372036854775807", "9223372036854775808",
+            "-9223372036854775808", "-9223372036854775809"
+    })
+    void integerMatchesLongParseLong(String value) {
+        boolean expected;
+        try {
+            Long.parseLong(value);
+            expected = true;
+        } catch (NumberFormatException ex) {
+            expected = false;
+        }
+        byte[] bytes = bytes(value);
+        assertThat(ValueCheckers.isInteger(bytes, 0, bytes.length)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1.5", "1.", ".5", ".", "-.5", "1.2.3", "1e5", "1e", "1e+", "1E-2147483648",
+            "1e2147483647", "1e2147483648", "0.1e-2147483647", "0.12e-2147483647",
+            "1e00000000002147483647", "1e000000000021474836470", "１.５e２", "NaN", "Infinity"
+    })
+    void decimalMatchesBigDecimal(String value) {
+        boolean expected;
+        try {
+            new BigDecimal(value);
+            expected = true;
+        } catch (NumberFormatException ex) {
+            expected = false;
+        }
+        byte[] bytes = bytes(value);
+        assertThat(ValueCheckers.isDecimal(bytes, 0, bytes.length)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2024-01-31", "2024-02-29", "2023-02-29", "1900-02-29", "2000-02-29", "2024-04-31",
+            "2024-13-01", "2024-00-10", "2024-1-01", "31/01/2024", "0000-01-01", "-0000-01-01",
+            "-0001-01-01", "+2024-01-01", "+12024-01-01", "12024-01-01",
+            "+999999999-12-31", "+1000000000-01-01", "2024-01-31T00:00"
+    })
+    void dateMatchesIsoLocalDate(String value) {
+        boolean expected;
+        try {
+            LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE);
+            expected = true;
+        } catch (DateTimeParseException ex) {
+            expected = false;
+        }
+        byte[] bytes = bytes(value);
+        assertThat(ValueCheckers.isDate(bytes, 0, bytes.length)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "jane@example.com", "a@b.c", "a@b.", "@b.c", "a@.c", "a@b..c", "a@b@c.d",
+            "a b@c.d", "a@b\t.c", "é@ü.ß", "a@b.é", "bad-email"
+    })
+    void emailMatchesPattern(String value) {
+        byte[] bytes = bytes(value);
+        assertThat(ValueCheckers.isEmail(bytes, 0, bytes.length))
+                .isEqualTo(EMAIL_PATTERN.matcher(value).matches());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
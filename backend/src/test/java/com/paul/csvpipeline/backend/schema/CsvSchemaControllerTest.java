@@ -0,0 +1,109 @@
+package com.paul.csvpipeline.backend.schema;
+
+import com.paul.csvpipeline.backend.csvupload.repository.CsvUploadRepository;
+import com.paul.csvpipeline.backend.csvupload.service.S3StorageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CsvSchemaControllerTest {
+
+    private static final String ORDERS_V1 = """
+            {"name": "orders", "columns": [
+              {"name": "id", "type": "INTEGER"},
+              {"name": "placed_on", "type": "DATE"}
+            ]}""";
+    private static final String ORDERS_V2 = """
+            {"name": "orders", "columns": [
+              {"name": "id", "type": "INTEGER"},
+              {"name": "placed_on", "type": "DATE"},
+              {"name": "total", "type": "DECIMAL"}
+            ]}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CsvUploadRepository uploadRepository;
+
+    @MockitoBean
+    private S3StorageService s3StorageService;
+
+    @Test
+    @WithMockUser(username = "schemas@example.com")
+    void newDefinitionsOfTheSameNameBecomeNewVersions() throws Exception {
+        mockMvc.perform(post("/api/schemas").contentType(MediaType.APPLICATION_JSON).content(ORDERS_V1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1));
+        mockMvc.perform(post("/api/schemas").contentType(MediaType.APPLICATION_JSON).content(ORDERS_V2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2));
+
+        mockMvc.perform(get("/api/schemas/orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(jsonPath("$.columns.length()").value(3));
+        mockMvc.perform(get("/api/schemas/orders/versions/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.columns[1].type").value("DATE"));
+    }
+
+    @Test
+    @WithMockUser(username = "duplicates@example.com")
+    void duplicateColumnNamesAreRejected() throws Exception {
+        mockMvc.perform(post("/api/schemas").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"name": "dup", "columns": [
+                          {"name": "id", "type": "INTEGER"},
+                          {"name": "ID", "type": "STRING"}
+                        ]}"""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Duplicate column 'ID'"));
+    }
+
+    @Test
+    @WithMockUser(username = "uploader@example.com")
+    void uploadIsBoundToTheRequestedSchemaVersion() throws Exception {
+        mockMvc.perform(post("/api/schemas").contentType(MediaType.APPLICATION_JSON).content(ORDERS_V1))
+                .andExpect(status().isOk());
+        String created = mockMvc.perform(post("/api/schemas").contentType(MediaType.APPLICATION_JSON).content(ORDERS_V2))
+                .andReturn().getResponse().getContentAsString();
+        long latestId = Long.parseLong(created.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        String upload = mockMvc.perform(multipart("/api/uploads").file(csv()).param("schemaName", "orders"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long uploadId = Long.parseLong(upload.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        assertThat(uploadRepository.findById(uploadId))
+                .hasValueSatisfying(saved -> assertThat(saved.getSchemaId()).isEqualTo(latestId));
+    }
+
+    @Test
+    @WithMockUser(username = "uploader@example.com")
+    void uploadWithUnknownSchemaIsRejected() throws Exception {
+        mockMvc.perform(multipart("/api/uploads").file(csv()).param("schemaName", "missing"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Schema not found"));
+    }
+
+    private MockMultipartFile csv() {
+        return new MockMultipartFile("file", "orders.csv", "text/csv", "id,placed_on,total\n1,2024-01-31,9.99".getBytes());
+    }
+}
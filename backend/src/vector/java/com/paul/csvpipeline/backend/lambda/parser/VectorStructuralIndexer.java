@@ -0,0 +1,78 @@
+package com.paul.csvpipeline.backend.lambda.parser;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Compares a whole vector of bytes against each structural character at once. Loaded
+ * reflectively by {@link StructuralIndexers}; only built by the {@code vector} profile.
+ *
+ * <p>JDK 17 does not intrinsify {@link VectorMask#toLong()}, so lane masks are packed into
+ * bits with vector arithmetic instead: matching lanes get the weight {@code 1 << (lane % 8)},
+ * each group of eight bytes is summed into its top byte with one 64-bit multiply, and the
+ * per-group bytes are shifted into place and OR-reduced.
+ */
+final class VectorStructuralIndexer implements StructuralIndexer {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final long SUM_BYTES = 0x0101_0101_0101_0101L;
+
+    private static final ByteVector ZERO = ByteVector.zero(SPECIES);
+    private static final ByteVector WEIGHTS = weights();
+    private static final LongVector GROUP_SHIFTS = groupShifts();
+
+    VectorStructuralIndexer() {
+        if (BLOCK_BYTES % LANES != 0 || LANES % Long.BYTES != 0) {
+            throw new IllegalStateException("Unsupported vector shape " + SPECIES);
+        }
+    }
+
+    @Override
+    public void index(byte[] buf, int fromBlock, int toBlock, long[] separators, long[] quotes, long[] newlines) {
+        for (int block = fromBlock; block < toBlock; block++) {
+            int offset = block * BLOCK_BYTES;
+            long separator = 0;
+            long quote = 0;
+            long newline = 0;
+            for (int i = 0; i < BLOCK_BYTES; i += LANES) {
+                ByteVector bytes = ByteVector.fromArray(SPECIES, buf, offset + i);
+                separator |= bits(bytes.eq((byte) ',')) << i;
+                quote |= bits(bytes.eq((byte) '"')) << i;
+                newline |= bits(bytes.eq((byte) '\n').or(bytes.eq((byte) '\r'))) << i;
+            }
+            separators[block] = separator;
+            quotes[block] = quote;
+            newlines[block] = newline;
+        }
+    }
+
+    private static long bits(VectorMask<Byte> mask) {
+        return ZERO.blend(WEIGHTS, mask)
+                .reinterpretAsLongs()
+                .mul(SUM_BYTES)
+                .lanewise(VectorOperators.LSHR, 56)
+                .lanewise(VectorOperators.LSHL, GROUP_SHIFTS)
+                .reduceLanes(VectorOperators.OR);
+    }
+
+    private static ByteVector weights() {
+        byte[] weights = new byte[LANES];
+        for (int i = 0; i < LANES; i++) {
+            weights[i] = (byte) (1 << (i % Long.BYTES));
+        }
+        return ByteVector.fromArray(SPECIES, weights, 0);
+    }
+
+    private static LongVector groupShifts() {
+        VectorSpecies<Long> species = SPECIES.withLanes(long.class);
+        long[] shifts = new long[species.length()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = (long) i * Long.BYTES;
+        }
+        return LongVector.fromArray(species, shifts, 0);
+    }
+}
@@ -47,4 +47,24 @@ describe('authInterceptor', () => {
 
     expect(forwardedRequest.headers.has('Authorization')).toBe(false);
   });
+
+  it('does not send the token to other origins', async () => {
+    getTokenSpy.mockReturnValue('jwt-token');
+    const request = new HttpRequest(
+      'PUT',
+      'https://bucket.s3.amazonaws.com/key?X-Amz-Signature=abc',
+      null
+    );
+
+    let forwardedRequest!: HttpRequest<unknown>;
+
+    await TestBed.runInInjectionContext(() =>
+      authInterceptor(request, req => {
+        forwardedRequest = req;
+        return of(new HttpResponse({ status: 200 }));
+      })
+    );
+
+    expect(forwardedRequest.headers.has('Authorization')).toBe(false);
+  });
 });
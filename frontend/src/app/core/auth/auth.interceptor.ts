@@ -1,12 +1,16 @@
 import { HttpInterceptorFn } from '@angular/common/http';
 import { inject } from '@angular/core';
+import { API_BASE_URL } from '../api/api.config';
 import { AuthService } from './auth.service';
 
 export const authInterceptor: HttpInterceptorFn = (req, next) => {
   const authService = inject(AuthService);
   const token = authService.getToken();
 
-  if (token) {
+  // Presigned S3 URLs carry their own signature; S3 rejects a second one.
+  const toApi = req.url.startsWith('/') || req.url.startsWith(API_BASE_URL);
+
+  if (token && toApi) {
     req = req.clone({
       setHeaders: {
         Authorization: `Bearer ${token}`
@@ -85,12 +85,15 @@ export class UploadPageComponent implements OnInit, OnDestroy {
         return 'Validated';
       case 'VALIDATION_FAILED':
         return 'Validation failed';
+      case 'PERSISTED':
+        return 'Stored';
     }
   }
 
   statusClass(status: CsvUploadStatus): string {
     switch (status) {
       case 'VALIDATED':
+      case 'PERSISTED':
         return 'status success';
       case 'VALIDATION_FAILED':
         return 'status error';
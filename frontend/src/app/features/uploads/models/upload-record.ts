@@ -1,4 +1,4 @@
-export type CsvUploadStatus = 'PENDING' | 'VALIDATING' | 'VALIDATED' | 'VALIDATION_FAILED';
+export type CsvUploadStatus = 'PENDING' | 'VALIDATING' | 'VALIDATED' | 'VALIDATION_FAILED' | 'PERSISTED';
 
 export interface CsvUploadRecord {
   id: number;
@@ -8,3 +8,21 @@ export interface CsvUploadRecord {
   createdAt: string;
   updatedAt: string;
 }
+
+export interface DirectUploadPart {
+  partNumber: number;
+  url: string;
+}
+
+export interface DirectUploadSession {
+  upload: CsvUploadRecord;
+  multipartUploadId: string;
+  partSize: number;
+  parts: DirectUploadPart[];
+  expiresAt: string;
+}
+
+export interface UploadedPart {
+  partNumber: number;
+  eTag: string;
+}
@@ -69,4 +69,50 @@ describe('UploadService', () => {
       { kind: 'success', upload: response }
     ]);
   });
+
+  it('sends large files straight to S3 and completes the upload', () => {
+    const events: any[] = [];
+    const file = new File(['id,name\n1,direct'], 'direct.csv', { type: 'text/csv' });
+    const response: CsvUploadRecord = {
+      id: 7,
+      filename: 'direct.csv',
+      status: 'PENDING',
+      s3Key: 'uploads/user@example.com/7/direct.csv',
+      createdAt: '2024-01-01T00:00:00Z',
+      updatedAt: '2024-01-01T00:00:00Z'
+    };
+    const partUrl = 'https://bucket.s3.amazonaws.com/uploads/7/direct.csv?partNumber=1';
+
+    service.uploadFileDirect(file).subscribe(event => events.push(event));
+
+    const initiate = httpMock.expectOne('http://localhost:8080/api/uploads/direct');
+    expect(initiate.request.body).toEqual({
+      filename: 'direct.csv',
+      sizeBytes: file.size,
+      contentType: 'text/csv'
+    });
+    initiate.flush({
+      upload: response,
+      multipartUploadId: 'multipart-1',
+      partSize: 8 * 1024 * 1024,
+      parts: [{ partNumber: 1, url: partUrl }],
+      expiresAt: '2024-01-01T01:00:00Z'
+    });
+
+    const put = httpMock.expectOne(partUrl);
+    expect(put.request.method).toBe('PUT');
+    put.flush(null, { headers: { ETag: '"etag-1"' } });
+
+    const complete = httpMock.expectOne('http://localhost:8080/api/uploads/7/complete');
+    expect(complete.request.body).toEqual({
+      multipartUploadId: 'multipart-1',
+      parts: [{ partNumber: 1, eTag: '"etag-1"' }]
+    });
+    complete.flush(response);
+
+    expect(events).toEqual([
+      { kind: 'progress', progress: 100 },
+      { kind: 'success', upload: response }
+    ]);
+  });
 });
@@ -6,14 +6,25 @@ import {
   HttpUploadProgressEvent
 } from '@angular/common/http';
 import { Injectable } from '@angular/core';
-import { Observable, filter, map } from 'rxjs';
+import { Observable, concat, defer, filter, from, map, mergeMap, switchMap } from 'rxjs';
 import { API_BASE_URL } from '../../../core/api/api.config';
-import { CsvUploadRecord } from '../models/upload-record';
+import {
+  CsvUploadRecord,
+  DirectUploadPart,
+  DirectUploadSession,
+  UploadedPart
+} from '../models/upload-record';
 
 export type UploadStreamEvent =
   | { kind: 'progress'; progress: number }
   | { kind: 'success'; upload: CsvUploadRecord };
 
+/** Files at least this large skip the backend and go straight to S3. */
+export const DIRECT_UPLOAD_MIN_BYTES = 16 * 1024 * 1024;
+
+/** Parts of one direct upload sent at the same time. */
+const PARALLEL_PARTS = 4;
+
 @Injectable({ providedIn: 'root' })
 export class UploadService {
   private readonly uploadsUrl = `${API_BASE_URL}/api/uploads`;
@@ -25,6 +36,10 @@ export class UploadService {
   }
 
   uploadFile(file: File): Observable<UploadStreamEvent> {
+    if (file.size >= DIRECT_UPLOAD_MIN_BYTES) {
+      return this.uploadFileDirect(file);
+    }
+
     const formData = new FormData();
     formData.append('file', file, file.name);
 
@@ -52,4 +67,78 @@ export class UploadService {
       })
     );
   }
+
+  /**
+   * Registers the upload, PUTs its parts to the presigned S3 URLs the backend returns and
+   * then asks the backend to assemble them; the file's bytes never pass through the backend.
+   */
+  uploadFileDirect(file: File): Observable<UploadStreamEvent> {
+    const request = {
+      filename: file.name,
+      sizeBytes: file.size,
+      contentType: file.type || 'text/csv'
+    };
+
+    return this.http.post<DirectUploadSession>(`${this.uploadsUrl}/direct`, request).pipe(
+      switchMap(session => {
+        const sent = session.parts.map(() => 0);
+        const uploaded: UploadedPart[] = [];
+
+        const parts$ = from(session.parts).pipe(
+          mergeMap(
+            part =>
+              this.putPart(file, session.partSize, part).pipe(
+                map(event => {
+                  if (event.type === HttpEventType.UploadProgress) {
+                    sent[part.partNumber - 1] = event.loaded;
+                  } else {
+                    sent[part.partNumber - 1] = partLength(file, session.partSize, part);
+                    uploaded.push({
+                      partNumber: part.partNumber,
+                      eTag: event.headers.get('ETag') ?? ''
+                    });
+                  }
+                  const total = sent.reduce((sum, bytes) => sum + bytes, 0);
+                  const progress = file.size ? Math.round((total / file.size) * 100) : 100;
+                  return { kind: 'progress', progress } satisfies UploadStreamEvent;
+                })
+              ),
+            PARALLEL_PARTS
+          )
+        );
+
+        const complete$ = defer(() =>
+          this.http.post<CsvUploadRecord>(`${this.uploadsUrl}/${session.upload.id}/complete`, {
+            multipartUploadId: session.multipartUploadId,
+            parts: uploaded
+          })
+        ).pipe(map(upload => ({ kind: 'success', upload }) satisfies UploadStreamEvent));
+
+        return concat(parts$, complete$);
+      })
+    );
+  }
+
+  private putPart(
+    file: File,
+    partSize: number,
+    part: DirectUploadPart
+  ): Observable<HttpUploadProgressEvent | HttpResponse<unknown>> {
+    const start = (part.partNumber - 1) * partSize;
+    const request = new HttpRequest('PUT', part.url, file.slice(start, start + partSize), {
+      reportProgress: true
+    });
+
+    return this.http.request(request).pipe(
+      filter(
+        (event): event is HttpUploadProgressEvent | HttpResponse<unknown> =>
+          event.type === HttpEventType.UploadProgress || event.type === HttpEventType.Response
+      )
+    );
+  }
+}
+
+function partLength(file: File, partSize: number, part: DirectUploadPart): number {
+  const start = (part.partNumber - 1) * partSize;
+  return Math.max(0, Math.min(partSize, file.size - start));
 }
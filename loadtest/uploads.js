@@ -0,0 +1,79 @@
+// Upload latency under load, for comparing the synchronous and the 202 upload modes.
+// Run once per mode against the same backend setup, see README.md.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'sync';
+const EMAIL = __ENV.EMAIL || 'loadtest@example.com';
+const PASSWORD = __ENV.PASSWORD || 'loadtest-password';
+const ROWS = Number(__ENV.ROWS || 20000);
+
+const HEADER = 'id,name,email,amount\n';
+const BODY = Array.from({ length: ROWS }, (_, i) => `${i + 1},Load Test,row${i}@example.com,${(i % 1000) + 0.5}`).join('\n');
+
+export const options = {
+  scenarios: {
+    uploads: {
+      executor: 'constant-arrival-rate',
+      exec: 'upload',
+      rate: Number(__ENV.UPLOAD_RATE || 20),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: 50,
+      maxVUs: 400,
+    },
+    // Polling shares the servlet pool with uploads; its latency shows whether uploads starve it.
+    polling: {
+      executor: 'constant-arrival-rate',
+      exec: 'poll',
+      rate: Number(__ENV.POLL_RATE || 50),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: 20,
+      maxVUs: 200,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  // Thresholds on the tagged requests make k6 report them separately in the summary.
+  thresholds: {
+    'http_req_duration{name:upload}': ['p(99)>=0'],
+    'http_req_duration{name:poll}': ['p(99)>=0'],
+    checks: ['rate>0.99'],
+  },
+};
+
+export function setup() {
+  const json = { headers: { 'Content-Type': 'application/json' } };
+  const credentials = JSON.stringify({ email: EMAIL, password: PASSWORD });
+  http.post(`${BASE_URL}/auth/register`, credentials, json);
+  const login = http.post(`${BASE_URL}/auth/login`, credentials, json);
+  if (login.status !== 200) {
+    throw new Error(`Login failed with ${login.status}`);
+  }
+  return { auth: { Authorization: `Bearer ${login.json('token')}` } };
+}
+
+export function upload(data) {
+  // A unique first row per request, so deduplication never skips the S3 transfer.
+  const id = ROWS + 1 + __VU * 1000000 + __ITER;
+  const csv = `${HEADER}${id},Load Test,unique${id}@example.com,1.00\n${BODY}`;
+  const res = http.post(`${BASE_URL}/api/uploads`, {
+    file: http.file(csv, `load-${id}.csv`, 'text/csv'),
+  }, { headers: data.auth, tags: { name: 'upload' } });
+  check(res, { 'upload accepted': (r) => r.status === (MODE === 'async' ? 202 : 200) });
+}
+
+export function poll(data) {
+  const res = http.get(`${BASE_URL}/api/uploads`, { headers: data.auth, tags: { name: 'poll' } });
+  check(res, { 'poll ok': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+  const p99 = (name) => data.metrics[`http_req_duration{name:${name}}`].values['p(99)'];
+  const line = `${MODE}: upload p99 ${p99('upload').toFixed(1)} ms, poll p99 ${p99('poll').toFixed(1)} ms\n`;
+  return {
+    stdout: line,
+    [`results/uploads-${MODE}.json`]: JSON.stringify(data, null, 2),
+  };
+}
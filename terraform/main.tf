@@ -5,6 +5,8 @@ locals {
 
   orchestrator_function_name = "${var.lambda_function_name}-orchestrator"
   status_function_name       = "${var.lambda_function_name}-status"
+  persist_function_name      = "${var.lambda_function_name}-persist"
+  parquet_function_name      = "${var.lambda_function_name}-parquet"
 }
 
 resource "aws_s3_bucket" "csv_uploads" {
@@ -39,6 +41,36 @@ resource "aws_s3_bucket_server_side_encryption_configuration" "csv_uploads" {
   }
 }
 
+# Browsers upload parts straight to presigned URLs and need each part's ETag to complete.
+resource "aws_s3_bucket_cors_configuration" "csv_uploads" {
+  bucket = aws_s3_bucket.csv_uploads.id
+
+  cors_rule {
+    allowed_methods = ["PUT"]
+    allowed_origins = var.upload_allowed_origins
+    allowed_headers = ["*"]
+    expose_headers  = ["ETag"]
+    max_age_seconds = 3000
+  }
+}
+
+resource "aws_s3_bucket_lifecycle_configuration" "csv_uploads" {
+  bucket = aws_s3_bucket.csv_uploads.id
+
+  rule {
+    id     = "abort-incomplete-direct-uploads"
+    status = "Enabled"
+
+    filter {
+      prefix = var.s3_notification_prefix
+    }
+
+    abort_incomplete_multipart_upload {
+      days_after_initiation = var.incomplete_upload_expiry_days
+    }
+  }
+}
+
 resource "aws_cloudwatch_log_group" "lambda" {
   name              = "/aws/lambda/${var.lambda_function_name}"
   retention_in_days = var.log_retention_days
@@ -57,6 +89,18 @@ resource "aws_cloudwatch_log_group" "lambda_status" {
   tags              = local.common_tags
 }
 
+resource "aws_cloudwatch_log_group" "lambda_persist" {
+  name              = "/aws/lambda/${local.persist_function_name}"
+  retention_in_days = var.log_retention_days
+  tags              = local.common_tags
+}
+
+resource "aws_cloudwatch_log_group" "lambda_parquet" {
+  name              = "/aws/lambda/${local.parquet_function_name}"
+  retention_in_days = var.log_retention_days
+  tags              = local.common_tags
+}
+
 resource "aws_cloudwatch_log_group" "state_machine" {
   name              = "/aws/states/${var.project_name}-csv-processing"
   retention_in_days = var.log_retention_days
@@ -94,6 +138,18 @@ resource "aws_iam_role" "lambda_status" {
   tags               = local.common_tags
 }
 
+resource "aws_iam_role" "lambda_persist" {
+  name               = "${local.persist_function_name}-role"
+  assume_role_policy = data.aws_iam_policy_document.lambda_assume_role.json
+  tags               = local.common_tags
+}
+
+resource "aws_iam_role" "lambda_parquet" {
+  name               = "${local.parquet_function_name}-role"
+  assume_role_policy = data.aws_iam_policy_document.lambda_assume_role.json
+  tags               = local.common_tags
+}
+
 data "aws_iam_policy_document" "lambda_permissions" {
   statement {
     sid    = "AllowS3ReadUploads"
@@ -188,6 +244,88 @@ resource "aws_iam_role_policy" "lambda_status_inline" {
   policy = data.aws_iam_policy_document.lambda_status_permissions.json
 }
 
+data "aws_iam_policy_document" "lambda_persist_permissions" {
+  statement {
+    sid    = "AllowS3ReadUploads"
+    effect = "Allow"
+
+    actions = [
+      "s3:GetObject"
+    ]
+
+    resources = ["${aws_s3_bucket.csv_uploads.arn}/${var.s3_notification_prefix}*"]
+  }
+
+  statement {
+    sid    = "AllowLogging"
+    effect = "Allow"
+
+    actions = [
+      "logs:CreateLogGroup",
+      "logs:CreateLogStream",
+      "logs:PutLogEvents"
+    ]
+
+    resources = [
+      aws_cloudwatch_log_group.lambda_persist.arn,
+      "${aws_cloudwatch_log_group.lambda_persist.arn}:*"
+    ]
+  }
+}
+
+resource "aws_iam_role_policy" "lambda_persist_inline" {
+  name   = "${local.persist_function_name}-policy"
+  role   = aws_iam_role.lambda_persist.id
+  policy = data.aws_iam_policy_document.lambda_persist_permissions.json
+}
+
+data "aws_iam_policy_document" "lambda_parquet_permissions" {
+  statement {
+    sid    = "AllowS3ReadUploads"
+    effect = "Allow"
+
+    actions = [
+      "s3:GetObject"
+    ]
+
+    resources = ["${aws_s3_bucket.csv_uploads.arn}/${var.s3_notification_prefix}*"]
+  }
+
+  statement {
+    sid    = "AllowS3WriteParquet"
+    effect = "Allow"
+
+    actions = [
+      "s3:PutObject",
+      "s3:AbortMultipartUpload"
+    ]
+
+    resources = ["${aws_s3_bucket.csv_uploads.arn}/${var.s3_notification_prefix}*.parquet"]
+  }
+
+  statement {
+    sid    = "AllowLogging"
+    effect = "Allow"
+
+    actions = [
+      "logs:CreateLogGroup",
+      "logs:CreateLogStream",
+      "logs:PutLogEvents"
+    ]
+
+    resources = [
+      aws_cloudwatch_log_group.lambda_parquet.arn,
+      "${aws_cloudwatch_log_group.lambda_parquet.arn}:*"
+    ]
+  }
+}
+
+resource "aws_iam_role_policy" "lambda_parquet_inline" {
+  name   = "${local.parquet_function_name}-policy"
+  role   = aws_iam_role.lambda_parquet.id
+  policy = data.aws_iam_policy_document.lambda_parquet_permissions.json
+}
+
 resource "aws_lambda_function" "csv_validator" {
   function_name = var.lambda_function_name
   role          = aws_iam_role.lambda.arn
@@ -202,11 +340,25 @@ resource "aws_lambda_function" "csv_validator" {
   publish     = true
   tags        = local.common_tags
 
+  # Unique column keys beyond UNIQUE_KEY_MEMORY_MB spill to /tmp.
+  ephemeral_storage {
+    size = var.lambda_ephemeral_storage_mb
+  }
+
   environment {
     variables = {
-      DB_URL      = var.db_url
-      DB_USERNAME = var.db_username
-      DB_PASSWORD = var.db_password
+      DB_URL                   = var.db_url
+      DB_USERNAME              = var.db_username
+      DB_PASSWORD              = var.db_password
+      VALIDATION_ERROR_MODE    = var.validation_error_mode
+      VALIDATION_ERROR_LIMIT   = tostring(var.validation_error_limit)
+      VALIDATION_FAIL_FAST     = tostring(var.validation_fail_fast)
+      STATS_QUANTILE_K         = tostring(var.stats_quantile_k)
+      STATS_DISTINCT_PRECISION = tostring(var.stats_distinct_precision)
+      STATS_TOP_VALUES         = tostring(var.stats_top_values)
+      UNIQUE_KEY_MEMORY_MB     = tostring(var.unique_key_memory_mb)
+      S3_ASYNC_CLIENT          = var.lambda_s3_async_client
+      S3_MAX_CONNECTIONS       = tostring(var.lambda_s3_max_connections)
     }
   }
 
@@ -282,6 +434,74 @@ resource "aws_lambda_function" "upload_status" {
   }
 }
 
+resource "aws_lambda_function" "csv_persist" {
+  function_name = local.persist_function_name
+  role          = aws_iam_role.lambda_persist.arn
+  runtime       = "java17"
+  handler       = "com.paul.csvpipeline.backend.lambda.handler.CsvPersistLambda::handleRequest"
+
+  filename         = var.lambda_artifact_path
+  source_code_hash = filebase64sha256(var.lambda_artifact_path)
+
+  timeout     = var.lambda_timeout
+  memory_size = var.lambda_memory_size
+  publish     = true
+  tags        = local.common_tags
+
+  environment {
+    variables = {
+      DB_URL             = var.db_url
+      DB_USERNAME        = var.db_username
+      DB_PASSWORD        = var.db_password
+      S3_ASYNC_CLIENT    = var.lambda_s3_async_client
+      S3_MAX_CONNECTIONS = tostring(var.lambda_s3_max_connections)
+    }
+  }
+
+  dynamic "vpc_config" {
+    for_each = length(var.lambda_subnet_ids) > 0 && length(var.lambda_security_group_ids) > 0 ? [1] : []
+    content {
+      subnet_ids         = var.lambda_subnet_ids
+      security_group_ids = var.lambda_security_group_ids
+    }
+  }
+}
+
+resource "aws_lambda_function" "csv_parquet" {
+  function_name = local.parquet_function_name
+  role          = aws_iam_role.lambda_parquet.arn
+  runtime       = "java17"
+  handler       = "com.paul.csvpipeline.backend.lambda.handler.CsvParquetLambda::handleRequest"
+
+  filename         = var.lambda_artifact_path
+  source_code_hash = filebase64sha256(var.lambda_artifact_path)
+
+  timeout     = var.lambda_timeout
+  memory_size = var.lambda_memory_size
+  publish     = true
+  tags        = local.common_tags
+
+  environment {
+    variables = {
+      DB_URL               = var.db_url
+      DB_USERNAME          = var.db_username
+      DB_PASSWORD          = var.db_password
+      PARQUET_ROW_GROUP_MB = tostring(var.parquet_row_group_mb)
+      S3_ASYNC_CLIENT      = var.lambda_s3_async_client
+      S3_HTTP_CLIENT       = var.lambda_s3_http_client
+      S3_MAX_CONNECTIONS   = tostring(var.lambda_s3_max_connections)
+    }
+  }
+
+  dynamic "vpc_config" {
+    for_each = length(var.lambda_subnet_ids) > 0 && length(var.lambda_security_group_ids) > 0 ? [1] : []
+    content {
+      subnet_ids         = var.lambda_subnet_ids
+      security_group_ids = var.lambda_security_group_ids
+    }
+  }
+}
+
 resource "aws_lambda_permission" "allow_s3_invoke" {
   statement_id  = "AllowExecutionFromS3"
   action        = "lambda:InvokeFunction"
@@ -293,11 +513,16 @@ resource "aws_lambda_permission" "allow_s3_invoke" {
 resource "aws_s3_bucket_notification" "csv_notifications" {
   bucket = aws_s3_bucket.csv_uploads.id
 
-  lambda_function {
-    lambda_function_arn = aws_lambda_function.csv_orchestrator.arn
-    events              = ["s3:ObjectCreated:*"]
-    filter_prefix       = var.s3_notification_prefix
-    filter_suffix       = var.s3_notification_suffix
+  # One rule per suffix, so compressed uploads (.csv.gz, .csv.zst) start processing too.
+  dynamic "lambda_function" {
+    for_each = toset(var.s3_notification_suffixes)
+
+    content {
+      lambda_function_arn = aws_lambda_function.csv_orchestrator.arn
+      events              = ["s3:ObjectCreated:*"]
+      filter_prefix       = var.s3_notification_prefix
+      filter_suffix       = lambda_function.value
+    }
   }
 
   depends_on = [aws_lambda_permission.allow_s3_invoke]
@@ -331,7 +556,9 @@ data "aws_iam_policy_document" "step_functions_permissions" {
 
     resources = [
       aws_lambda_function.csv_validator.arn,
-      aws_lambda_function.upload_status.arn
+      aws_lambda_function.upload_status.arn,
+      aws_lambda_function.csv_persist.arn,
+      aws_lambda_function.csv_parquet.arn
     ]
   }
 
@@ -367,7 +594,9 @@ resource "aws_sfn_state_machine" "csv_processing" {
   role_arn = aws_iam_role.step_functions.arn
   definition = templatefile("${path.module}/state_machine/csv_processing.asl.json", {
     validator_lambda_arn = aws_lambda_function.csv_validator.arn,
-    status_lambda_arn    = aws_lambda_function.upload_status.arn
+    status_lambda_arn    = aws_lambda_function.upload_status.arn,
+    persist_lambda_arn   = aws_lambda_function.csv_persist.arn,
+    parquet_lambda_arn   = aws_lambda_function.csv_parquet.arn
   })
 
   logging_configuration {
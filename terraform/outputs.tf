@@ -32,3 +32,13 @@ output "status_lambda_name" {
   value       = aws_lambda_function.upload_status.function_name
   description = "Lambda that persists upload status transitions"
 }
+
+output "persist_lambda_name" {
+  value       = aws_lambda_function.csv_persist.function_name
+  description = "Lambda that loads validated uploads into PostgreSQL"
+}
+
+output "parquet_lambda_name" {
+  value       = aws_lambda_function.csv_parquet.function_name
+  description = "Lambda that writes Parquet copies of validated uploads"
+}
@@ -51,6 +51,78 @@ variable "lambda_memory_size" {
   default     = 512
 }
 
+variable "lambda_ephemeral_storage_mb" {
+  description = "Size of the validator Lambda's /tmp in MB"
+  type        = number
+  default     = 512
+}
+
+variable "validation_error_mode" {
+  description = "Which validation errors the Lambda keeps: FIRST_N, FIRST_N_PER_COLUMN or ALL"
+  type        = string
+  default     = "FIRST_N"
+}
+
+variable "validation_error_limit" {
+  description = "Number of validation errors kept (per column for FIRST_N_PER_COLUMN)"
+  type        = number
+  default     = 25
+}
+
+variable "validation_fail_fast" {
+  description = "Stop scanning once the FIRST_N error limit is reached"
+  type        = bool
+  default     = false
+}
+
+variable "stats_quantile_k" {
+  description = "KLL sketch size for numeric column quantiles; rank error is about 1.7 / k"
+  type        = number
+  default     = 200
+}
+
+variable "stats_distinct_precision" {
+  description = "HyperLogLog precision p for per-column distinct counts (4-18); standard error is 1.04 / sqrt(2^p)"
+  type        = number
+  default     = 12
+}
+
+variable "stats_top_values" {
+  description = "Most frequent values (and email domains) reported per STRING and EMAIL column"
+  type        = number
+  default     = 10
+}
+
+variable "unique_key_memory_mb" {
+  description = "Memory in MB for checking each unique column before its keys spill to /tmp"
+  type        = number
+  default     = 64
+}
+
+variable "parquet_row_group_mb" {
+  description = "Row group size in MB of the Parquet copies; the Parquet Lambda buffers one row group"
+  type        = number
+  default     = 64
+}
+
+variable "lambda_s3_async_client" {
+  description = "Async S3 client the validation, Parquet and persist Lambdas read through: netty, or crt for the native client"
+  type        = string
+  default     = "netty"
+}
+
+variable "lambda_s3_http_client" {
+  description = "HTTP client of the Parquet Lambda's blocking S3 writes: urlconnection, or crt for a native pooled client"
+  type        = string
+  default     = "urlconnection"
+}
+
+variable "lambda_s3_max_connections" {
+  description = "Connection pool size of the Lambdas' S3 clients"
+  type        = number
+  default     = 50
+}
+
 variable "log_retention_days" {
   description = "CloudWatch log retention"
   type        = number
@@ -63,10 +135,22 @@ variable "s3_notification_prefix" {
   default     = "uploads/"
 }
 
-variable "s3_notification_suffix" {
-  description = "Suffix filter for S3 event notifications"
-  type        = string
-  default     = ".csv"
+variable "s3_notification_suffixes" {
+  description = "Suffix filters for S3 event notifications, one per accepted upload format"
+  type        = list(string)
+  default     = [".csv", ".csv.gz", ".csv.zst"]
+}
+
+variable "upload_allowed_origins" {
+  description = "Browser origins allowed to PUT upload parts to presigned S3 URLs"
+  type        = list(string)
+  default     = ["http://localhost:4200"]
+}
+
+variable "incomplete_upload_expiry_days" {
+  description = "Days after which S3 drops the parts of direct uploads that were never completed"
+  type        = number
+  default     = 2
 }
 
 variable "tags" {